@@ -0,0 +1,72 @@
+package cwms.cda.benchmarks;
+
+import cwms.cda.data.dto.Catalog;
+import cwms.cda.data.dto.catalog.CatalogEntry;
+import cwms.cda.data.dto.catalog.LocationCatalogEntry;
+import cwms.cda.formatters.ContentType;
+import cwms.cda.formatters.Formats;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Serialization of location catalogs, up to the size of an unpaged district-wide request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CatalogFormatBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({Formats.JSONV2, Formats.JSONV1, Formats.XML})
+    public String format;
+
+    private ContentType contentType;
+    private Catalog catalog;
+
+    @Setup
+    public void setup() {
+        contentType = new ContentType(format);
+        List<CatalogEntry> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(new LocationCatalogEntry.Builder()
+                    .officeId("SWT")
+                    .name(String.format("LOC%06d-Sub", i))
+                    .nearestCity("Tulsa")
+                    .publicName("Location " + i)
+                    .longName("Benchmark location number " + i)
+                    .description("Generated for catalog benchmarks")
+                    .kind("SITE")
+                    .type("STREAM_GAGE")
+                    .timeZone("US/Central")
+                    .latitude(36.0 + i * 1e-5)
+                    .longitude(-96.0 - i * 1e-5)
+                    .horizontalDatum("NAD83")
+                    .elevation(200.0 + i % 100)
+                    .unit("m")
+                    .verticalDatum("NAVD88")
+                    .nation("US")
+                    .state("OK")
+                    .county("Tulsa")
+                    .boundingOffice("SWT")
+                    .active(true)
+                    .build());
+        }
+        catalog = new Catalog(null, size, size, entries);
+    }
+
+    @Benchmark
+    public String format() {
+        return Formats.format(contentType, catalog);
+    }
+}
@@ -0,0 +1,66 @@
+package cwms.cda.benchmarks;
+
+import cwms.cda.api.enums.Nation;
+import cwms.cda.data.dto.Location;
+import cwms.cda.formatters.ContentType;
+import cwms.cda.formatters.Formats;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * CsvV1 output and parsing of location lists, from a typical bulk load up to a district's
+ * worth of locations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CsvLocationBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private final ContentType contentType = new ContentType(Formats.CSV);
+    private List<Location> locations;
+    private String formatted;
+
+    @Setup
+    public void setup() {
+        locations = new ArrayList<>(size);
+        ZoneId zone = ZoneId.of("US/Central");
+        for (int i = 0; i < size; i++) {
+            locations.add(new Location.Builder(String.format("LOC%06d-Sub", i), "SITE", zone,
+                    36.0 + i * 1e-5, -96.0 - i * 1e-5, "NAD83", "SWT")
+                    .withPublicName("Location " + i)
+                    .withLongName("Benchmark location number " + i)
+                    .withElevation(200.0 + i % 100)
+                    .withElevationUnits("m")
+                    .withVerticalDatum("NAVD88")
+                    .withNation(Nation.US)
+                    .withStateInitial("OK")
+                    .withCountyName("Tulsa")
+                    .withActive(true)
+                    .build());
+        }
+        formatted = Formats.format(contentType, locations, Location.class);
+    }
+
+    @Benchmark
+    public String format() {
+        return Formats.format(contentType, locations, Location.class);
+    }
+
+    @Benchmark
+    public List<Location> parse() {
+        return Formats.parseContentList(contentType, formatted, Location.class);
+    }
+}
@@ -0,0 +1,81 @@
+package cwms.cda.benchmarks;
+
+import cwms.cda.data.dto.basinconnectivity.Basin;
+import cwms.cda.data.dto.basinconnectivity.Stream;
+import cwms.cda.data.dto.basinconnectivity.StreamLocation;
+import cwms.cda.formatters.ContentType;
+import cwms.cda.formatters.Formats;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Formatting a basin as a PG-JSON graph, which builds the connectivity graph of the primary
+ * stream and its tributaries before serializing it.  Size is the number of stream locations in
+ * the basin, split between the primary stream and ten tributaries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PgJsonBasinBenchmark {
+    private static final String OFFICE = "SWT";
+    private static final int TRIBUTARIES = 10;
+    private static final double LENGTH = 1000.0;
+
+    @Param({"100", "1000", "10000"})
+    public int size;
+
+    @Param({Formats.PGJSON, Formats.NAMED_PGJSON})
+    public String format;
+
+    private ContentType contentType;
+    private Basin basin;
+
+    @Setup
+    public void setup() {
+        contentType = new ContentType(format);
+        int perStream = Math.max(1, size / (TRIBUTARIES + 1));
+        List<Stream> tributaries = new ArrayList<>();
+        for (int t = 0; t < TRIBUTARIES; t++) {
+            String name = "TRIB" + t;
+            // confluences fall between the primary stream's locations, so junction nodes are added
+            double confluence = LENGTH * (t + 0.5) / TRIBUTARIES;
+            tributaries.add(new Stream.Builder(name, false, LENGTH / 4, OFFICE)
+                    .withReceivingStreamId("PRIMARY")
+                    .withConfluenceStation(confluence)
+                    .withConfluenceBank("L")
+                    .withStreamLocations(locations(name, perStream, LENGTH / 4))
+                    .build());
+        }
+        Stream primary = new Stream.Builder("PRIMARY", false, LENGTH, OFFICE)
+                .withStreamLocations(locations("PRIMARY", perStream, LENGTH))
+                .withTributaries(tributaries)
+                .build();
+        basin = new Basin.Builder("BENCH", OFFICE)
+                .withPrimaryStream(primary)
+                .build();
+    }
+
+    private static List<StreamLocation> locations(String stream, int count, double length) {
+        List<StreamLocation> retval = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double station = length * (i + 1) / (count + 1);
+            retval.add(new StreamLocation.Builder(stream + "-" + i, stream, station, "R", OFFICE)
+                    .build());
+        }
+        return retval;
+    }
+
+    @Benchmark
+    public String format() {
+        return Formats.format(contentType, basin);
+    }
+}
@@ -0,0 +1,77 @@
+package cwms.cda.benchmarks;
+
+import cwms.cda.data.dao.JsonRatingUtils;
+import hec.data.cwmsRating.RatingSet;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import mil.army.usace.hec.cwms.rating.io.xml.RatingXmlFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Round trips real rating sets, from a hundred points to roughly seventy thousand, through
+ * {@link JsonRatingUtils}. The files are the ones checked in for the cwms-data-api tests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RatingSetJsonBenchmark {
+
+    private static final String RESOURCE_DIR = "cwms/cda/data/dao/";
+
+    @Param({
+        "LENA.Stage_Flow.BASE.PRODUCTION.xml.gz",
+        "ARBU.Elev_Stor.Linear.Production.xml.gz",
+        "Black_Butte-Pool_Elev_Area_Standard_Production.xml.gz",
+        "DICK.Stage_Flow.EXSA.PRODUCTION.xml.gz"
+    })
+    public String ratingFile;
+
+    private RatingSet ratingSet;
+    private String json;
+
+    @Setup
+    public void setup() throws Exception {
+        String xml = load(RESOURCE_DIR + ratingFile);
+        ratingSet = RatingXmlFactory.ratingSet(xml);
+        json = JsonRatingUtils.toJson(ratingSet);
+    }
+
+    @Benchmark
+    public String toJson() throws Exception {
+        return JsonRatingUtils.toJson(ratingSet);
+    }
+
+    @Benchmark
+    public RatingSet fromJson() throws Exception {
+        return JsonRatingUtils.fromJson(json);
+    }
+
+    private static String load(String resource) throws IOException {
+        InputStream stream = RatingSetJsonBenchmark.class.getClassLoader().getResourceAsStream(resource);
+        if (stream == null) {
+            throw new IOException("Unable to find rating resource: " + resource);
+        }
+        if (resource.endsWith(".gz")) {
+            stream = new GZIPInputStream(stream);
+        }
+        try (InputStream in = stream) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int length; (length = in.read(buffer)) != -1; ) {
+                out.write(buffer, 0, length);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
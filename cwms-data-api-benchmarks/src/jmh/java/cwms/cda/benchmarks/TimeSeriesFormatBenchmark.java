@@ -0,0 +1,70 @@
+package cwms.cda.benchmarks;
+
+import cwms.cda.data.dto.TimeSeries;
+import cwms.cda.formatters.ContentType;
+import cwms.cda.formatters.Formats;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Serialization and parsing of time series responses at the sizes seen in production,
+ * from a day of 15 minute data up to a single request of a million points.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TimeSeriesFormatBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({Formats.JSONV2, Formats.XMLV2})
+    public String format;
+
+    private ContentType contentType;
+    private TimeSeries timeSeries;
+    private String formatted;
+
+    @Setup
+    public void setup() {
+        contentType = new ContentType(format);
+        timeSeries = buildTimeSeries(size);
+        formatted = Formats.format(contentType, timeSeries);
+    }
+
+    @Benchmark
+    public String format() {
+        return Formats.format(contentType, timeSeries);
+    }
+
+    @Benchmark
+    public TimeSeries parse() {
+        return Formats.parseContent(contentType, formatted, TimeSeries.class);
+    }
+
+    static TimeSeries buildTimeSeries(int size) {
+        ZonedDateTime begin = ZonedDateTime.of(2000, 1, 1, 0, 0, 0, 0, ZoneId.of("UTC"));
+        Duration interval = Duration.ofMinutes(15);
+        ZonedDateTime end = begin.plus(interval.multipliedBy(size - 1L));
+        TimeSeries ts = new TimeSeries(null, size, size, "BENCH.Flow.Inst.15Minutes.0.bench", "SWT",
+                begin, end, "cfs", interval);
+        long start = begin.toInstant().toEpochMilli();
+        long step = interval.toMillis();
+        for (int i = 0; i < size; i++) {
+            double value = 1000.0 + 250.0 * Math.sin(i / 96.0);
+            ts.addValue(new Timestamp(start + i * step), value, 0);
+        }
+        return ts;
+    }
+}
@@ -62,11 +62,13 @@ import cwms.cda.api.ForecastInstanceController;
 import cwms.cda.api.ForecastSpecController;
 import cwms.cda.api.LevelsAsTimeSeriesController;
 import cwms.cda.api.LevelsController;
+import cwms.cda.api.LocationBulkController;
 import cwms.cda.api.LocationCategoryController;
 import cwms.cda.api.LocationController;
 import cwms.cda.api.LocationGroupController;
 import cwms.cda.api.LookupTypeController;
 import cwms.cda.api.OfficeController;
+import cwms.cda.api.OpenApiDocumentHandler;
 import cwms.cda.api.ParametersController;
 import cwms.cda.api.PoolController;
 import cwms.cda.api.ProjectController;
@@ -95,6 +97,7 @@ import cwms.cda.api.TurbineChangesPostController;
 import cwms.cda.api.TurbineController;
 import cwms.cda.api.UnitsController;
 import cwms.cda.api.UpstreamLocationsGetController;
+import cwms.cda.api.admin.SqlStatisticsController;
 import cwms.cda.api.auth.ApiKeyController;
 import cwms.cda.api.enums.UnitSystem;
 import cwms.cda.api.errors.AlreadyExists;
@@ -105,6 +108,7 @@ import cwms.cda.api.errors.InvalidItemException;
 import cwms.cda.api.errors.JsonFieldsException;
 import cwms.cda.api.errors.NotFoundException;
 import cwms.cda.api.errors.RequiredQueryParameterException;
+import cwms.cda.api.errors.ServiceUnavailableException;
 import cwms.cda.api.location.kind.GateChangeCreateController;
 import cwms.cda.api.location.kind.GateChangeDeleteController;
 import cwms.cda.api.location.kind.GateChangeGetAllController;
@@ -152,10 +156,17 @@ import cwms.cda.api.watersupply.WaterUserController;
 import cwms.cda.api.watersupply.WaterUserCreateController;
 import cwms.cda.api.watersupply.WaterUserDeleteController;
 import cwms.cda.api.watersupply.WaterUserUpdateController;
+import cwms.cda.async.AsyncRequestDispatcher;
+import cwms.cda.compression.CompressingResponse;
+import cwms.cda.compression.ResponseCompression;
 import cwms.cda.data.dao.JooqDao;
 import cwms.cda.formatters.Formats;
 import cwms.cda.formatters.FormattingException;
 import cwms.cda.formatters.UnsupportedFormatException;
+import cwms.cda.helpers.Settings;
+import cwms.cda.limits.ConcurrencyLimiter;
+import cwms.cda.metrics.RequestTiming;
+import cwms.cda.metrics.TimedResponse;
 import cwms.cda.security.CwmsAuthException;
 import cwms.cda.security.MissingRolesException;
 import cwms.cda.security.Role;
@@ -166,12 +177,14 @@ import io.javalin.apibuilder.CrudFunction;
 import io.javalin.apibuilder.CrudHandler;
 import io.javalin.apibuilder.CrudHandlerKt;
 import io.javalin.core.JavalinConfig;
+import io.javalin.core.compression.CompressionStrategy;
 import io.javalin.core.security.RouteRole;
 import io.javalin.core.util.Header;
 import io.javalin.core.validation.JavalinValidation;
 import io.javalin.http.BadRequestResponse;
 import io.javalin.http.Handler;
 import io.javalin.http.JavalinServlet;
+import io.javalin.plugin.openapi.JavalinOpenApi;
 import io.javalin.plugin.openapi.OpenApiOptions;
 import io.javalin.plugin.openapi.OpenApiPlugin;
 import io.swagger.v3.oas.models.Components;
@@ -213,8 +226,9 @@ import org.owasp.html.PolicyFactory;
  * Setup all the information required so we can serve the request.
  *
  */
-@WebServlet(urlPatterns = { "/catalog/*",
+@WebServlet(asyncSupported = true, urlPatterns = { "/catalog/*",
     "/auth/*",
+    "/admin/*",
     "/swagger-docs",
     "/timeseries/*",
     "/offices/*",
@@ -253,6 +267,7 @@ public class ApiServlet extends HttpServlet {
     // based on https://bitbucket.hecdev.net/projects/CWMS/repos/cwms_aaa/browse/IntegrationTests/src/test/resources/sql/load_testusers.sql
     public static final String CWMS_USERS_ROLE = "CWMS Users";
     public static final String CAC_USER = "cac_auth";
+    public static final String CWMS_DBA_ROLE = "CWMS DBA Users";
     /** Default OFFICE where needed. Based on context. e.g. /cwms-data -> HQ, /spk-data -> SPK */
     public static final String OFFICE_ID = "office_id";
     public static final String DATA_SOURCE = "data_source";
@@ -271,10 +286,15 @@ public class ApiServlet extends HttpServlet {
 
     private MetricRegistry metrics;
     private Meter totalRequests;
+    private AsyncRequestDispatcher asyncDispatcher;
+    private StartupWarmup startup;
+    private OpenApiDocumentHandler openApiDocument;
+    private final List<SecurityRequirement> openApiSecurity = new ArrayList<>();
 
     private static final long serialVersionUID = 1L;
 
     JavalinServlet javalin = null;
+    private Javalin app;
 
     @Resource(name = "jdbc/CWMS3")
     DataSource cwms;
@@ -286,6 +306,12 @@ public class ApiServlet extends HttpServlet {
 
     @Override
     public void destroy() {
+        if (asyncDispatcher != null) {
+            asyncDispatcher.shutdown();
+        }
+        if (startup != null) {
+            startup.shutdown();
+        }
         javalin.destroy();
     }
 
@@ -298,7 +324,8 @@ public class ApiServlet extends HttpServlet {
         metrics = (MetricRegistry)config.getServletContext()
                 .getAttribute(MetricsServlet.METRICS_REGISTRY);
         totalRequests = metrics.meter("cwms.dataapi.total_requests");
-        
+        asyncDispatcher = new AsyncRequestDispatcher(metrics);
+
         super.init(config);
     }
 
@@ -306,6 +333,8 @@ public class ApiServlet extends HttpServlet {
     @Override
     public void init() {
         logger.atInfo().log("Initializing Javalin.");
+        startup = new StartupWarmup(metrics);
+        long javalinStart = System.nanoTime();
         JavalinValidation.register(UnitSystem.class, UnitSystem::systemFor);
         JavalinValidation.register(JooqDao.DeleteMethod.class, Controllers::getDeleteMethod);
 
@@ -313,13 +342,19 @@ public class ApiServlet extends HttpServlet {
         om.setPropertyNamingStrategy(PropertyNamingStrategies.KEBAB_CASE);
         om.registerModule(new JavaTimeModule());
 
+        final boolean serverTiming = Settings.getBoolean(RequestTiming.SERVER_TIMING_KEY, false);
+
         PolicyFactory sanitizer = new HtmlPolicyBuilder().disallowElements("<script>").toFactory();
         String context = this.getServletContext().getContextPath();
-        javalin = Javalin.createStandalone(config -> {
+        // generated from the routes' annotations on first use, or by the warmup
+        openApiDocument = new OpenApiDocumentHandler(this::buildOpenApi);
+        app = Javalin.createStandalone(config -> {
                     config.defaultContentType = "application/json";
                     config.contextPath = context;
                     getOpenApiOptions(config);
                     config.autogenerateEtags = true;
+                    // compressed by serviceJavalin or the AsyncRequestDispatcher, see ResponseCompression
+                    config.compressionStrategy(CompressionStrategy.NONE);
                     config.requestLogger((ctx, ms) -> logger.atFinest().log(ctx.toString()));
                 })
                 .attribute("PolicyFactory", sanitizer)
@@ -330,6 +365,16 @@ public class ApiServlet extends HttpServlet {
                     ctx.header("X-Frame-Options", "SAMEORIGIN");
                     ctx.header("X-XSS-Protection", "1; mode=block");
                 })
+                .after(ctx -> {
+                    RequestTiming timing = RequestTiming.current();
+                    if (timing != null) {
+                        timing.setRoute(routeName(ctx));
+                        if (serverTiming && !ctx.res.isCommitted()) {
+                            // the body hasn't been written yet so write time can't be included.
+                            ctx.header(RequestTiming.SERVER_TIMING, timing.toServerTimingHeader());
+                        }
+                    }
+                })
                 .exception(UnsupportedFormatException.class, (e, ctx) -> {
                     CdaError re = new CdaError(e.getMessage());
                     logger.atInfo().withCause(e).log(re.toString());
@@ -399,6 +444,11 @@ public class ApiServlet extends HttpServlet {
                     logger.atInfo().withCause(e).log(re.toString());
                     ctx.status(HttpServletResponse.SC_NOT_FOUND).json(re);
                 })
+                .exception(ServiceUnavailableException.class, (e, ctx) -> {
+                    CdaError re = new CdaError(e.getMessage());
+                    ctx.header("Retry-After", Integer.toString(e.getRetryAfterSeconds()));
+                    ctx.status(HttpServletResponse.SC_SERVICE_UNAVAILABLE).json(re);
+                })
                 .exception(FieldException.class, (e, ctx) -> {
                     CdaError re = new CdaError(e.getMessage(), e.getDetails(), true);
                     ctx.status(HttpServletResponse.SC_BAD_REQUEST).json(re);
@@ -448,12 +498,30 @@ public class ApiServlet extends HttpServlet {
                     CdaError errResponse = new CdaError("System Error");
                     logger.atWarning().withCause(e).log("error on request[%s]: %s",
                             errResponse.getIncidentIdentifier(), ctx.req.getRequestURI());
+                    if (ctx.res.isCommitted()) {
+                        // a streamed body is already partly sent, end it by dropping the connection
+                        AsyncRequestDispatcher.markAborted(ctx.req, e);
+                        return;
+                    }
+                    ctx.res.resetBuffer();
                     ctx.status(500);
                     ctx.contentType(ContentType.APPLICATION_JSON.toString());
                     ctx.json(errResponse);
                 })
-                .routes(this::configureRoutes)
-                .javalinServlet();
+                .routes(this::configureRoutes);
+        javalin = app.javalinServlet();
+        startup.record("javalin", javalinStart);
+
+        if (StartupWarmup.isEnabled()) {
+            startup.submit("openapi", openApiDocument::prepare);
+            startup.submit("formatters", StartupWarmup::warmFormatters);
+            startup.submit("jooq", StartupWarmup::warmJooq);
+            if (cwms != null) {
+                int connections = Settings.getInt(StartupWarmup.CONNECTIONS_KEY, 4);
+                startup.submit("connections", () -> StartupWarmup.warmConnections(cwms, connections));
+            }
+        }
+        startup.finish();
     }
 
     private String obtainFullVersion(ServletConfig servletConfig) throws ServletException {
@@ -485,14 +553,20 @@ public class ApiServlet extends HttpServlet {
 
         get("/", ctx -> ctx.result("Welcome to the CWMS REST API")
                 .contentType(Formats.PLAIN));
+        get("/swagger-docs", openApiDocument);
         // Even view on this one requires authorization
         crud("/auth/keys/{key-name}",new ApiKeyController(metrics), new RouteRole[]{new Role(CAC_USER), new Role(CWMS_USERS_ROLE)});
+        RouteRole[] adminRoles = {new Role(CWMS_DBA_ROLE)};
+        SqlStatisticsController sqlStatistics = new SqlStatisticsController(metrics);
+        get("/admin/sql-statistics", sqlStatistics, adminRoles);
+        delete("/admin/sql-statistics", sqlStatistics, adminRoles);
         cdaCrudCache("/location/category/{category-id}",
                 new LocationCategoryController(metrics), requiredRoles, 5, TimeUnit.MINUTES);
         cdaCrudCache("/location/group/{group-id}",
                 new LocationGroupController(metrics), requiredRoles, 5, TimeUnit.MINUTES);
         cdaCrudCache("/locations/{location-id}",
                 new LocationController(metrics), requiredRoles, 5, TimeUnit.MINUTES);
+        post("/locations/bulk", new LocationBulkController(metrics), requiredRoles);
         cdaCrudCache("/states/{state}",
                 new StateController(metrics), requiredRoles, 60, TimeUnit.MINUTES);
         cdaCrudCache("/counties/{county}",
@@ -664,6 +738,28 @@ public class ApiServlet extends HttpServlet {
 
         addProjectLocksHandlers("/project-locks/{name}", requiredRoles);
         addProjectLockRightsHandlers("/project-lock-rights/{project-id}", requiredRoles);
+
+        addConcurrencyLimits();
+    }
+
+    /**
+     * Bulkheads for the routes that can hold a database connection for a long time.  Limits
+     * are per route group and can be changed or disabled with cwms.dataapi.limit.* settings,
+     * see ConcurrencyLimiter.
+     */
+    private void addConcurrencyLimits() {
+        // sized with the async executors of the same name, see AsyncRequestDispatcher
+        addConcurrencyLimit("/timeseries", ConcurrencyLimiter.fromSettings(AsyncRequestDispatcher.TIMESERIES,
+                ConcurrencyLimiter.Type.AIMD, AsyncRequestDispatcher.defaultThreads(AsyncRequestDispatcher.TIMESERIES),
+                metrics));
+        addConcurrencyLimit("/catalog/{dataset}", ConcurrencyLimiter.fromSettings(AsyncRequestDispatcher.CATALOG,
+                ConcurrencyLimiter.Type.FIXED, AsyncRequestDispatcher.defaultThreads(AsyncRequestDispatcher.CATALOG),
+                metrics));
+        addConcurrencyLimit("/ratings/{rating-id}", ConcurrencyLimiter.fromSettings(AsyncRequestDispatcher.RATINGS,
+                ConcurrencyLimiter.Type.FIXED, AsyncRequestDispatcher.defaultThreads(AsyncRequestDispatcher.RATINGS),
+                metrics));
+        addConcurrencyLimit("/basins/{name}", ConcurrencyLimiter.fromSettings("basins",
+                ConcurrencyLimiter.Type.FIXED, 2, metrics));
     }
 
     private void addAccountingHandlers(String path, RouteRole[] requiredRoles) {
@@ -774,6 +870,35 @@ public class ApiServlet extends HttpServlet {
             });
         }
     }
+    /**
+     * Guards the specified path with a concurrency limiter.  A permit is acquired in a before
+     * filter and released in an after filter.  Requests that cannot get a permit in time are
+     * answered with 503 and a Retry-After header.
+     * @param path where to apply the limit.
+     * @param limiter the limiter, null to leave the path unlimited.
+     */
+    public static void addConcurrencyLimit(@NotNull String path, ConcurrencyLimiter limiter) {
+        if (limiter == null) {
+            return;
+        }
+        logger.atInfo().log("Limiting %s with %s", path, limiter);
+        String permitKey = "cda.limiter." + limiter.getName();
+        staticInstance().before(path, ctx -> {
+            ConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+            if (permit == null) {
+                throw new ServiceUnavailableException("Too many concurrent requests for "
+                        + limiter.getName() + ", please retry later.", limiter.getRetryAfterSeconds());
+            }
+            ctx.attribute(permitKey, permit);
+        });
+        staticInstance().after(path, ctx -> {
+            ConcurrencyLimiter.Permit permit = ctx.attribute(permitKey);
+            if (permit != null) {
+                permit.release(ctx.status() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+        });
+    }
+
     /**
      * This method is very similar to the ApiBuilder.crud method but the specified roles
      * are only required for the post, patch and delete methods.  getOne and getAll are always
@@ -863,13 +988,13 @@ public class ApiServlet extends HttpServlet {
 
         CdaAccessManager am = buildAccessManager(provider);
         Components components = new Components();
-        final ArrayList<SecurityRequirement> secReqs = new ArrayList<>();
+        openApiSecurity.clear();
         am.getContainedManagers().forEach(manager -> {
             components.addSecuritySchemes(manager.getName(),manager.getScheme());
             SecurityRequirement req = new SecurityRequirement();
             if (!manager.getName().equalsIgnoreCase("guestauth") && !manager.getName().equalsIgnoreCase("noauth")) {
                 req.addList(manager.getName());
-                secReqs.add(req);
+                openApiSecurity.add(req);
             }
         });
 
@@ -881,23 +1006,25 @@ public class ApiServlet extends HttpServlet {
                                    .info(applicationInfo)
                                    .addSecurityItem(new SecurityRequirement().addList(provider))
         );
-        ops.path("/swagger-docs")
-            .responseModifier((ctx,api) -> {
-                api.getPaths().forEach((key,path) -> setSecurityRequirements(key,path,secReqs));
-                return api;
-            })
-            .defaultDocumentation(doc -> {
-                doc.json("500", CdaError.class);
-                doc.json("400", CdaError.class);
-                doc.json("401", CdaError.class);
-                doc.json("403", CdaError.class);
-                doc.json("404", CdaError.class);
-            })
+        // no path, the document is served by the OpenApiDocumentHandler from buildOpenApi
+        ops.defaultDocumentation(doc -> {
+                    doc.json("500", CdaError.class);
+                    doc.json("400", CdaError.class);
+                    doc.json("401", CdaError.class);
+                    doc.json("403", CdaError.class);
+                    doc.json("404", CdaError.class);
+                })
             .activateAnnotationScanningFor("cwms.cda.api");
         config.registerPlugin(new OpenApiPlugin(ops));
 
     }
 
+    private OpenAPI buildOpenApi() {
+        OpenAPI api = JavalinOpenApi.createSchema(app);
+        api.getPaths().forEach((key, path) -> setSecurityRequirements(key, path, openApiSecurity));
+        return api;
+    }
+
     private static void setSecurityRequirements(String key, PathItem path,List<SecurityRequirement> secReqs) {
         /* clear the lock icon from the GET handlers to reduce user confusion */
         logger.atFinest().log("setting security constraints for " + key);
@@ -939,7 +1066,57 @@ public class ApiServlet extends HttpServlet {
     @Override
     protected void service(HttpServletRequest req, HttpServletResponse resp)
             throws IOException {
+        Throwable aborted = AsyncRequestDispatcher.abortedBy(req);
+        if (aborted != null) {
+            // an asynchronous request dispatched back after its streamed body failed
+            throw new IOException("Response aborted", aborted);
+        }
         totalRequests.mark();
+        // Long running GET requests are handed off to bounded executors so they do not
+        // hold a container thread for their whole duration.
+        if (asyncDispatcher == null || !asyncDispatcher.dispatch(req, resp, this::serviceJavalin)) {
+            serviceJavalin(req, resp);
+        }
+    }
+
+    private void serviceJavalin(HttpServletRequest req, HttpServletResponse resp)
+            throws IOException {
+        RequestTiming timing = RequestTiming.start();
+        timing.setRequest(req.getMethod() + " " + AsyncRequestDispatcher.requestPath(req));
+        // a dispatched request's response is already compressed, and finished, by the dispatcher
+        CompressingResponse compressing = resp instanceof CompressingResponse ? null
+                : ResponseCompression.wrap(req, resp);
+        try {
+            serviceJavalinTimed(req, new TimedResponse(compressing != null ? compressing : resp));
+            Throwable aborted = AsyncRequestDispatcher.abortedBy(req);
+            if (aborted != null) {
+                // ending the body normally would make a truncated response look complete
+                throw new IOException("Response aborted", aborted);
+            }
+            if (compressing != null) {
+                compressing.finish();
+            }
+        } finally {
+            RequestTiming.end();
+            timing.publish(metrics);
+        }
+    }
+
+    private static String routeName(io.javalin.http.Context ctx) {
+        String path;
+        try {
+            path = ctx.endpointHandlerPath();
+        } catch (IllegalStateException ex) {
+            path = null;
+        }
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        return path + "." + ctx.method();
+    }
+
+    private void serviceJavalinTimed(HttpServletRequest req, HttpServletResponse resp)
+            throws IOException {
         try {
             String office = officeFromContext(req.getContextPath());
             req.setAttribute(OFFICE_ID, office);
@@ -0,0 +1,183 @@
+package cwms.cda;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.flogger.FluentLogger;
+import cwms.cda.data.dto.CwmsDTOBase;
+import cwms.cda.formatters.Formats;
+import cwms.cda.helpers.Settings;
+import io.github.classgraph.ClassGraph;
+import io.github.classgraph.ClassInfo;
+import io.github.classgraph.ScanResult;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import usace.cwms.db.jooq.codegen.tables.AV_LOC2;
+
+/**
+ * Times the phases of servlet startup and does the work the first requests would otherwise do,
+ * in parallel and off of the startup thread, so the servlet is ready sooner and its first
+ * requests aren't slow.
+ *
+ * <p>Each phase's time is reported as the {@value #METRIC_PREFIX}.&lt;phase&gt; timer.  A phase
+ * that fails is logged, the request that needs its work just does it as it would have anyway.
+ * Settings (system property or environment variable):
+ * <ul>
+ *     <li>{@value #WARMUP_KEY} - warm up after startup, default true</li>
+ *     <li>{@value #CONNECTIONS_KEY} - connections opened at once to fill the pool, default 4</li>
+ * </ul>
+ */
+final class StartupWarmup {
+    private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+    static final String WARMUP_KEY = "cwms.dataapi.startup.warmup";
+    static final String CONNECTIONS_KEY = "cwms.dataapi.startup.warmup.connections";
+    static final String METRIC_PREFIX = "cwms.dataapi.startup";
+
+    private final MetricRegistry metrics;
+    private final long startNanos = System.nanoTime();
+    private final List<CompletableFuture<Void>> phases = new ArrayList<>();
+    private ExecutorService executor;
+
+    StartupWarmup(MetricRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    static boolean isEnabled() {
+        return Settings.getBoolean(WARMUP_KEY, true);
+    }
+
+    /**
+     * Records a phase that ran on the startup thread.
+     *
+     * @param phase      the name of the phase
+     * @param phaseStart when the phase started, from {@link System#nanoTime()}
+     */
+    void record(String phase, long phaseStart) {
+        long elapsed = System.nanoTime() - phaseStart;
+        metrics.timer(name(METRIC_PREFIX, phase)).update(elapsed, TimeUnit.NANOSECONDS);
+        logger.atInfo().log("Startup phase %s took %d ms", phase, TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    /**
+     * Runs a phase in parallel with the other submitted phases.
+     *
+     * @param phase the name of the phase
+     * @param work  the phase, its result is logged
+     */
+    synchronized void submit(String phase, Callable<?> work) {
+        if (executor == null) {
+            int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+            executor = Executors.newFixedThreadPool(threads, new WarmupThreadFactory());
+        }
+        phases.add(CompletableFuture.runAsync(() -> {
+            long phaseStart = System.nanoTime();
+            try {
+                Object result = work.call();
+                logger.atFine().log("Warmed %s: %s", phase, result);
+                record(phase, phaseStart);
+            } catch (Exception ex) {
+                logger.atWarning().withCause(ex).log("Unable to warm %s, continuing without it", phase);
+            }
+        }, executor));
+    }
+
+    /**
+     * Records the whole startup once every submitted phase is done, and lets the threads go.
+     */
+    synchronized void finish() {
+        if (executor == null) {
+            record("total", startNanos);
+            return;
+        }
+        ExecutorService done = executor;
+        CompletableFuture.allOf(phases.toArray(new CompletableFuture<?>[0]))
+                .whenComplete((ignored, ex) -> {
+                    record("total", startNanos);
+                    done.shutdown();
+                });
+    }
+
+    /**
+     * Stops phases that are still running, when the servlet is destroyed before they are done.
+     */
+    synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates the formatters of every data transfer class.
+     *
+     * @return the number of formatters created
+     */
+    static int warmFormatters() {
+        int count = 0;
+        try (ScanResult scan = new ClassGraph()
+                .enableClassInfo()
+                .acceptPackages("cwms.cda.data.dto")
+                .scan()) {
+            for (ClassInfo info : scan.getSubclasses(CwmsDTOBase.class.getName())) {
+                if (!info.isAbstract()) {
+                    count += Formats.warm(info.loadClass(CwmsDTOBase.class));
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Renders a query, which loads jOOQ's rendering and the generated schema classes.
+     *
+     * @return the rendered query
+     */
+    static String warmJooq() {
+        return DSL.using(SQLDialect.ORACLE18C)
+                .selectFrom(AV_LOC2.AV_LOC2)
+                .where(DSL.upper(AV_LOC2.AV_LOC2.DB_OFFICE_ID).eq("HQ"))
+                .getSQL();
+    }
+
+    /**
+     * Holds several connections at once, so the pool opens that many before requests need them.
+     *
+     * @return the number of connections opened
+     */
+    static int warmConnections(DataSource dataSource, int count) throws SQLException {
+        List<Connection> held = new ArrayList<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                held.add(dataSource.getConnection());
+            }
+        } finally {
+            for (Connection connection : held) {
+                connection.close();
+            }
+        }
+        return held.size();
+    }
+
+    private static final class WarmupThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "cda-warmup-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -47,8 +47,10 @@ import com.codahale.metrics.Timer;
 import cwms.cda.api.errors.CdaError;
 import cwms.cda.data.dao.binarytimeseries.TimeSeriesBinaryDao;
 import cwms.cda.data.dto.binarytimeseries.BinaryTimeSeries;
+import cwms.cda.data.dto.binarytimeseries.BinaryTimeSeriesRow;
 import cwms.cda.formatters.ContentType;
 import cwms.cda.formatters.Formats;
+import cwms.cda.formatters.json.JsonRowStreamWriter;
 import cwms.cda.helpers.ReplaceUtils;
 import io.javalin.apibuilder.CrudHandler;
 import io.javalin.core.util.Header;
@@ -59,7 +61,7 @@ import io.javalin.plugin.openapi.annotations.OpenApiContent;
 import io.javalin.plugin.openapi.annotations.OpenApiParam;
 import io.javalin.plugin.openapi.annotations.OpenApiRequestBody;
 import io.javalin.plugin.openapi.annotations.OpenApiResponse;
-import java.io.UnsupportedEncodingException;
+import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
 import java.time.Instant;
@@ -159,16 +161,21 @@ public class BinaryTimeSeriesController implements CrudHandler {
             DSLContext dsl = getDslContext(ctx);
             TimeSeriesBinaryDao dao = getDao(dsl);
 
-            BinaryTimeSeries binaryTimeSeries = dao.retrieve(office, tsId, binTypeMask,
-                    begin, end, version, kiloByteLimit, urlBuilder);
-
             ctx.contentType(contentType.toString());
-
-            String result = Formats.format(contentType, binaryTimeSeries);
-            ctx.result(result);
-
             ctx.status(HttpServletResponse.SC_OK);
-        } catch (URISyntaxException | UnsupportedEncodingException ex) {
+            // rows go to the response as they are read, nothing is written unless the query succeeds.
+            // A failure after that aborts the response rather than ending it early
+            JsonRowStreamWriter<BinaryTimeSeries, BinaryTimeSeriesRow> writer =
+                    new JsonRowStreamWriter<>(ctx.res.getOutputStream(), "binary-values");
+            dao.stream(office, tsId, binTypeMask, begin, end, version, kiloByteLimit, urlBuilder,
+                    writer);
+            writer.finish();
+        } catch (URISyntaxException | IOException ex) {
+            if (ctx.res.isCommitted()) {
+                // rows have been sent, the exception handler aborts the response
+                throw new IllegalStateException("Failed part way through the response", ex);
+            }
+            ctx.res.resetBuffer();
             CdaError re =
                     new CdaError("Failed to process request: " + ex.getLocalizedMessage());
             logger.log(Level.SEVERE, re.toString(), ex);
@@ -2,6 +2,7 @@ package cwms.cda.api;
 
 import static com.codahale.metrics.MetricRegistry.name;
 import static cwms.cda.api.Controllers.ACCEPT;
+import static cwms.cda.api.Controllers.BBOX;
 import static cwms.cda.api.Controllers.BOUNDING_OFFICE_LIKE;
 import static cwms.cda.api.Controllers.CURSOR;
 import static cwms.cda.api.Controllers.EXCLUDE_EMPTY;
@@ -13,9 +14,12 @@ import static cwms.cda.api.Controllers.LOCATION_CATEGORY_LIKE;
 import static cwms.cda.api.Controllers.LOCATION_GROUP_LIKE;
 import static cwms.cda.api.Controllers.LOCATION_KIND_LIKE;
 import static cwms.cda.api.Controllers.LOCATION_TYPE_LIKE;
+import static cwms.cda.api.Controllers.NEAR;
+import static cwms.cda.api.Controllers.NEAREST;
 import static cwms.cda.api.Controllers.OFFICE;
 import static cwms.cda.api.Controllers.PAGE;
 import static cwms.cda.api.Controllers.PAGE_SIZE;
+import static cwms.cda.api.Controllers.RADIUS;
 import static cwms.cda.api.Controllers.RESULTS;
 import static cwms.cda.api.Controllers.SIZE;
 import static cwms.cda.api.Controllers.STATUS_200;
@@ -34,6 +38,7 @@ import cwms.cda.data.dao.CatalogRequestParameters;
 import cwms.cda.data.dao.JooqDao;
 import cwms.cda.data.dao.LocationsDao;
 import cwms.cda.data.dao.LocationsDaoImpl;
+import cwms.cda.data.dao.SpatialFilter;
 import cwms.cda.data.dao.TimeSeriesDao;
 import cwms.cda.data.dao.TimeSeriesDaoImpl;
 import cwms.cda.data.dto.Catalog;
@@ -168,6 +173,25 @@ public class CatalogController implements CrudHandler {
                     description = "Posix <a href=\"regexp.html\">regular expression</a> matching "
                         + "against the location type."
                 ),
+            @OpenApiParam(name = BBOX,
+                    description = "Only the locations within a bounding box given as "
+                        + "`west,south,east,north` in decimal degrees.  Only valid for LOCATIONS "
+                        + "and requires an `" + OFFICE + "`.  Spatial parameters are not part of the "
+                        + "page cursor and must be repeated with each page."
+                ),
+            @OpenApiParam(name = NEAR,
+                    description = "`latitude,longitude` in decimal degrees that `" + RADIUS
+                        + "` and `" + NEAREST + "` are measured from.  Only valid for LOCATIONS "
+                        + "and requires an `" + OFFICE + "`.  Entries remain ordered by id."
+                ),
+            @OpenApiParam(name = RADIUS, type = Double.class,
+                    description = "Only the locations within this many kilometers of `" + NEAR
+                        + "`.  Only valid for LOCATIONS."
+                ),
+            @OpenApiParam(name = NEAREST, type = Integer.class,
+                    description = "Only this many locations nearest to `" + NEAR + "`, at most "
+                        + SpatialFilter.MAX_NEAREST + ".  Only valid for LOCATIONS."
+                ),
         },
         pathParams = {
             @OpenApiParam(name = "dataset",
@@ -237,6 +261,8 @@ public class CatalogController implements CrudHandler {
             if (TIMESERIES.equalsIgnoreCase(valDataSet)) {
                 TimeSeriesDao tsDao = new TimeSeriesDaoImpl(dsl, metrics);
 
+                warnAboutNotSupported(ctx, new String[]{BBOX, NEAR, RADIUS, NEAREST});
+
                 boolean includeExtents = ctx.queryParamAsClass(INCLUDE_EXTENTS, Boolean.class)
                         .getOrDefault(INCLUDE_EXTENTS_DEFAULT);
                 boolean excludeExtents = ctx.queryParamAsClass(EXCLUDE_EMPTY, Boolean.class)
@@ -272,6 +298,9 @@ public class CatalogController implements CrudHandler {
                         .withBoundingOfficeLike(boundingOfficeLike)
                         .withLocationKind(locationKind)
                         .withLocationType(locationType)
+                        .withSpatialFilter(SpatialFilter.parse(ctx.queryParam(BBOX), ctx.queryParam(NEAR),
+                                ctx.queryParamAsClass(RADIUS, Double.class).allowNullable().get(),
+                                ctx.queryParamAsClass(NEAREST, Integer.class).allowNullable().get()))
                         .build();
 
                 LocationsDao dao = new LocationsDaoImpl(dsl);
@@ -0,0 +1,76 @@
+package cwms.cda.api;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import io.javalin.core.util.Header;
+import io.javalin.http.Context;
+import java.nio.charset.StandardCharsets;
+import javax.servlet.http.HttpServletResponse;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Answers conditional GETs from a cheap probe of the data a response is built from, before the
+ * response is queried and formatted.  Without it the ETag is generated from the formatted body,
+ * so a request for a response the client already has costs as much as one for a new response.
+ *
+ * <p>The ETag is weak: it is derived from the data version and the request, not the body, so two
+ * responses with the same tag are equivalent rather than byte for byte equal.
+ */
+public final class ConditionalRequests {
+
+    private ConditionalRequests() {
+    }
+
+    /**
+     * Sets the ETag of the response from the data version and, when it matches the request's
+     * If-None-Match, the 304 status.
+     *
+     * @param ctx         the request
+     * @param dataVersion changes whenever the data the response is built from changes, null when
+     *                    it can't be determined and the response is always built
+     * @return whether the client's copy is current and the response must not be built
+     */
+    public static boolean isNotModified(Context ctx, @Nullable String dataVersion) {
+        if (dataVersion == null) {
+            return false;
+        }
+        String etag = weakEtag(ctx, dataVersion);
+        ctx.header(Header.ETAG, etag);
+        if (matches(ctx.header(Header.IF_NONE_MATCH), etag)) {
+            ctx.status(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+        return false;
+    }
+
+    static String weakEtag(Context ctx, String dataVersion) {
+        // the same data is formatted differently for other parameters and content types
+        Hasher hasher = Hashing.murmur3_128().newHasher()
+                .putString(dataVersion, StandardCharsets.UTF_8).putChar('\n')
+                .putString(String.valueOf(ctx.path()), StandardCharsets.UTF_8).putChar('\n')
+                .putString(String.valueOf(ctx.queryString()), StandardCharsets.UTF_8).putChar('\n')
+                .putString(String.valueOf(ctx.header(Header.ACCEPT)), StandardCharsets.UTF_8);
+        return "W/\"" + hasher.hash() + "\"";
+    }
+
+    /**
+     * Weak comparison of If-None-Match to the ETag, as GET and HEAD use.
+     */
+    static boolean matches(@Nullable String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaque = opaqueTag(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if ("*".equals(tag) || opaque.equals(opaqueTag(tag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
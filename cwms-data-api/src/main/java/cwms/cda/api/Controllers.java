@@ -39,11 +39,15 @@ import cwms.cda.helpers.DateUtils;
 import io.javalin.core.validation.JavalinValidation;
 import io.javalin.core.validation.Validator;
 import io.javalin.http.Context;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import org.jetbrains.annotations.Nullable;
 
 public final class Controllers {
@@ -85,6 +89,7 @@ public final class Controllers {
     public static final String BLOB_ID = "blob-id";
     public static final String INCLUDE_VALUES = "include-values";
     public static final String FAIL_IF_EXISTS = "fail-if-exists";
+    public static final String DRY_RUN = "dry-run";
     public static final String IGNORE_NULLS = "ignore-nulls";
     public static final String EFFECTIVE_DATE = "effective-date";
     public static final String DATE = "date";
@@ -94,6 +99,11 @@ public final class Controllers {
     public static final String NAME = "name";
     public static final String CASCADE_DELETE = "cascade-delete";
     public static final String DATUM = "datum";
+    public static final String BBOX = "bbox";
+    public static final String NEAR = "near";
+    public static final String RADIUS = "radius";
+    public static final String NEAREST = "nearest";
+    public static final String PROPERTIES = "properties";
     public static final String BEGIN = "begin";
     public static final String END = "end";
     public static final String TIMEZONE = "timezone";
@@ -119,6 +129,9 @@ public final class Controllers {
     public static final String CATEGORY_ID_MASK = "category-id-mask";
     public static final String EXAMPLE_DATE = "2021-06-10T13:00:00-07:00";
     public static final String VERSION_DATE = "version-date";
+    public static final String ENTRY_DATE_SINCE = "entry-date-since";
+    public static final String AGGREGATE = "aggregate";
+    public static final String MAX_POINTS = "max-points";
 
     public static final String CREATE_AS_LRTS = "create-as-lrts";
     public static final String STORE_RULE = "store-rule";
@@ -176,6 +189,8 @@ public final class Controllers {
     public static final String STATUS_200 = "200";
     public static final String STATUS_201 = "201";
     public static final String STATUS_204 = "204";
+    public static final String STATUS_207 = "207";
+    public static final String STATUS_304 = "304";
     public static final String STATUS_404 = "404";
     public static final String STATUS_501 = "501";
     public static final String STATUS_400 = "400";
@@ -465,6 +480,39 @@ public final class Controllers {
         return retval;
     }
 
+    /**
+     * Sets a Link header to the next page of a paged response, the request's URL with its
+     * {@link #PAGE} parameter replaced.
+     * @param ctx Request Context
+     * @param page the next page's cursor, nothing is set when null
+     */
+    public static void linkNextPage(Context ctx, @Nullable String page) {
+        if (page == null) {
+            return;
+        }
+        StringBuilder url = new StringBuilder(ctx.req.getRequestURL());
+        char separator = '?';
+        for (Map.Entry<String, List<String>> param : ctx.queryParamMap().entrySet()) {
+            if (param.getKey().equals(PAGE)) {
+                continue;
+            }
+            for (String value : param.getValue()) {
+                url.append(separator).append(urlEncode(param.getKey())).append('=').append(urlEncode(value));
+                separator = '&';
+            }
+        }
+        url.append(separator).append(PAGE).append('=').append(urlEncode(page));
+        ctx.header("Link", String.format("<%s>; rel=next", url));
+    }
+
+    private static String urlEncode(String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.toString());
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
     static void addDeprecatedContentTypeWarning(Context ctx, ContentType type) {
         if (type.getType().equalsIgnoreCase(Formats.TAB)) {
             ctx.res.addHeader(DEPRECATED_HEADER, DEPRECATED_TAB);
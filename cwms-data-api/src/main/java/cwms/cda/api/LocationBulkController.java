@@ -0,0 +1,130 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Hydrologic Engineering Center
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cwms.cda.api;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static cwms.cda.api.Controllers.CREATE;
+import static cwms.cda.api.Controllers.DRY_RUN;
+import static cwms.cda.api.Controllers.RESULTS;
+import static cwms.cda.api.Controllers.SIZE;
+import static cwms.cda.api.Controllers.STATUS_200;
+import static cwms.cda.api.Controllers.STATUS_207;
+import static cwms.cda.api.Controllers.STATUS_400;
+import static cwms.cda.data.dao.JooqDao.getDslContext;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import cwms.cda.data.dao.LocationsDao;
+import cwms.cda.data.dao.LocationsDaoImpl;
+import cwms.cda.data.dto.Location;
+import cwms.cda.data.dto.LocationBulkResult;
+import cwms.cda.formatters.ContentType;
+import cwms.cda.formatters.Formats;
+import io.javalin.core.util.Header;
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.plugin.openapi.annotations.HttpMethod;
+import io.javalin.plugin.openapi.annotations.OpenApi;
+import io.javalin.plugin.openapi.annotations.OpenApiContent;
+import io.javalin.plugin.openapi.annotations.OpenApiParam;
+import io.javalin.plugin.openapi.annotations.OpenApiRequestBody;
+import io.javalin.plugin.openapi.annotations.OpenApiResponse;
+import java.util.List;
+import javax.servlet.http.HttpServletResponse;
+import org.jetbrains.annotations.NotNull;
+import org.jooq.DSLContext;
+
+/**
+ * Creates, or updates, many locations in one request.  Each location gets its own result, so
+ * one bad row in a large load doesn't hide what happened to the rest.
+ */
+public final class LocationBulkController implements Handler {
+    /** Some locations weren't stored, the body says which. */
+    static final int SC_MULTI_STATUS = 207;
+
+    private final MetricRegistry metrics;
+    private final Histogram requestResultSize;
+
+    public LocationBulkController(MetricRegistry metrics) {
+        this.metrics = metrics;
+        String className = this.getClass().getName();
+        requestResultSize = this.metrics.histogram(name(className, RESULTS, SIZE));
+    }
+
+    private Timer.Context markAndTime(String subject) {
+        return Controllers.markAndTime(metrics, getClass().getName(), subject);
+    }
+
+    @OpenApi(
+            queryParams = {
+                @OpenApiParam(name = DRY_RUN, type = Boolean.class, description = "If true, the "
+                        + "locations are only validated and nothing is stored. Default false.")
+            },
+            requestBody = @OpenApiRequestBody(
+                    content = {
+                        @OpenApiContent(from = Location.class, isArray = true, type = Formats.JSON),
+                        @OpenApiContent(from = Location.class, isArray = true, type = Formats.CSV)
+                    },
+                    required = true),
+            responses = {
+                @OpenApiResponse(status = STATUS_200, description = "Every location was stored, "
+                        + "or with " + DRY_RUN + " is valid.",
+                        content = {@OpenApiContent(from = LocationBulkResult.class, type = Formats.JSONV1)}),
+                @OpenApiResponse(status = STATUS_207, description = "Some locations are invalid or "
+                        + "weren't stored, the others were. The result for each location says which.",
+                        content = {@OpenApiContent(from = LocationBulkResult.class, type = Formats.JSONV1)}),
+                @OpenApiResponse(status = STATUS_400, description = "The body isn't a list of locations.")
+            },
+            description = "Create or update many CWMS Locations. The locations are validated before "
+                    + "any are stored, and one that is invalid or rejected doesn't stop the others.",
+            method = HttpMethod.POST,
+            path = "/locations/bulk",
+            tags = {"Locations"}
+    )
+    @Override
+    public void handle(@NotNull Context ctx) {
+        boolean dryRun = ctx.queryParamAsClass(DRY_RUN, Boolean.class).getOrDefault(false);
+
+        try (Timer.Context ignored = markAndTime(CREATE)) {
+            ContentType bodyType = Formats.parseHeader(ctx.req.getContentType(), Location.class);
+            // left to the dao, which reports each invalid location rather than failing them all
+            List<Location> locations = Formats.parseContentListUnvalidated(bodyType, ctx.body(),
+                    Location.class);
+
+            DSLContext dsl = getDslContext(ctx);
+            LocationsDao locationsDao = new LocationsDaoImpl(dsl);
+            LocationBulkResult result = locationsDao.storeLocations(locations, dryRun);
+
+            ContentType contentType = Formats.parseHeader(ctx.header(Header.ACCEPT),
+                    LocationBulkResult.class);
+            String serialized = Formats.format(contentType, result);
+            ctx.contentType(contentType.toString());
+            ctx.result(serialized);
+            ctx.status(result.isSuccessful() ? HttpServletResponse.SC_OK : SC_MULTI_STATUS);
+            requestResultSize.update(serialized.length());
+        }
+    }
+}
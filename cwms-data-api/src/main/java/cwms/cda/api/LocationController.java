@@ -25,6 +25,7 @@
 package cwms.cda.api;
 
 import static com.codahale.metrics.MetricRegistry.name;
+import static cwms.cda.api.Controllers.BBOX;
 import static cwms.cda.api.Controllers.CASCADE_DELETE;
 import static cwms.cda.api.Controllers.CREATE;
 import static cwms.cda.api.Controllers.DATUM;
@@ -32,7 +33,11 @@ import static cwms.cda.api.Controllers.DELETE;
 import static cwms.cda.api.Controllers.FORMAT;
 import static cwms.cda.api.Controllers.GET_ALL;
 import static cwms.cda.api.Controllers.GET_ONE;
+import static cwms.cda.api.Controllers.NEAR;
+import static cwms.cda.api.Controllers.NEAREST;
 import static cwms.cda.api.Controllers.OFFICE;
+import static cwms.cda.api.Controllers.PROPERTIES;
+import static cwms.cda.api.Controllers.RADIUS;
 import static cwms.cda.api.Controllers.RESULTS;
 import static cwms.cda.api.Controllers.SIZE;
 import static cwms.cda.api.Controllers.STATUS_200;
@@ -53,18 +58,22 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.google.common.io.CountingOutputStream;
 import cwms.cda.api.enums.Nation;
 import cwms.cda.api.enums.UnitSystem;
 import cwms.cda.api.errors.CdaError;
 import cwms.cda.api.errors.DeleteConflictException;
 import cwms.cda.api.errors.NotFoundException;
+import cwms.cda.data.dao.BoundingBox;
 import cwms.cda.data.dao.LocationsDao;
 import cwms.cda.data.dao.LocationsDaoImpl;
+import cwms.cda.data.dao.SpatialFilter;
 import cwms.cda.data.dto.Location;
 import cwms.cda.formatters.ContentType;
 import cwms.cda.formatters.Formats;
 import cwms.cda.formatters.FormattingException;
 import cwms.cda.formatters.UnsupportedFormatException;
+import cwms.cda.formatters.json.GeoJsonFeatureWriter;
 import io.javalin.apibuilder.CrudHandler;
 import io.javalin.core.util.Header;
 import io.javalin.http.Context;
@@ -83,7 +92,6 @@ import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.servlet.http.HttpServletResponse;
-import org.geojson.FeatureCollection;
 import org.jetbrains.annotations.NotNull;
 import org.jooq.DSLContext;
 import org.jooq.exception.DataAccessException;
@@ -104,6 +112,15 @@ public class LocationController implements CrudHandler {
         requestResultSize = this.metrics.histogram((name(className, RESULTS, SIZE)));
     }
 
+    private static boolean isCompactProperties(String properties) {
+        if (properties == null || properties.equalsIgnoreCase("full")) {
+            return false;
+        } else if (properties.equalsIgnoreCase("compact")) {
+            return true;
+        }
+        throw new IllegalArgumentException(PROPERTIES + " must be full or compact, was: " + properties);
+    }
+
     private Timer.Context markAndTime(String subject) {
         return Controllers.markAndTime(metrics, getClass().getName(), subject);
     }
@@ -144,7 +161,26 @@ public class LocationController implements CrudHandler {
                         + "\n* `xml`"
                         + "\n* `wml2` (only if name field is specified)"
                         + "\n* `json` (default)\n"
-                        + "\n* `geojson`")
+                        + "\n* `geojson`"),
+                @OpenApiParam(name = BBOX, description = "Only for the `geojson` format and the "
+                        + "default json, limits the locations to those within a bounding box given "
+                        + "as `west,south,east,north` in decimal degrees.  A west edge greater than "
+                        + "the east edge crosses the antimeridian.  The default json requires an "
+                        + "`" + OFFICE + "`."),
+                @OpenApiParam(name = NEAR, description = "Only for the default json, "
+                        + "`latitude,longitude` in decimal degrees that `" + RADIUS + "` and `"
+                        + NEAREST + "` are measured from.  Locations are returned nearest first.  "
+                        + "Requires an `" + OFFICE + "`."),
+                @OpenApiParam(name = RADIUS, type = Double.class, description = "Only the "
+                        + "locations within this many kilometers of `" + NEAR + "`."),
+                @OpenApiParam(name = NEAREST, type = Integer.class, description = "Only this "
+                        + "many locations nearest to `" + NEAR + "`, at most "
+                        + SpatialFilter.MAX_NEAREST + "."),
+                @OpenApiParam(name = PROPERTIES, description = "Only for the `geojson` format, "
+                        + "the properties of each feature:"
+                        + "\n* `full` (default)  Every location column, nested under `avLoc`."
+                        + "\n* `compact`  Only office, name, public-name, long-name, kind, type, "
+                        + "state and active, for map layers of many locations.")
             },
             responses = {
                 @OpenApiResponse(status = STATUS_200,
@@ -165,6 +201,11 @@ public class LocationController implements CrudHandler {
     )
     @Override
     public void getAll(@NotNull Context ctx) {
+        boolean compact = isCompactProperties(ctx.queryParam(PROPERTIES));
+        SpatialFilter spatialFilter = SpatialFilter.parse(ctx.queryParam(BBOX), ctx.queryParam(NEAR),
+                ctx.queryParamAsClass(RADIUS, Double.class).allowNullable().get(),
+                ctx.queryParamAsClass(NEAREST, Integer.class).allowNullable().get());
+        BoundingBox bbox = spatialFilter == null ? null : spatialFilter.getBbox();
 
         try (final Timer.Context ignored = markAndTime(GET_ALL)) {
             DSLContext dsl = getDslContext(ctx);
@@ -185,17 +226,33 @@ public class LocationController implements CrudHandler {
             String version = contentType.getParameters().getOrDefault(VERSION, "");
             boolean isLegacyFormat = version.equalsIgnoreCase("1");
 
-            if (contentType.getType().equals(Formats.GEOJSON)) {
-                FeatureCollection collection = locationsDao.buildFeatureCollection(names, units,
-                        office);
-                ctx.json(collection);
+            boolean isGeoJson = contentType.getType().equals(Formats.GEOJSON);
+            boolean isJsonV2 = !isGeoJson && formatParm.isEmpty() && !isLegacyFormat;
+            if (spatialFilter != null && spatialFilter.hasCenter() && !isJsonV2) {
+                ctx.status(HttpServletResponse.SC_BAD_REQUEST).json(new CdaError(NEAR + ", "
+                        + RADIUS + " and " + NEAREST + " are only supported by " + Formats.JSONV2));
+                return;
+            }
+            if (spatialFilter != null && isJsonV2 && office == null) {
+                ctx.status(HttpServletResponse.SC_BAD_REQUEST).json(new CdaError("An " + OFFICE
+                        + " must be specified to filter locations by position"));
+                return;
+            }
 
-                requestResultSize.update(ctx.res.getBufferSize());
+            if (isGeoJson) {
                 ctx.contentType(contentType.toString());
+                ctx.status(HttpServletResponse.SC_OK);
+                // features go to the response as they are read, a failure after that aborts it
+                CountingOutputStream out = new CountingOutputStream(ctx.res.getOutputStream());
+                GeoJsonFeatureWriter writer = new GeoJsonFeatureWriter(out);
+                locationsDao.streamFeatureCollection(names, units, office, bbox, compact, writer);
+                writer.finish();
+                requestResultSize.update(out.getCount());
             }
-            else if (formatParm.isEmpty() && !isLegacyFormat)
+            else if (isJsonV2)
             {
-                List<Location> locations = locationsDao.getLocations(names, units, datum, office);
+                List<Location> locations = locationsDao.getLocations(names, units, datum, office,
+                        spatialFilter);
                 results = Formats.format(contentType, locations, Location.class);
                 ctx.result(results);
                 requestResultSize.update(results.length());
@@ -222,6 +279,11 @@ public class LocationController implements CrudHandler {
             ctx.status(HttpServletResponse.SC_OK);
 
         } catch (Exception ex) {
+            if (ctx.res.isCommitted()) {
+                // features have been sent, the exception handler aborts the response
+                throw new IllegalStateException("Failed part way through the response", ex);
+            }
+            ctx.res.resetBuffer();
             CdaError re = new CdaError("failed to process request");
             logger.log(Level.SEVERE, re.toString(), ex);
             ctx.status(HttpServletResponse.SC_INTERNAL_SERVER_ERROR).json(re);
@@ -289,10 +289,8 @@ public class LocationGroupController implements CrudHandler {
             if (!office.equalsIgnoreCase(CWMS_OFFICE) && !oldGroupId.equals(deserialize.getId())) {
                 locationGroupDao.renameLocationGroup(oldGroupId, deserialize);
             }
-            if (replaceAssignedLocs) {
-                locationGroupDao.unassignAllLocs(deserialize, office);
-            }
-            locationGroupDao.assignLocs(deserialize, office);
+            // only the assignments that differ from the stored ones are applied
+            locationGroupDao.updateAssignedLocs(deserialize, office, replaceAssignedLocs, metrics);
             ctx.status(HttpServletResponse.SC_OK);
         }
     }
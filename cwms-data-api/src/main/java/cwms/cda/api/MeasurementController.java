@@ -48,9 +48,12 @@ import static cwms.cda.api.Controllers.MIN_NUMBER;
 import static cwms.cda.api.Controllers.MAX_NUMBER;
 import static cwms.cda.api.Controllers.OFFICE;
 import static cwms.cda.api.Controllers.OFFICE_MASK;
+import static cwms.cda.api.Controllers.PAGE;
+import static cwms.cda.api.Controllers.PAGE_SIZE;
 import static cwms.cda.api.Controllers.QUALITY;
 import static cwms.cda.api.Controllers.TIMEZONE;
 import static cwms.cda.api.Controllers.UNIT_SYSTEM;
+import static cwms.cda.api.Controllers.linkNextPage;
 import static cwms.cda.api.Controllers.queryParamAsDouble;
 import static cwms.cda.api.Controllers.queryParamAsInstant;
 import static cwms.cda.api.Controllers.requiredParam;
@@ -96,7 +99,8 @@ public final class MeasurementController implements CrudHandler {
 
     @OpenApi(
             queryParams = {
-                    @OpenApiParam(name = OFFICE_MASK, description = "Office id mask for filtering measurements. Use null to retrieve measurements for all offices."),
+                    @OpenApiParam(name = OFFICE_MASK, description = "Office id mask for filtering measurements. Use * to retrieve measurements "
+                            + "for all offices, when not given only the session office's are retrieved."),
                     @OpenApiParam(name = ID_MASK, description = "Location id mask for filtering measurements. Use null to retrieve measurements for all locations."),
                     @OpenApiParam(name = MIN_NUMBER, description = "Minimum measurement number-id for filtering measurements."),
                     @OpenApiParam(name = MAX_NUMBER, description = "Maximum measurement number-id for filtering measurements."),
@@ -123,7 +127,15 @@ public final class MeasurementController implements CrudHandler {
                             + "\n* `EN`  Specifies English unit system.  Location values will be in the "
                             + "default English units for their parameters."
                             + "\n* `SI`  Specifies the SI unit system.  Location values will be in the "
-                            + "default SI units for their parameters. If not specified, EN is used.")
+                            + "default SI units for their parameters. If not specified, EN is used."),
+                    @OpenApiParam(name = PAGE, description = "The page to retrieve, from the `next` "
+                            + "link of the previous page's Link header.  Filters must be repeated with "
+                            + "each page."),
+                    @OpenApiParam(name = PAGE_SIZE, type = Integer.class, description = "When given, "
+                            + "measurements are returned a page of this many at a time, in office, "
+                            + "location, date and number order, with a Link header to the next page.  "
+                            + "Paging can't be combined with the " + MIN_NUMBER + ", " + MAX_NUMBER + ", "
+                            + AGENCY + " or " + QUALITY + " filters.")
             },
             responses = {
                     @OpenApiResponse(status = "200", content = {
@@ -149,11 +161,25 @@ public final class MeasurementController implements CrudHandler {
         Number maxFlow = queryParamAsDouble(ctx, MAX_FLOW);
         String agency = ctx.queryParam(AGENCY);
         String quality = ctx.queryParam(QUALITY);
+        String page = ctx.queryParam(PAGE);
+        Integer pageSize = ctx.queryParamAsClass(PAGE_SIZE, Integer.class).allowNullable().get();
         try (Timer.Context ignored = markAndTime(GET_ALL)) {
             DSLContext dsl = getDslContext(ctx);
             MeasurementDao dao = new MeasurementDao(dsl);
-            List<Measurement> measurements = dao.retrieveMeasurements(officeId, locationId, minDate, maxDate, unitSystem,
-                    minHeight, maxHeight, minFlow, maxFlow, minNum, maxNum, agency, quality);
+            List<Measurement> measurements;
+            if (pageSize == null && page == null) {
+                measurements = dao.retrieveMeasurements(officeId, locationId, minDate, maxDate, unitSystem,
+                        minHeight, maxHeight, minFlow, maxFlow, minNum, maxNum, agency, quality);
+            } else {
+                if (pageSize == null) {
+                    throw new IllegalArgumentException(PAGE_SIZE + " must be given with " + PAGE);
+                }
+                MeasurementDao.MeasurementPage measurementPage = dao.retrieveMeasurementsPage(officeId,
+                        locationId, minDate, maxDate, unitSystem, minHeight, maxHeight, minFlow, maxFlow,
+                        minNum, maxNum, agency, quality, page, pageSize);
+                measurements = measurementPage.getMeasurements();
+                linkNextPage(ctx, measurementPage.getNextPage());
+            }
             String formatHeader = ctx.header(Header.ACCEPT);
             ContentType contentType = Formats.parseHeader(formatHeader, Measurement.class);
             ctx.contentType(contentType.toString());
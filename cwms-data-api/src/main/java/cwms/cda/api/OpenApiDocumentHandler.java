@@ -0,0 +1,84 @@
+package cwms.cda.api;
+
+import com.google.common.base.Suppliers;
+import com.google.common.hash.Hashing;
+import cwms.cda.compression.CompressedVariants;
+import cwms.cda.compression.ContentCoding;
+import cwms.cda.compression.ResponseCompression;
+import io.javalin.core.util.Header;
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.plugin.openapi.annotations.OpenApi;
+import io.swagger.v3.core.util.Json;
+import io.swagger.v3.oas.models.OpenAPI;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+import javax.servlet.http.HttpServletResponse;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Serves the OpenAPI document from bytes generated once, instead of generating the document from
+ * the route annotations for every request.  The document's compressed variants are kept too, so
+ * clients that accept compression get it without compressing it per request.
+ *
+ * <p>The document depends on the deployment's access managers, so it is generated when the
+ * servlet starts rather than when the war is built.
+ */
+public final class OpenApiDocumentHandler implements Handler {
+
+    private final Supplier<Document> document;
+
+    /**
+     * @param generator builds the document, called once, after every route has been registered
+     */
+    public OpenApiDocumentHandler(Supplier<OpenAPI> generator) {
+        this.document = Suppliers.memoize(() -> new Document(generator.get()));
+    }
+
+    /**
+     * Generates the document if it hasn't been already, so the first request doesn't wait for it.
+     *
+     * @return the size of the uncompressed document in bytes
+     */
+    public int prepare() {
+        return document.get().variants.identity().length;
+    }
+
+    @OpenApi(ignore = true)
+    @Override
+    public void handle(@NotNull Context ctx) {
+        Document doc = document.get();
+        ContentCoding coding = ResponseCompression.negotiate(ctx.header(Header.ACCEPT_ENCODING));
+        // each coding is its own representation, so has its own strong tag
+        String etag = coding == null ? doc.etag
+                : doc.etag.substring(0, doc.etag.length() - 1) + "-" + coding.token() + "\"";
+        ctx.header(Header.ETAG, etag);
+        ctx.header(Header.VARY, Header.ACCEPT_ENCODING);
+        if (ConditionalRequests.matches(ctx.header(Header.IF_NONE_MATCH), etag)) {
+            ctx.status(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        ctx.contentType("application/json");
+        if (coding != null) {
+            ctx.header(Header.CONTENT_ENCODING, coding.token());
+        }
+        ctx.result(doc.variants.get(coding));
+    }
+
+    private static final class Document {
+        private final CompressedVariants variants;
+        private final String etag;
+
+        private Document(OpenAPI api) {
+            byte[] json;
+            try {
+                json = Json.mapper().writeValueAsBytes(api);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Unable to serialize the OpenAPI document", ex);
+            }
+            variants = new CompressedVariants(json);
+            etag = "\"" + Hashing.murmur3_128().hashBytes(json) + "\"";
+        }
+    }
+}
@@ -31,9 +31,11 @@ import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import cwms.cda.api.errors.CdaError;
 import cwms.cda.data.dao.texttimeseries.TimeSeriesTextDao;
+import cwms.cda.data.dto.texttimeseries.RegularTextTimeSeriesRow;
 import cwms.cda.data.dto.texttimeseries.TextTimeSeries;
 import cwms.cda.formatters.ContentType;
 import cwms.cda.formatters.Formats;
+import cwms.cda.formatters.json.JsonRowStreamWriter;
 import cwms.cda.helpers.ReplaceUtils;
 import io.javalin.apibuilder.CrudHandler;
 import io.javalin.core.util.Header;
@@ -44,7 +46,7 @@ import io.javalin.plugin.openapi.annotations.OpenApiContent;
 import io.javalin.plugin.openapi.annotations.OpenApiParam;
 import io.javalin.plugin.openapi.annotations.OpenApiRequestBody;
 import io.javalin.plugin.openapi.annotations.OpenApiResponse;
-import java.io.UnsupportedEncodingException;
+import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
 import java.time.Instant;
@@ -141,16 +143,21 @@ public class TextTimeSeriesController implements CrudHandler {
             ReplaceUtils.OperatorBuilder urlBuilder = new ReplaceUtils.OperatorBuilder()
                     .withTemplate(url)
                     .withOperatorKey(URLEncoder.encode(dateToken, "UTF-8"));
-            TextTimeSeries textTimeSeries = dao.retrieveFromDao(office, tsId, textMask,
-                    begin, end, version, kiloByteLimit, urlBuilder);
-
             ctx.contentType(contentType.toString());
-
-            String result = Formats.format(contentType, textTimeSeries);
-            ctx.result(result);
-
             ctx.status(HttpServletResponse.SC_OK);
-        } catch (URISyntaxException | UnsupportedEncodingException ex) {
+            // rows go to the response as they are read, nothing is written unless the query succeeds.
+            // A failure after that aborts the response rather than ending it early
+            JsonRowStreamWriter<TextTimeSeries, RegularTextTimeSeriesRow> writer =
+                    new JsonRowStreamWriter<>(ctx.res.getOutputStream(), "regular-text-values");
+            dao.streamFromDao(office, tsId, textMask, begin, end, version, kiloByteLimit, urlBuilder,
+                    writer);
+            writer.finish();
+        } catch (URISyntaxException | IOException ex) {
+            if (ctx.res.isCommitted()) {
+                // rows have been sent, the exception handler aborts the response
+                throw new IllegalStateException("Failed part way through the response", ex);
+            }
+            ctx.res.resetBuffer();
             CdaError re =
                     new CdaError("Failed to process request: " + ex.getLocalizedMessage());
             logger.log(Level.SEVERE, re.toString(), ex);
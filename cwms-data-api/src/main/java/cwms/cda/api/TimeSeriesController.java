@@ -1,6 +1,7 @@
 package cwms.cda.api;
 
 import static com.codahale.metrics.MetricRegistry.name;
+import static cwms.cda.api.Controllers.AGGREGATE;
 import static cwms.cda.api.Controllers.BEGIN;
 import static cwms.cda.api.Controllers.CREATE;
 import static cwms.cda.api.Controllers.CREATE_AS_LRTS;
@@ -10,10 +11,13 @@ import static cwms.cda.api.Controllers.DATUM;
 import static cwms.cda.api.Controllers.DELETE;
 import static cwms.cda.api.Controllers.END;
 import static cwms.cda.api.Controllers.END_TIME_INCLUSIVE;
+import static cwms.cda.api.Controllers.ENTRY_DATE_SINCE;
 import static cwms.cda.api.Controllers.EXAMPLE_DATE;
 import static cwms.cda.api.Controllers.FORMAT;
 import static cwms.cda.api.Controllers.GET_ALL;
 import static cwms.cda.api.Controllers.GET_ONE;
+import static cwms.cda.api.Controllers.INTERVAL;
+import static cwms.cda.api.Controllers.MAX_POINTS;
 import static cwms.cda.api.Controllers.MAX_VERSION;
 import static cwms.cda.api.Controllers.NAME;
 import static cwms.cda.api.Controllers.NOT_SUPPORTED_YET;
@@ -25,6 +29,7 @@ import static cwms.cda.api.Controllers.RESULTS;
 import static cwms.cda.api.Controllers.SIZE;
 import static cwms.cda.api.Controllers.START_TIME_INCLUSIVE;
 import static cwms.cda.api.Controllers.STATUS_200;
+import static cwms.cda.api.Controllers.STATUS_304;
 import static cwms.cda.api.Controllers.STATUS_400;
 import static cwms.cda.api.Controllers.STATUS_404;
 import static cwms.cda.api.Controllers.STATUS_501;
@@ -52,6 +57,7 @@ import cwms.cda.data.dao.StoreRule;
 import cwms.cda.data.dao.TimeSeriesDao;
 import cwms.cda.data.dao.TimeSeriesDaoImpl;
 import cwms.cda.data.dao.TimeSeriesDeleteOptions;
+import cwms.cda.data.dao.TimeSeriesReduction;
 import cwms.cda.data.dto.TimeSeries;
 import cwms.cda.formatters.ContentType;
 import cwms.cda.formatters.Formats;
@@ -79,6 +85,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.servlet.http.HttpServletResponse;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jooq.DSLContext;
 import org.jooq.exception.DataAccessException;
 
@@ -167,7 +174,8 @@ public class TimeSeriesController implements CrudHandler {
             requestBody = @OpenApiRequestBody(
                     content = {
                         @OpenApiContent(from = TimeSeries.class, type = Formats.JSONV2),
-                        @OpenApiContent(from = TimeSeries.class, type = Formats.XMLV2)
+                        @OpenApiContent(from = TimeSeries.class, type = Formats.XMLV2),
+                        @OpenApiContent(from = TimeSeries.class, type = Formats.TIMESERIES_BINARY)
                     },
                     required = true
             ),
@@ -374,6 +382,34 @@ public class TimeSeriesController implements CrudHandler {
                         + "retrieved values. "
                         + "Only supported for:" + Formats.JSONV2 + " and " + Formats.XMLV2 + ". "
                         + "Default is true."),
+                @OpenApiParam(name = ENTRY_DATE_SINCE, description = "Returns only the values "
+                        + "in the time window that were stored after this instant, for polling "
+                        + "for changes. Pass the 'next-watermark' of the previous response as the "
+                        + "next request's value.  The response is not paged and, for versioned "
+                        + "time series, only includes the latest version of each time. "
+                        + "Values stored within the server's settle time ("
+                        + TimeSeriesDaoImpl.CHANGES_SETTLE_KEY + ", 60 seconds by default) are "
+                        + "left to the next poll; a value whose store takes longer than that to "
+                        + "commit can be missed. "
+                        + "The format for this field is ISO 8601 extended, e.g., '"
+                        + EXAMPLE_DATE + "'. "
+                        + "Only supported for:" + Formats.JSONV2 + " and " + Formats.XMLV2),
+                @OpenApiParam(name = INTERVAL, description = "Aggregates the values into "
+                        + "intervals of this length, e.g. '1Hour', '1Day', '1Week', '1Month' or "
+                        + "'1Year', aligned in the time zone of the begin time. Each interval is "
+                        + "returned at its start time. Missing and rejected values are left "
+                        + "out; an aggregate is questionable if any value in it is. "
+                        + "The response is not paged. "
+                        + "Only supported for:" + Formats.JSONV2 + " and " + Formats.XMLV2),
+                @OpenApiParam(name = AGGREGATE, description = "The aggregate of each interval: "
+                        + "`min`, `max`, `mean`, `sum`, `count`, `first` or `last`. "
+                        + "Default is mean when an interval is given."),
+                @OpenApiParam(name = MAX_POINTS, type = Integer.class, description = "Decimates "
+                        + "the values to at most this many points for charting, keeping the ones "
+                        + "that preserve the shape of the series (largest triangle three buckets). "
+                        + "Between 3 and " + TimeSeriesReduction.MAX_POINTS_LIMIT + ". "
+                        + "The response is not paged. Can't be combined with " + INTERVAL + ". "
+                        + "Only supported for:" + Formats.JSONV2 + " and " + Formats.XMLV2),
                 @OpenApiParam(name = FORMAT,  description = "Specifies the"
                         + " encoding format of the response. Valid values for the format "
                         + "field for this URI are:"
@@ -397,9 +433,12 @@ public class TimeSeriesController implements CrudHandler {
                     content = {
                         @OpenApiContent(from = TimeSeries.class, type = Formats.JSONV2),
                         @OpenApiContent(from = TimeSeries.class, type = Formats.XMLV2),
+                        @OpenApiContent(from = TimeSeries.class, type = Formats.TIMESERIES_BINARY),
                         @OpenApiContent(from = TimeSeries.class, type = Formats.XML),
                         @OpenApiContent(from = TimeSeries.class, type = Formats.JSON),
                         @OpenApiContent(from = TimeSeries.class, type = ""),}),
+                @OpenApiResponse(status = STATUS_304, description = "The values in the window "
+                        + "haven't changed since the response whose ETag was sent in If-None-Match."),
                 @OpenApiResponse(status = STATUS_400, description = "Invalid parameter combination"),
                 @OpenApiResponse(status = STATUS_404, description = "The provided combination of "
                         + "parameters did not find a timeseries."),
@@ -430,6 +469,8 @@ public class TimeSeriesController implements CrudHandler {
             Validator<Boolean> trim = ctx.queryParamAsClass(Controllers.TRIM, Boolean.class);
 
             ZonedDateTime versionDate = queryParamAsZdt(ctx, VERSION_DATE);
+            ZonedDateTime entryDateSince = queryParamAsZdt(ctx, ENTRY_DATE_SINCE);
+            TimeSeriesReduction reduction = queryParamAsReduction(ctx);
 
             // The following parameters are only used for jsonv2 and xmlv2
             String cursor = queryParamAsClass(ctx, new String[]{PAGE, CURSOR},
@@ -444,7 +485,9 @@ public class TimeSeriesController implements CrudHandler {
             ContentType contentType = Formats.parseHeaderAndQueryParm(acceptHeader, format, TimeSeries.class);
 
             String results;
+            int resultSize;
             String version = contentType.getParameters().get(VERSION);
+            boolean binary = ContentType.equivalent(contentType.toString(), Formats.TIMESERIES_BINARY);
 
             ZoneId tz = ZoneId.of(timezone, ZoneId.SHORT_IDS);
             begin = begin != null ? begin : "PT-24H";
@@ -454,7 +497,7 @@ public class TimeSeriesController implements CrudHandler {
                     ? DateUtils.parseUserDate(end, timezone)
                     : ZonedDateTime.now(tz);
 
-            if (version != null && version.equals("2")) {
+            if (binary || (version != null && version.equals("2"))) {
 
                 if (datum != null) {
                     throw new IllegalArgumentException(String.format("Datum is not supported for:%s and %s",
@@ -462,27 +505,52 @@ public class TimeSeriesController implements CrudHandler {
                 }
 
                 String office = requiredParam(ctx, OFFICE);
-                TimeSeries ts = dao.getTimeseries(cursor, pageSize, names, office, unit,
-                        beginZdt, endZdt, versionDate, trim.getOrDefault(true));
-
-                results = Formats.format(contentType, ts);
+                if (entryDateSince != null && reduction != null) {
+                    throw new IllegalArgumentException(String.format(
+                            "%s can't be combined with %s, %s or %s", ENTRY_DATE_SINCE, INTERVAL,
+                            AGGREGATE, MAX_POINTS));
+                }
+                TimeSeries ts;
+                if (entryDateSince != null) {
+                    // changes are returned in one response, the watermark replaces the page
+                    ts = dao.getTimeseriesChanges(names, office, unit, beginZdt, endZdt,
+                            versionDate, entryDateSince.toInstant());
+                } else {
+                    if (ConditionalRequests.isNotModified(ctx, dao.getDataVersion(names, office, beginZdt,
+                            endZdt, versionDate))) {
+                        return;
+                    }
+                    ts = reduction == null
+                            ? dao.getTimeseries(cursor, pageSize, names, office, unit,
+                                    beginZdt, endZdt, versionDate, trim.getOrDefault(true))
+                            : dao.getTimeseries(cursor, pageSize, names, office, unit,
+                                    beginZdt, endZdt, versionDate, trim.getOrDefault(true), reduction);
+
+                    // Send back the link to the next page in the response header
+                    StringBuilder linkValue = new StringBuilder(600);
+                    linkValue.append(String.format("<%s>; rel=self; type=\"%s\"",
+                            buildRequestUrl(ctx, ts, ts.getPage()), contentType));
+
+                    if (ts.getNextPage() != null) {
+                        linkValue.append(",");
+                        linkValue.append(String.format("<%s>; rel=next; type=\"%s\"",
+                                buildRequestUrl(ctx, ts, ts.getNextPage()),
+                                contentType));
+                    }
+
+                    ctx.header("Link", linkValue.toString());
+                }
 
                 ctx.status(HttpServletResponse.SC_OK);
-
-                // Send back the link to the next page in the response header
-                StringBuilder linkValue = new StringBuilder(600);
-                linkValue.append(String.format("<%s>; rel=self; type=\"%s\"",
-                        buildRequestUrl(ctx, ts, ts.getPage()), contentType));
-
-                if (ts.getNextPage() != null) {
-                    linkValue.append(",");
-                    linkValue.append(String.format("<%s>; rel=next; type=\"%s\"",
-                            buildRequestUrl(ctx, ts, ts.getNextPage()),
-                            contentType));
+                if (binary) {
+                    byte[] body = Formats.formatBytes(contentType, ts);
+                    ctx.result(body).contentType(contentType.toString());
+                    resultSize = body.length;
+                } else {
+                    results = Formats.format(contentType, ts);
+                    ctx.result(results).contentType(contentType.toString());
+                    resultSize = results.length();
                 }
-
-                ctx.header("Link", linkValue.toString());
-                ctx.result(results).contentType(contentType.toString());
             } else {
                 if (versionDate != null) {
                     throw new IllegalArgumentException(String.format("Version date is only supported for:%s and %s",
@@ -494,6 +562,16 @@ public class TimeSeriesController implements CrudHandler {
                             Formats.JSONV2, Formats.XMLV2));
                 }
 
+                if (entryDateSince != null) {
+                    throw new IllegalArgumentException(String.format(
+                            "Entry date since is only supported for:%s and %s", Formats.JSONV2, Formats.XMLV2));
+                }
+
+                if (reduction != null) {
+                    throw new IllegalArgumentException(String.format(
+                            "Aggregation is only supported for:%s and %s", Formats.JSONV2, Formats.XMLV2));
+                }
+
                 if (format == null || format.isEmpty()) {
                     format = "json";
                 }
@@ -502,9 +580,10 @@ public class TimeSeriesController implements CrudHandler {
                 results = dao.getTimeseries(format, names, office, unit, datum, beginZdt, endZdt, tz);
                 ctx.status(HttpServletResponse.SC_OK);
                 ctx.result(results);
+                resultSize = results.length();
             }
             addDeprecatedContentTypeWarning(ctx, contentType);
-            requestResultSize.update(results.length());
+            requestResultSize.update(resultSize);
         } catch (NotFoundException e) {
             CdaError re = new CdaError("Not found.");
             logger.log(Level.WARNING, re.toString(), e);
@@ -518,6 +597,27 @@ public class TimeSeriesController implements CrudHandler {
         }
     }
 
+    @Nullable
+    private static TimeSeriesReduction queryParamAsReduction(Context ctx) {
+        String interval = ctx.queryParam(INTERVAL);
+        String aggregate = ctx.queryParam(AGGREGATE);
+        Integer maxPoints = ctx.queryParamAsClass(MAX_POINTS, Integer.class).allowNullable().get();
+        if (maxPoints != null) {
+            if (interval != null || aggregate != null) {
+                throw new IllegalArgumentException(String.format("%s can't be combined with %s or %s",
+                        MAX_POINTS, INTERVAL, AGGREGATE));
+            }
+            return TimeSeriesReduction.decimate(maxPoints);
+        }
+        if (interval != null) {
+            return TimeSeriesReduction.aggregate(interval, aggregate != null ? aggregate : "mean");
+        }
+        if (aggregate != null) {
+            throw new IllegalArgumentException(String.format("%s requires %s", AGGREGATE, INTERVAL));
+        }
+        return null;
+    }
+
     @OpenApi(ignore = true)
     @Override
     public void getOne(@NotNull Context ctx, @NotNull String id) {
@@ -536,7 +636,8 @@ public class TimeSeriesController implements CrudHandler {
             requestBody = @OpenApiRequestBody(
                     content = {
                         @OpenApiContent(from = TimeSeries.class, type = Formats.JSONV2),
-                        @OpenApiContent(from = TimeSeries.class, type = Formats.XMLV2)
+                        @OpenApiContent(from = TimeSeries.class, type = Formats.XMLV2),
+                        @OpenApiContent(from = TimeSeries.class, type = Formats.TIMESERIES_BINARY)
                     },
                     required = true),
             queryParams = {
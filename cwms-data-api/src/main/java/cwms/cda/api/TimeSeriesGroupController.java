@@ -304,10 +304,8 @@ public class TimeSeriesGroupController implements CrudHandler {
             if (!office.equalsIgnoreCase(CWMS_OFFICE) && !oldGroupId.equals(deserialize.getId())) {
                 timeSeriesGroupDao.renameTimeSeriesGroup(oldGroupId, deserialize);
             }
-            if (replaceAssignedTs) {
-                timeSeriesGroupDao.unassignAllTs(deserialize, office);
-            }
-            timeSeriesGroupDao.assignTs(deserialize, office);
+            // only the assignments that differ from the stored ones are applied
+            timeSeriesGroupDao.updateAssignedTs(deserialize, office, replaceAssignedTs, metrics);
             ctx.status(HttpServletResponse.SC_OK);
         }
     }
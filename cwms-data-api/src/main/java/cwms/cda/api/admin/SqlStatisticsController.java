@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Hydrologic Engineering Center
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cwms.cda.api.admin;
+
+import static cwms.cda.api.Controllers.STATUS_200;
+import static cwms.cda.api.Controllers.STATUS_204;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import cwms.cda.api.Controllers;
+import cwms.cda.metrics.SqlStatistics;
+import cwms.cda.formatters.Formats;
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.plugin.openapi.annotations.OpenApi;
+import io.javalin.plugin.openapi.annotations.OpenApiResponse;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.servlet.http.HttpServletResponse;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Exposes the SQL fingerprint statistics and captured slow statements.  GET returns the
+ * current statistics, DELETE resets them.
+ */
+public final class SqlStatisticsController implements Handler {
+    public static final String TAG = "Administration";
+    private static final String FINGERPRINTS = "fingerprints";
+    private static final String SLOW_STATEMENTS = "slow-statements";
+    private static final String CAPTURING_VALUES = "capturing-values";
+
+    private final MetricRegistry metrics;
+    private final SqlStatistics statistics;
+
+    public SqlStatisticsController(MetricRegistry metrics) {
+        this(metrics, SqlStatistics.getInstance());
+    }
+
+    SqlStatisticsController(MetricRegistry metrics, SqlStatistics statistics) {
+        this.metrics = metrics;
+        this.statistics = statistics;
+    }
+
+    private Timer.Context markAndTime(String subject) {
+        return Controllers.markAndTime(metrics, getClass().getName(), subject);
+    }
+
+    @OpenApi(
+            responses = {
+                @OpenApiResponse(status = STATUS_200, description = "Per fingerprint statistics "
+                        + "ordered by p99 latency and the most recent slow statements, with their "
+                        + "inlined SQL and bind values only if the server is set to capture them ("
+                        + SqlStatistics.CAPTURE_VALUES_KEY + ")."),
+                @OpenApiResponse(status = STATUS_204, description = "Statistics were reset.")
+            },
+            description = "Statistics about the SQL statements executed by this server. "
+                    + "Requires administrative privileges.",
+            tags = {TAG}
+    )
+    @Override
+    public void handle(@NotNull Context ctx) {
+        if ("DELETE".equalsIgnoreCase(ctx.method())) {
+            try (Timer.Context ignored = markAndTime(Controllers.DELETE)) {
+                statistics.reset();
+                ctx.status(HttpServletResponse.SC_NO_CONTENT);
+            }
+            return;
+        }
+
+        try (Timer.Context ignored = markAndTime(Controllers.GET_ALL)) {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put(FINGERPRINTS, statistics.getFingerprints());
+            body.put(CAPTURING_VALUES, statistics.isCapturingValues());
+            body.put(SLOW_STATEMENTS, statistics.getSlowSamples());
+            ctx.contentType(Formats.JSON);
+            ctx.json(body);
+            ctx.status(HttpServletResponse.SC_OK);
+        }
+    }
+}
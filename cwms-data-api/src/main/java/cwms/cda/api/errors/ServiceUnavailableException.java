@@ -0,0 +1,18 @@
+package cwms.cda.api.errors;
+
+/**
+ * Thrown when a request is shed because the server does not currently have capacity for it.
+ * The client should retry after {@link #getRetryAfterSeconds()}.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+    private final int retryAfterSeconds;
+
+    public ServiceUnavailableException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
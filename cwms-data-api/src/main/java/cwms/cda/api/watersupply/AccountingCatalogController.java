@@ -32,6 +32,8 @@ import static cwms.cda.api.Controllers.END;
 import static cwms.cda.api.Controllers.END_TIME_INCLUSIVE;
 import static cwms.cda.api.Controllers.GET_ALL;
 import static cwms.cda.api.Controllers.OFFICE;
+import static cwms.cda.api.Controllers.PAGE;
+import static cwms.cda.api.Controllers.PAGE_SIZE;
 import static cwms.cda.api.Controllers.PROJECT_ID;
 import static cwms.cda.api.Controllers.START;
 import static cwms.cda.api.Controllers.START_TIME_INCLUSIVE;
@@ -41,6 +43,7 @@ import static cwms.cda.api.Controllers.STATUS_501;
 import static cwms.cda.api.Controllers.TIMEZONE;
 import static cwms.cda.api.Controllers.UNIT;
 import static cwms.cda.api.Controllers.WATER_USER;
+import static cwms.cda.api.Controllers.linkNextPage;
 import static cwms.cda.api.Controllers.requiredInstant;
 import static cwms.cda.data.dao.JooqDao.getDslContext;
 
@@ -56,6 +59,7 @@ import cwms.cda.data.dto.watersupply.WaterUser;
 import cwms.cda.data.dto.watersupply.WaterUserContract;
 import cwms.cda.formatters.ContentType;
 import cwms.cda.formatters.Formats;
+import cwms.cda.formatters.json.JsonAccountingStreamWriter;
 import io.javalin.core.util.Header;
 import io.javalin.http.Context;
 import io.javalin.http.Handler;
@@ -64,6 +68,7 @@ import io.javalin.plugin.openapi.annotations.OpenApi;
 import io.javalin.plugin.openapi.annotations.OpenApiContent;
 import io.javalin.plugin.openapi.annotations.OpenApiParam;
 import io.javalin.plugin.openapi.annotations.OpenApiResponse;
+import java.io.IOException;
 import java.time.Instant;
 import java.util.List;
 import java.util.logging.Level;
@@ -111,9 +116,16 @@ public class AccountingCatalogController implements Handler {
             @OpenApiParam(name = END_TIME_INCLUSIVE, description = "Whether or not the end time is inclusive "
                 + "or not. Defaults to TRUE.", type = Boolean.class),
             @OpenApiParam(name = ASCENDING, description = "Whether or not the entries should be returned "
-                + "in ascending order. Defaults to TRUE.", type = Boolean.class),
+                + "in ascending order. Defaults to TRUE.  The pump accounting of each entry is in ascending "
+                + "order either way.", type = Boolean.class),
             @OpenApiParam(name = ROW_LIMIT, description = "The maximum number of rows to return. "
-                + "Defaults to 0, which means no limit.", type = Integer.class)
+                + "Defaults to 0, which means no limit.", type = Integer.class),
+            @OpenApiParam(name = PAGE, description = "The page to retrieve, from the `next` link of the "
+                + "previous page's Link header.  The other parameters must be repeated with each page."),
+            @OpenApiParam(name = PAGE_SIZE, description = "When given, the entries are returned a page of "
+                + "about this many at a time, with a Link header to the next page.  Pages hold every entry "
+                + "of the times they include, so a page may have a few more or less entries.  Can't be "
+                + "combined with " + ROW_LIMIT + ".", type = Integer.class)
         },
         pathParams = {
             @OpenApiParam(name = OFFICE, description = "The office ID of the project the "
@@ -160,6 +172,14 @@ public class AccountingCatalogController implements Handler {
             final boolean ascending = ctx.queryParam(ASCENDING) == null
                     || Boolean.parseBoolean(ctx.queryParam(ASCENDING));
             final int rowLimit = ctx.queryParam(ROW_LIMIT) != null ? Integer.parseInt(ctx.queryParam(ROW_LIMIT)) : 0;
+            final String page = ctx.queryParam(PAGE);
+            final Integer pageSize = ctx.queryParamAsClass(PAGE_SIZE, Integer.class).allowNullable().get();
+            if (page != null && pageSize == null) {
+                throw new IllegalArgumentException(PAGE_SIZE + " must be given with " + PAGE);
+            }
+            if (pageSize != null && rowLimit > 0) {
+                throw new IllegalArgumentException(ROW_LIMIT + " can't be combined with " + PAGE_SIZE);
+            }
             DSLContext dsl = getDslContext(ctx);
 
             String formatHeader = ctx.header(Header.ACCEPT) != null ? ctx.header(Header.ACCEPT) : Formats.JSONV1;
@@ -197,13 +217,34 @@ public class AccountingCatalogController implements Handler {
             }
 
             WaterSupplyAccountingDao waterSupplyAccountingDao = getWaterSupplyAccountingDao(dsl);
-            List<WaterSupplyAccounting> accounting = waterSupplyAccountingDao.retrieveAccounting(contractId, waterUser,
-                    projectLocation, units, startTime, endTime, startInclusive, endInclusive,
-                    ascending, rowLimit);
+            if (pageSize != null) {
+                WaterSupplyAccountingDao.AccountingPage accountingPage = waterSupplyAccountingDao
+                        .retrieveAccountingPage(contractId, waterUser, projectLocation, units, startTime, endTime,
+                                startInclusive, endInclusive, ascending, page, pageSize);
+                linkNextPage(ctx, accountingPage.getNextPage());
+                String result = Formats.format(contentType, accountingPage.getAccounting(),
+                        WaterSupplyAccounting.class);
+                ctx.result(result);
+                ctx.status(HttpServletResponse.SC_OK);
+                return;
+            }
 
-            String result = Formats.format(contentType, accounting, WaterSupplyAccounting.class);
-            ctx.result(result);
             ctx.status(HttpServletResponse.SC_OK);
+            // entries go to the response as they are read, nothing is written unless the first read succeeds
+            JsonAccountingStreamWriter writer = new JsonAccountingStreamWriter(ctx.res.getOutputStream(),
+                    ascending);
+            waterSupplyAccountingDao.streamAccounting(contractId, waterUser, projectLocation, units, startTime,
+                    endTime, startInclusive, endInclusive, ascending, rowLimit, writer);
+            writer.finish();
+        } catch (IOException ex) {
+            if (ctx.res.isCommitted()) {
+                // entries have been sent, the exception handler aborts the response
+                throw new IllegalStateException("Failed part way through the response", ex);
+            }
+            ctx.res.resetBuffer();
+            CdaError error = new CdaError("Failed to process request: " + ex.getLocalizedMessage());
+            LOGGER.log(Level.SEVERE, error.toString(), ex);
+            ctx.status(HttpServletResponse.SC_INTERNAL_SERVER_ERROR).json(error);
         }
     }
 }
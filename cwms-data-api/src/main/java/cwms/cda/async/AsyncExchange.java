@@ -0,0 +1,306 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Hydrologic Engineering Center
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cwms.cda.async;
+
+import com.google.common.flogger.FluentLogger;
+import cwms.cda.api.errors.CdaError;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * One asynchronously dispatched request: whichever of the worker finishing or the async timeout
+ * happens first owns the response.
+ * <p>
+ * The worker is given {@link #getResponse()}, which stops passing anything through to the
+ * container once the exchange is closed.  On a timeout the container recycles the response as
+ * soon as the request is completed, so a worker still running a long query must not reach it.
+ * </p>
+ */
+final class AsyncExchange implements AsyncListener {
+    private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+    private final HttpServletResponse response;
+    private final GuardedResponse guarded;
+    private final AtomicBoolean open = new AtomicBoolean(true);
+    private volatile Future<?> worker;
+
+    AsyncExchange(HttpServletResponse response) {
+        this.response = response;
+        this.guarded = new GuardedResponse(response);
+    }
+
+    /**
+     * @return the response the worker writes to
+     */
+    HttpServletResponse getResponse() {
+        return guarded;
+    }
+
+    void setWorker(Future<?> worker) {
+        this.worker = worker;
+        if (!isOpen()) {
+            worker.cancel(true);
+        }
+    }
+
+    boolean isOpen() {
+        return open.get();
+    }
+
+    /**
+     * @return true if this call closed the exchange, and the caller now completes the request
+     */
+    boolean close() {
+        return open.compareAndSet(true, false);
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) throws IOException {
+        if (!close()) {
+            return;
+        }
+        Future<?> running = worker;
+        if (running != null) {
+            running.cancel(true);
+        }
+        logger.atWarning().log("Request timed out after %d ms", event.getAsyncContext().getTimeout());
+        if (!response.isCommitted()) {
+            AsyncRequestDispatcher.writeError(response, HttpServletResponse.SC_GATEWAY_TIMEOUT,
+                    new CdaError("The request took too long to process."));
+        }
+        AsyncRequestDispatcher.complete(event.getAsyncContext());
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        if (close()) {
+            Future<?> running = worker;
+            if (running != null) {
+                running.cancel(true);
+            }
+        }
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        // nothing to release
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+        // nothing to set up
+    }
+
+    private IOException closedException() {
+        return new IOException("The request was completed before the response was written");
+    }
+
+    /**
+     * Drops status and header changes, and fails writes, once the exchange is closed.
+     */
+    private final class GuardedResponse extends HttpServletResponseWrapper {
+        private ServletOutputStream out;
+        private PrintWriter writer;
+
+        GuardedResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (!isOpen()) {
+                throw closedException();
+            }
+            if (out == null) {
+                out = new GuardedOutputStream(super.getOutputStream());
+            }
+            return out;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (!isOpen()) {
+                throw closedException();
+            }
+            if (writer == null) {
+                writer = new PrintWriter(new GuardedWriter(super.getWriter()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (!isOpen()) {
+                throw closedException();
+            }
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            if (isOpen()) {
+                super.sendError(sc, msg);
+            }
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            if (isOpen()) {
+                super.sendError(sc);
+            }
+        }
+
+        @Override
+        public void setStatus(int sc) {
+            if (isOpen()) {
+                super.setStatus(sc);
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (isOpen()) {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (isOpen()) {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void setContentType(String type) {
+            if (isOpen()) {
+                super.setContentType(type);
+            }
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            if (isOpen()) {
+                super.setContentLength(len);
+            }
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            if (isOpen()) {
+                super.setContentLengthLong(len);
+            }
+        }
+    }
+
+    private final class GuardedOutputStream extends ServletOutputStream {
+        private final ServletOutputStream delegate;
+
+        GuardedOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        private void check() throws IOException {
+            if (!isOpen()) {
+                throw closedException();
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            check();
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            check();
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            check();
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (isOpen()) {
+                delegate.close();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return isOpen() && delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+
+    private final class GuardedWriter extends Writer {
+        private final Writer delegate;
+
+        GuardedWriter(Writer delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            if (!isOpen()) {
+                throw closedException();
+            }
+            delegate.write(cbuf, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (!isOpen()) {
+                throw closedException();
+            }
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (isOpen()) {
+                delegate.close();
+            }
+        }
+    }
+}
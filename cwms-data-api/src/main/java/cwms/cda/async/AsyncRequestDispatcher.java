@@ -0,0 +1,417 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Hydrologic Engineering Center
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cwms.cda.async;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.flogger.FluentLogger;
+import cwms.cda.api.errors.CdaError;
+import cwms.cda.compression.CompressingResponse;
+import cwms.cda.compression.ResponseCompression;
+import cwms.cda.helpers.Settings;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.http.entity.ContentType;
+
+/**
+ * Moves long-running requests off of the servlet container's worker threads.
+ * <p>
+ * Matching requests are put into asynchronous mode with {@link AsyncContext} and executed on a
+ * bounded, per-route {@link ThreadPoolExecutor}.  The container thread is returned to the pool
+ * immediately so inexpensive lookups do not queue behind catalog scans or large time series
+ * pulls.  When an executor and its queue are full the request is rejected with a 503 rather than
+ * being allowed to consume a container thread.
+ * </p>
+ * <p>
+ * A route group with a {@link cwms.cda.limits.ConcurrencyLimiter} of the same name is sized from
+ * the same number: by default an executor has as many threads as its limiter's upper bound.  The
+ * limiter owns how many requests reach the database and sheds once its, possibly adaptive, limit
+ * is reached; the executor's queue only bounds how many wait for a thread.  Both answer with a
+ * 503 and a Retry-After header.
+ * </p>
+ * <p>
+ * The dispatcher completes the request once the handler returns, so it also compresses the
+ * response and ends the compressed body before completing it.  The handler is given the
+ * {@link CompressingResponse} and must not compress it again.
+ * </p>
+ * Settings (system property or environment variable):
+ * <ul>
+ *     <li>{@value #ENABLED_KEY} - enable asynchronous execution, default true</li>
+ *     <li>{@value #TIMEOUT_KEY} - async timeout in seconds, 0 (the default) for no timeout.  A
+ *     request that times out is answered with a 504, its worker is interrupted and can no longer
+ *     write to the response.</li>
+ *     <li>{@value #RETRY_AFTER_KEY} - Retry-After sent with a 503 when an executor is full,
+ *     default 5</li>
+ *     <li>cwms.dataapi.async.&lt;executor&gt;.threads - worker threads for an executor, see
+ *     {@link #defaultThreads(String)}</li>
+ *     <li>cwms.dataapi.async.&lt;executor&gt;.queue - requests allowed to wait for a worker</li>
+ * </ul>
+ */
+public class AsyncRequestDispatcher {
+    private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+    public static final String ENABLED_KEY = "cwms.dataapi.async.enabled";
+    public static final String TIMEOUT_KEY = "cwms.dataapi.async.timeout.seconds";
+    public static final String RETRY_AFTER_KEY = "cwms.dataapi.async.retry-after.seconds";
+    private static final String ABORTED_ATTRIBUTE = AsyncRequestDispatcher.class.getName() + ".aborted";
+    private static final String SETTING_PREFIX = "cwms.dataapi.async.";
+
+    public static final String CATALOG = "catalog";
+    public static final String TIMESERIES = "timeseries";
+    public static final String RATINGS = "ratings";
+    public static final String FILES = "files";
+
+    /**
+     * Request handling that should happen on the executor, typically the Javalin servlet.
+     */
+    @FunctionalInterface
+    public interface RequestHandler {
+        void handle(HttpServletRequest request, HttpServletResponse response) throws IOException;
+    }
+
+    private final List<AsyncRoute> routes;
+    private final Map<String, ThreadPoolExecutor> executors = new LinkedHashMap<>();
+    private final Map<String, Meter> rejections = new LinkedHashMap<>();
+    private final boolean enabled;
+    private final long timeoutMillis;
+    private final int retryAfterSeconds;
+
+    public AsyncRequestDispatcher(MetricRegistry metrics) {
+        this(metrics, defaultRoutes(), Settings.getBoolean(ENABLED_KEY, true));
+    }
+
+    public AsyncRequestDispatcher(MetricRegistry metrics, List<AsyncRoute> routes, boolean enabled) {
+        this.routes = Collections.unmodifiableList(new ArrayList<>(routes));
+        this.enabled = enabled;
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(Settings.getLong(TIMEOUT_KEY, 0));
+        this.retryAfterSeconds = Settings.getInt(RETRY_AFTER_KEY, 5);
+        if (enabled) {
+            for (AsyncRoute route : this.routes) {
+                String executorName = route.getExecutor();
+                if (!executors.containsKey(executorName)) {
+                    ThreadPoolExecutor executor = buildExecutor(executorName);
+                    executors.put(executorName, executor);
+                    registerMetrics(metrics, executorName, executor);
+                }
+            }
+            logger.atInfo().log("Asynchronous request routes: %s", this.routes);
+        }
+    }
+
+    /**
+     * The default set of expensive GET endpoints.  Paths are relative to the context path.
+     * @return routes to run asynchronously.
+     */
+    public static List<AsyncRoute> defaultRoutes() {
+        List<AsyncRoute> retval = new ArrayList<>();
+        retval.add(new AsyncRoute(CATALOG, "GET", "/catalog/[^/]+/?"));
+        retval.add(new AsyncRoute(TIMESERIES, "GET", "/timeseries/?"));
+        retval.add(new AsyncRoute(TIMESERIES, "GET", "/timeseries/(text|binary)/?"));
+        retval.add(new AsyncRoute(TIMESERIES, "GET", "/levels/[^/]+/timeseries/?"));
+        retval.add(new AsyncRoute(RATINGS, "GET", "/ratings(/(?!template|spec|metadata)[^/]+)?/?"));
+        retval.add(new AsyncRoute(FILES, "GET", "/forecast-instance/[^/]+/file-data/?"));
+        retval.add(new AsyncRoute(FILES, "GET", "/timeseries/(text|binary)/[^/]+/value/?"));
+        return retval;
+    }
+
+    /**
+     * @param executorName the executor, and the route group's limiter
+     * @return the threads of the executor when cwms.dataapi.async.&lt;executor&gt;.threads isn't
+     *     set, the upper bound of the limiter of the same name
+     */
+    public static int defaultThreads(String executorName) {
+        int threads;
+        switch (executorName) {
+            case TIMESERIES:
+                threads = 16;
+                break;
+            case RATINGS:
+                threads = 6;
+                break;
+            case FILES:
+                threads = 2;
+                break;
+            default:
+                threads = 4;
+                break;
+        }
+        return Settings.getInt("cwms.dataapi.limit." + executorName + ".max", threads);
+    }
+
+    private static ThreadPoolExecutor buildExecutor(String executorName) {
+        int threads = Math.max(1, Settings.getInt(SETTING_PREFIX + executorName + ".threads",
+                defaultThreads(executorName)));
+        int queue = Math.max(1, Settings.getInt(SETTING_PREFIX + executorName + ".queue",
+                threads * 4));
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queue), new NamedThreadFactory("cda-async-" + executorName),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private void registerMetrics(MetricRegistry metrics, String executorName,
+                                 ThreadPoolExecutor executor) {
+        if (metrics == null) {
+            return;
+        }
+        String base = name(AsyncRequestDispatcher.class, executorName);
+        metrics.gauge(name(base, "active"), () -> (Gauge<Integer>) executor::getActiveCount);
+        metrics.gauge(name(base, "queued"), () -> (Gauge<Integer>) () -> executor.getQueue().size());
+        rejections.put(executorName, metrics.meter(name(base, "rejected")));
+    }
+
+    /**
+     * Finds the route matching a request.
+     * @param method HTTP method
+     * @param path request path relative to the context path
+     * @return the matched route or null if the request should run synchronously.
+     */
+    public AsyncRoute routeFor(String method, String path) {
+        for (AsyncRoute route : routes) {
+            if (route.matches(method, path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Dispatch the request onto its executor if it matches an asynchronous route.
+     * @param req the request
+     * @param resp the response
+     * @param handler the work to perform for the request
+     * @return true if the request was taken over (executed or rejected), false if the caller
+     *     should continue to service the request on the current thread.
+     */
+    public boolean dispatch(HttpServletRequest req, HttpServletResponse resp,
+                            RequestHandler handler) {
+        if (!enabled || !req.isAsyncSupported()) {
+            return false;
+        }
+        AsyncRoute route = routeFor(req.getMethod(), requestPath(req));
+        if (route == null) {
+            return false;
+        }
+
+        ThreadPoolExecutor executor = executors.get(route.getExecutor());
+        AsyncExchange exchange = new AsyncExchange(resp);
+        AsyncContext asyncContext = req.startAsync(req, exchange.getResponse());
+        asyncContext.addListener(exchange);
+        asyncContext.setTimeout(timeoutMillis);
+        try {
+            exchange.setWorker(executor.submit(() -> run(asyncContext, req, exchange, handler)));
+        } catch (RejectedExecutionException ex) {
+            Meter rejected = rejections.get(route.getExecutor());
+            if (rejected != null) {
+                rejected.mark();
+            }
+            logger.atWarning().atMostEvery(10, TimeUnit.SECONDS)
+                    .log("Rejected %s %s, %s executor is saturated", req.getMethod(),
+                            req.getRequestURI(), route.getExecutor());
+            if (exchange.close()) {
+                reject(resp, retryAfterSeconds);
+                complete(asyncContext);
+            }
+        }
+        return true;
+    }
+
+    private static void run(AsyncContext asyncContext, HttpServletRequest request,
+                            AsyncExchange exchange, RequestHandler handler) {
+        HttpServletResponse response = exchange.getResponse();
+        CompressingResponse compressing = ResponseCompression.wrap(request, response);
+        HttpServletResponse handled = compressing != null ? compressing : response;
+        try {
+            handler.handle(new DispatchedRequest(request), handled);
+            if (compressing != null && exchange.isOpen()) {
+                // the compressed body must end before the request is completed below
+                compressing.finish();
+            }
+        } catch (Exception ex) {
+            if (!exchange.isOpen()) {
+                // timed out, the listener has already answered
+                logger.atFine().withCause(ex).log("Request ended after timing out: %s",
+                        request.getRequestURI());
+                return;
+            }
+            if (handled.isCommitted() || abortedBy(request) != null) {
+                // part of the body has been sent, dropping the connection is the only way left to
+                // tell the client.  The container does that for an error on its own thread.
+                logger.atFine().withCause(ex).log("Aborting response to %s", request.getRequestURI());
+                markAborted(request, ex);
+                if (exchange.close()) {
+                    dispatch(asyncContext);
+                }
+                return;
+            }
+            CdaError re = new CdaError("System Error");
+            logger.atWarning().withCause(ex).log("error on request[%s]: %s",
+                    re.getIncidentIdentifier(), request.getRequestURI());
+            if (!response.isCommitted()) {
+                writeError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, re);
+            }
+        } finally {
+            if (exchange.close()) {
+                complete(asyncContext);
+            }
+        }
+    }
+
+    private static void reject(HttpServletResponse resp, int retryAfterSeconds) {
+        resp.setHeader("Retry-After", Integer.toString(retryAfterSeconds));
+        writeError(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                new CdaError("Server is busy, please retry later."));
+    }
+
+    static void writeError(HttpServletResponse resp, int status, CdaError error) {
+        resp.setStatus(status);
+        resp.setContentType(ContentType.APPLICATION_JSON.toString());
+        try (PrintWriter out = resp.getWriter()) {
+            out.println(new ObjectMapper().writeValueAsString(error));
+        } catch (IOException | IllegalStateException ex) {
+            logger.atFine().withCause(ex).log("Unable to write error response");
+        }
+    }
+
+    static void complete(AsyncContext asyncContext) {
+        try {
+            asyncContext.complete();
+        } catch (IllegalStateException ex) {
+            logger.atFinest().withCause(ex).log("Async context already completed");
+        }
+    }
+
+    private static void dispatch(AsyncContext asyncContext) {
+        try {
+            asyncContext.dispatch();
+        } catch (IllegalStateException ex) {
+            logger.atFine().withCause(ex).log("Unable to dispatch aborted request");
+            complete(asyncContext);
+        }
+    }
+
+    /**
+     * Records that a response failed after its body was started.  The servlet must not end such a
+     * response normally; see {@link #abortedBy(HttpServletRequest)}.
+     * @param req the request
+     * @param cause what went wrong
+     */
+    public static void markAborted(HttpServletRequest req, Throwable cause) {
+        req.setAttribute(ABORTED_ATTRIBUTE, cause);
+    }
+
+    /**
+     * A servlet seeing a cause here throws it rather than ending the response, so the container
+     * drops the connection and the client can't mistake a truncated body for a complete one.
+     * Asynchronous requests are dispatched back to the servlet for that.
+     * @param req the request
+     * @return why the response was aborted, or null if it wasn't.
+     */
+    public static Throwable abortedBy(HttpServletRequest req) {
+        Object cause = req.getAttribute(ABORTED_ATTRIBUTE);
+        return cause instanceof Throwable ? (Throwable) cause : null;
+    }
+
+    /**
+     * Request path with the context path removed, e.g. "/timeseries".
+     * @param req the request
+     * @return the path used for route matching.
+     */
+    public static String requestPath(HttpServletRequest req) {
+        String uri = req.getRequestURI();
+        String contextPath = req.getContextPath();
+        if (contextPath != null && !contextPath.isEmpty() && uri.startsWith(contextPath)) {
+            uri = uri.substring(contextPath.length());
+        }
+        return uri;
+    }
+
+    public void shutdown() {
+        for (ThreadPoolExecutor executor : executors.values()) {
+            executor.shutdown();
+        }
+        for (Map.Entry<String, ThreadPoolExecutor> entry : executors.entrySet()) {
+            try {
+                if (!entry.getValue().awaitTermination(10, TimeUnit.SECONDS)) {
+                    entry.getValue().shutdownNow();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                entry.getValue().shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * The request as the handler sees it.  This dispatcher completes the asynchronous request once
+     * the handler has returned, so the handler, Javalin in particular, must not complete it first.
+     */
+    private static final class DispatchedRequest extends HttpServletRequestWrapper {
+        DispatchedRequest(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public boolean isAsyncStarted() {
+            return false;
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
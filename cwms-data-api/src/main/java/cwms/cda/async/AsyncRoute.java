@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Hydrologic Engineering Center
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cwms.cda.async;
+
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Describes a set of requests that should be executed off of the container thread pool.
+ * Requests are matched on HTTP method and on the request path relative to the servlet context,
+ * e.g. "/catalog/TIMESERIES".  Each route names the executor it should run on so that several
+ * routes can share one bounded pool.
+ */
+public final class AsyncRoute {
+    private final String executor;
+    private final String method;
+    private final Pattern path;
+
+    public AsyncRoute(String executor, String method, String pathRegex) {
+        this.executor = Objects.requireNonNull(executor, "executor");
+        this.method = Objects.requireNonNull(method, "method");
+        this.path = Pattern.compile(pathRegex);
+    }
+
+    public String getExecutor() {
+        return executor;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public Pattern getPath() {
+        return path;
+    }
+
+    public boolean matches(String requestMethod, String requestPath) {
+        return method.equalsIgnoreCase(requestMethod) && path.matcher(requestPath).matches();
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + path.pattern() + " -> " + executor;
+    }
+}
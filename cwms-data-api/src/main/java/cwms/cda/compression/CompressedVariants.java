@@ -0,0 +1,52 @@
+package cwms.cda.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A cached response body together with its compressed variants, so a body that is served many
+ * times is compressed once per coding rather than once per request.  Each variant is compressed
+ * at the coding's configured level the first time a client asks for it.
+ */
+public final class CompressedVariants {
+
+    private final byte[] identity;
+    private final Map<ContentCoding, byte[]> variants = new ConcurrentHashMap<>();
+
+    public CompressedVariants(byte[] identity) {
+        this.identity = identity;
+    }
+
+    /**
+     * @return the uncompressed body
+     */
+    public byte[] identity() {
+        return identity;
+    }
+
+    /**
+     * @param coding the coding, null for the uncompressed body
+     * @return the body compressed with the coding
+     */
+    public byte[] get(@Nullable ContentCoding coding) {
+        if (coding == null) {
+            return identity;
+        }
+        return variants.computeIfAbsent(coding, this::compress);
+    }
+
+    private byte[] compress(ContentCoding coding) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, identity.length / 4));
+        try (OutputStream compressor = coding.compress(out, ResponseCompression.level(coding))) {
+            compressor.write(identity);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to " + coding.token() + " the response", ex);
+        }
+        return out.toByteArray();
+    }
+}
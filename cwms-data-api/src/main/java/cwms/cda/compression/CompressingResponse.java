@@ -0,0 +1,284 @@
+package cwms.cda.compression;
+
+import io.javalin.core.util.Header;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Locale;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Response wrapper that compresses the body as it is written.  The first bytes are held until
+ * there are enough of them to pass the content type's minimum size, or the body ends, and then
+ * the response is either compressed from there on or written as is.  A streamed response is
+ * compressed as it streams; the compressor is flushed whenever the response is.
+ *
+ * <p>The response isn't compressed when it already has a Content-Encoding, when it has no body
+ * (204, 304) or is a range (206), or when its content type isn't compressible.
+ */
+public final class CompressingResponse extends HttpServletResponseWrapper {
+
+    @Nullable
+    private final ContentCoding coding;
+    private final int level;
+    private final CompressingStream stream = new CompressingStream();
+    private PrintWriter writer;
+    private long contentLength = -1;
+
+    CompressingResponse(HttpServletResponse response, @Nullable ContentCoding coding, int level) {
+        super(response);
+        this.coding = coding;
+        this.level = level;
+    }
+
+    /**
+     * @return the coding the body is compressed with, null until the body is, or if it won't be
+     */
+    @Nullable
+    public ContentCoding compressedWith() {
+        return stream.compressor != null ? coding : null;
+    }
+
+    /**
+     * Writes whatever is still held and ends the compressed body.  Called once the servlet is
+     * done with the response; the container's stream is left open for the container to close.
+     */
+    public void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        stream.finish();
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        return stream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(stream, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        if (stream.decided && stream.compressor == null) {
+            super.setContentLengthLong(len);
+        } else {
+            // the compressed length isn't known until the end, only forwarded if not compressing
+            contentLength = len;
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (Header.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value == null ? -1 : Long.parseLong(value.trim()));
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (Header.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setHeader(name, value);
+        } else {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        if (Header.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value);
+        } else {
+            super.setIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        if (Header.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value);
+        } else {
+            super.addIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        stream.flush();
+        if (stream.decided) {
+            super.flushBuffer();
+        }
+    }
+
+    /**
+     * Once compression has started the body can't be reset, even if the container has yet to see
+     * any of it.
+     */
+    @Override
+    public boolean isCommitted() {
+        return stream.compressor != null || super.isCommitted();
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (!stream.decided) {
+            stream.held.reset();
+        }
+        super.resetBuffer();
+    }
+
+    @Override
+    public void reset() {
+        if (!stream.decided) {
+            stream.held.reset();
+            contentLength = -1;
+        }
+        super.reset();
+    }
+
+    private boolean shouldCompress(int minSize) {
+        int status = getStatus();
+        return coding != null
+                && minSize >= 0
+                && status != SC_NO_CONTENT
+                && status != SC_NOT_MODIFIED
+                && status != SC_PARTIAL_CONTENT
+                && getHeader(Header.CONTENT_ENCODING) == null;
+    }
+
+    private void vary() {
+        String vary = getHeader(Header.VARY);
+        if (vary == null || vary.trim().isEmpty()) {
+            super.setHeader(Header.VARY, Header.ACCEPT_ENCODING);
+        } else if (!vary.toLowerCase(Locale.ROOT).contains("accept-encoding")) {
+            super.setHeader(Header.VARY, vary + ", " + Header.ACCEPT_ENCODING);
+        }
+    }
+
+    private final class CompressingStream extends ServletOutputStream {
+        private final ByteArrayOutputStream held = new ByteArrayOutputStream();
+        private boolean decided;
+        private boolean finished;
+        private OutputStream target;
+        private OutputStream compressor;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (finished) {
+                throw new IOException("The response has already been finished");
+            }
+            if (!decided) {
+                held.write(b, off, len);
+                decide(false);
+            } else {
+                target.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // holding the first bytes back is what lets a small response go uncompressed
+            if (decided && !finished) {
+                target.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+
+        @Override
+        public boolean isReady() {
+            try {
+                return !decided || getResponse().getOutputStream().isReady();
+            } catch (IOException ex) {
+                return false;
+            }
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            try {
+                getResponse().getOutputStream().setWriteListener(writeListener);
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        private void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            if (!decided) {
+                decide(true);
+            }
+            finished = true;
+            if (compressor != null) {
+                // ends the compressed stream, the container's stream stays open
+                compressor.close();
+            } else if (target != null) {
+                target.flush();
+            }
+        }
+
+        private void decide(boolean complete) throws IOException {
+            String contentType = getContentType();
+            int minSize = ResponseCompression.minSize(contentType);
+            boolean compress = shouldCompress(minSize);
+            if (compress && (held.size() < minSize || held.size() == 0)) {
+                if (!complete && (contentLength < 0 || contentLength >= minSize)) {
+                    // keep holding until there is enough to be worth compressing
+                    return;
+                }
+                compress = false;
+            }
+            decided = true;
+            if (minSize >= 0) {
+                // the body depends on Accept-Encoding for every compressible type
+                vary();
+            }
+            OutputStream out = CompressingResponse.super.getOutputStream();
+            if (compress) {
+                CompressingResponse.super.setHeader(Header.CONTENT_ENCODING, coding.token());
+                compressor = coding.compress(ContentCoding.nonClosing(out), level);
+                target = compressor;
+            } else {
+                if (contentLength >= 0) {
+                    CompressingResponse.super.setContentLengthLong(contentLength);
+                }
+                target = out;
+            }
+            if (held.size() > 0) {
+                held.writeTo(target);
+                held.reset();
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package cwms.cda.compression;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The content codings responses can be compressed with.  gzip and deflate come with the JDK,
+ * zstd is only available when a pure Java implementation, aircompressor, is on the classpath.
+ */
+public enum ContentCoding {
+    GZIP("gzip") {
+        @Override
+        OutputStream compress(OutputStream out, int level) throws IOException {
+            return new GZIPOutputStream(out, BUFFER_SIZE, true) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+    },
+    DEFLATE("deflate") {
+        @Override
+        OutputStream compress(OutputStream out, int level) {
+            Deflater deflater = new Deflater(level);
+            return new DeflaterOutputStream(out, deflater, BUFFER_SIZE, true) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        // only the default deflater is ended by close
+                        deflater.end();
+                    }
+                }
+            };
+        }
+    },
+    ZSTD("zstd") {
+        @Override
+        boolean isAvailable() {
+            return ZSTD_STREAM != null;
+        }
+
+        @Override
+        OutputStream compress(OutputStream out, int level) throws IOException {
+            if (ZSTD_STREAM == null) {
+                throw new IllegalStateException("zstd isn't available");
+            }
+            try {
+                return ZSTD_STREAM.newInstance(out);
+            } catch (InvocationTargetException ex) {
+                if (ex.getCause() instanceof IOException) {
+                    throw (IOException) ex.getCause();
+                }
+                throw new IllegalStateException("Unable to create a zstd stream", ex.getCause());
+            } catch (ReflectiveOperationException ex) {
+                throw new IllegalStateException("Unable to create a zstd stream", ex);
+            }
+        }
+    };
+
+    private static final int BUFFER_SIZE = 8192;
+    @Nullable
+    private static final Constructor<? extends OutputStream> ZSTD_STREAM = zstdStream();
+
+    private final String token;
+
+    ContentCoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * @return the coding's name in Accept-Encoding and Content-Encoding
+     */
+    public String token() {
+        return token;
+    }
+
+    boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * Wraps the stream with a compressor whose flush writes everything written so far, so a
+     * streamed response can still be flushed to the client part way through.
+     *
+     * @param out   where the compressed bytes go, closed when the compressor is
+     * @param level the compression level, from 1 (fastest) to 9 (smallest), ignored by zstd
+     */
+    abstract OutputStream compress(OutputStream out, int level) throws IOException;
+
+    /**
+     * @return the coding with the token, null when it isn't one of these
+     */
+    @Nullable
+    static ContentCoding fromToken(String token) {
+        String name = token.trim().toLowerCase(Locale.ROOT);
+        if ("x-gzip".equals(name)) {
+            return GZIP;
+        }
+        for (ContentCoding coding : values()) {
+            if (coding.token.equals(name)) {
+                return coding;
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Constructor<? extends OutputStream> zstdStream() {
+        try {
+            return Class.forName("io.airlift.compress.zstd.ZstdOutputStream")
+                    .asSubclass(OutputStream.class)
+                    .getConstructor(OutputStream.class);
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Keeps a compressor's close from closing the response's stream, which the container owns.
+     */
+    static OutputStream nonClosing(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+}
@@ -0,0 +1,161 @@
+package cwms.cda.compression;
+
+import cwms.cda.helpers.Settings;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Compresses responses in the application rather than leaving it to the connector.  The coding is
+ * negotiated from the request's Accept-Encoding, and a response is only compressed when its
+ * content type is compressible and it is at least that type's minimum size.
+ *
+ * <p>Settings (system property or environment variable):
+ * <ul>
+ *     <li>{@value #ENABLED_KEY} - compress responses, default true</li>
+ *     <li>{@value #ENCODINGS_KEY} - the codings offered, most preferred first, default
+ *     zstd,gzip,deflate.  zstd is skipped unless aircompressor is on the classpath</li>
+ *     <li>cwms.dataapi.compression.&lt;coding&gt;.level - 1 (fastest) to 9 (smallest), default 6</li>
+ *     <li>cwms.dataapi.compression.minSize.&lt;json|xml|text&gt; - the smallest response of the
+ *     type that is compressed, default {@value #DEFAULT_MIN_SIZE} bytes</li>
+ * </ul>
+ */
+public final class ResponseCompression {
+
+    public static final String PROP_BASE = "cwms.dataapi.compression";
+    public static final String ENABLED_KEY = PROP_BASE + ".enabled";
+    public static final String ENCODINGS_KEY = PROP_BASE + ".encodings";
+    public static final int DEFAULT_MIN_SIZE = 1024;
+    public static final int DEFAULT_LEVEL = 6;
+
+    private static final boolean ENABLED = Settings.getBoolean(ENABLED_KEY, true);
+    private static final List<ContentCoding> OFFERED = offered(
+            Settings.getString(ENCODINGS_KEY, "zstd,gzip,deflate"));
+    private static final Map<ContentCoding, Integer> LEVELS = levels();
+    private static final int JSON_MIN_SIZE = Settings.getInt(PROP_BASE + ".minSize.json", DEFAULT_MIN_SIZE);
+    private static final int XML_MIN_SIZE = Settings.getInt(PROP_BASE + ".minSize.xml", DEFAULT_MIN_SIZE);
+    private static final int TEXT_MIN_SIZE = Settings.getInt(PROP_BASE + ".minSize.text", DEFAULT_MIN_SIZE);
+
+    private ResponseCompression() {
+    }
+
+    /**
+     * @return the response to write to, which compresses the body when it should be, or null
+     *     when compression is disabled.  The caller must {@link CompressingResponse#finish()} it.
+     */
+    @Nullable
+    public static CompressingResponse wrap(HttpServletRequest request, HttpServletResponse response) {
+        if (!ENABLED || OFFERED.isEmpty()) {
+            return null;
+        }
+        ContentCoding coding = "HEAD".equalsIgnoreCase(request.getMethod()) ? null
+                : negotiate(request.getHeader("Accept-Encoding"), OFFERED);
+        return new CompressingResponse(response, coding, coding == null ? 0 : level(coding));
+    }
+
+    /**
+     * @param acceptEncoding the request's Accept-Encoding
+     * @return the configured coding the client prefers, null when compression is disabled or the
+     *     client accepts none of them
+     */
+    @Nullable
+    public static ContentCoding negotiate(@Nullable String acceptEncoding) {
+        return ENABLED ? negotiate(acceptEncoding, OFFERED) : null;
+    }
+
+    /**
+     * @return the coding of the offered ones the client prefers, the earliest offered on a tie,
+     *     or null when the client accepts none of them
+     */
+    @Nullable
+    public static ContentCoding negotiate(@Nullable String acceptEncoding, List<ContentCoding> offered) {
+        if (acceptEncoding == null || acceptEncoding.trim().isEmpty()) {
+            return null;
+        }
+        Map<ContentCoding, Double> weights = new HashMap<>();
+        Double wildcard = null;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String token = params[0].trim();
+            double weight = 1.0;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.toLowerCase(Locale.ROOT).startsWith("q=")) {
+                    try {
+                        weight = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException ex) {
+                        weight = 0;
+                    }
+                }
+            }
+            if ("*".equals(token)) {
+                wildcard = weight;
+            } else {
+                ContentCoding coding = ContentCoding.fromToken(token);
+                if (coding != null) {
+                    weights.merge(coding, weight, Math::max);
+                }
+            }
+        }
+        ContentCoding best = null;
+        double bestWeight = 0;
+        for (ContentCoding coding : offered) {
+            Double weight = weights.containsKey(coding) ? weights.get(coding) : wildcard;
+            if (weight != null && weight > bestWeight) {
+                best = coding;
+                bestWeight = weight;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param contentType the response's Content-Type, parameters included
+     * @return the smallest body of the type that is compressed, -1 if the type isn't compressed
+     */
+    public static int minSize(@Nullable String contentType) {
+        if (contentType == null) {
+            return -1;
+        }
+        String type = contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+        if (type.endsWith("json")) {
+            return JSON_MIN_SIZE;
+        } else if (type.endsWith("xml")) {
+            return XML_MIN_SIZE;
+        } else if (type.startsWith("text/")) {
+            return TEXT_MIN_SIZE;
+        }
+        // binary time series, blobs and images are either compressed already or not worth it
+        return -1;
+    }
+
+    static int level(ContentCoding coding) {
+        return LEVELS.get(coding);
+    }
+
+    static List<ContentCoding> offered(String encodings) {
+        List<ContentCoding> offered = new ArrayList<>();
+        for (String token : encodings.split(",")) {
+            ContentCoding coding = ContentCoding.fromToken(token);
+            if (coding != null && coding.isAvailable() && !offered.contains(coding)) {
+                offered.add(coding);
+            }
+        }
+        return Collections.unmodifiableList(offered);
+    }
+
+    private static Map<ContentCoding, Integer> levels() {
+        Map<ContentCoding, Integer> levels = new HashMap<>();
+        for (ContentCoding coding : ContentCoding.values()) {
+            int level = Settings.getInt(PROP_BASE + "." + coding.token() + ".level", DEFAULT_LEVEL);
+            levels.put(coding, Math.max(1, Math.min(9, level)));
+        }
+        return levels;
+    }
+}
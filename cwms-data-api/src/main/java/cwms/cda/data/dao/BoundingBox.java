@@ -0,0 +1,111 @@
+package cwms.cda.data.dao;
+
+import java.math.BigDecimal;
+import org.jetbrains.annotations.Nullable;
+import org.jooq.Condition;
+import org.jooq.Field;
+
+/**
+ * A longitude/latitude rectangle in decimal degrees, as the GeoJSON bbox member orders it:
+ * west, south, east, north.  A box whose west edge is greater than its east edge crosses the
+ * antimeridian.
+ */
+public final class BoundingBox {
+
+    private final double west;
+    private final double south;
+    private final double east;
+    private final double north;
+
+    public BoundingBox(double west, double south, double east, double north) {
+        if (!inRange(west, 180) || !inRange(east, 180) || !inRange(south, 90) || !inRange(north, 90)) {
+            throw new IllegalArgumentException("Bounding box coordinates must be longitudes within "
+                    + "[-180, 180] and latitudes within [-90, 90]");
+        }
+        if (south > north) {
+            throw new IllegalArgumentException("Bounding box south edge " + south
+                    + " is north of its north edge " + north);
+        }
+        this.west = west;
+        this.south = south;
+        this.east = east;
+        this.north = north;
+    }
+
+    /**
+     * @param bbox west,south,east,north in decimal degrees, may be null
+     * @return the box, null if there is none
+     * @throws IllegalArgumentException if the box can't be parsed or isn't valid
+     */
+    @Nullable
+    public static BoundingBox parse(@Nullable String bbox) {
+        if (bbox == null || bbox.trim().isEmpty()) {
+            return null;
+        }
+        String[] parts = bbox.split(",");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Bounding box must be west,south,east,north, was: " + bbox);
+        }
+        double[] edges = new double[4];
+        for (int i = 0; i < parts.length; i++) {
+            try {
+                edges[i] = Double.parseDouble(parts[i].trim());
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Bounding box edge is not a number: " + parts[i], ex);
+            }
+        }
+        return new BoundingBox(edges[0], edges[1], edges[2], edges[3]);
+    }
+
+    private static boolean inRange(double value, double limit) {
+        return value >= -limit && value <= limit;
+    }
+
+    public double getWest() {
+        return west;
+    }
+
+    public double getSouth() {
+        return south;
+    }
+
+    public double getEast() {
+        return east;
+    }
+
+    public double getNorth() {
+        return north;
+    }
+
+    public boolean crossesAntimeridian() {
+        return west > east;
+    }
+
+    public boolean contains(double longitude, double latitude) {
+        if (latitude < south || latitude > north) {
+            return false;
+        }
+        if (crossesAntimeridian()) {
+            return longitude >= west || longitude <= east;
+        }
+        return longitude >= west && longitude <= east;
+    }
+
+    /**
+     * @return the condition that a row's coordinates are in the box, rows without coordinates
+     *     never are
+     */
+    public Condition contains(Field<BigDecimal> longitude, Field<BigDecimal> latitude) {
+        Condition latitudeCondition = latitude.between(BigDecimal.valueOf(south), BigDecimal.valueOf(north));
+        if (crossesAntimeridian()) {
+            return latitudeCondition.and(longitude.ge(BigDecimal.valueOf(west))
+                    .or(longitude.le(BigDecimal.valueOf(east))));
+        }
+        return latitudeCondition.and(longitude.between(BigDecimal.valueOf(west), BigDecimal.valueOf(east)));
+    }
+
+    @Override
+    public String toString() {
+        return west + "," + south + "," + east + "," + north;
+    }
+}
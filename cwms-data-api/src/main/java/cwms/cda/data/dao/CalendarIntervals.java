@@ -0,0 +1,79 @@
+package cwms.cda.data.dao;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Splits time into consecutive intervals of a calendar unit in a time zone.  Minute and hour
+ * intervals start at local midnight, day and week intervals at the epoch (weeks on Mondays),
+ * month and year intervals at the start of year zero.
+ */
+final class CalendarIntervals {
+    // 1970-01-01 was a Thursday
+    private static final long MONDAY_OFFSET = 3;
+
+    private final ChronoUnit unit;
+    private final int amount;
+    private final ZoneId zone;
+
+    CalendarIntervals(ChronoUnit unit, int amount, ZoneId zone) {
+        this.unit = unit;
+        this.amount = amount;
+        this.zone = zone;
+    }
+
+    /**
+     * @return the start of the interval the instant falls in, in epoch milliseconds
+     */
+    long start(long epochMilli) {
+        ZonedDateTime time = Instant.ofEpochMilli(epochMilli).atZone(zone);
+        LocalDate date = time.toLocalDate();
+        switch (unit) {
+            case MINUTES:
+            case HOURS: {
+                ZonedDateTime midnight = date.atStartOfDay(zone);
+                long step = unit == ChronoUnit.HOURS ? 60L * amount : amount;
+                long minutes = (epochMilli - midnight.toInstant().toEpochMilli()) / 60000L;
+                return midnight.plusMinutes(minutes / step * step).toInstant().toEpochMilli();
+            }
+            case DAYS:
+                return startOfDay(LocalDate.ofEpochDay(Math.floorDiv(date.toEpochDay(), amount) * amount));
+            case WEEKS: {
+                long days = 7L * amount;
+                long epochDay = Math.floorDiv(date.toEpochDay() + MONDAY_OFFSET, days) * days - MONDAY_OFFSET;
+                return startOfDay(LocalDate.ofEpochDay(epochDay));
+            }
+            case MONTHS: {
+                long month = Math.floorDiv(date.getYear() * 12L + date.getMonthValue() - 1, amount) * amount;
+                return startOfDay(LocalDate.of((int) Math.floorDiv(month, 12),
+                        (int) Math.floorMod(month, 12) + 1, 1));
+            }
+            default:
+                return startOfDay(LocalDate.of(Math.floorDiv(date.getYear(), amount) * amount, 1, 1));
+        }
+    }
+
+    /**
+     * @param start the start of an interval
+     * @return the start of the following interval
+     */
+    long next(long start) {
+        ZonedDateTime time = Instant.ofEpochMilli(start).atZone(zone);
+        ZonedDateTime next = time.plus(amount, unit);
+        if (unit == ChronoUnit.MINUTES || unit == ChronoUnit.HOURS) {
+            // an interval that doesn't divide the day is cut short at midnight
+            ZonedDateTime midnight = time.toLocalDate().plusDays(1).atStartOfDay(zone);
+            if (next.isAfter(midnight)) {
+                next = midnight;
+            }
+        }
+        return next.toInstant().toEpochMilli();
+    }
+
+    private long startOfDay(LocalDate date) {
+        return date.atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+}
@@ -20,6 +20,7 @@ public class CatalogRequestParameters {
     private final boolean excludeEmpty;
     private final String locationKind;
     private final String locationType;
+    private final SpatialFilter spatialFilter;
 
     private CatalogRequestParameters(Builder builder) {
         this.office = builder.office;
@@ -34,6 +35,7 @@ public class CatalogRequestParameters {
         this.excludeEmpty = builder.excludeEmpty;
         this.locationKind = builder.locationKind;
         this.locationType = builder.locationType;
+        this.spatialFilter = builder.spatialFilter;
     }
 
     public String getBoundingOfficeLike() {
@@ -84,6 +86,10 @@ public class CatalogRequestParameters {
         return locationType;
     }
 
+    public SpatialFilter getSpatialFilter() {
+        return spatialFilter;
+    }
+
 
     public static class Builder {
         String office;
@@ -98,6 +104,7 @@ public class CatalogRequestParameters {
         private boolean excludeEmpty = true;
         String locationKind;
         String locationType;
+        SpatialFilter spatialFilter;
 
         public Builder() {
 
@@ -163,6 +170,11 @@ public class CatalogRequestParameters {
             return this;
         }
 
+        public Builder withSpatialFilter(SpatialFilter spatialFilter) {
+            this.spatialFilter = spatialFilter;
+            return this;
+        }
+
         public static Builder from(CatalogRequestParameters params) {
             // This NEEDS to include every field in the CatalogRequestParameters
             return new Builder()
@@ -178,6 +190,7 @@ public class CatalogRequestParameters {
                     .withExcludeEmpty(params.excludeEmpty)
                     .withLocationKind(params.locationKind)
                     .withLocationType(params.locationType)
+                    .withSpatialFilter(params.spatialFilter)
                     ;
         }
 
@@ -0,0 +1,14 @@
+package cwms.cda.data.dao;
+
+import java.io.IOException;
+import org.geojson.Feature;
+
+/**
+ * Receives GeoJSON features as they are read from an open database cursor instead of after they
+ * have been collected into a FeatureCollection, so a map layer can be written while the cursor is
+ * still open.
+ */
+public interface FeatureSink {
+
+    void feature(Feature feature) throws IOException;
+}
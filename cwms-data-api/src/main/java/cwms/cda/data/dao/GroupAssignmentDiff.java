@@ -0,0 +1,201 @@
+package cwms.cda.data.dao;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.Lists;
+import cwms.cda.helpers.Settings;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The changes that take a group's stored assignments to the requested ones, so updating a group
+ * costs what changed rather than unassigning and reassigning every member.
+ *
+ * <p>Members are matched by upper case id.  A requested member that isn't stored is added, one
+ * whose alias, attribute or reference differs is changed, and, when the request replaces the
+ * assignments, a stored member that wasn't requested is removed.  The changes are applied in
+ * batches of {@value #BATCH_KEY} members, default {@value #DEFAULT_BATCH_SIZE}; the
+ * groups.assignments.&lt;added|changed|removed|unchanged&gt; meters of the group's dao count
+ * members as each batch is applied.
+ */
+public final class GroupAssignmentDiff {
+
+    public static final String BATCH_KEY = GroupDirectory.PROP_BASE + ".assignBatchSize";
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final List<Assignment> added;
+    private final List<Assignment> changed;
+    private final List<String> removed;
+    private final int unchanged;
+
+    private GroupAssignmentDiff(List<Assignment> added, List<Assignment> changed, List<String> removed,
+                                int unchanged) {
+        this.added = added;
+        this.changed = changed;
+        this.removed = removed;
+        this.unchanged = unchanged;
+    }
+
+    /**
+     * @param stored        the group's assignments, for the office being updated
+     * @param requested     the assignments in the request, the last wins if a member is repeated
+     * @param replace       whether stored members that weren't requested are unassigned
+     */
+    static GroupAssignmentDiff between(Collection<Assignment> stored, Collection<Assignment> requested,
+                                       boolean replace) {
+        Map<String, Assignment> current = new LinkedHashMap<>();
+        for (Assignment assignment : stored) {
+            current.put(assignment.key(), assignment);
+        }
+        Map<String, Assignment> wanted = new LinkedHashMap<>();
+        for (Assignment assignment : requested) {
+            wanted.put(assignment.key(), assignment);
+        }
+
+        List<Assignment> added = new ArrayList<>();
+        List<Assignment> changed = new ArrayList<>();
+        int unchanged = 0;
+        for (Map.Entry<String, Assignment> entry : wanted.entrySet()) {
+            Assignment existing = current.get(entry.getKey());
+            if (existing == null) {
+                added.add(entry.getValue());
+            } else if (!existing.equals(entry.getValue())) {
+                changed.add(entry.getValue());
+            } else {
+                unchanged++;
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        if (replace) {
+            for (Map.Entry<String, Assignment> entry : current.entrySet()) {
+                if (!wanted.containsKey(entry.getKey())) {
+                    removed.add(entry.getValue().id);
+                }
+            }
+        }
+        return new GroupAssignmentDiff(added, changed, removed, unchanged);
+    }
+
+    List<Assignment> getAdded() {
+        return Collections.unmodifiableList(added);
+    }
+
+    List<Assignment> getChanged() {
+        return Collections.unmodifiableList(changed);
+    }
+
+    List<String> getRemoved() {
+        return Collections.unmodifiableList(removed);
+    }
+
+    int getUnchanged() {
+        return unchanged;
+    }
+
+    /**
+     * @return whether the stored assignments already were the requested ones
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+    }
+
+    static int batchSize() {
+        return Math.max(1, Settings.getInt(BATCH_KEY, DEFAULT_BATCH_SIZE));
+    }
+
+    /**
+     * Applies the removals, then the additions and changes, a batch at a time.  Removing first
+     * frees any alias a changed member is taking over.
+     *
+     * @param batchSize the most members passed to one call
+     * @param unassign  unassigns a batch of member ids
+     * @param assign    assigns, or reassigns, a batch of members
+     * @param metrics   where progress is counted
+     * @param dao       the dao the meters are named for
+     */
+    void apply(int batchSize, Consumer<List<String>> unassign, Consumer<List<Assignment>> assign,
+               MetricRegistry metrics, Class<?> dao) {
+        metrics.meter(name(dao, "groups", "assignments", "unchanged")).mark(unchanged);
+        Meter removedMeter = metrics.meter(name(dao, "groups", "assignments", "removed"));
+        for (List<String> batch : Lists.partition(removed, batchSize)) {
+            unassign.accept(batch);
+            removedMeter.mark(batch.size());
+        }
+        List<Assignment> upserts = new ArrayList<>(added.size() + changed.size());
+        upserts.addAll(added);
+        upserts.addAll(changed);
+        Meter addedMeter = metrics.meter(name(dao, "groups", "assignments", "added"));
+        Meter changedMeter = metrics.meter(name(dao, "groups", "assignments", "changed"));
+        int done = 0;
+        for (List<Assignment> batch : Lists.partition(upserts, batchSize)) {
+            assign.accept(batch);
+            int addedInBatch = Math.max(0, Math.min(added.size() - done, batch.size()));
+            addedMeter.mark(addedInBatch);
+            changedMeter.mark(batch.size() - addedInBatch);
+            done += batch.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return added.size() + " added, " + changed.size() + " changed, " + removed.size() + " removed, "
+                + unchanged + " unchanged";
+    }
+
+    /**
+     * One member's assignment to a group, the fields common to location and time series groups.
+     */
+    static final class Assignment {
+        final String id;
+        @Nullable
+        final String aliasId;
+        @Nullable
+        final BigDecimal attribute;
+        @Nullable
+        final String refId;
+
+        Assignment(String id, @Nullable String aliasId, @Nullable Number attribute, @Nullable String refId) {
+            this.id = id;
+            this.aliasId = aliasId;
+            this.attribute = JooqDao.toBigDecimal(attribute);
+            this.refId = refId;
+        }
+
+        String key() {
+            return id.toUpperCase(Locale.ROOT);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Assignment)) {
+                return false;
+            }
+            Assignment that = (Assignment) o;
+            // the stored id's case wins, so only a change of alias, attribute or reference counts
+            return key().equals(that.key())
+                    && Objects.equals(aliasId, that.aliasId)
+                    && (attribute == null ? that.attribute == null
+                        : that.attribute != null && attribute.compareTo(that.attribute) == 0)
+                    && Objects.equals(refId, that.refId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(key(), aliasId, refId);
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package cwms.cda.data.dao;
+
+import cwms.cda.helpers.Settings;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import org.jetbrains.annotations.Nullable;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record2;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+
+/**
+ * Immutable snapshot of every group category, group and assignment of one kind of group
+ * (location or time series), so group queries are answered from memory rather than by joining
+ * the category/group view to the assignment view.
+ *
+ * <p>Groups are held in category, group order with their members in attribute order, the same
+ * order the group queries return them in.  A reverse index maps each assigned member, by office
+ * and upper case id, to the groups it is assigned to.
+ *
+ * <p>A {@link Source} owns the current snapshot of a kind of group.  Writes through this instance
+ * mark it stale, other instances see changes once a version probe, run at most every
+ * {@link #CHECK_KEY} seconds, finds the views changed.
+ *
+ * @param <G> the group, without its assignments
+ * @param <A> an assignment
+ */
+final class GroupDirectory<G, A> {
+
+    public static final String PROP_BASE = "cwms.cda.data.dao.groups";
+    public static final String ENABLED_KEY = PROP_BASE + ".directory.enabled";
+    public static final String CHECK_KEY = PROP_BASE + ".directory.checkSeconds";
+
+    static final Comparator<Number> ATTRIBUTE_ORDER =
+            Comparator.nullsLast(Comparator.comparingDouble(Number::doubleValue));
+
+    private final List<Group<G, A>> groups;
+    private final Map<String, Map<String, List<Group<G, A>>>> byCategory;
+    private final Map<List<String>, List<G>> groupsByMember;
+    private final String version;
+
+    GroupDirectory(List<Group<G, A>> groups, String version) {
+        this.version = version;
+        List<Group<G, A>> sorted = new ArrayList<>(groups);
+        sorted.sort(Comparator.comparing((Group<G, A> g) -> g.categoryId, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(g -> g.groupId, Comparator.nullsLast(Comparator.naturalOrder())));
+        this.groups = Collections.unmodifiableList(sorted);
+
+        Map<String, Map<String, List<Group<G, A>>>> categories = new HashMap<>();
+        Map<List<String>, List<G>> members = new HashMap<>();
+        for (Group<G, A> group : sorted) {
+            group.sortMembers();
+            categories.computeIfAbsent(group.categoryId, k -> new HashMap<>())
+                    .computeIfAbsent(group.groupId, k -> new ArrayList<>())
+                    .add(group);
+            for (Member<A> member : group.members) {
+                List<G> memberOf = members.computeIfAbsent(memberKey(member.officeId, member.memberId),
+                        k -> new ArrayList<>());
+                if (!memberOf.contains(group.group)) {
+                    memberOf.add(group.group);
+                }
+            }
+        }
+        this.byCategory = categories;
+        this.groupsByMember = members;
+    }
+
+    String getVersion() {
+        return version;
+    }
+
+    /**
+     * Groups with the assignments that pass a filter, folded as the group queries fold the rows of
+     * the category/group view left joined to the assignment view, where the assignment filter is
+     * part of the where clause: a group is only returned if at least one of its rows passes, a
+     * group without assignments being one row with a null assignment office.
+     *
+     * @param groupFilter    which groups to return
+     * @param assignedOffice which assignments to return, by their office
+     * @param combine        builds the returned group from the group and its assignments
+     */
+    <R> List<R> select(Predicate<Group<G, A>> groupFilter, Predicate<String> assignedOffice,
+                       BiFunction<G, List<A>, R> combine) {
+        return select(groups, groupFilter, assignedOffice, false, combine);
+    }
+
+    /**
+     * As {@link #select}, but with the assignment filter in the join condition: every group that
+     * passes the group filter is returned, with no assignments if none pass.
+     */
+    <R> List<R> selectJoined(Predicate<Group<G, A>> groupFilter, Predicate<String> assignedOffice,
+                             BiFunction<G, List<A>, R> combine) {
+        return select(groups, groupFilter, assignedOffice, true, combine);
+    }
+
+    /**
+     * As {@link #select}, but only of the groups with the exact category and group id.
+     */
+    <R> List<R> select(String categoryId, String groupId, Predicate<Group<G, A>> groupFilter,
+                       Predicate<String> assignedOffice, BiFunction<G, List<A>, R> combine) {
+        List<Group<G, A>> candidates = byCategory.getOrDefault(categoryId, Collections.emptyMap())
+                .getOrDefault(groupId, Collections.emptyList());
+        return select(candidates, groupFilter, assignedOffice, false, combine);
+    }
+
+    /**
+     * @return the groups that pass the filter, without their assignments
+     */
+    List<G> groups(Predicate<Group<G, A>> groupFilter) {
+        List<G> retVal = new ArrayList<>();
+        for (Group<G, A> group : groups) {
+            if (groupFilter.test(group) && !retVal.contains(group.group)) {
+                retVal.add(group.group);
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * @return the groups a member is assigned to, without their assignments
+     */
+    List<G> groupsOf(String officeId, String memberId) {
+        return Collections.unmodifiableList(groupsByMember.getOrDefault(memberKey(officeId, memberId),
+                Collections.emptyList()));
+    }
+
+    private static <G, A, R> List<R> select(List<Group<G, A>> candidates, Predicate<Group<G, A>> groupFilter,
+                                            Predicate<String> assignedOffice, boolean joined,
+                                            BiFunction<G, List<A>, R> combine) {
+        Map<G, List<A>> folded = new LinkedHashMap<>();
+        for (Group<G, A> group : candidates) {
+            if (!groupFilter.test(group)) {
+                continue;
+            }
+            List<A> assigned = new ArrayList<>();
+            for (Member<A> member : group.members) {
+                if (assignedOffice.test(member.officeId)) {
+                    assigned.add(member.assigned);
+                }
+            }
+            if (joined || !assigned.isEmpty() || (group.members.isEmpty() && assignedOffice.test(null))) {
+                folded.computeIfAbsent(group.group, k -> new ArrayList<>()).addAll(assigned);
+            }
+        }
+        List<R> retVal = new ArrayList<>(folded.size());
+        for (Map.Entry<G, List<A>> entry : folded.entrySet()) {
+            retVal.add(combine.apply(entry.getKey(), entry.getValue()));
+        }
+        return retVal;
+    }
+
+    private static List<String> memberKey(@Nullable String officeId, String memberId) {
+        return Arrays.asList(officeId == null ? null : officeId.toUpperCase(Locale.ROOT),
+                memberId.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * The Java equivalent of {@link JooqDao#caseInsensitiveLikeRegex}: whether the regex matches
+     * part of the value, ignoring case, with the POSIX character classes Oracle supports.
+     */
+    static Predicate<String> likeRegex(String regex) {
+        Pattern pattern = Pattern.compile(posixClasses(regex), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        return value -> value != null && pattern.matcher(value).find();
+    }
+
+    private static String posixClasses(String regex) {
+        return regex.replace("[:alpha:]", "\\p{Alpha}")
+                .replace("[:digit:]", "\\p{Digit}")
+                .replace("[:alnum:]", "\\p{Alnum}")
+                .replace("[:upper:]", "\\p{Upper}")
+                .replace("[:lower:]", "\\p{Lower}")
+                .replace("[:space:]", "\\p{Space}")
+                .replace("[:blank:]", "\\p{Blank}")
+                .replace("[:punct:]", "\\p{Punct}")
+                .replace("[:xdigit:]", "\\p{XDigit}")
+                .replace("[:cntrl:]", "\\p{Cntrl}")
+                .replace("[:print:]", "\\p{Print}")
+                .replace("[:graph:]", "\\p{Graph}");
+    }
+
+    /**
+     * The row count and a hash of the contents of a view, which changes when any of the columns
+     * of any row does.  It is a full scan, but of a single view, run at most once per check
+     * interval, rather than the join and transfer of every row per request.
+     */
+    static String probe(DSLContext dsl, Table<?> view, Field<?>... columns) {
+        List<Field<?>> parts = new ArrayList<>();
+        for (Field<?> column : columns) {
+            if (!parts.isEmpty()) {
+                parts.add(DSL.inline("|"));
+            }
+            parts.add(column);
+        }
+        Field<Long> hash = DSL.field("ora_hash({0})", Long.class, DSL.concat(parts.toArray(new Field<?>[0])));
+        Record2<Integer, BigDecimal> counts = dsl.select(DSL.count(), DSL.sum(hash))
+                .from(view)
+                .fetchOne();
+        return counts == null ? "" : counts.value1() + ":" + counts.value2();
+    }
+
+    /**
+     * A group of the snapshot, with the columns the group queries filter on.
+     */
+    static final class Group<G, A> {
+        final G group;
+        final String categoryOfficeId;
+        final String categoryId;
+        final String groupOfficeId;
+        final String groupId;
+        final String sharedRefId;
+        final List<Member<A>> members = new ArrayList<>();
+
+        Group(G group, String categoryOfficeId, String categoryId, String groupOfficeId, String groupId,
+              String sharedRefId) {
+            this.group = group;
+            this.categoryOfficeId = categoryOfficeId;
+            this.categoryId = categoryId;
+            this.groupOfficeId = groupOfficeId;
+            this.groupId = groupId;
+            this.sharedRefId = sharedRefId;
+        }
+
+        Group<G, A> add(A assigned, String officeId, String memberId, @Nullable Number attribute) {
+            members.add(new Member<>(assigned, officeId, memberId, attribute));
+            return this;
+        }
+
+        void sortMembers() {
+            members.sort(Comparator.comparing((Member<A> m) -> m.attribute, ATTRIBUTE_ORDER)
+                    .thenComparing(m -> m.memberId));
+        }
+    }
+
+    static final class Member<A> {
+        final A assigned;
+        final String officeId;
+        final String memberId;
+        final Number attribute;
+
+        Member(A assigned, String officeId, String memberId, @Nullable Number attribute) {
+            this.assigned = assigned;
+            this.officeId = officeId;
+            this.memberId = memberId;
+            this.attribute = attribute;
+        }
+    }
+
+    /**
+     * Owns the current snapshot of one kind of group.
+     *
+     * <p>One request at a time loads a new snapshot, with its own connection and outside any
+     * lock.  While it does, the other requests are served the previous snapshot if it is only due
+     * a version check, or sent to the database if a write through this instance made it stale,
+     * so none of them waits on the load and every one of them sees the writes made here.
+     */
+    static final class Source<G, A> {
+        private final Function<DSLContext, List<Group<G, A>>> loader;
+        private final Function<DSLContext, String> versionProbe;
+        private final boolean enabled = Settings.getBoolean(ENABLED_KEY, true);
+        private final long checkMillis = TimeUnit.SECONDS.toMillis(Settings.getLong(CHECK_KEY, 60));
+        private final AtomicLong generation = new AtomicLong();
+        private final AtomicBoolean loading = new AtomicBoolean();
+        private volatile Loaded<G, A> current;
+
+        /**
+         * @param loader       reads every group with its assignments
+         * @param versionProbe a cheap value that changes when any group or assignment does
+         */
+        Source(Function<DSLContext, List<Group<G, A>>> loader, Function<DSLContext, String> versionProbe) {
+            this.loader = loader;
+            this.versionProbe = versionProbe;
+        }
+
+        /**
+         * @return the current snapshot, loaded or checked first if needed, null if the directory
+         *     is disabled, or has no snapshot with this instance's writes while another request
+         *     loads one, and the caller should query the database
+         */
+        @Nullable
+        GroupDirectory<G, A> get(DSLContext dsl) {
+            if (!enabled) {
+                return null;
+            }
+            Loaded<G, A> loaded = current;
+            boolean written = loaded == null || loaded.generation != generation.get();
+            if (!written && System.currentTimeMillis() - loaded.checkedAt < checkMillis) {
+                return loaded.directory;
+            }
+            if (!loading.compareAndSet(false, true)) {
+                return written ? null : loaded.directory;
+            }
+            try {
+                return load(dsl, loaded);
+            } finally {
+                loading.set(false);
+            }
+        }
+
+        private GroupDirectory<G, A> load(DSLContext dsl, @Nullable Loaded<G, A> previous) {
+            long now = System.currentTimeMillis();
+            long loadedGeneration = generation.get();
+            // probed before loading, so a change made during the load is seen by the next check
+            String version = versionProbe.apply(dsl);
+            GroupDirectory<G, A> directory = previous != null && previous.directory.getVersion().equals(version)
+                    ? previous.directory : new GroupDirectory<>(loader.apply(dsl), version);
+            if (generation.get() == loadedGeneration) {
+                current = new Loaded<>(directory, loadedGeneration, now);
+            }
+            return directory;
+        }
+
+        /**
+         * Marks the snapshot stale after a write, the next read loads a new one.
+         */
+        void invalidate() {
+            generation.incrementAndGet();
+        }
+    }
+
+    private static final class Loaded<G, A> {
+        final GroupDirectory<G, A> directory;
+        final long generation;
+        final long checkedAt;
+
+        Loaded(GroupDirectory<G, A> directory, long generation, long checkedAt) {
+            this.directory = directory;
+            this.generation = generation;
+            this.checkedAt = checkedAt;
+        }
+    }
+}
@@ -35,6 +35,7 @@ import cwms.cda.api.errors.AlreadyExists;
 import cwms.cda.api.errors.InvalidItemException;
 import cwms.cda.api.errors.NotFoundException;
 import cwms.cda.datasource.ConnectionPreparingDataSource;
+import cwms.cda.metrics.SqlStatistics;
 import cwms.cda.security.CwmsAuthException;
 import io.javalin.http.Context;
 import java.math.BigDecimal;
@@ -76,6 +77,8 @@ public abstract class JooqDao<T> extends Dao<T> {
     public static final int DEFAULT_SMALL_FETCH_SIZE = 500;
 
     static ExecuteListener listener = new ExceptionWrappingListener();
+    static ExecuteListener timingListener = new TimingExecuteListener();
+    static ExecuteListener statisticsListener = new SqlStatisticsListener(SqlStatistics.getInstance());
     private static Pattern INVALID_OFFICE_ID = Pattern.compile(
         "INVALID_OFFICE_ID: \"([^\"]+)\" is not a valid CWMS office id");
 
@@ -106,7 +109,8 @@ public abstract class JooqDao<T> extends Dao<T> {
      * An ExecuteListener is also added to the DSLContext to wrap certain
      * recognized SQLExceptions in more specific CDA exception types.  This
      * enables ApiServlet to handle the exception specialization in a more
-     * generic way.
+     * generic way.  Additional listeners record statement and fetch time into
+     * the request's RequestTiming and feed the SqlStatistics fingerprints.
      *
      * @param ctx The current request context.
      * @return A DSLContext for the current request.
@@ -127,7 +131,9 @@ public abstract class JooqDao<T> extends Dao<T> {
             retVal = getDslContext(database, officeId);
         }
 
-        retVal.configuration().set(new DefaultExecuteListenerProvider(listener));
+        retVal.configuration().set(new DefaultExecuteListenerProvider(listener),
+                new DefaultExecuteListenerProvider(timingListener),
+                new DefaultExecuteListenerProvider(statisticsListener));
 
         return retVal;
     }
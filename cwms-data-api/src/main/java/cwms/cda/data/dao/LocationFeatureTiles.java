@@ -0,0 +1,157 @@
+package cwms.cda.data.dao;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import cwms.cda.helpers.Settings;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.geojson.Feature;
+import org.geojson.Point;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The compact GeoJSON features of every location of an office, precomputed and bucketed into
+ * square tiles of {@link #TILE_DEGREES_KEY} degrees, so repeated map layer requests and bounding
+ * box requests are answered without a query.  Only the tiles the box overlaps are visited.
+ *
+ * <p>Disabled unless {@link #EXPIRE_KEY} is set.  Writes through this instance drop the office's
+ * layers, other instances pick changes up when their layer expires.
+ */
+final class LocationFeatureTiles {
+
+    public static final String PROP_BASE = "cwms.cda.data.dao.locations.featureTiles";
+    public static final String EXPIRE_KEY = PROP_BASE + ".expireAfterSeconds";
+    public static final String TILE_DEGREES_KEY = PROP_BASE + ".tileDegrees";
+
+    private static final long EXPIRE_SECONDS = Settings.getLong(EXPIRE_KEY, 0);
+
+    private static final Cache<List<String>, LocationFeatureTiles> cache = CacheBuilder.newBuilder()
+            .maximumSize(64)
+            .expireAfterWrite(Math.max(EXPIRE_SECONDS, 1), TimeUnit.SECONDS)
+            .build();
+
+    private final double tileDegrees;
+    private final Map<Long, List<Feature>> tiles = new HashMap<>();
+    private final List<Feature> unplaced = new ArrayList<>();
+
+    LocationFeatureTiles(double tileDegrees) {
+        if (!(tileDegrees > 0)) {
+            throw new IllegalArgumentException("Tile size must be positive, was: " + tileDegrees);
+        }
+        this.tileDegrees = tileDegrees;
+    }
+
+    static boolean isEnabled() {
+        return EXPIRE_SECONDS > 0;
+    }
+
+    /**
+     * @param loader reads the office's layer on a miss
+     */
+    static LocationFeatureTiles get(String officeId, String unitSystem, Loader loader) throws IOException {
+        try {
+            return cache.get(key(officeId, unitSystem), () -> {
+                LocationFeatureTiles layer = new LocationFeatureTiles(
+                        Settings.getLong(TILE_DEGREES_KEY, 1));
+                loader.load(layer::add);
+                return layer;
+            });
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IllegalStateException("Failed to load location features of " + officeId, ex.getCause());
+        }
+    }
+
+    static void invalidate(@Nullable String officeId) {
+        if (officeId == null) {
+            cache.invalidateAll();
+        } else {
+            String officeKey = officeId.toUpperCase(Locale.ROOT);
+            cache.asMap().keySet().removeIf(k -> officeKey.equals(k.get(0)));
+        }
+    }
+
+    private static List<String> key(String officeId, String unitSystem) {
+        return Arrays.asList(officeId.toUpperCase(Locale.ROOT), unitSystem);
+    }
+
+    /**
+     * @param feature a feature with a {@link Point} geometry, or none for a location without
+     *                coordinates
+     */
+    void add(Feature feature) {
+        Point point = feature.getGeometry() instanceof Point ? (Point) feature.getGeometry() : null;
+        if (point == null || point.getCoordinates() == null) {
+            unplaced.add(feature);
+        } else {
+            double longitude = point.getCoordinates().getLongitude();
+            double latitude = point.getCoordinates().getLatitude();
+            tiles.computeIfAbsent(tileKey(column(longitude), row(latitude)), k -> new ArrayList<>())
+                    .add(feature);
+        }
+    }
+
+    /**
+     * Passes on the features in the box, or every feature when there is no box.
+     */
+    void write(@Nullable BoundingBox bbox, FeatureSink sink) throws IOException {
+        if (bbox == null) {
+            for (List<Feature> tile : tiles.values()) {
+                for (Feature feature : tile) {
+                    sink.feature(feature);
+                }
+            }
+            for (Feature feature : unplaced) {
+                sink.feature(feature);
+            }
+            return;
+        }
+        int lastColumn = column(180);
+        for (int row = row(bbox.getSouth()); row <= row(bbox.getNorth()); row++) {
+            if (bbox.crossesAntimeridian()) {
+                writeTiles(bbox, row, column(bbox.getWest()), lastColumn, sink);
+                writeTiles(bbox, row, column(-180), column(bbox.getEast()), sink);
+            } else {
+                writeTiles(bbox, row, column(bbox.getWest()), column(bbox.getEast()), sink);
+            }
+        }
+    }
+
+    private void writeTiles(BoundingBox bbox, int row, int firstColumn, int lastColumn, FeatureSink sink)
+            throws IOException {
+        for (int column = firstColumn; column <= lastColumn; column++) {
+            for (Feature feature : tiles.getOrDefault(tileKey(column, row), Collections.emptyList())) {
+                Point point = (Point) feature.getGeometry();
+                if (bbox.contains(point.getCoordinates().getLongitude(), point.getCoordinates().getLatitude())) {
+                    sink.feature(feature);
+                }
+            }
+        }
+    }
+
+    private int column(double longitude) {
+        return (int) Math.floor(longitude / tileDegrees);
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor(latitude / tileDegrees);
+    }
+
+    private static long tileKey(int column, int row) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    interface Loader {
+        void load(FeatureSink sink) throws IOException;
+    }
+}
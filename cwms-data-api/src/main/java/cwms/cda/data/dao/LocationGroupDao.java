@@ -27,12 +27,14 @@ package cwms.cda.data.dao;
 import static java.util.stream.Collectors.toList;
 import static org.jooq.impl.DSL.noCondition;
 
+import com.codahale.metrics.MetricRegistry;
 import cwms.cda.data.dto.AssignedLocation;
 import cwms.cda.data.dto.LocationCategory;
 import cwms.cda.data.dto.LocationGroup;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -40,6 +42,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Predicate;
 import kotlin.Pair;
 import org.geojson.Feature;
 import org.geojson.FeatureCollection;
@@ -63,12 +66,17 @@ import usace.cwms.db.jooq.codegen.tables.AV_LOC_CAT_GRP;
 import usace.cwms.db.jooq.codegen.tables.AV_LOC_GRP_ASSGN;
 import usace.cwms.db.jooq.codegen.udt.records.LOC_ALIAS_ARRAY3;
 import usace.cwms.db.jooq.codegen.udt.records.LOC_ALIAS_TYPE3;
+import usace.cwms.db.jooq.codegen.udt.records.STR_TAB_T;
 
 
 public final class LocationGroupDao extends JooqDao<LocationGroup> {
 
     public static final String CWMS = "CWMS";
 
+    private static final GroupDirectory.Source<LocationGroup, AssignedLocation> DIRECTORY =
+            new GroupDirectory.Source<>(dsl -> new LocationGroupDao(dsl).loadDirectory(),
+                    LocationGroupDao::probeDirectory);
+
     public LocationGroupDao(DSLContext dsl) {
         super(dsl);
     }
@@ -82,6 +90,19 @@ public final class LocationGroupDao extends JooqDao<LocationGroup> {
      */
     public Optional<LocationGroup> getLocationGroup(@NotNull String officeId, @NotNull String categoryId,
                                                     @NotNull String groupId) {
+        GroupDirectory<LocationGroup, AssignedLocation> directory = DIRECTORY.get(dsl);
+        if (directory != null) {
+            Predicate<String> assignedOffice = CWMS.equalsIgnoreCase(officeId)
+                    ? o -> true : o -> o == null || o.equals(officeId);
+            List<LocationGroup> groups = directory.select(categoryId, groupId,
+                    g -> isOneOf(g.groupOfficeId, CWMS, officeId) && isOneOf(g.categoryOfficeId, CWMS, officeId),
+                    assignedOffice, LocationGroup::new);
+            // as the query below, the first group with the assignments of every matching group
+            return groups.stream().findFirst().map(first -> new LocationGroup(first, groups.stream()
+                    .flatMap(g -> g.getAssignedLocations().stream())
+                    .collect(toList())));
+        }
+
         AV_LOC_GRP_ASSGN alga = AV_LOC_GRP_ASSGN.AV_LOC_GRP_ASSGN;
         AV_LOC_CAT_GRP alcg = AV_LOC_CAT_GRP.AV_LOC_CAT_GRP;
 
@@ -320,6 +341,19 @@ public final class LocationGroupDao extends JooqDao<LocationGroup> {
 
     public List<LocationGroup> getLocationGroups(String locationOfficeId, String groupOfficeId, String categoryOfficeId,
             String locCategoryLike, String sharedRefLocLike) {
+        GroupDirectory<LocationGroup, AssignedLocation> directory = DIRECTORY.get(dsl);
+        if (directory != null) {
+            Predicate<String> category = regexFilter(locCategoryLike);
+            Predicate<String> sharedRef = regexFilter(sharedRefLocLike);
+            Predicate<String> assignedOffice = groupOfficeId == null && locationOfficeId != null
+                    ? locationOfficeId::equalsIgnoreCase : o -> true;
+            return directory.select(g -> g.groupId != null
+                            && category.test(g.categoryId)
+                            && sharedRef.test(g.sharedRefId)
+                            && (categoryOfficeId == null || categoryOfficeId.toUpperCase().equals(g.categoryOfficeId))
+                            && (groupOfficeId == null || groupOfficeId.equalsIgnoreCase(g.groupOfficeId)),
+                    assignedOffice, LocationGroup::new);
+        }
 
         final RecordMapper<Record, Pair<LocationGroup, AssignedLocation>> mapper = grpRecord -> {
             LocationCategory category = buildLocationCategory(grpRecord);
@@ -406,6 +440,24 @@ public final class LocationGroupDao extends JooqDao<LocationGroup> {
      */
     public List<LocationGroup> getLocationGroups(String locationOfficeId, String groupOfficeId,
             String categoryOfficeId, String locCategoryLike) {
+        GroupDirectory<LocationGroup, AssignedLocation> directory = DIRECTORY.get(dsl);
+        if (directory != null) {
+            Predicate<String> category = regexFilter(locCategoryLike);
+            Predicate<GroupDirectory.Group<LocationGroup, AssignedLocation>> condition = g -> category.test(g.categoryId)
+                    && (categoryOfficeId == null || categoryOfficeId.toUpperCase().equals(g.categoryOfficeId));
+            if (locationOfficeId == null) {
+                return directory.select(g -> g.groupId != null, o -> true, LocationGroup::new);
+            } else if (CWMS.equalsIgnoreCase(locationOfficeId)) {
+                return directory.select(g -> CWMS.equals(g.categoryOfficeId) && CWMS.equals(g.groupOfficeId)
+                        && condition.test(g), o -> true, LocationGroup::new);
+            } else {
+                return directory.select(g -> isOneOf(g.categoryOfficeId, CWMS, locationOfficeId)
+                                && (groupOfficeId == null || isOneOf(g.groupOfficeId, CWMS, groupOfficeId))
+                                && condition.test(g),
+                        o -> o == null || o.equals(locationOfficeId), LocationGroup::new);
+            }
+        }
+
         AV_LOC_GRP_ASSGN alga = AV_LOC_GRP_ASSGN.AV_LOC_GRP_ASSGN;
         AV_LOC_CAT_GRP alcg = AV_LOC_CAT_GRP.AV_LOC_CAT_GRP;
 
@@ -494,6 +546,20 @@ public final class LocationGroupDao extends JooqDao<LocationGroup> {
     private List<LocationGroup> getGroupsWithoutAssignedLocations(
             @Nullable String groupOfficeId, @Nullable String categoryOfficeId,
             @Nullable String locCategoryLike) {
+        GroupDirectory<LocationGroup, AssignedLocation> directory = DIRECTORY.get(dsl);
+        if (directory != null) {
+            Predicate<String> category = regexFilter(locCategoryLike);
+            List<LocationGroup> groups = directory.groups(g -> g.groupId != null
+                    && (groupOfficeId == null || groupOfficeId.isEmpty() || groupOfficeId.equals(g.groupOfficeId))
+                    && (categoryOfficeId == null || categoryOfficeId.isEmpty()
+                            || categoryOfficeId.equals(g.categoryOfficeId))
+                    && category.test(g.categoryId));
+            groups.sort(Comparator.comparing((LocationGroup g) -> g.getLocationCategory().getId())
+                    .thenComparing(LocationGroup::getLocGroupAttribute, GroupDirectory.ATTRIBUTE_ORDER)
+                    .thenComparing(LocationGroup::getId));
+            return groups;
+        }
+
         List<LocationGroup> retVal;
         AV_LOC_CAT_GRP table = AV_LOC_CAT_GRP.AV_LOC_CAT_GRP;
 
@@ -526,6 +592,91 @@ public final class LocationGroupDao extends JooqDao<LocationGroup> {
         return retVal;
     }
 
+    /**
+     * Get the location groups a location is assigned to.
+     * @param officeId The office of the location.
+     * @param locationId The location id, in any case.
+     * @return The groups the location is assigned to, without their assigned locations.
+     */
+    public List<LocationGroup> getLocationGroupsOf(@NotNull String officeId, @NotNull String locationId) {
+        GroupDirectory<LocationGroup, AssignedLocation> directory = DIRECTORY.get(dsl);
+        if (directory != null) {
+            return directory.groupsOf(officeId, locationId);
+        }
+
+        AV_LOC_GRP_ASSGN alga = AV_LOC_GRP_ASSGN.AV_LOC_GRP_ASSGN;
+        AV_LOC_CAT_GRP alcg = AV_LOC_CAT_GRP.AV_LOC_CAT_GRP;
+        return dsl.selectDistinct(alcg.CAT_DB_OFFICE_ID, alcg.LOC_CATEGORY_ID, alcg.LOC_CATEGORY_DESC,
+                        alcg.GRP_DB_OFFICE_ID, alcg.LOC_GROUP_ID, alcg.LOC_GROUP_DESC,
+                        alcg.LOC_GROUP_ATTRIBUTE, alcg.SHARED_LOC_ALIAS_ID, alcg.SHARED_REF_LOCATION_ID)
+                .from(alcg).join(alga)
+                .on(alcg.LOC_CATEGORY_ID.eq(alga.CATEGORY_ID)
+                        .and(alcg.LOC_GROUP_ID.eq(alga.GROUP_ID)))
+                .where(DSL.upper(alga.DB_OFFICE_ID).eq(officeId.toUpperCase()))
+                .and(DSL.upper(alga.LOCATION_ID).eq(locationId.toUpperCase()))
+                .orderBy(alcg.LOC_CATEGORY_ID, alcg.LOC_GROUP_ID)
+                .fetch(r -> buildLocationGroup(r, buildLocationCategory(r)));
+    }
+
+    private List<GroupDirectory.Group<LocationGroup, AssignedLocation>> loadDirectory() {
+        AV_LOC_GRP_ASSGN alga = AV_LOC_GRP_ASSGN.AV_LOC_GRP_ASSGN;
+        AV_LOC_CAT_GRP alcg = AV_LOC_CAT_GRP.AV_LOC_CAT_GRP;
+
+        Map<LocationGroup, GroupDirectory.Group<LocationGroup, AssignedLocation>> groups = new LinkedHashMap<>();
+        dsl.select(
+                        alcg.CAT_DB_OFFICE_ID,
+                        alcg.LOC_CATEGORY_ID,
+                        alcg.LOC_CATEGORY_DESC,
+                        alcg.GRP_DB_OFFICE_ID,
+                        alcg.LOC_GROUP_ID,
+                        alcg.LOC_GROUP_DESC,
+                        alcg.LOC_GROUP_ATTRIBUTE,
+                        alcg.SHARED_LOC_ALIAS_ID,
+                        alcg.SHARED_REF_LOCATION_ID,
+                        alga.DB_OFFICE_ID,
+                        alga.LOCATION_ID,
+                        alga.ALIAS_ID,
+                        alga.ATTRIBUTE,
+                        alga.REF_LOCATION_ID)
+                .from(alcg).leftJoin(alga)
+                .on(alcg.LOC_CATEGORY_ID.eq(alga.CATEGORY_ID)
+                        .and(alcg.LOC_GROUP_ID.eq(alga.GROUP_ID)))
+                .fetchSize(DEFAULT_FETCH_SIZE)
+                .forEach(grpRecord -> {
+                    LocationGroup group = buildLocationGroup(grpRecord, buildLocationCategory(grpRecord));
+                    GroupDirectory.Group<LocationGroup, AssignedLocation> entry = groups.computeIfAbsent(group,
+                        g -> new GroupDirectory.Group<>(g, grpRecord.get(alcg.CAT_DB_OFFICE_ID),
+                                grpRecord.get(alcg.LOC_CATEGORY_ID), grpRecord.get(alcg.GRP_DB_OFFICE_ID),
+                                grpRecord.get(alcg.LOC_GROUP_ID), grpRecord.get(alcg.SHARED_REF_LOCATION_ID)));
+                    AssignedLocation loc = buildAssignedLocation(grpRecord);
+                    if (loc != null) {
+                        entry.add(loc, loc.getOfficeId(), loc.getLocationId(), loc.getAttribute());
+                    }
+                });
+        return new ArrayList<>(groups.values());
+    }
+
+    private static String probeDirectory(DSLContext dsl) {
+        AV_LOC_GRP_ASSGN alga = AV_LOC_GRP_ASSGN.AV_LOC_GRP_ASSGN;
+        AV_LOC_CAT_GRP alcg = AV_LOC_CAT_GRP.AV_LOC_CAT_GRP;
+        return GroupDirectory.probe(dsl, alcg, alcg.CAT_DB_OFFICE_ID, alcg.LOC_CATEGORY_ID,
+                        alcg.LOC_CATEGORY_DESC, alcg.GRP_DB_OFFICE_ID, alcg.LOC_GROUP_ID, alcg.LOC_GROUP_DESC,
+                        alcg.LOC_GROUP_ATTRIBUTE, alcg.SHARED_LOC_ALIAS_ID, alcg.SHARED_REF_LOCATION_ID)
+                + "/" + GroupDirectory.probe(dsl, alga, alga.DB_OFFICE_ID, alga.CATEGORY_ID, alga.GROUP_ID,
+                        alga.LOCATION_ID, alga.ALIAS_ID, alga.ATTRIBUTE, alga.REF_LOCATION_ID);
+    }
+
+    private static Predicate<String> regexFilter(@Nullable String regex) {
+        if (regex == null || regex.isEmpty()) {
+            return value -> true;
+        }
+        return GroupDirectory.likeRegex(regex);
+    }
+
+    private static boolean isOneOf(String value, String first, String second) {
+        return first.equals(value) || second.equals(value);
+    }
+
     public Feature buildFeatureFromAvLocRecordWithLocGroup(Record avLocRecord) {
 
         AV_LOC_GRP_ASSGN alga = AV_LOC_GRP_ASSGN.AV_LOC_GRP_ASSGN;
@@ -594,6 +745,7 @@ public final class LocationGroupDao extends JooqDao<LocationGroup> {
             CWMS_LOC_PACKAGE.call_DELETE_LOC_GROUP__2(dslContext.configuration(), categoryId,
                     groupId, formatBool(cascadeDelete), office);
         });
+        DIRECTORY.invalidate();
     }
 
     /**
@@ -611,6 +763,7 @@ public final class LocationGroupDao extends JooqDao<LocationGroup> {
                     group.getSharedRefLocationId());
             assignLocs(dslContext, group, office);
         });
+        DIRECTORY.invalidate();
     }
 
     @NotNull
@@ -633,6 +786,69 @@ public final class LocationGroupDao extends JooqDao<LocationGroup> {
             CWMS_LOC_PACKAGE.call_RENAME_LOC_GROUP(dslContext.configuration(), newGroup.getLocationCategory().getId(),
                     oldGroupId, newGroup.getId(), newGroup.getDescription(), "T", office);
         });
+        DIRECTORY.invalidate();
+    }
+
+    /**
+     * Brings the group's assignments for the office to those of the group, applying only what
+     * differs from the stored assignments, in batches, on one connection.
+     *
+     * @param group   the group with the requested assignments
+     * @param office  the office whose assignments are updated
+     * @param replace whether assigned locations missing from the group are unassigned
+     * @param metrics where the progress of the update is counted
+     * @return what was changed
+     */
+    public GroupAssignmentDiff updateAssignedLocs(LocationGroup group, String office, boolean replace,
+                                                  MetricRegistry metrics) {
+        List<AssignedLocation> assignedLocations = group.getAssignedLocations();
+        List<GroupAssignmentDiff.Assignment> requested = assignedLocations == null ? new ArrayList<>()
+                : assignedLocations.stream()
+                    .map(a -> new GroupAssignmentDiff.Assignment(a.getLocationId(), a.getAliasId(),
+                            a.getAttribute(), a.getRefLocationId()))
+                    .collect(toList());
+        LocationCategory cat = group.getLocationCategory();
+        GroupAssignmentDiff diff = connectionResult(dsl, conn -> {
+            DSLContext dslContext = getDslContext(conn, office);
+            GroupAssignmentDiff changes = GroupAssignmentDiff.between(
+                    storedAssignments(dslContext, group, office), requested, replace);
+            Configuration config = dslContext.configuration();
+            changes.apply(GroupAssignmentDiff.batchSize(),
+                    ids -> CWMS_LOC_PACKAGE.call_UNASSIGN_LOC_GROUPS(config, cat.getId(), group.getId(),
+                            new STR_TAB_T(ids), "F", office),
+                    batch -> CWMS_LOC_PACKAGE.call_ASSIGN_LOC_GROUPS3(config, cat.getId(), group.getId(),
+                            new LOC_ALIAS_ARRAY3(batch.stream()
+                                    .map(a -> new LOC_ALIAS_TYPE3(a.id, a.attribute, a.aliasId, a.refId))
+                                    .collect(toList())), office),
+                    metrics, LocationGroupDao.class);
+            return changes;
+        });
+        if (!diff.isEmpty()) {
+            DIRECTORY.invalidate();
+        }
+        return diff;
+    }
+
+    private static List<GroupAssignmentDiff.Assignment> storedAssignments(DSLContext dslContext,
+                                                                          LocationGroup group, String office) {
+        AV_LOC_GRP_ASSGN alga = AV_LOC_GRP_ASSGN.AV_LOC_GRP_ASSGN;
+        LocationCategory cat = group.getLocationCategory();
+        Condition owners = noCondition();
+        if (cat.getOfficeId() != null) {
+            owners = owners.and(alga.CATEGORY_OFFICE_ID.eq(cat.getOfficeId()));
+        }
+        if (group.getOfficeId() != null) {
+            owners = owners.and(alga.GROUP_OFFICE_ID.eq(group.getOfficeId()));
+        }
+        return dslContext.select(alga.LOCATION_ID, alga.ALIAS_ID, alga.ATTRIBUTE, alga.REF_LOCATION_ID)
+                .from(alga)
+                .where(alga.CATEGORY_ID.eq(cat.getId()))
+                .and(alga.GROUP_ID.eq(group.getId()))
+                .and(alga.DB_OFFICE_ID.eq(office))
+                .and(owners)
+                .fetchSize(DEFAULT_FETCH_SIZE)
+                .fetch(r -> new GroupAssignmentDiff.Assignment(r.get(alga.LOCATION_ID), r.get(alga.ALIAS_ID),
+                        r.get(alga.ATTRIBUTE), r.get(alga.REF_LOCATION_ID)));
     }
 
     public void unassignAllLocs(LocationGroup group, String office) {
@@ -642,6 +858,7 @@ public final class LocationGroupDao extends JooqDao<LocationGroup> {
             CWMS_LOC_PACKAGE.call_UNASSIGN_LOC_GROUP(dslContext.configuration(),
                     cat.getId(), group.getId(), null, "T", office);
         });
+        DIRECTORY.invalidate();
     }
 
     public void assignLocs(LocationGroup group, String office) {
@@ -649,10 +866,13 @@ public final class LocationGroupDao extends JooqDao<LocationGroup> {
             DSLContext dslContext = getDslContext(conn, office);
             assignLocs(dslContext,group, office);
         });
+        DIRECTORY.invalidate();
     }
 
     /**
      * Used when an appropriate context already exists to avoid opening a second connection.
+     * The group directory isn't invalidated, as the assignments may not be committed yet; the
+     * caller does that once they are.
      * @param dslContext a dslContext that is assumed to be fully prepared for use in this operation
      * @param group the location group to assign locations to
      * @param office the office to use for the operation
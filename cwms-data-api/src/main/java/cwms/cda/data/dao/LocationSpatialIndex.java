@@ -0,0 +1,317 @@
+package cwms.cda.data.dao;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import cwms.cda.helpers.Settings;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The coordinates of every location of an office on a grid of {@link #CELL_DEGREES} degree
+ * cells, so bounding box, radius and k-nearest queries visit the cells around the query rather
+ * than every location.  Distances are great circle distances.
+ *
+ * <p>Locations stored, renamed or deleted through this instance update a loaded index in place,
+ * other instances pick changes up when the index expires after {@link #EXPIRE_KEY}.
+ */
+final class LocationSpatialIndex {
+
+    public static final String PROP_BASE = "cwms.cda.data.dao.locations.spatialIndex";
+    public static final String EXPIRE_KEY = PROP_BASE + ".expireAfterSeconds";
+
+    static final double CELL_DEGREES = 0.25;
+    static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private static final int COLUMNS = (int) (360 / CELL_DEGREES);
+    private static final int ROWS = (int) (180 / CELL_DEGREES);
+
+    private static final Cache<String, LocationSpatialIndex> cache = CacheBuilder.newBuilder()
+            .maximumSize(128)
+            .expireAfterWrite(Settings.getLong(EXPIRE_KEY, 900), TimeUnit.SECONDS)
+            .build();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Entry> byId = new HashMap<>();
+    private final Map<Integer, List<Entry>> cells = new HashMap<>();
+
+    LocationSpatialIndex(Collection<Entry> entries) {
+        for (Entry entry : entries) {
+            putEntry(entry);
+        }
+    }
+
+    /**
+     * @param loader reads the office's located locations on a miss
+     */
+    static LocationSpatialIndex get(String officeId, Callable<List<Entry>> loader) {
+        try {
+            return cache.get(officeId.toUpperCase(Locale.ROOT), () -> new LocationSpatialIndex(loader.call()));
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Failed to load location coordinates of " + officeId, ex.getCause());
+        }
+    }
+
+    /**
+     * @return the office's index if it is loaded, there is nothing to update otherwise
+     */
+    @Nullable
+    static LocationSpatialIndex ifLoaded(String officeId) {
+        return officeId == null ? null : cache.getIfPresent(officeId.toUpperCase(Locale.ROOT));
+    }
+
+    static void invalidate(@Nullable String officeId) {
+        if (officeId == null) {
+            cache.invalidateAll();
+        } else {
+            cache.invalidate(officeId.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Adds or moves a location, a location that no longer has coordinates is removed.
+     */
+    void put(long code, String locationId, @Nullable Double latitude, @Nullable Double longitude) {
+        lock.writeLock().lock();
+        try {
+            removeEntry(locationId);
+            if (latitude != null && longitude != null) {
+                putEntry(new Entry(code, locationId, latitude, longitude));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(String locationId) {
+        lock.writeLock().lock();
+        try {
+            removeEntry(locationId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void putEntry(Entry entry) {
+        byId.put(entry.key(), entry);
+        cells.computeIfAbsent(cell(column(entry.longitude), row(entry.latitude)), k -> new ArrayList<>())
+                .add(entry);
+    }
+
+    private void removeEntry(String locationId) {
+        Entry old = byId.remove(locationId.toUpperCase(Locale.ROOT));
+        if (old != null) {
+            int cell = cell(column(old.longitude), row(old.latitude));
+            List<Entry> entries = cells.get(cell);
+            entries.remove(old);
+            if (entries.isEmpty()) {
+                cells.remove(cell);
+            }
+        }
+    }
+
+    /**
+     * @return the locations matching the filter, ordered by distance when the filter has a
+     *     center and in no particular order otherwise
+     */
+    List<Entry> find(SpatialFilter filter) {
+        lock.readLock().lock();
+        try {
+            if (!filter.hasCenter()) {
+                return within(filter.getBbox());
+            }
+            double latitude = filter.getLatitude();
+            double longitude = filter.getLongitude();
+            List<Entry> found;
+            if (filter.getNearest() == null) {
+                found = near(latitude, longitude, filter.getRadiusKm());
+            } else {
+                found = nearest(latitude, longitude, filter.getNearest(), filter.getRadiusKm(),
+                        filter.getBbox());
+            }
+            if (filter.getBbox() != null) {
+                found.removeIf(e -> !filter.getBbox().contains(e.longitude, e.latitude));
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Entry> within(BoundingBox bbox) {
+        List<Entry> found = new ArrayList<>();
+        for (int row = row(bbox.getSouth()); row <= row(bbox.getNorth()); row++) {
+            if (bbox.crossesAntimeridian()) {
+                collect(bbox, row, column(bbox.getWest()), COLUMNS - 1, found);
+                collect(bbox, row, 0, column(bbox.getEast()), found);
+            } else {
+                collect(bbox, row, column(bbox.getWest()), column(bbox.getEast()), found);
+            }
+        }
+        return found;
+    }
+
+    private void collect(BoundingBox bbox, int row, int firstColumn, int lastColumn, List<Entry> found) {
+        for (int column = firstColumn; column <= lastColumn; column++) {
+            for (Entry entry : cells.getOrDefault(cell(column, row), Collections.emptyList())) {
+                if (bbox.contains(entry.longitude, entry.latitude)) {
+                    found.add(entry);
+                }
+            }
+        }
+    }
+
+    private List<Entry> near(double latitude, double longitude, double radiusKm) {
+        List<Entry> found = new ArrayList<>();
+        for (Entry entry : within(enclosingBox(latitude, longitude, radiusKm))) {
+            if (distanceKm(latitude, longitude, entry.latitude, entry.longitude) <= radiusKm) {
+                found.add(entry);
+            }
+        }
+        found.sort(byDistanceFrom(latitude, longitude));
+        return found;
+    }
+
+    /**
+     * Searches rings of cells outward from the center until k locations are found, then searches
+     * the radius of the kth of them, which may reach cells beyond the last ring.
+     */
+    private List<Entry> nearest(double latitude, double longitude, int k, @Nullable Double radiusKm,
+                                @Nullable BoundingBox bbox) {
+        if (radiusKm != null || bbox != null) {
+            // both bound the candidates, filter them and keep the k nearest
+            List<Entry> candidates = radiusKm != null ? near(latitude, longitude, radiusKm)
+                    : sorted(within(bbox), latitude, longitude);
+            if (bbox != null) {
+                candidates.removeIf(e -> !bbox.contains(e.longitude, e.latitude));
+            }
+            return new ArrayList<>(candidates.subList(0, Math.min(k, candidates.size())));
+        }
+        if (k >= byId.size()) {
+            return sorted(new ArrayList<>(byId.values()), latitude, longitude);
+        }
+        int centerColumn = column(longitude);
+        int centerRow = row(latitude);
+        List<Entry> found = new ArrayList<>();
+        // stop short of the ring whose columns wrap around onto each other
+        for (int ring = 0; ring < COLUMNS / 2 && found.size() < k; ring++) {
+            for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+                if (row < 0 || row >= ROWS) {
+                    continue;
+                }
+                boolean edgeRow = Math.abs(row - centerRow) == ring;
+                int step = edgeRow ? 1 : Math.max(2 * ring, 1);
+                for (int column = centerColumn - ring; column <= centerColumn + ring; column += step) {
+                    found.addAll(cells.getOrDefault(cell(Math.floorMod(column, COLUMNS), row),
+                            Collections.emptyList()));
+                }
+            }
+        }
+        if (found.size() < k) {
+            found = sorted(new ArrayList<>(byId.values()), latitude, longitude);
+            return new ArrayList<>(found.subList(0, k));
+        }
+        sorted(found, latitude, longitude);
+        double kthKm = distanceKm(latitude, longitude, found.get(k - 1).latitude, found.get(k - 1).longitude);
+        // a millimeter of slack so rounding can't drop the kth itself
+        List<Entry> candidates = near(latitude, longitude, kthKm + 1e-6);
+        return new ArrayList<>(candidates.subList(0, Math.min(k, candidates.size())));
+    }
+
+    private static List<Entry> sorted(List<Entry> entries, double latitude, double longitude) {
+        entries.sort(byDistanceFrom(latitude, longitude));
+        return entries;
+    }
+
+    private static Comparator<Entry> byDistanceFrom(double latitude, double longitude) {
+        Map<Entry, Double> distances = new HashMap<>();
+        return Comparator.comparing((Entry e) -> distances.computeIfAbsent(e,
+                        d -> distanceKm(latitude, longitude, d.latitude, d.longitude)))
+                .thenComparing(Entry::key);
+    }
+
+    /**
+     * @return a box containing the circle, crossing the antimeridian when the circle does
+     */
+    static BoundingBox enclosingBox(double latitude, double longitude, double radiusKm) {
+        double angle = radiusKm / EARTH_RADIUS_KM;
+        double south = latitude - Math.toDegrees(angle);
+        double north = latitude + Math.toDegrees(angle);
+        if (south <= -90 || north >= 90 || angle >= Math.PI / 2) {
+            // the circle contains a pole, so every longitude
+            return new BoundingBox(-180, Math.max(south, -90), 180, Math.min(north, 90));
+        }
+        double spread = Math.sin(angle) / Math.cos(Math.toRadians(latitude));
+        if (spread >= 1) {
+            return new BoundingBox(-180, south, 180, north);
+        }
+        double deltaLongitude = Math.toDegrees(Math.asin(spread));
+        double west = longitude - deltaLongitude;
+        double east = longitude + deltaLongitude;
+        if (west < -180) {
+            return new BoundingBox(west + 360, south, east, north);
+        } else if (east > 180) {
+            return new BoundingBox(west, south, east - 360, north);
+        }
+        return new BoundingBox(west, south, east, north);
+    }
+
+    static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double deltaLatitude = Math.toRadians(latitude2 - latitude1);
+        double deltaLongitude = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(deltaLatitude / 2) * Math.sin(deltaLatitude / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+                * Math.sin(deltaLongitude / 2) * Math.sin(deltaLongitude / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static int column(double longitude) {
+        return Math.min((int) Math.floor((longitude + 180) / CELL_DEGREES), COLUMNS - 1);
+    }
+
+    private static int row(double latitude) {
+        return Math.min((int) Math.floor((latitude + 90) / CELL_DEGREES), ROWS - 1);
+    }
+
+    private static int cell(int column, int row) {
+        return row * COLUMNS + column;
+    }
+
+    static final class Entry {
+        final long code;
+        final String locationId;
+        final double latitude;
+        final double longitude;
+
+        Entry(long code, String locationId, double latitude, double longitude) {
+            this.code = code;
+            this.locationId = locationId;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        String key() {
+            return locationId.toUpperCase(Locale.ROOT);
+        }
+    }
+}
@@ -26,15 +26,24 @@ package cwms.cda.data.dao;
 
 import cwms.cda.data.dto.Catalog;
 import cwms.cda.data.dto.Location;
+import cwms.cda.data.dto.LocationBulkResult;
 import java.io.IOException;
 import java.util.List;
 import org.geojson.FeatureCollection;
+import org.jetbrains.annotations.Nullable;
 
 public interface LocationsDao {
     String getLocations(String names, String format, String units, String datum, String officeId);
 
     List<Location> getLocations(String names, String units, String datum, String officeId);
 
+    /**
+     * @param spatialFilter only the locations it matches, ordered by distance when it has a
+     *                      center.  A spatial query needs an office.
+     */
+    List<Location> getLocations(String names, String units, String datum, String officeId,
+                                @Nullable SpatialFilter spatialFilter);
+
     Location getLocation(String locationName, String unitSystem, String officeId) throws IOException;
 
     void deleteLocation(String locationName, String officeId);
@@ -43,10 +52,33 @@ public interface LocationsDao {
 
     void storeLocation(Location location) throws IOException;
 
+    /**
+     * Stores many locations on one connection.  Every location is validated first, and one that
+     * is invalid, or that the database rejects, doesn't stop the others from being stored.
+     *
+     * @param locations the locations to store
+     * @param dryRun    only validate the locations
+     * @return the outcome for each location, in the same order
+     */
+    LocationBulkResult storeLocations(List<Location> locations, boolean dryRun);
+
     void renameLocation(String oldLocationName, Location renamedLocation) throws IOException;
 
     FeatureCollection buildFeatureCollection(String names, String units, String officeId);
 
+    /**
+     * Passes the locations of an office to the sink as GeoJSON point features, as they are read.
+     * @param names    location ids separated by |, null for every location
+     * @param units    EN, or SI for anything else
+     * @param officeId the office
+     * @param bbox     only the locations in the box, null for every location
+     * @param compact  properties limited to the ids, names, kind, type, state and active flag,
+     *                 rather than every av_loc column nested under avLoc
+     * @param sink     receives the features
+     */
+    void streamFeatureCollection(String names, String units, String officeId, @Nullable BoundingBox bbox,
+                                 boolean compact, FeatureSink sink) throws IOException;
+
     Catalog getLocationCatalog(String cursor, int pageSize, CatalogRequestParameters params);
 
 }
@@ -41,32 +41,46 @@ import static org.jooq.impl.DSL.name;
 import static org.jooq.impl.DSL.select;
 import static usace.cwms.db.jooq.codegen.tables.AV_LOC.AV_LOC;
 
+import com.google.common.collect.Lists;
 import cwms.cda.api.enums.Nation;
 import cwms.cda.api.enums.Unit;
+import cwms.cda.api.enums.UnitSystem;
+import cwms.cda.api.errors.FieldException;
 import cwms.cda.api.errors.NotFoundException;
 import cwms.cda.data.dto.Catalog;
 import cwms.cda.data.dto.Location;
+import cwms.cda.data.dto.LocationBulkResult;
 import cwms.cda.data.dto.catalog.CatalogEntry;
 import cwms.cda.data.dto.catalog.LocationAlias;
 import cwms.cda.data.dto.catalog.LocationCatalogEntry;
+import cwms.cda.helpers.Settings;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import org.geojson.Feature;
 import org.geojson.FeatureCollection;
 import org.geojson.Point;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jooq.CommonTableExpression;
 import org.jooq.Condition;
+import org.jooq.Cursor;
 import org.jooq.Configuration;
 import org.jooq.DSLContext;
 import org.jooq.Field;
@@ -87,6 +101,12 @@ import usace.cwms.db.jooq.codegen.tables.AV_LOC2;
 public class LocationsDaoImpl extends JooqDao<Location> implements LocationsDao {
     private static final Logger logger = Logger.getLogger(LocationsDaoImpl.class.getName());
     private static final long DELETED_TS_MARKER = 0L;
+    private static final int MAX_IN_LIST = 1000;
+    public static final String BULK_BATCH_KEY = "cwms.cda.data.dao.locations.bulk.batchSize";
+    public static final int DEFAULT_BULK_BATCH_SIZE = 500;
+    private static final Field<?>[] COMPACT_FEATURE_COLUMNS = {AV_LOC.DB_OFFICE_ID, AV_LOC.LOCATION_ID,
+        AV_LOC.PUBLIC_NAME, AV_LOC.LONG_NAME, AV_LOC.LOCATION_KIND_ID, AV_LOC.LOCATION_TYPE,
+        AV_LOC.STATE_INITIAL, AV_LOC.ACTIVE_FLAG, AV_LOC.LATITUDE, AV_LOC.LONGITUDE};
 
     public LocationsDaoImpl(DSLContext dsl) {
         super(dsl);
@@ -103,6 +123,12 @@ public class LocationsDaoImpl extends JooqDao<Location> implements LocationsDao
 
     @Override
     public List<Location> getLocations(String nameRegex, String unitSystem, String datum, String officeId) {
+        return getLocations(nameRegex, unitSystem, datum, officeId, null);
+    }
+
+    @Override
+    public List<Location> getLocations(String nameRegex, String unitSystem, String datum, String officeId,
+                                       @Nullable SpatialFilter spatialFilter) {
 
         Condition whereCondition = JooqDao.caseInsensitiveLikeRegexNullTrue(AV_LOC.LOCATION_ID, nameRegex);
 
@@ -118,11 +144,116 @@ public class LocationsDaoImpl extends JooqDao<Location> implements LocationsDao
             whereCondition = whereCondition.and(AV_LOC.VERTICAL_DATUM.equalIgnoreCase(datum));
         }
 
-        return dsl.select(AV_LOC.asterisk())
+        List<LocationSpatialIndex.Entry> located = null;
+        if (spatialFilter != null) {
+            requireOffice(spatialFilter, officeId);
+            if (spatialFilter.getNearest() == null) {
+                whereCondition = whereCondition.and(spatialFilter.contains(AV_LOC.LONGITUDE, AV_LOC.LATITUDE));
+            } else {
+                located = LocationSpatialIndex.get(officeId, () -> loadLocated(officeId)).find(spatialFilter);
+                whereCondition = whereCondition.and(codeIn(AV_LOC.LOCATION_CODE, located));
+            }
+        }
+
+        List<Location> locations = dsl.select(AV_LOC.asterisk())
                     .from(AV_LOC)
                     .where(whereCondition)
                     .fetchSize(DEFAULT_SMALL_FETCH_SIZE)
                     .fetch(this::buildLocation);
+
+        if (located != null) {
+            Map<String, Integer> rank = new HashMap<>();
+            for (LocationSpatialIndex.Entry entry : located) {
+                rank.put(entry.key(), rank.size());
+            }
+            locations.sort(Comparator.comparing(l -> rank.getOrDefault(l.getName().toUpperCase(Locale.ROOT),
+                    Integer.MAX_VALUE)));
+        } else if (spatialFilter != null && spatialFilter.hasCenter()) {
+            double latitude = spatialFilter.getLatitude();
+            double longitude = spatialFilter.getLongitude();
+            locations.sort(Comparator.comparingDouble((Location l) -> LocationSpatialIndex.distanceKm(
+                            latitude, longitude, l.getLatitude(), l.getLongitude()))
+                    .thenComparing(l -> l.getName().toUpperCase(Locale.ROOT)));
+        }
+        return locations;
+    }
+
+    private static void requireOffice(SpatialFilter spatialFilter, @Nullable String officeId) {
+        if (officeId == null) {
+            throw new IllegalArgumentException("An office must be specified for a spatial query ("
+                    + spatialFilter + ")");
+        }
+    }
+
+    /**
+     * @return the condition that a row matches the filter.  A bounding box and radius are
+     *     filtered in SQL, only the nearest are looked up in the spatial index and bound back by
+     *     code, which nearest caps at a single IN list.
+     */
+    private Condition spatialCondition(SpatialFilter spatialFilter, @Nullable String officeId, Field<?> code,
+                                       Field<BigDecimal> longitude, Field<BigDecimal> latitude) {
+        requireOffice(spatialFilter, officeId);
+        if (spatialFilter.getNearest() == null) {
+            return spatialFilter.contains(longitude, latitude);
+        }
+        return codeIn(code, LocationSpatialIndex.get(officeId, () -> loadLocated(officeId)).find(spatialFilter));
+    }
+
+    private List<LocationSpatialIndex.Entry> loadLocated(String officeId) {
+        return dsl.select(AV_LOC.LOCATION_CODE, AV_LOC.LOCATION_ID, AV_LOC.LATITUDE, AV_LOC.LONGITUDE)
+                .from(AV_LOC)
+                .where(AV_LOC.DB_OFFICE_ID.equalIgnoreCase(officeId))
+                .and(AV_LOC.UNIT_SYSTEM.eq(UnitSystem.SI.getValue()))
+                .and(AV_LOC.LATITUDE.isNotNull())
+                .and(AV_LOC.LONGITUDE.isNotNull())
+                .fetchSize(DEFAULT_FETCH_SIZE)
+                .fetch(r -> new LocationSpatialIndex.Entry(r.get(AV_LOC.LOCATION_CODE, Long.class),
+                        r.get(AV_LOC.LOCATION_ID), r.get(AV_LOC.LATITUDE).doubleValue(),
+                        r.get(AV_LOC.LONGITUDE).doubleValue()));
+    }
+
+    /**
+     * Brings a loaded spatial index up to date with a stored or renamed location.
+     */
+    private void refreshLocated(String officeId, String locationId) {
+        LocationSpatialIndex index = LocationSpatialIndex.ifLoaded(officeId);
+        if (index == null) {
+            return;
+        }
+        Record loc = dsl.select(AV_LOC.LOCATION_CODE, AV_LOC.LATITUDE, AV_LOC.LONGITUDE)
+                .from(AV_LOC)
+                .where(AV_LOC.DB_OFFICE_ID.equalIgnoreCase(officeId))
+                .and(AV_LOC.LOCATION_ID.equalIgnoreCase(locationId))
+                .and(AV_LOC.UNIT_SYSTEM.eq(UnitSystem.SI.getValue()))
+                .fetchOne();
+        if (loc == null) {
+            index.remove(locationId);
+        } else {
+            BigDecimal latitude = loc.get(AV_LOC.LATITUDE);
+            BigDecimal longitude = loc.get(AV_LOC.LONGITUDE);
+            index.put(loc.get(AV_LOC.LOCATION_CODE, Long.class), locationId,
+                    latitude == null ? null : latitude.doubleValue(),
+                    longitude == null ? null : longitude.doubleValue());
+        }
+    }
+
+    /**
+     * @return the condition that the code is one of the located locations', split into lists
+     *     Oracle accepts
+     */
+    private static Condition codeIn(Field<?> code, List<LocationSpatialIndex.Entry> located) {
+        if (located.isEmpty()) {
+            return DSL.falseCondition();
+        }
+        List<Condition> conditions = new ArrayList<>();
+        for (int start = 0; start < located.size(); start += MAX_IN_LIST) {
+            List<Long> codes = located.subList(start, Math.min(start + MAX_IN_LIST, located.size()))
+                    .stream()
+                    .map(e -> e.code)
+                    .collect(toList());
+            conditions.add(code.in(codes));
+        }
+        return DSL.or(conditions);
     }
 
     @Override
@@ -212,6 +343,14 @@ public class LocationsDaoImpl extends JooqDao<Location> implements LocationsDao
                         DELETE_LOC.getRule(), officeId);
             }
         });
+        TimeSeriesIdentifierCache.invalidateLocation(officeId, locationName);
+        LocationFeatureTiles.invalidate(officeId);
+        // a cascading delete also drops the location from its stream
+        StreamLocationDao.invalidateNetworkIndex(officeId);
+        LocationSpatialIndex index = LocationSpatialIndex.ifLoaded(officeId);
+        if (index != null) {
+            index.remove(locationName);
+        }
     }
 
     @Override
@@ -220,28 +359,122 @@ public class LocationsDaoImpl extends JooqDao<Location> implements LocationsDao
         try {
             connection(dsl, c -> {
                 setOffice(c,location);
-                CwmsDbLoc locJooq = CwmsDbServiceLookup.buildCwmsDb(CwmsDbLoc.class, c);
-                String elevationUnits = location.getElevationUnits() == null
-                        ? Unit.METER.getValue() : location.getElevationUnits();
-                locJooq.store(c, location.getOfficeId(), location.getName(),
-                        location.getStateInitial(), location.getCountyName(),
-                        location.getTimezoneName(), location.getLocationType(),
-                        location.getLatitude(), location.getLongitude(), location.getElevation(),
-                        elevationUnits, location.getVerticalDatum(),
-                        location.getHorizontalDatum(), location.getPublicName(),
-                        location.getLongName(),
-                        location.getDescription(), location.getActive(),
-                        location.getLocationKind(), location.getMapLabel(),
-                        location.getPublishedLatitude(),
-                        location.getPublishedLongitude(), location.getBoundingOfficeId(),
-                        location.getNation().getName(), location.getNearestCity(), true);
-
+                store(CwmsDbServiceLookup.buildCwmsDb(CwmsDbLoc.class, c), c, location);
             });
+            // the time zone of the location's time series may have changed
+            TimeSeriesIdentifierCache.invalidateLocation(location.getOfficeId(), location.getName());
+            LocationFeatureTiles.invalidate(location.getOfficeId());
+            StreamLocationDao.invalidateNetworkIndex(location.getOfficeId());
+            refreshLocated(location.getOfficeId(), location.getName());
         } catch (DataAccessException ex) {
             throw new IOException("Failed to store Location", ex);
         }
     }
 
+    /**
+     * Validates the locations in parallel then, unless it's a dry run, stores the valid ones a
+     * batch of {@value #BULK_BATCH_KEY} at a time on one connection.  CWMS_LOC stores one location
+     * per call, so a batch is a run of calls on the connection with the session office only set
+     * when it changes; the caches of an office's locations are dropped once per batch.
+     */
+    @Override
+    public LocationBulkResult storeLocations(List<Location> locations, boolean dryRun) {
+        List<LocationBulkResult.Item> items = validateLocations(locations);
+        if (!dryRun) {
+            List<Integer> valid = IntStream.range(0, items.size())
+                    .filter(i -> items.get(i).getStatus() == LocationBulkResult.Status.VALID)
+                    .boxed()
+                    .collect(toList());
+            int batchSize = Math.max(1, Settings.getInt(BULK_BATCH_KEY, DEFAULT_BULK_BATCH_SIZE));
+            connection(dsl, c -> {
+                CwmsDbLoc locJooq = CwmsDbServiceLookup.buildCwmsDb(CwmsDbLoc.class, c);
+                String sessionOffice = null;
+                for (List<Integer> batch : Lists.partition(valid, batchSize)) {
+                    Set<String> offices = new LinkedHashSet<>();
+                    for (int i : batch) {
+                        Location location = locations.get(i);
+                        try {
+                            if (!location.getOfficeId().equals(sessionOffice)) {
+                                setOffice(c, location);
+                                sessionOffice = location.getOfficeId();
+                            }
+                            store(locJooq, c, location);
+                            items.set(i, items.get(i).withStatus(LocationBulkResult.Status.STORED, null));
+                        } catch (SQLException | RuntimeException ex) {
+                            logger.log(Level.FINE, ex, () -> "Failed to store location " + location.getName());
+                            items.set(i, items.get(i).withStatus(LocationBulkResult.Status.FAILED,
+                                    ex.getMessage()));
+                        }
+                        TimeSeriesIdentifierCache.invalidateLocation(location.getOfficeId(), location.getName());
+                        offices.add(location.getOfficeId());
+                    }
+                    for (String office : offices) {
+                        LocationFeatureTiles.invalidate(office);
+                        // reloaded on its next use, rather than refreshed a location at a time
+                        LocationSpatialIndex.invalidate(office);
+                        StreamLocationDao.invalidateNetworkIndex(office);
+                    }
+                }
+            });
+        }
+        return new LocationBulkResult(dryRun, items);
+    }
+
+    /**
+     * @return a result per location, valid or invalid, checked in parallel.  A location repeated
+     *     in the list is invalid after its first occurrence.
+     */
+    static List<LocationBulkResult.Item> validateLocations(List<Location> locations) {
+        LocationBulkResult.Item[] items = new LocationBulkResult.Item[locations.size()];
+        IntStream.range(0, locations.size()).parallel().forEach(i -> {
+            Location location = locations.get(i);
+            if (location == null) {
+                items[i] = new LocationBulkResult.Item(i, null, null, LocationBulkResult.Status.INVALID,
+                        "No location", null);
+                return;
+            }
+            try {
+                location.validate();
+                items[i] = new LocationBulkResult.Item(i, location.getOfficeId(), location.getName(),
+                        LocationBulkResult.Status.VALID);
+            } catch (FieldException ex) {
+                items[i] = new LocationBulkResult.Item(i, location.getOfficeId(), location.getName(),
+                        LocationBulkResult.Status.INVALID, ex.getMessage(), ex.getDetails());
+            }
+        });
+
+        Map<String, Integer> first = new HashMap<>();
+        for (LocationBulkResult.Item item : items) {
+            if (item.getStatus() != LocationBulkResult.Status.VALID) {
+                continue;
+            }
+            String key = item.getOfficeId().toUpperCase(Locale.ROOT) + "/" + item.getName().toUpperCase(Locale.ROOT);
+            Integer previous = first.putIfAbsent(key, item.getIndex());
+            if (previous != null) {
+                items[item.getIndex()] = item.withStatus(LocationBulkResult.Status.INVALID,
+                        "Duplicate of the location at index " + previous);
+            }
+        }
+        return new ArrayList<>(Arrays.asList(items));
+    }
+
+    private static void store(CwmsDbLoc locJooq, Connection c, Location location) throws SQLException {
+        String elevationUnits = location.getElevationUnits() == null
+                ? Unit.METER.getValue() : location.getElevationUnits();
+        locJooq.store(c, location.getOfficeId(), location.getName(),
+                location.getStateInitial(), location.getCountyName(),
+                location.getTimezoneName(), location.getLocationType(),
+                location.getLatitude(), location.getLongitude(), location.getElevation(),
+                elevationUnits, location.getVerticalDatum(),
+                location.getHorizontalDatum(), location.getPublicName(),
+                location.getLongName(),
+                location.getDescription(), location.getActive(),
+                location.getLocationKind(), location.getMapLabel(),
+                location.getPublishedLatitude(),
+                location.getPublishedLongitude(), location.getBoundingOfficeId(),
+                location.getNation().getName(), location.getNearestCity(), true);
+    }
+
     @Override
     public void renameLocation(String oldLocationName, Location renamedLocation)
             throws IOException {
@@ -263,6 +496,14 @@ public class LocationsDaoImpl extends JooqDao<Location> implements LocationsDao
                         renamedLocation.getLongName(), renamedLocation.getDescription(),
                         renamedLocation.getActive(), true);
             });
+            TimeSeriesIdentifierCache.invalidateLocation(renamedLocation.getOfficeId(), oldLocationName);
+            LocationFeatureTiles.invalidate(renamedLocation.getOfficeId());
+            StreamLocationDao.invalidateNetworkIndex(renamedLocation.getOfficeId());
+            LocationSpatialIndex index = LocationSpatialIndex.ifLoaded(renamedLocation.getOfficeId());
+            if (index != null) {
+                index.remove(oldLocationName);
+                refreshLocated(renamedLocation.getOfficeId(), renamedLocation.getName());
+            }
         } catch (DataAccessException ex) {
             throw new IOException("Failed to rename Location", ex);
         }
@@ -270,14 +511,46 @@ public class LocationsDaoImpl extends JooqDao<Location> implements LocationsDao
 
     @Override
     public FeatureCollection buildFeatureCollection(String names, String units, String officeId) {
-        if (!"EN".equals(units)) {
-            units = "SI";
+        List<Feature> features = new ArrayList<>();
+        try {
+            streamFeatureCollection(names, units, officeId, null, false, features::add);
+        } catch (IOException ex) {
+            // collecting into a list doesn't do any I/O
+            throw new IllegalStateException(ex);
+        }
+        FeatureCollection collection = new FeatureCollection();
+        collection.setFeatures(features);
+
+        return collection;
+    }
+
+    /**
+     * Reads the features from a cursor straight into the sink, so only the current row is held
+     * in memory.  Compact features only select the columns they use and, when
+     * {@link LocationFeatureTiles} are enabled, whole office layers are served from its tiles.
+     */
+    @Override
+    public void streamFeatureCollection(String names, String units, String officeId,
+                                        @Nullable BoundingBox bbox, boolean compact,
+                                        FeatureSink sink) throws IOException {
+        String unitSystem = "EN".equals(units) ? "EN" : "SI";
+        boolean allNames = names == null || names.isEmpty();
+        if (compact && allNames && officeId != null && LocationFeatureTiles.isEnabled()) {
+            LocationFeatureTiles.get(officeId, unitSystem,
+                    layer -> streamFeatures(null, unitSystem, officeId, null, true, layer))
+                    .write(bbox, sink);
+        } else {
+            streamFeatures(names, unitSystem, officeId, bbox, compact, sink);
         }
+    }
 
-        SelectConditionStep<Record> selectQuery = dsl.select(asterisk())
+    private void streamFeatures(String names, String unitSystem, String officeId, @Nullable BoundingBox bbox,
+                                boolean compact, FeatureSink sink) throws IOException {
+        Field<?>[] columns = compact ? COMPACT_FEATURE_COLUMNS : AV_LOC.fields();
+        SelectConditionStep<Record> selectQuery = dsl.select(columns)
                 .from(AV_LOC)
                 .where(AV_LOC.DB_OFFICE_ID.eq(officeId))
-                .and(AV_LOC.UNIT_SYSTEM.eq(units));
+                .and(AV_LOC.UNIT_SYSTEM.eq(unitSystem));
 
         if (names != null && !names.isEmpty()) {
             List<String> identifiers = new ArrayList<>();
@@ -290,14 +563,52 @@ public class LocationsDaoImpl extends JooqDao<Location> implements LocationsDao
 
             selectQuery = selectQuery.and(AV_LOC.LOCATION_ID.in(identifiers));
         }
+        if (bbox != null) {
+            selectQuery = selectQuery.and(bbox.contains(AV_LOC.LONGITUDE, AV_LOC.LATITUDE));
+        }
 
-        List<Feature> features = selectQuery.fetchSize(DEFAULT_SMALL_FETCH_SIZE).stream()
-                .map(LocationsDaoImpl::buildFeatureFromAvLocRecord)
-                .collect(toList());
-        FeatureCollection collection = new FeatureCollection();
-        collection.setFeatures(features);
+        try (Cursor<Record> cursor = selectQuery.fetchSize(DEFAULT_FETCH_SIZE).fetchLazy()) {
+            for (Record avLocRecord : cursor) {
+                sink.feature(compact ? buildCompactFeature(avLocRecord) : buildFeatureFromAvLocRecord(avLocRecord));
+            }
+        }
+    }
 
-        return collection;
+    /**
+     * A feature with just enough properties to label and style a map layer.  Unlike
+     * {@link #buildFeatureFromAvLocRecord(Record)}, a location without coordinates has no geometry
+     * rather than being placed at 0,0.
+     */
+    static Feature buildCompactFeature(Record avLocRecord) {
+        Feature feature = new Feature();
+        String locationId = avLocRecord.get(AV_LOC.LOCATION_ID);
+        String publicName = avLocRecord.get(AV_LOC.PUBLIC_NAME);
+        feature.setId(publicName == null || publicName.isEmpty() ? locationId : publicName);
+
+        BigDecimal longitude = avLocRecord.get(AV_LOC.LONGITUDE);
+        BigDecimal latitude = avLocRecord.get(AV_LOC.LATITUDE);
+        if (longitude != null && latitude != null) {
+            feature.setGeometry(new Point(longitude.doubleValue(), latitude.doubleValue()));
+        }
+
+        putIfNotNull(feature, "office", avLocRecord.get(AV_LOC.DB_OFFICE_ID));
+        putIfNotNull(feature, "name", locationId);
+        putIfNotNull(feature, "public-name", publicName);
+        putIfNotNull(feature, "long-name", avLocRecord.get(AV_LOC.LONG_NAME));
+        putIfNotNull(feature, "kind", avLocRecord.get(AV_LOC.LOCATION_KIND_ID));
+        putIfNotNull(feature, "type", avLocRecord.get(AV_LOC.LOCATION_TYPE));
+        putIfNotNull(feature, "state", avLocRecord.get(AV_LOC.STATE_INITIAL));
+        String activeFlag = avLocRecord.get(AV_LOC.ACTIVE_FLAG);
+        if (activeFlag != null) {
+            feature.setProperty("active", "T".equalsIgnoreCase(activeFlag));
+        }
+        return feature;
+    }
+
+    private static void putIfNotNull(Feature feature, String key, @Nullable Object value) {
+        if (value != null) {
+            feature.setProperty(key, value);
+        }
     }
 
     public static Feature buildFeatureFromAvLocRecord(Record avLocRecord) {
@@ -381,6 +692,11 @@ public class LocationsDaoImpl extends JooqDao<Location> implements LocationsDao
 
         // "condition" needs to be used by the count query and the results query.
         Condition condition = buildWhereCondition(params);
+        if (params.getSpatialFilter() != null) {
+            // aliases share the code of the location they alias
+            condition = condition.and(spatialCondition(params.getSpatialFilter(), params.getOffice(),
+                    avLoc2.LOCATION_CODE, avLoc2.LONGITUDE, avLoc2.LATITUDE));
+        }
 
         int total;
         String cursorLocation; // The location-id of the cursor in the results
@@ -0,0 +1,163 @@
+package cwms.cda.data.dao;
+
+import cwms.cda.data.dto.TimeSeries;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+/**
+ * Largest-Triangle-Three-Buckets decimation of a time series to at most a number of points,
+ * keeping the ones that preserve the shape of a chart of it.
+ *
+ * <p>The first and last values are always kept.  In between the window is split into equal time
+ * buckets rather than buckets of equal count, since the count isn't known until the cursor is
+ * read, and one value is kept from each bucket that has any.  Only the two most recent non-empty
+ * buckets are held.  Missing and rejected values are not charted, so they are left out.
+ */
+final class LttbDecimator implements TimeSeriesReduction.Reducer {
+
+    private final long begin;
+    private final long span;
+    private final int buckets;
+    private final TimeSeries target;
+
+    private boolean hasAnchor;
+    private long anchorTime;
+    private double anchorValue;
+
+    private Bucket pending = new Bucket();
+    private Bucket current = new Bucket();
+    private int currentIndex = -1;
+
+    LttbDecimator(long begin, long end, int maxPoints, TimeSeries target) {
+        this.begin = begin;
+        this.span = Math.max(1, end - begin + 1);
+        this.buckets = maxPoints - 2;
+        this.target = target;
+    }
+
+    @Override
+    public void add(Timestamp dateTime, Double value, int qualityCode) {
+        if (!TimeSeriesReduction.isUsable(value, qualityCode)) {
+            return;
+        }
+        long time = dateTime.getTime();
+        if (!hasAnchor) {
+            emit(time, value, qualityCode);
+            return;
+        }
+        int index = bucketOf(time);
+        if (current.size > 0 && index != currentIndex) {
+            if (pending.size > 0) {
+                select(pending, current.averageTime(), current.averageValue());
+            }
+            Bucket swap = pending;
+            pending = current;
+            current = swap;
+            current.clear();
+        }
+        currentIndex = index;
+        current.add(time, value, qualityCode);
+    }
+
+    @Override
+    public void finish() {
+        if (current.size == 0) {
+            return;
+        }
+        int last = current.size - 1;
+        long lastTime = current.times[last];
+        double lastValue = current.values[last];
+        int lastQuality = current.qualities[last];
+        current.size--;
+
+        if (current.size == 0) {
+            if (pending.size > 0) {
+                select(pending, lastTime, lastValue);
+            }
+        } else {
+            if (pending.size > 0) {
+                select(pending, current.averageTime(), current.averageValue());
+            }
+            select(current, lastTime, lastValue);
+        }
+        emit(lastTime, lastValue, lastQuality);
+        pending.clear();
+        current.clear();
+    }
+
+    private int bucketOf(long time) {
+        long offset = Math.min(Math.max(time - begin, 0), span - 1);
+        // offset * buckets can overflow a long over a long window
+        return (int) Math.min((double) offset / span * buckets, buckets - 1);
+    }
+
+    /**
+     * Keeps the value of the bucket that forms the largest triangle with the last kept value and
+     * the average of the next bucket.
+     */
+    private void select(Bucket bucket, double nextTime, double nextValue) {
+        double ax = anchorTime - begin;
+        double ay = anchorValue;
+        double cx = nextTime - begin;
+        double cy = nextValue;
+        int best = 0;
+        double bestArea = -1.0;
+        for (int i = 0; i < bucket.size; i++) {
+            double bx = bucket.times[i] - begin;
+            double by = bucket.values[i];
+            double area = Math.abs((ax - cx) * (by - ay) - (ax - bx) * (cy - ay));
+            if (area > bestArea) {
+                bestArea = area;
+                best = i;
+            }
+        }
+        emit(bucket.times[best], bucket.values[best], bucket.qualities[best]);
+    }
+
+    private void emit(long time, double value, int qualityCode) {
+        target.addValue(new Timestamp(time), value, qualityCode);
+        hasAnchor = true;
+        anchorTime = time;
+        anchorValue = value;
+    }
+
+    private static final class Bucket {
+        private long[] times = new long[64];
+        private double[] values = new double[64];
+        private int[] qualities = new int[64];
+        private int size;
+
+        void add(long time, double value, int qualityCode) {
+            if (size == times.length) {
+                int capacity = size * 2;
+                times = Arrays.copyOf(times, capacity);
+                values = Arrays.copyOf(values, capacity);
+                qualities = Arrays.copyOf(qualities, capacity);
+            }
+            times[size] = time;
+            values[size] = value;
+            qualities[size] = qualityCode;
+            size++;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        double averageTime() {
+            double sum = 0.0;
+            for (int i = 0; i < size; i++) {
+                sum += times[i];
+            }
+            return sum / size;
+        }
+
+        double averageValue() {
+            double sum = 0.0;
+            for (int i = 0; i < size; i++) {
+                sum += values[i];
+            }
+            return sum / size;
+        }
+    }
+}
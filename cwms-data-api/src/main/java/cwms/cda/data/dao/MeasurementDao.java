@@ -62,12 +62,16 @@ import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import mil.army.usace.hec.metadata.location.LocationTemplate;
+import org.jooq.Configuration;
 import org.jooq.DSLContext;
 
 import java.util.List;
 
+import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
 import org.jooq.impl.DSL;
 import static org.jooq.impl.DSL.max;
@@ -81,6 +85,7 @@ public final class MeasurementDao extends JooqDao<Measurement> {
     static final String MIN_DATE = "MIN_DATE";
     static final String MAX_DATE = "MAX_DATE";
     static final XmlMapper XML_MAPPER = buildXmlMapper();
+    static final int STORE_BATCH_SIZE = 500;
 
     public MeasurementDao(DSLContext dsl) {
         super(dsl);
@@ -99,12 +104,62 @@ public final class MeasurementDao extends JooqDao<Measurement> {
                                                   String agencies, String qualities) {
         return connectionResult(dsl, conn -> {
             setOffice(conn, officeId);
+            if (StreamflowMeasurementView.canFilter(minNum, maxNum, agencies, qualities)) {
+                List<Measurement> retVal = StreamflowMeasurementView.select(DSL.using(conn),
+                        StreamflowMeasurementView.filter(officeId, locationId, unitSystem, minDateMask, maxDateMask,
+                                minHeight, maxHeight, minFlow, maxFlow), null, 0);
+                if (retVal.isEmpty()) {
+                    throw new NotFoundException("No measurements found.");
+                }
+                return retVal;
+            }
             Timestamp minTimestamp = buildTimestamp(minDateMask);
             Timestamp maxTimestamp = buildTimestamp(maxDateMask);
             return retrieveMeasurementsJooq(conn, officeId, locationId, unitSystem, minHeight, maxHeight, minFlow, maxFlow, minNum, maxNum, agencies, qualities, minTimestamp, maxTimestamp);
         });
     }
 
+    /**
+     * Retrieve a page of measurements, in office, location, time and number order.  Pages are
+     * read from AV_STREAMFLOW_MEAS and continue from the key of the previous page's last
+     * measurement, so later pages cost the same as the first.
+     *
+     * @param page     the next-page of the previous page, null for the first page
+     * @param pageSize the most measurements in the page
+     * @return the page, its next-page is null when there are no more measurements
+     * @throws IllegalArgumentException if the number, agency or quality filters are used, those
+     *                                  are only supported by {@link #retrieveMeasurements}
+     */
+    public MeasurementPage retrieveMeasurementsPage(String officeId, String locationId, Instant minDateMask,
+                                                    Instant maxDateMask, String unitSystem, Number minHeight,
+                                                    Number maxHeight, Number minFlow, Number maxFlow,
+                                                    String minNum, String maxNum, String agencies,
+                                                    String qualities, String page, int pageSize) {
+        if (!StreamflowMeasurementView.canFilter(minNum, maxNum, agencies, qualities)) {
+            throw new IllegalArgumentException("Measurements can't be paged when filtering by number, agency "
+                    + "or quality" + (StreamflowMeasurementView.isAvailable() ? ""
+                    : " or with this version of the database schema"));
+        }
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("page-size must be positive, was: " + pageSize);
+        }
+        StreamflowMeasurementView.Key after = page == null || page.isEmpty() ? null
+                : StreamflowMeasurementView.Key.decode(page, pageSize);
+        return connectionResult(dsl, conn -> {
+            setOffice(conn, officeId);
+            // one more than the page tells whether there is a next page
+            List<Measurement> measurements = StreamflowMeasurementView.select(DSL.using(conn),
+                    StreamflowMeasurementView.filter(officeId, locationId, unitSystem, minDateMask, maxDateMask,
+                            minHeight, maxHeight, minFlow, maxFlow), after, pageSize + 1);
+            String nextPage = null;
+            if (measurements.size() > pageSize) {
+                measurements = new ArrayList<>(measurements.subList(0, pageSize));
+                nextPage = StreamflowMeasurementView.Key.of(measurements.get(pageSize - 1)).encode(pageSize);
+            }
+            return new MeasurementPage(measurements, nextPage);
+        });
+    }
+
     private static List<Measurement> retrieveMeasurementsJooq(Connection conn, String officeId, String locationId, String unitSystem, Number minHeight, Number maxHeight, Number minFlow, Number maxFlow, String minNum, String maxNum, String agencies, String qualities, Timestamp minTimestamp, Timestamp maxTimestamp) throws JsonProcessingException {
         String xml = CWMS_STREAM_PACKAGE.call_RETRIEVE_MEAS_XML(DSL.using(conn).configuration(), locationId, unitSystem, minTimestamp, maxTimestamp,
                 minHeight, maxHeight, minFlow, maxFlow, minNum, maxNum, agencies, qualities, "UTC", officeId);
@@ -126,11 +181,29 @@ public final class MeasurementDao extends JooqDao<Measurement> {
 
     private void storeMeasurementsJooq(Connection conn, List<Measurement> measurements, boolean failIfExists) throws SQLException, JsonProcessingException {
         if(!measurements.isEmpty()) {
-            Measurement measurement = measurements.get(0);
-            setOffice(conn, measurement.getOfficeId());
             String failIfExistsStr = formatBool(failIfExists);
-            String xml = toDbXml(measurements);
-            CWMS_STREAM_PACKAGE.call_STORE_MEAS_XML(DSL.using(conn).configuration(), xml, failIfExistsStr);
+            Map<String, List<Measurement>> byOffice = measurements.stream()
+                    .collect(groupingBy(Measurement::getOfficeId, LinkedHashMap::new, toList()));
+            // bounded documents keep the database from building one DOM of every measurement
+            Map<String, List<String>> documents = new LinkedHashMap<>();
+            for (Map.Entry<String, List<Measurement>> office : byOffice.entrySet()) {
+                List<Measurement> officeMeasurements = office.getValue();
+                List<String> officeDocuments = new ArrayList<>();
+                for (int start = 0; start < officeMeasurements.size(); start += STORE_BATCH_SIZE) {
+                    officeDocuments.add(toDbXml(officeMeasurements.subList(start,
+                            Math.min(start + STORE_BATCH_SIZE, officeMeasurements.size()))));
+                }
+                documents.put(office.getKey(), officeDocuments);
+            }
+            // and the transaction keeps the store all or nothing
+            DSL.using(conn).transaction((Configuration trx) -> {
+                for (Map.Entry<String, List<String>> office : documents.entrySet()) {
+                    setOffice(conn, office.getKey());
+                    for (String xml : office.getValue()) {
+                        CWMS_STREAM_PACKAGE.call_STORE_MEAS_XML(trx, xml, failIfExistsStr);
+                    }
+                }
+            });
         }
     }
 
@@ -322,6 +395,30 @@ public final class MeasurementDao extends JooqDao<Measurement> {
         return retVal;
     }
 
+    /**
+     * A page of measurements and the cursor to the next one.
+     */
+    public static final class MeasurementPage {
+        private final List<Measurement> measurements;
+        private final String nextPage;
+
+        MeasurementPage(List<Measurement> measurements, String nextPage) {
+            this.measurements = measurements;
+            this.nextPage = nextPage;
+        }
+
+        public List<Measurement> getMeasurements() {
+            return measurements;
+        }
+
+        /**
+         * @return the page parameter of the next page, null if this is the last page
+         */
+        public String getNextPage() {
+            return nextPage;
+        }
+    }
+
     private static class InstantSerializer extends JsonSerializer<Instant> {
         @Override
         public void serialize(Instant value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
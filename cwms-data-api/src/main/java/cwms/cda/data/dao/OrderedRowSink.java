@@ -0,0 +1,73 @@
+package cwms.cda.data.dao;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+import org.jooq.exception.DataAccessException;
+
+/**
+ * Passes rows on in the order, and with the de-duplication, of the text and binary time series
+ * DTOs, which keep their rows in a map sorted by date and data entry date where a later row
+ * replaces an earlier one with the same key.
+ *
+ * <p>The CWMS_TEXT retrieve procedures return a REF CURSOR ordered by date, but not by data entry
+ * date within a date since versions are interleaved, and the cursor can't be re-ordered in SQL.
+ * Only the rows of the current date are held here; they are sorted by data entry date and passed
+ * on once a later date is read.  A date earlier than the current one can't be put back in order
+ * without holding every row, so it fails the retrieval.
+ *
+ * @param <T> the time series type
+ * @param <R> the row type
+ */
+public final class OrderedRowSink<T, R> implements TimeSeriesRowSink<T, R> {
+
+    private final TimeSeriesRowSink<T, R> target;
+    private final Function<R, Instant> dateTime;
+    private final Function<R, Instant> dataEntryDate;
+    private final TreeMap<Instant, R> pending =
+            new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder()));
+    private Instant pendingDateTime;
+
+    public OrderedRowSink(TimeSeriesRowSink<T, R> target, Function<R, Instant> dateTime,
+                          Function<R, Instant> dataEntryDate) {
+        this.target = target;
+        this.dateTime = dateTime;
+        this.dataEntryDate = dataEntryDate;
+    }
+
+    @Override
+    public void start(T header) throws IOException {
+        target.start(header);
+    }
+
+    @Override
+    public void row(R row) throws IOException {
+        Instant time = dateTime.apply(row);
+        if (!pending.isEmpty() && !Objects.equals(time, pendingDateTime)) {
+            if (time == null || (pendingDateTime != null && time.isBefore(pendingDateTime))) {
+                throw new DataAccessException("Rows were not returned in date order, "
+                        + time + " was read after " + pendingDateTime);
+            }
+            flush();
+        }
+        pendingDateTime = time;
+        pending.put(dataEntryDate.apply(row), row);
+    }
+
+    /**
+     * Passes on the rows of the last date, called once the cursor is exhausted.
+     */
+    public void finish() throws IOException {
+        flush();
+    }
+
+    private void flush() throws IOException {
+        for (R row : pending.values()) {
+            target.row(row);
+        }
+        pending.clear();
+    }
+}
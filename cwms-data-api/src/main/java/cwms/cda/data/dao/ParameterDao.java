@@ -2,12 +2,18 @@ package cwms.cda.data.dao;
 
 import cwms.cda.data.dto.Parameter;
 import org.jooq.DSLContext;
+import org.jooq.Field;
 import org.jooq.Record;
+import org.jooq.Table;
 import usace.cwms.db.jooq.codegen.packages.CWMS_CAT_PACKAGE;
 
 import java.util.List;
 import java.util.stream.Collectors;
 
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.name;
+import static org.jooq.impl.DSL.table;
+
 public class ParameterDao extends JooqDao<ParameterDao> {
 
     public ParameterDao(DSLContext dsl) {
@@ -26,6 +32,27 @@ public class ParameterDao extends JooqDao<ParameterDao> {
                                                       .collect(Collectors.toList());
     }
 
+    /**
+     * @return the storage unit and the SI and EN display units of every base parameter
+     */
+    List<UnitConversionTable.BaseParameterUnits> getBaseParameterUnits() {
+        Table<?> parameter = table("CWMS_20.CWMS_BASE_PARAMETER").as("p");
+        Table<?> storage = table("CWMS_20.CWMS_UNIT").as("u");
+        Table<?> si = table("CWMS_20.CWMS_UNIT").as("si");
+        Table<?> en = table("CWMS_20.CWMS_UNIT").as("en");
+        Field<String> baseParameterId = field(name("p", "BASE_PARAMETER_ID"), String.class);
+        Field<String> storageUnit = field(name("u", "UNIT_ID"), String.class);
+        Field<String> siUnit = field(name("si", "UNIT_ID"), String.class);
+        Field<String> enUnit = field(name("en", "UNIT_ID"), String.class);
+        return dsl.select(baseParameterId, storageUnit, siUnit, enUnit)
+                  .from(parameter)
+                  .join(storage).on(field(name("u", "UNIT_CODE")).eq(field(name("p", "UNIT_CODE"))))
+                  .leftJoin(si).on(field(name("si", "UNIT_CODE")).eq(field(name("p", "DISPLAY_UNIT_CODE_SI"))))
+                  .leftJoin(en).on(field(name("en", "UNIT_CODE")).eq(field(name("p", "DISPLAY_UNIT_CODE_EN"))))
+                  .fetch(rec -> new UnitConversionTable.BaseParameterUnits(rec.value1(), rec.value2(),
+                          rec.value3(), rec.value4()));
+    }
+
     private Parameter buildParameter(Record record)
     {
         String param = record.get("PARAMETER_ID", String.class);
@@ -0,0 +1,40 @@
+package cwms.cda.data.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects a streamed time series for the callers that want it all at once.
+ *
+ * @param <T> the time series type
+ * @param <R> the row type
+ */
+public final class RowCollector<T, R> implements TimeSeriesRowSink<T, R> {
+
+    private T header;
+    private final List<R> rows = new ArrayList<>();
+
+    @Override
+    public void start(T header) {
+        this.header = header;
+    }
+
+    @Override
+    public void row(R row) {
+        rows.add(row);
+    }
+
+    /**
+     * @return the header passed to {@link #start(Object)}, null if the retrieval didn't start
+     */
+    public T getHeader() {
+        return header;
+    }
+
+    /**
+     * @return the rows in the order they were passed on
+     */
+    public List<R> getRows() {
+        return rows;
+    }
+}
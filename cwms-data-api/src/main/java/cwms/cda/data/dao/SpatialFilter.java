@@ -0,0 +1,165 @@
+package cwms.cda.data.dao;
+
+import java.math.BigDecimal;
+import org.jetbrains.annotations.Nullable;
+import org.jooq.Condition;
+import org.jooq.Field;
+import org.jooq.impl.DSL;
+
+/**
+ * Where a location query's locations must be: within a bounding box, within a radius of a
+ * point, the k locations nearest a point, or a combination of these.  A bounding box and a
+ * radius are filtered in SQL, nearest is answered from the office's
+ * {@link LocationSpatialIndex}.  A spatial query needs an office either way.
+ */
+public final class SpatialFilter {
+
+    public static final int MAX_NEAREST = 1000;
+
+    @Nullable
+    private final BoundingBox bbox;
+    @Nullable
+    private final Double latitude;
+    @Nullable
+    private final Double longitude;
+    @Nullable
+    private final Double radiusKm;
+    @Nullable
+    private final Integer nearest;
+
+    private SpatialFilter(@Nullable BoundingBox bbox, @Nullable Double latitude, @Nullable Double longitude,
+                          @Nullable Double radiusKm, @Nullable Integer nearest) {
+        this.bbox = bbox;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.radiusKm = radiusKm;
+        this.nearest = nearest;
+    }
+
+    /**
+     * @param bbox     west,south,east,north in decimal degrees
+     * @param near     latitude,longitude of the point radius and nearest are measured from
+     * @param radiusKm only locations within this many kilometers of near
+     * @param nearest  only the this many locations nearest to near
+     * @return the filter, null when none of the parameters is given
+     * @throws IllegalArgumentException if a parameter isn't valid or radius or nearest is given
+     *                                  without near
+     */
+    @Nullable
+    public static SpatialFilter parse(@Nullable String bbox, @Nullable String near, @Nullable Double radiusKm,
+                                      @Nullable Integer nearest) {
+        BoundingBox box = BoundingBox.parse(bbox);
+        boolean hasNear = near != null && !near.trim().isEmpty();
+        if (box == null && !hasNear && radiusKm == null && nearest == null) {
+            return null;
+        }
+        if (!hasNear) {
+            if (radiusKm != null || nearest != null) {
+                throw new IllegalArgumentException("radius and nearest are measured from a point, "
+                        + "near must be given as latitude,longitude");
+            }
+            return new SpatialFilter(box, null, null, null, null);
+        }
+        if (radiusKm == null && nearest == null) {
+            throw new IllegalArgumentException("near must be combined with a radius, nearest or both");
+        }
+        if (radiusKm != null && !(radiusKm > 0)) {
+            throw new IllegalArgumentException("radius must be a positive number of kilometers, was: "
+                    + radiusKm);
+        }
+        if (nearest != null && (nearest < 1 || nearest > MAX_NEAREST)) {
+            throw new IllegalArgumentException("nearest must be within [1, " + MAX_NEAREST + "], was: "
+                    + nearest);
+        }
+        String[] parts = near.split(",");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("near must be latitude,longitude, was: " + near);
+        }
+        double lat;
+        double lon;
+        try {
+            lat = Double.parseDouble(parts[0].trim());
+            lon = Double.parseDouble(parts[1].trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("near coordinate is not a number: " + near, ex);
+        }
+        if (!(lat >= -90 && lat <= 90) || !(lon >= -180 && lon <= 180)) {
+            throw new IllegalArgumentException("near must be a latitude within [-90, 90] and a "
+                    + "longitude within [-180, 180], was: " + near);
+        }
+        return new SpatialFilter(box, lat, lon, radiusKm, nearest);
+    }
+
+    @Nullable
+    public BoundingBox getBbox() {
+        return bbox;
+    }
+
+    /**
+     * @return whether the filter measures distances from a point, and its results are ordered by
+     *     distance from it
+     */
+    public boolean hasCenter() {
+        return latitude != null;
+    }
+
+    @Nullable
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    @Nullable
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    @Nullable
+    public Double getRadiusKm() {
+        return radiusKm;
+    }
+
+    @Nullable
+    public Integer getNearest() {
+        return nearest;
+    }
+
+    /**
+     * @return the condition that a row's coordinates are within the bounding box and the radius,
+     *     rows without coordinates never are.  Nearest isn't part of it.
+     */
+    public Condition contains(Field<BigDecimal> longitudeField, Field<BigDecimal> latitudeField) {
+        Condition condition = latitudeField.isNotNull().and(longitudeField.isNotNull());
+        if (bbox != null) {
+            condition = condition.and(bbox.contains(longitudeField, latitudeField));
+        }
+        if (radiusKm != null) {
+            // the enclosing box lets an index on the coordinates narrow the rows first
+            condition = condition.and(LocationSpatialIndex.enclosingBox(latitude, longitude, radiusKm)
+                    .contains(longitudeField, latitudeField));
+            double halfAngle = radiusKm / (2 * LocationSpatialIndex.EARTH_RADIUS_KM);
+            if (halfAngle < Math.PI / 2) {
+                condition = condition.and(haversine(longitudeField, latitudeField)
+                        .le(BigDecimal.valueOf(Math.pow(Math.sin(halfAngle), 2))));
+            }
+        }
+        return condition;
+    }
+
+    /**
+     * @return the haversine of the angle between the center and a row's coordinates, as
+     *     {@link LocationSpatialIndex#distanceKm} computes it
+     */
+    private Field<BigDecimal> haversine(Field<BigDecimal> longitudeField, Field<BigDecimal> latitudeField) {
+        Field<BigDecimal> sinHalfLatitude = DSL.sin(DSL.rad(latitudeField.minus(latitude)).div(2));
+        Field<BigDecimal> sinHalfLongitude = DSL.sin(DSL.rad(longitudeField.minus(longitude)).div(2));
+        return sinHalfLatitude.times(sinHalfLatitude)
+                .plus(DSL.cos(DSL.rad(latitudeField)).times(Math.cos(Math.toRadians(latitude)))
+                        .times(sinHalfLongitude).times(sinHalfLongitude));
+    }
+
+    @Override
+    public String toString() {
+        return "bbox=" + bbox + ", near=" + latitude + "," + longitude + ", radius=" + radiusKm
+                + ", nearest=" + nearest;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Hydrologic Engineering Center
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cwms.cda.data.dao;
+
+import com.google.common.flogger.FluentLogger;
+import cwms.cda.metrics.RequestTiming;
+import cwms.cda.metrics.SqlStatistics;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.jooq.ExecuteContext;
+import org.jooq.Query;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultExecuteListener;
+
+/**
+ * Feeds every executed statement into {@link SqlStatistics}: fingerprint, elapsed time, rows
+ * fetched and an estimate of fetch round trips.  Executions over the slow threshold are captured
+ * with the endpoint that issued them, by fingerprint only unless the statistics are set to capture
+ * the inlined SQL and bind values.
+ */
+class SqlStatisticsListener extends DefaultExecuteListener {
+    private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+    private static final String START = "cda.sqlstats.start";
+    private static final String ROWS = "cda.sqlstats.rows";
+    private static final String FETCH_SIZE = "cda.sqlstats.fetchSize";
+
+    private final SqlStatistics statistics;
+
+    SqlStatisticsListener(SqlStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void start(ExecuteContext ctx) {
+        ctx.data(START, System.nanoTime());
+    }
+
+    @Override
+    public void executeEnd(ExecuteContext ctx) {
+        Statement statement = ctx.statement();
+        if (statement != null) {
+            try {
+                ctx.data(FETCH_SIZE, statement.getFetchSize());
+            } catch (SQLException ex) {
+                logger.atFinest().withCause(ex).log("Unable to read fetch size");
+            }
+        }
+    }
+
+    @Override
+    public void recordEnd(ExecuteContext ctx) {
+        Object rows = ctx.data(ROWS);
+        ctx.data(ROWS, rows instanceof Long ? (Long) rows + 1 : 1L);
+    }
+
+    @Override
+    public void end(ExecuteContext ctx) {
+        Object start = ctx.data(START);
+        String sql = ctx.sql();
+        if (!(start instanceof Long) || sql == null) {
+            return;
+        }
+        long elapsed = System.nanoTime() - (Long) start;
+        Object rowData = ctx.data(ROWS);
+        long rows = rowData instanceof Long ? (Long) rowData : 0L;
+        Object fetchSizeData = ctx.data(FETCH_SIZE);
+        int fetchSize = fetchSizeData instanceof Integer ? (Integer) fetchSizeData : 0;
+        // one trip for the execute, then one per full fetch batch beyond what the execute returned
+        long roundTrips = 1 + (fetchSize > 0 ? rows / fetchSize : 0);
+
+        RequestTiming timing = RequestTiming.current();
+        String endpoint = timing != null ? timing.getRequest() : null;
+        String fingerprint = statistics.record(sql, elapsed, rows, roundTrips, endpoint);
+        if (statistics.isSlow(elapsed)) {
+            Query query = ctx.query();
+            String inlined = statistics.isCapturingValues() ? sql : null;
+            if (query != null && statistics.isCapturingValues()) {
+                try {
+                    inlined = DSL.using(ctx.dialect()).renderInlined(query);
+                } catch (RuntimeException ex) {
+                    logger.atFinest().withCause(ex).log("Unable to inline sql");
+                }
+            }
+            statistics.recordSlow(fingerprint, inlined, query != null ? query.getBindValues() : null,
+                    elapsed, endpoint);
+        }
+    }
+}
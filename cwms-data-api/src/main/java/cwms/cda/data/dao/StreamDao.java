@@ -36,6 +36,7 @@ import org.jooq.impl.DSL;
 import usace.cwms.db.jooq.codegen.packages.CWMS_STREAM_PACKAGE;
 import usace.cwms.db.jooq.codegen.udt.records.STREAM_T;
 
+import java.sql.Connection;
 import java.util.List;
 
 public final class StreamDao extends JooqDao<Stream> {
@@ -69,16 +70,22 @@ public final class StreamDao extends JooqDao<Stream> {
     public List<Stream> retrieveStreams(String officeIdMask, String streamIdMask, String divertsFromStreamIdMask, String flowsIntStreamIdMask, String stationUnits) {
         return connectionResult(dsl, conn -> {
             setOffice(conn, officeIdMask);
-            Result<Record> records = CWMS_STREAM_PACKAGE.call_CAT_STREAMS(DSL.using(conn).configuration(), streamIdMask,
-                            stationUnits, null, flowsIntStreamIdMask, null,
-                            null, null, divertsFromStreamIdMask, null,
-                            null, null, null, null, null,
-                            null, null, officeIdMask);
-            return records.stream().map(r -> fromJooqStreamRecord(r, stationUnits))
-                    .collect(toList());
+            return retrieveStreams(officeIdMask, streamIdMask, divertsFromStreamIdMask,
+                    flowsIntStreamIdMask, stationUnits, conn);
         });
     }
 
+    static List<Stream> retrieveStreams(String officeIdMask, String streamIdMask, String divertsFromStreamIdMask,
+                                        String flowsIntStreamIdMask, String stationUnits, Connection conn) {
+        Result<Record> records = CWMS_STREAM_PACKAGE.call_CAT_STREAMS(DSL.using(conn).configuration(), streamIdMask,
+                        stationUnits, null, flowsIntStreamIdMask, null,
+                        null, null, divertsFromStreamIdMask, null,
+                        null, null, null, null, null,
+                        null, null, officeIdMask);
+        return records.stream().map(r -> fromJooqStreamRecord(r, stationUnits))
+                .collect(toList());
+    }
+
     /**
      * Retrieve a specific stream
      * @param streamId - the id of the stream
@@ -132,6 +139,7 @@ public final class StreamDao extends JooqDao<Stream> {
                     stream.getLength(), stream.getAverageSlope(), stream.getComment(), stream.getOfficeId());
             return null;
         });
+        StreamLocationDao.invalidateNetworkIndex(stream.getOfficeId());
     }
 
     /**
@@ -145,6 +153,7 @@ public final class StreamDao extends JooqDao<Stream> {
             CWMS_STREAM_PACKAGE.call_RENAME_STREAM(DSL.using(conn).configuration(), oldStreamId,
                     newStreamId, officeId);
         });
+        StreamLocationDao.invalidateNetworkIndex(officeId);
     }
 
     /**
@@ -161,6 +170,7 @@ public final class StreamDao extends JooqDao<Stream> {
                     officeId);
             return null;
         });
+        StreamLocationDao.invalidateNetworkIndex(officeId);
     }
 
     private String getStationUnits(Stream stream) {
@@ -23,13 +23,23 @@
  */
 package cwms.cda.data.dao;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import cwms.cda.api.errors.NotFoundException;
 import cwms.cda.data.dto.CwmsId;
 import cwms.cda.data.dto.stream.Bank;
 import cwms.cda.data.dto.stream.StreamLocation;
 import cwms.cda.data.dto.stream.StreamLocationNode;
 import cwms.cda.data.dto.stream.StreamNode;
+import cwms.cda.helpers.Settings;
 import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import org.jooq.DSLContext;
 import org.jooq.Record;
 import org.jooq.Result;
@@ -58,6 +68,17 @@ public final class StreamLocationDao extends JooqDao<StreamLocation> {
     static final String STREAM_LOCATION_STAGE_UNITS_COLUMN = "STAGE_UNIT";
     static final String STREAM_LOCATION_STATION_UNITS_COLUMN = "STATION_UNIT";
 
+    public static final String NETWORK_INDEX_ENABLED_KEY = "cwms.dataapi.stream.index.enabled";
+    public static final String NETWORK_INDEX_EXPIRE_KEY = "cwms.dataapi.stream.index.expireAfterSeconds";
+    // StreamNetworkIndexTestIT checks its traversal against CWMS_STREAM's GET_DS/GET_US_LOCATIONS
+    private static final boolean NETWORK_INDEX_ENABLED = Settings.getBoolean(NETWORK_INDEX_ENABLED_KEY, true);
+    // a single hop returns a location or two, more than this is cheaper as one catalog of the office
+    private static final int MAX_EXACT_LOOKUPS = 16;
+    private static final Cache<List<String>, StreamNetworkIndex> networkIndexCache = CacheBuilder.newBuilder()
+            .maximumSize(64)
+            .expireAfterWrite(Settings.getLong(NETWORK_INDEX_EXPIRE_KEY, 300), TimeUnit.SECONDS)
+            .build();
+
     public StreamLocationDao(DSLContext dsl) {
         super(dsl);
     }
@@ -89,16 +110,23 @@ public final class StreamLocationDao extends JooqDao<StreamLocation> {
      */
     public List<StreamLocation> retrieveDownstreamLocations(String officeId, String locationId, Boolean allDownstream, Boolean sameStreamOnly,
                                                             String stationUnits, String stageUnits, String areaUnits) {
+        boolean all = Boolean.TRUE.equals(allDownstream);
+        boolean sameStream = Boolean.TRUE.equals(sameStreamOnly);
+        if (NETWORK_INDEX_ENABLED) {
+            return getNetworkIndex(officeId, stationUnits, stageUnits, areaUnits)
+                    .downstreamOf(locationId, all, sameStream);
+        }
+        return retrieveDownstreamFromDatabase(officeId, locationId, all, sameStream, stationUnits, stageUnits,
+                areaUnits);
+    }
+
+    List<StreamLocation> retrieveDownstreamFromDatabase(String officeId, String locationId, boolean all,
+                                                        boolean sameStream, String stationUnits, String stageUnits,
+                                                        String areaUnits) {
         return connectionResult(dsl, conn -> {
-            String allDsLocationsStr = formatBool(allDownstream);
-            String sameStreamOnlyStr = formatBool(sameStreamOnly);
             STR_TAB_T downstreamLocIds = CWMS_STREAM_PACKAGE.call_GET_DS_LOCATIONS__2(DSL.using(conn).configuration(),
-                    locationId, allDsLocationsStr, sameStreamOnlyStr, officeId);
-            return downstreamLocIds.stream()
-                    .map(dl -> retrieveStreamLocations(officeId, null, dl, stationUnits, stageUnits, areaUnits, conn).stream()
-                            .findFirst()
-                            .orElseThrow(() -> new NotFoundException("Downstream location " + dl + "not found.")))
-                    .collect(toList());
+                    locationId, formatBool(all), formatBool(sameStream), officeId);
+            return lookupStreamLocations(officeId, downstreamLocIds, "Downstream", stationUnits, stageUnits, areaUnits, conn);
         });
     }
 
@@ -115,19 +143,99 @@ public final class StreamLocationDao extends JooqDao<StreamLocation> {
      */
     public List<StreamLocation> retrieveUpstreamLocations(String officeId, String locationId, Boolean allUpstream, Boolean sameStreamOnly,
                                                             String stationUnits, String stageUnits, String areaUnits) {
+        boolean all = Boolean.TRUE.equals(allUpstream);
+        boolean sameStream = Boolean.TRUE.equals(sameStreamOnly);
+        if (NETWORK_INDEX_ENABLED) {
+            return getNetworkIndex(officeId, stationUnits, stageUnits, areaUnits)
+                    .upstreamOf(locationId, all, sameStream);
+        }
+        return retrieveUpstreamFromDatabase(officeId, locationId, all, sameStream, stationUnits, stageUnits,
+                areaUnits);
+    }
+
+    List<StreamLocation> retrieveUpstreamFromDatabase(String officeId, String locationId, boolean all,
+                                                      boolean sameStream, String stationUnits, String stageUnits,
+                                                      String areaUnits) {
         return connectionResult(dsl, conn -> {
-            String allUsLocationsStr = formatBool(allUpstream);
-            String sameStreamOnlyStr = formatBool(sameStreamOnly);
             STR_TAB_T upstreamLocIds = CWMS_STREAM_PACKAGE.call_GET_US_LOCATIONS__2(DSL.using(conn).configuration(),
-                    locationId, allUsLocationsStr, sameStreamOnlyStr, officeId);
-            return upstreamLocIds.stream()
-                    .map(ul -> retrieveStreamLocations(officeId, null, ul, stationUnits, stageUnits, areaUnits, conn).stream()
-                            .findFirst()
-                            .orElseThrow(() -> new NotFoundException("Upstream location " + ul + "not found.")))
-                    .collect(toList());
+                    locationId, formatBool(all), formatBool(sameStream), officeId);
+            return lookupStreamLocations(officeId, upstreamLocIds, "Upstream", stationUnits, stageUnits, areaUnits, conn);
         });
     }
 
+    /**
+     * Resolves the ids returned by GET_DS_LOCATIONS/GET_US_LOCATIONS.  CAT_STREAM_LOCATIONS only
+     * takes masks, so a few ids are each looked up by an exact mask and only a longer list, which
+     * is most of the network anyway, catalogs the office once.
+     */
+    private static List<StreamLocation> lookupStreamLocations(String officeId, List<String> locationIds, String direction,
+                                                              String stationUnits, String stageUnits, String areaUnits,
+                                                              Connection conn) {
+        if (locationIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<StreamLocation> found = new ArrayList<>();
+        if (locationIds.size() <= MAX_EXACT_LOOKUPS) {
+            for (String locationId : locationIds) {
+                found.addAll(retrieveStreamLocations(officeId, null, escapeMask(locationId), stationUnits,
+                        stageUnits, areaUnits, conn));
+            }
+        } else {
+            found = retrieveStreamLocations(officeId, null, "*", stationUnits, stageUnits, areaUnits, conn);
+        }
+        Map<String, StreamLocation> byId = new HashMap<>();
+        for (StreamLocation location : found) {
+            byId.put(location.getId().getName().toUpperCase(Locale.ROOT), location);
+        }
+        return locationIds.stream()
+                .map(id -> Optional.ofNullable(byId.get(id.toUpperCase(Locale.ROOT)))
+                        .orElseThrow(() -> new NotFoundException(direction + " location " + id + " not found.")))
+                .collect(toList());
+    }
+
+    /**
+     * @return the id as a mask matching only itself, the catalog's masks treat * and ? as
+     *     wildcards
+     */
+    private static String escapeMask(String locationId) {
+        return locationId.replace("\\", "\\\\").replace("*", "\\*").replace("?", "\\?");
+    }
+
+    /**
+     * The stream network of an office, built from one catalog query for streams and one for stream
+     * locations and shared by every request for the same units until it expires or a stream,
+     * stream location or location of the office is written.
+     */
+    StreamNetworkIndex getNetworkIndex(String officeId, String stationUnits, String stageUnits,
+                                               String areaUnits) {
+        List<String> cacheKey = Arrays.asList(officeId.toUpperCase(Locale.ROOT), stationUnits, stageUnits, areaUnits);
+        StreamNetworkIndex retVal = networkIndexCache.getIfPresent(cacheKey);
+        if (retVal == null) {
+            retVal = connectionResult(dsl, conn -> {
+                setOffice(conn, officeId);
+                return StreamNetworkIndex.build(
+                        StreamDao.retrieveStreams(officeId, "*", null, null, stationUnits, conn),
+                        retrieveStreamLocations(officeId, "*", "*", stationUnits, stageUnits, areaUnits, conn));
+            });
+            networkIndexCache.put(cacheKey, retVal);
+        }
+        return retVal;
+    }
+
+    /**
+     * Drops every cached stream network of the office.  Other instances pick up the change when
+     * their copy expires.
+     * @param officeId - the office whose streams or stream locations changed
+     */
+    static void invalidateNetworkIndex(String officeId) {
+        if (officeId == null) {
+            networkIndexCache.invalidateAll();
+            return;
+        }
+        String office = officeId.toUpperCase(Locale.ROOT);
+        networkIndexCache.asMap().keySet().removeIf(key -> office.equals(key.get(0)));
+    }
+
     /**
      * Retrieve a specific stream location
      * @param locationId - the id of the stream location
@@ -177,6 +285,7 @@ public final class StreamLocationDao extends JooqDao<StreamLocation> {
                     streamLocation.getUngagedDrainageArea(), streamLocation.getAreaUnits(),streamLocationNode.getId().getOfficeId());
             return null;
         });
+        invalidateNetworkIndex(streamLocation.getId().getOfficeId());
     }
 
     /**
@@ -203,6 +312,7 @@ public final class StreamLocationDao extends JooqDao<StreamLocation> {
             setOffice(conn, officeId);
             CWMS_STREAM_PACKAGE.call_DELETE_STREAM_LOCATION(DSL.using(conn).configuration(), locationId, streamId, officeId);
         });
+        invalidateNetworkIndex(officeId);
     }
 
     static StreamLocation fromJooqStreamLocation(RETRIEVE_STREAM_LOCATION streamLocation, String locationId, String streamId, String officeId, String stationUnit, String stageUnit, String areaUnit) {
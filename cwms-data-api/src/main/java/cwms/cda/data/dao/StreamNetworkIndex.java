@@ -0,0 +1,287 @@
+package cwms.cda.data.dao;
+
+import cwms.cda.api.errors.NotFoundException;
+import cwms.cda.data.dto.stream.Stream;
+import cwms.cda.data.dto.stream.StreamLocation;
+import cwms.cda.data.dto.stream.StreamNode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable adjacency index of an office's streams and stream locations, used to answer upstream
+ * and downstream traversals without calling CWMS_STREAM.GET_DS_LOCATIONS/GET_US_LOCATIONS.
+ *
+ * <p>Streams and locations are numbered and every relationship is held in int indexed arrays.
+ * Positions along a stream are normalized so that a larger value is always further downstream,
+ * regardless of which end the stream's stationing starts at.
+ *
+ * <p>Traversal rules:
+ * <ul>
+ *     <li>Downstream of a location: locations further down the same stream, then every location
+ *     on streams that divert from it below the location, then the receiving stream below the
+ *     confluence.</li>
+ *     <li>Upstream of a location: locations further up the same stream, then every location on
+ *     tributaries that join above the location, then the source stream above the diversion
+ *     point when the stream is itself a diversion.</li>
+ *     <li>When not retrieving all locations only the nearest location of each branch is
+ *     returned.</li>
+ * </ul>
+ * Links with an unknown station are not traversed, since there is no way to order them.
+ */
+final class StreamNetworkIndex {
+
+    private static final int NONE = -1;
+
+    private final int[] flowsInto;
+    private final double[] flowsIntoPosition;
+    private final int[] divertsFrom;
+    private final double[] divertsFromPosition;
+    private final int[][] tributaries;
+    private final int[][] diversions;
+
+    private final StreamLocation[] locations;
+    private final int[] locationStream;
+    private final double[] locationPosition;
+    /** Location indices of each stream, ordered from upstream to downstream. */
+    private final int[][] streamLocations;
+    private final Map<String, Integer> locationIndex;
+
+    private StreamNetworkIndex(List<Stream> streams, List<StreamLocation> locations) {
+        int streamCount = streams.size();
+        Map<String, Integer> streamIndex = new HashMap<>(streamCount * 2);
+        boolean[] startsDownstream = new boolean[streamCount];
+        for (int i = 0; i < streamCount; i++) {
+            Stream stream = streams.get(i);
+            streamIndex.put(key(stream.getId().getName()), i);
+            startsDownstream[i] = Boolean.TRUE.equals(stream.getStartsDownstream());
+        }
+
+        flowsInto = new int[streamCount];
+        flowsIntoPosition = new double[streamCount];
+        divertsFrom = new int[streamCount];
+        divertsFromPosition = new double[streamCount];
+        int[] tributaryCounts = new int[streamCount];
+        int[] diversionCounts = new int[streamCount];
+        for (int i = 0; i < streamCount; i++) {
+            Stream stream = streams.get(i);
+            flowsInto[i] = linkedStream(stream.getFlowsIntoStreamNode(), streamIndex);
+            flowsIntoPosition[i] = linkedPosition(stream.getFlowsIntoStreamNode(), flowsInto[i],
+                    startsDownstream);
+            divertsFrom[i] = linkedStream(stream.getDivertsFromStreamNode(), streamIndex);
+            divertsFromPosition[i] = linkedPosition(stream.getDivertsFromStreamNode(),
+                    divertsFrom[i], startsDownstream);
+            if (flowsInto[i] != NONE) {
+                tributaryCounts[flowsInto[i]]++;
+            }
+            if (divertsFrom[i] != NONE) {
+                diversionCounts[divertsFrom[i]]++;
+            }
+        }
+        tributaries = new int[streamCount][];
+        diversions = new int[streamCount][];
+        for (int i = 0; i < streamCount; i++) {
+            tributaries[i] = new int[tributaryCounts[i]];
+            diversions[i] = new int[diversionCounts[i]];
+        }
+        Arrays.fill(tributaryCounts, 0);
+        Arrays.fill(diversionCounts, 0);
+        for (int i = 0; i < streamCount; i++) {
+            if (flowsInto[i] != NONE) {
+                tributaries[flowsInto[i]][tributaryCounts[flowsInto[i]]++] = i;
+            }
+            if (divertsFrom[i] != NONE) {
+                diversions[divertsFrom[i]][diversionCounts[divertsFrom[i]]++] = i;
+            }
+        }
+
+        int locationCount = locations.size();
+        this.locations = locations.toArray(new StreamLocation[0]);
+        locationStream = new int[locationCount];
+        locationPosition = new double[locationCount];
+        locationIndex = new HashMap<>(locationCount * 2);
+        int[] locationCounts = new int[streamCount];
+        for (int i = 0; i < locationCount; i++) {
+            StreamLocation location = locations.get(i);
+            locationIndex.put(key(location.getId().getName()), i);
+            Integer stream = location.getStreamId() == null
+                    ? null : streamIndex.get(key(location.getStreamId().getName()));
+            locationStream[i] = stream == null ? NONE : stream;
+            locationPosition[i] = stream == null
+                    ? Double.NaN : position(location.getStation(), startsDownstream[stream]);
+            if (stream != null && !Double.isNaN(locationPosition[i])) {
+                locationCounts[stream]++;
+            }
+        }
+        streamLocations = new int[streamCount][];
+        for (int i = 0; i < streamCount; i++) {
+            streamLocations[i] = new int[locationCounts[i]];
+        }
+        Arrays.fill(locationCounts, 0);
+        for (int i = 0; i < locationCount; i++) {
+            int stream = locationStream[i];
+            if (stream != NONE && !Double.isNaN(locationPosition[i])) {
+                streamLocations[stream][locationCounts[stream]++] = i;
+            }
+        }
+        for (int[] onStream : streamLocations) {
+            sortByPosition(onStream);
+        }
+    }
+
+    /**
+     * @param streams   every stream of the office
+     * @param locations every stream location of the office, with stations in the same units as
+     *                  the streams' confluence and diversion stations
+     */
+    static StreamNetworkIndex build(List<Stream> streams, List<StreamLocation> locations) {
+        return new StreamNetworkIndex(streams, locations);
+    }
+
+    List<StreamLocation> downstreamOf(String locationId, boolean all, boolean sameStreamOnly) {
+        int location = indexOf(locationId);
+        List<StreamLocation> retVal = new ArrayList<>();
+        BitSet visited = new BitSet(flowsInto.length);
+        visited.set(locationStream[location]);
+        downstream(locationStream[location], locationPosition[location], false, all,
+                sameStreamOnly, visited, retVal);
+        return retVal;
+    }
+
+    List<StreamLocation> upstreamOf(String locationId, boolean all, boolean sameStreamOnly) {
+        int location = indexOf(locationId);
+        List<StreamLocation> retVal = new ArrayList<>();
+        BitSet visited = new BitSet(flowsInto.length);
+        visited.set(locationStream[location]);
+        upstream(locationStream[location], locationPosition[location], false, all,
+                sameStreamOnly, visited, retVal);
+        return retVal;
+    }
+
+    /**
+     * Collects locations below {@code from} on {@code stream}, or at it when {@code inclusive}.
+     */
+    private void downstream(int stream, double from, boolean inclusive, boolean all,
+                            boolean sameStreamOnly, BitSet visited, List<StreamLocation> out) {
+        // when only the nearest location is wanted, branches that split off below it are
+        // still separate paths, but the receiving stream is not reached
+        double limit = Double.POSITIVE_INFINITY;
+        for (int location : streamLocations[stream]) {
+            double position = locationPosition[location];
+            if (position > from || (inclusive && position == from)) {
+                out.add(locations[location]);
+                if (!all) {
+                    limit = position;
+                    break;
+                }
+            }
+        }
+        if (sameStreamOnly) {
+            return;
+        }
+        for (int diversion : diversions[stream]) {
+            double at = divertsFromPosition[diversion];
+            if (at >= from && at < limit && !visited.get(diversion)) {
+                visited.set(diversion);
+                downstream(diversion, Double.NEGATIVE_INFINITY, true, all, false, visited, out);
+            }
+        }
+        int receiving = flowsInto[stream];
+        if (limit == Double.POSITIVE_INFINITY && receiving != NONE
+                && !Double.isNaN(flowsIntoPosition[stream]) && !visited.get(receiving)) {
+            visited.set(receiving);
+            downstream(receiving, flowsIntoPosition[stream], true, all, false, visited, out);
+        }
+    }
+
+    /**
+     * Collects locations above {@code from} on {@code stream}, or at it when {@code inclusive},
+     * nearest first.
+     */
+    private void upstream(int stream, double from, boolean inclusive, boolean all,
+                          boolean sameStreamOnly, BitSet visited, List<StreamLocation> out) {
+        double limit = Double.NEGATIVE_INFINITY;
+        int[] onStream = streamLocations[stream];
+        for (int i = onStream.length - 1; i >= 0; i--) {
+            int location = onStream[i];
+            double position = locationPosition[location];
+            if (position < from || (inclusive && position == from)) {
+                out.add(locations[location]);
+                if (!all) {
+                    limit = position;
+                    break;
+                }
+            }
+        }
+        if (sameStreamOnly) {
+            return;
+        }
+        for (int tributary : tributaries[stream]) {
+            double at = flowsIntoPosition[tributary];
+            if (at <= from && at > limit && !visited.get(tributary)) {
+                visited.set(tributary);
+                upstream(tributary, Double.POSITIVE_INFINITY, true, all, false, visited, out);
+            }
+        }
+        int source = divertsFrom[stream];
+        if (limit == Double.NEGATIVE_INFINITY && source != NONE
+                && !Double.isNaN(divertsFromPosition[stream]) && !visited.get(source)) {
+            visited.set(source);
+            upstream(source, divertsFromPosition[stream], true, all, false, visited, out);
+        }
+    }
+
+    private int indexOf(String locationId) {
+        Integer retVal = locationId == null ? null : locationIndex.get(key(locationId));
+        if (retVal == null || locationStream[retVal] == NONE
+                || Double.isNaN(locationPosition[retVal])) {
+            throw new NotFoundException("Stream location " + locationId + " not found.");
+        }
+        return retVal;
+    }
+
+    private void sortByPosition(int[] onStream) {
+        // insertion sort; a stream rarely carries more than a few dozen locations
+        for (int i = 1; i < onStream.length; i++) {
+            int location = onStream[i];
+            double position = locationPosition[location];
+            int j = i - 1;
+            while (j >= 0 && locationPosition[onStream[j]] > position) {
+                onStream[j + 1] = onStream[j];
+                j--;
+            }
+            onStream[j + 1] = location;
+        }
+    }
+
+    private static int linkedStream(StreamNode node, Map<String, Integer> streamIndex) {
+        if (node == null || node.getStreamId() == null) {
+            return NONE;
+        }
+        Integer retVal = streamIndex.get(key(node.getStreamId().getName()));
+        return retVal == null ? NONE : retVal;
+    }
+
+    private static double linkedPosition(StreamNode node, int linkedStream,
+                                         boolean[] startsDownstream) {
+        if (linkedStream == NONE) {
+            return Double.NaN;
+        }
+        return position(node.getStation(), startsDownstream[linkedStream]);
+    }
+
+    private static double position(Double station, boolean startsDownstream) {
+        if (station == null) {
+            return Double.NaN;
+        }
+        return startsDownstream ? -station : station;
+    }
+
+    private static String key(String id) {
+        return id.toUpperCase(Locale.ROOT);
+    }
+}
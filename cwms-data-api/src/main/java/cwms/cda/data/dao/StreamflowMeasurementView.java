@@ -0,0 +1,273 @@
+package cwms.cda.data.dao;
+
+import static org.jooq.impl.DSL.upper;
+
+import cwms.cda.data.dto.CwmsDTOPaginated;
+import cwms.cda.data.dto.CwmsId;
+import cwms.cda.data.dto.measurement.Measurement;
+import cwms.cda.data.dto.measurement.StreamflowMeasurement;
+import cwms.cda.data.dto.measurement.SupplementalStreamflowMeasurement;
+import cwms.cda.data.dto.measurement.UsgsMeasurement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import org.jetbrains.annotations.Nullable;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.SelectConditionStep;
+import org.jooq.SelectSeekStep4;
+import org.jooq.impl.DSL;
+import usace.cwms.db.jooq.codegen.packages.CWMS_UTIL_PACKAGE;
+import usace.cwms.db.jooq.codegen.tables.AV_STREAMFLOW_MEAS;
+
+/**
+ * Reads measurements straight from AV_STREAMFLOW_MEAS into {@link Measurement}s, without the
+ * database building an XML document that is then parsed again.  Rows are ordered by office,
+ * location, time and number so they can be paged with a keyset rather than an offset.
+ *
+ * <p>The supplemental and unit columns were added to the view over several schema versions.
+ * The columns are looked up by name and {@link #isAvailable()} is false unless every column the
+ * XML retrieval fills in is present, in which case callers fall back to the XML retrieval.
+ */
+final class StreamflowMeasurementView {
+
+    private static final AV_STREAMFLOW_MEAS VIEW = AV_STREAMFLOW_MEAS.AV_STREAMFLOW_MEAS;
+
+    static final Field<String> OFFICE_ID = VIEW.OFFICE_ID;
+    static final Field<String> LOCATION_ID = VIEW.LOCATION_ID;
+    static final Field<Timestamp> DATE_TIME_UTC = VIEW.DATE_TIME_UTC;
+    static final Field<String> MEAS_NUMBER = column("MEAS_NUMBER", String.class);
+    static final Field<String> UNIT_SYSTEM = column("UNIT_SYSTEM", String.class);
+    static final Field<String> USED = column("USED", String.class);
+    static final Field<String> PARTY = column("PARTY", String.class);
+    static final Field<String> AGENCY_ID = column("AGENCY_ID", String.class);
+    static final Field<Double> GAGE_HEIGHT = column("GAGE_HEIGHT", Double.class);
+    static final Field<Double> FLOW = column("FLOW", Double.class);
+    static final Field<String> QUALITY = column("QUALITY", String.class);
+    static final Field<String> HEIGHT_UNIT = column("HEIGHT_UNIT", String.class);
+    static final Field<String> FLOW_UNIT = column("FLOW_UNIT", String.class);
+    static final Field<String> TEMP_UNIT = column("TEMP_UNIT", String.class);
+    static final Field<String> VELOCITY_UNIT = column("VELOCITY_UNIT", String.class);
+    static final Field<String> AREA_UNIT = column("AREA_UNIT", String.class);
+    static final Field<String> WM_COMMENTS = column("WM_COMMENTS", String.class);
+    static final Field<String> CUR_RATING_NUM = column("CUR_RATING_NUM", String.class);
+    static final Field<Double> SHIFT_USED = column("SHIFT_USED", Double.class);
+    static final Field<Double> PCT_DIFF = column("PCT_DIFF", Double.class);
+    static final Field<Double> DELTA_HEIGHT = column("DELTA_HEIGHT", Double.class);
+    static final Field<Double> DELTA_TIME = column("DELTA_TIME", Double.class);
+    static final Field<String> CTRL_COND_ID = column("CTRL_COND_ID", String.class);
+    static final Field<String> FLOW_ADJ_ID = column("FLOW_ADJ_ID", String.class);
+    static final Field<String> REMARKS = column("REMARKS", String.class);
+    static final Field<Double> AIR_TEMP = column("AIR_TEMP", Double.class);
+    static final Field<Double> WATER_TEMP = column("WATER_TEMP", Double.class);
+    static final Field<Double> CHANNEL_FLOW = column("CHANNEL_FLOW", Double.class);
+    static final Field<Double> OVERBANK_FLOW = column("OVERBANK_FLOW", Double.class);
+    static final Field<Double> OVERBANK_MAX_DEPTH = column("OVERBANK_MAX_DEPTH", Double.class);
+    static final Field<Double> CHANNEL_MAX_DEPTH = column("CHANNEL_MAX_DEPTH", Double.class);
+    static final Field<Double> AVG_VELOCITY = column("AVG_VELOCITY", Double.class);
+    static final Field<Double> SURFACE_VELOCITY = column("SURFACE_VELOCITY", Double.class);
+    static final Field<Double> MAX_VELOCITY = column("MAX_VELOCITY", Double.class);
+    static final Field<Double> EFFECTIVE_FLOW_AREA = column("EFFECTIVE_FLOW_AREA", Double.class);
+    static final Field<Double> CROSS_SECTIONAL_AREA = column("CROSS_SECTIONAL_AREA", Double.class);
+    static final Field<Double> MEAN_GAGE = column("MEAN_GAGE", Double.class);
+    static final Field<Double> TOP_WIDTH = column("TOP_WIDTH", Double.class);
+    static final Field<Double> MAIN_CHANNEL_AREA = column("MAIN_CHANNEL_AREA", Double.class);
+    static final Field<Double> OVERBANK_AREA = column("OVERBANK_AREA", Double.class);
+
+    private static final List<Field<?>> COLUMNS = Arrays.asList(OFFICE_ID, LOCATION_ID, DATE_TIME_UTC,
+            MEAS_NUMBER, UNIT_SYSTEM, USED, PARTY, AGENCY_ID, GAGE_HEIGHT, FLOW, QUALITY, HEIGHT_UNIT,
+            FLOW_UNIT, TEMP_UNIT, VELOCITY_UNIT, AREA_UNIT, WM_COMMENTS, CUR_RATING_NUM, SHIFT_USED,
+            PCT_DIFF, DELTA_HEIGHT, DELTA_TIME, CTRL_COND_ID, FLOW_ADJ_ID, REMARKS, AIR_TEMP, WATER_TEMP,
+            CHANNEL_FLOW, OVERBANK_FLOW, OVERBANK_MAX_DEPTH, CHANNEL_MAX_DEPTH, AVG_VELOCITY,
+            SURFACE_VELOCITY, MAX_VELOCITY, EFFECTIVE_FLOW_AREA, CROSS_SECTIONAL_AREA, MEAN_GAGE,
+            TOP_WIDTH, MAIN_CHANNEL_AREA, OVERBANK_AREA);
+
+    private static final boolean AVAILABLE = COLUMNS.stream().allMatch(Objects::nonNull);
+
+    private StreamflowMeasurementView() {
+        throw new AssertionError("Utility class");
+    }
+
+    @Nullable
+    private static <T> Field<T> column(String name, Class<T> type) {
+        return VIEW.field(name, type);
+    }
+
+    static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * @return whether the view can answer the filters, the number, agency and quality filters
+     *     follow rules of the database's retrieval that are left to it
+     */
+    static boolean canFilter(@Nullable String minNum, @Nullable String maxNum, @Nullable String agencies,
+                             @Nullable String qualities) {
+        return AVAILABLE && minNum == null && maxNum == null && agencies == null && qualities == null;
+    }
+
+    /**
+     * @param officeMask the office mask, null for the session office as the XML retrieval
+     *                   defaults to
+     */
+    static Condition filter(@Nullable String officeMask, @Nullable String locationMask, String unitSystem,
+                            @Nullable Instant minDate, @Nullable Instant maxDate,
+                            @Nullable Number minHeight, @Nullable Number maxHeight,
+                            @Nullable Number minFlow, @Nullable Number maxFlow) {
+        Condition condition = UNIT_SYSTEM.equalIgnoreCase(unitSystem);
+        if (officeMask != null) {
+            condition = condition.and(upper(OFFICE_ID).like(globToLike(officeMask)));
+        } else {
+            condition = condition.and(OFFICE_ID.eq(CWMS_UTIL_PACKAGE.call_USER_OFFICE_ID()));
+        }
+        if (locationMask != null) {
+            condition = condition.and(upper(LOCATION_ID).like(globToLike(locationMask)));
+        }
+        if (minDate != null) {
+            condition = condition.and(DATE_TIME_UTC.ge(Timestamp.from(minDate)));
+        }
+        if (maxDate != null) {
+            condition = condition.and(DATE_TIME_UTC.le(Timestamp.from(maxDate)));
+        }
+        if (minHeight != null) {
+            condition = condition.and(GAGE_HEIGHT.ge(minHeight.doubleValue()));
+        }
+        if (maxHeight != null) {
+            condition = condition.and(GAGE_HEIGHT.le(maxHeight.doubleValue()));
+        }
+        if (minFlow != null) {
+            condition = condition.and(FLOW.ge(minFlow.doubleValue()));
+        }
+        if (maxFlow != null) {
+            condition = condition.and(FLOW.le(maxFlow.doubleValue()));
+        }
+        return condition;
+    }
+
+    /**
+     * The masks of the XML retrieval use * and ? wildcards and are case-insensitive.
+     */
+    static String globToLike(String mask) {
+        return mask.toUpperCase().replace('*', '%').replace('?', '_');
+    }
+
+    /**
+     * @param after the key of the last measurement of the previous page, null for the first page
+     * @param limit the most measurements to read, 0 or less for all of them
+     */
+    static List<Measurement> select(DSLContext dsl, Condition condition, @Nullable Key after, int limit) {
+        if (after != null) {
+            condition = condition.and(DSL.row(OFFICE_ID, LOCATION_ID, DATE_TIME_UTC, MEAS_NUMBER)
+                    .gt(after.officeId, after.locationId, Timestamp.from(after.instant), after.number));
+        }
+        SelectConditionStep<Record> where = dsl.select(COLUMNS).from(VIEW).where(condition);
+        SelectSeekStep4<Record, String, String, Timestamp, String> ordered = where.orderBy(OFFICE_ID,
+                LOCATION_ID, DATE_TIME_UTC, MEAS_NUMBER);
+        if (limit > 0) {
+            return ordered.limit(limit).fetch(StreamflowMeasurementView::toMeasurement);
+        }
+        return ordered.fetchSize(JooqDao.DEFAULT_FETCH_SIZE).fetch(StreamflowMeasurementView::toMeasurement);
+    }
+
+    static Measurement toMeasurement(Record row) {
+        return new Measurement.Builder()
+                .withId(new CwmsId.Builder()
+                        .withOfficeId(row.get(OFFICE_ID))
+                        .withName(row.get(LOCATION_ID))
+                        .build())
+                .withNumber(row.get(MEAS_NUMBER))
+                .withAgency(row.get(AGENCY_ID))
+                .withParty(row.get(PARTY))
+                .withUsed(JooqDao.parseBool(row.get(USED)))
+                .withWmComments(row.get(WM_COMMENTS))
+                .withInstant(row.get(DATE_TIME_UTC).toInstant())
+                .withAreaUnit(row.get(AREA_UNIT))
+                .withFlowUnit(row.get(FLOW_UNIT))
+                .withHeightUnit(row.get(HEIGHT_UNIT))
+                .withVelocityUnit(row.get(VELOCITY_UNIT))
+                .withTempUnit(row.get(TEMP_UNIT))
+                .withStreamflowMeasurement(new StreamflowMeasurement.Builder()
+                        .withFlow(row.get(FLOW))
+                        .withGageHeight(row.get(GAGE_HEIGHT))
+                        .withQuality(row.get(QUALITY))
+                        .build())
+                .withUsgsMeasurement(new UsgsMeasurement.Builder()
+                        .withAirTemp(row.get(AIR_TEMP))
+                        .withCurrentRating(row.get(CUR_RATING_NUM))
+                        .withControlCondition(row.get(CTRL_COND_ID))
+                        .withFlowAdjustment(row.get(FLOW_ADJ_ID))
+                        .withDeltaHeight(row.get(DELTA_HEIGHT))
+                        .withDeltaTime(row.get(DELTA_TIME))
+                        .withPercentDifference(row.get(PCT_DIFF))
+                        .withRemarks(row.get(REMARKS))
+                        .withShiftUsed(row.get(SHIFT_USED))
+                        .withWaterTemp(row.get(WATER_TEMP))
+                        .build())
+                .withSupplementalStreamflowMeasurement(new SupplementalStreamflowMeasurement.Builder()
+                        .withAvgVelocity(row.get(AVG_VELOCITY))
+                        .withChannelFlow(row.get(CHANNEL_FLOW))
+                        .withMeanGage(row.get(MEAN_GAGE))
+                        .withMaxVelocity(row.get(MAX_VELOCITY))
+                        .withOverbankFlow(row.get(OVERBANK_FLOW))
+                        .withOverbankArea(row.get(OVERBANK_AREA))
+                        .withTopWidth(row.get(TOP_WIDTH))
+                        .withSurfaceVelocity(row.get(SURFACE_VELOCITY))
+                        .withChannelMaxDepth(row.get(CHANNEL_MAX_DEPTH))
+                        .withMainChannelArea(row.get(MAIN_CHANNEL_AREA))
+                        .withOverbankMaxDepth(row.get(OVERBANK_MAX_DEPTH))
+                        .withEffectiveFlowArea(row.get(EFFECTIVE_FLOW_AREA))
+                        .withCrossSectionalArea(row.get(CROSS_SECTIONAL_AREA))
+                        .build())
+                .build();
+    }
+
+    /**
+     * The position of a measurement in the view's order, what a page cursor carries.
+     */
+    static final class Key {
+        final String officeId;
+        final String locationId;
+        final Instant instant;
+        final String number;
+
+        Key(String officeId, String locationId, Instant instant, String number) {
+            this.officeId = officeId;
+            this.locationId = locationId;
+            this.instant = instant;
+            this.number = number;
+        }
+
+        static Key of(Measurement measurement) {
+            return new Key(measurement.getOfficeId(), measurement.getLocationId(), measurement.getInstant(),
+                    measurement.getNumber());
+        }
+
+        /**
+         * @throws IllegalArgumentException if the cursor isn't one this class encoded
+         */
+        static Key decode(String cursor, int pageSize) {
+            String[] parts = CwmsDTOPaginated.decodeCursor(cursor);
+            if (parts.length != 5) {
+                throw new IllegalArgumentException("Invalid measurement page: " + cursor);
+            }
+            if (Integer.parseInt(parts[4]) != pageSize) {
+                throw new IllegalArgumentException("The page-size of a measurement page can't be changed, "
+                        + "the page was read with " + parts[4]);
+            }
+            try {
+                return new Key(parts[0], parts[1], Instant.ofEpochMilli(Long.parseLong(parts[2])), parts[3]);
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid measurement page: " + cursor, ex);
+            }
+        }
+
+        String encode(int pageSize) {
+            return CwmsDTOPaginated.encodeCursor(CwmsDTOPaginated.delimiter, officeId, locationId,
+                    instant.toEpochMilli(), number, pageSize);
+        }
+    }
+}
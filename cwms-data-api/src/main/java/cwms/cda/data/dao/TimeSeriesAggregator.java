@@ -0,0 +1,145 @@
+package cwms.cda.data.dao;
+
+import static cwms.cda.data.dao.TimeSeriesReduction.MISSING;
+import static cwms.cda.data.dao.TimeSeriesReduction.OKAY;
+import static cwms.cda.data.dao.TimeSeriesReduction.QUESTIONABLE;
+import static cwms.cda.data.dao.TimeSeriesReduction.SCREENED;
+
+import cwms.cda.data.dto.TimeSeries;
+import java.sql.Timestamp;
+
+/**
+ * Aggregates values into calendar intervals as they arrive, holding only the running aggregate
+ * of the current interval.  Each interval that has values is added at its start time; one with
+ * only missing or rejected values is added as missing, or a count of zero.
+ */
+final class TimeSeriesAggregator implements TimeSeriesReduction.Reducer {
+    private static final int SCREENED_OKAY = SCREENED | OKAY;
+    private static final int SCREENED_MISSING = SCREENED | MISSING;
+    private static final int SCREENED_QUESTIONABLE = SCREENED | QUESTIONABLE;
+
+    private final CalendarIntervals intervals;
+    private final TimeSeriesReduction.Function function;
+    private final TimeSeries target;
+
+    private boolean started;
+    private long start;
+    private long end;
+    private int count;
+    private double sum;
+    private double min;
+    private int minQuality;
+    private double max;
+    private int maxQuality;
+    private double first;
+    private int firstQuality;
+    private double last;
+    private int lastQuality;
+    private boolean questionable;
+    private boolean allOkay;
+
+    TimeSeriesAggregator(CalendarIntervals intervals, TimeSeriesReduction.Function function,
+                         TimeSeries target) {
+        this.intervals = intervals;
+        this.function = function;
+        this.target = target;
+    }
+
+    @Override
+    public void add(Timestamp dateTime, Double value, int qualityCode) {
+        long time = dateTime.getTime();
+        if (!started || time >= end) {
+            if (started) {
+                emit();
+            }
+            start = intervals.start(time);
+            end = intervals.next(start);
+            started = true;
+            reset();
+        }
+        if (!TimeSeriesReduction.isUsable(value, qualityCode)) {
+            return;
+        }
+        double v = value;
+        if (count == 0) {
+            min = v;
+            minQuality = qualityCode;
+            max = v;
+            maxQuality = qualityCode;
+            first = v;
+            firstQuality = qualityCode;
+        } else {
+            if (v < min) {
+                min = v;
+                minQuality = qualityCode;
+            }
+            if (v > max) {
+                max = v;
+                maxQuality = qualityCode;
+            }
+        }
+        last = v;
+        lastQuality = qualityCode;
+        sum += v;
+        count++;
+        questionable |= (qualityCode & SCREENED_QUESTIONABLE) == SCREENED_QUESTIONABLE;
+        allOkay &= (qualityCode & SCREENED_OKAY) == SCREENED_OKAY;
+    }
+
+    @Override
+    public void finish() {
+        if (started) {
+            emit();
+            started = false;
+        }
+    }
+
+    private void reset() {
+        count = 0;
+        sum = 0.0;
+        questionable = false;
+        allOkay = true;
+    }
+
+    private void emit() {
+        Timestamp dateTime = new Timestamp(start);
+        if (count == 0) {
+            if (function == TimeSeriesReduction.Function.COUNT) {
+                target.addValue(dateTime, 0.0, 0);
+            } else {
+                target.addValue(dateTime, null, SCREENED_MISSING);
+            }
+            return;
+        }
+        switch (function) {
+            case MIN:
+                target.addValue(dateTime, min, minQuality);
+                break;
+            case MAX:
+                target.addValue(dateTime, max, maxQuality);
+                break;
+            case FIRST:
+                target.addValue(dateTime, first, firstQuality);
+                break;
+            case LAST:
+                target.addValue(dateTime, last, lastQuality);
+                break;
+            case SUM:
+                target.addValue(dateTime, sum, quality());
+                break;
+            case COUNT:
+                target.addValue(dateTime, (double) count, quality());
+                break;
+            default:
+                target.addValue(dateTime, sum / count, quality());
+                break;
+        }
+    }
+
+    private int quality() {
+        if (questionable) {
+            return SCREENED_QUESTIONABLE;
+        }
+        return allOkay ? SCREENED_OKAY : 0;
+    }
+}
@@ -5,6 +5,7 @@ import cwms.cda.data.dto.Catalog;
 import cwms.cda.data.dto.RecentValue;
 import cwms.cda.data.dto.TimeSeries;
 import java.sql.Timestamp;
+import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.List;
@@ -29,6 +30,33 @@ public interface TimeSeriesDao {
                              String unit, ZonedDateTime begin, ZonedDateTime end,
                              ZonedDateTime versionDate, boolean trim);
 
+    /**
+     * @param reduction how to aggregate or decimate the values as they are read, null to return
+     *                  them as stored.  A reduced series is not paged.
+     */
+    TimeSeries getTimeseries(String cursor, int pageSize, String names, String office,
+                             String unit, ZonedDateTime begin, ZonedDateTime end,
+                             ZonedDateTime versionDate, boolean trim, TimeSeriesReduction reduction);
+
+    /**
+     * A cheap probe of the values a read of the window is built from, for conditional requests.
+     *
+     * @return a version that changes whenever values in the window are stored or deleted, the
+     *     window resolves to other instants or the time series' interval or time zone changes,
+     *     null if it can't be determined
+     */
+    String getDataVersion(String names, String office, ZonedDateTime begin, ZonedDateTime end,
+                          ZonedDateTime versionDate);
+
+    /**
+     * The values in the window whose entry date is after entryDateSince, with the watermark to ask
+     * for the next changes since, taken from the database clock that stamps the entry dates.  Not
+     * paged.  Entries newer than the settle time are left to the next call, so a value is missed
+     * only if its store commits more than the settle time after its entry date.
+     */
+    TimeSeries getTimeseriesChanges(String names, String office, String unit, ZonedDateTime begin,
+                                    ZonedDateTime end, ZonedDateTime versionDate, Instant entryDateSince);
+
     String getTimeseries(String format, String names, String office, String unit, String datum,
                          ZonedDateTime begin, ZonedDateTime end, ZoneId timezone);
 
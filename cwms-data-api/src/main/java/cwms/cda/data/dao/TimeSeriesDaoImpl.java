@@ -1,6 +1,7 @@
 package cwms.cda.data.dao;
 
 import cwms.cda.helpers.DateUtils;
+import cwms.cda.helpers.Settings;
 import static org.jooq.impl.DSL.asterisk;
 import static org.jooq.impl.DSL.countDistinct;
 import static org.jooq.impl.DSL.field;
@@ -12,11 +13,7 @@ import static org.jooq.impl.DSL.selectDistinct;
 import static usace.cwms.db.jooq.codegen.tables.AV_CWMS_TS_ID2.AV_CWMS_TS_ID2;
 import static usace.cwms.db.jooq.codegen.tables.AV_TS_EXTENTS_UTC.AV_TS_EXTENTS_UTC;
 
-import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheStats;
 import cwms.cda.api.enums.UnitSystem;
 import cwms.cda.api.enums.VersionType;
 import cwms.cda.data.dto.Catalog;
@@ -33,17 +30,16 @@ import cwms.cda.data.dto.catalog.TimeseriesCatalogEntry;
 import cwms.cda.formatters.FormattingException;
 import cwms.cda.formatters.xml.XMLv1;
 import java.math.BigDecimal;
-import java.math.BigInteger;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -51,26 +47,31 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jooq.CaseValueStep;
+import org.jooq.CaseWhenStep;
 import org.jooq.CommonTableExpression;
 import org.jooq.Condition;
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.Record;
 import org.jooq.Record1;
+import org.jooq.Record2;
 import org.jooq.Record3;
-import org.jooq.Record7;
+import org.jooq.Record4;
 import org.jooq.Result;
 import org.jooq.SQL;
 import org.jooq.SelectConditionStep;
 import org.jooq.SelectHavingStep;
 import org.jooq.SelectJoinStep;
+import org.jooq.SelectSeekStep1;
 import org.jooq.SelectSeekStep2;
+import org.jooq.SelectSelectStep;
 import org.jooq.Table;
 import org.jooq.TableField;
 import org.jooq.TableLike;
@@ -100,8 +101,8 @@ public class TimeSeriesDaoImpl extends JooqDao<TimeSeries> implements TimeSeries
     public static final String MAX_DATE_TIME = "max_date_time";
     public static final String DEFAULT_UNITS = "def_units";
     public static final String PROP_BASE = "cwms.cda.data.dao.ts";
-
-    public static final String VERSIONED_NAME = "isVersioned";
+    public static final String CHANGES_SETTLE_KEY = "cwms.dataapi.ts.changes.settleSeconds";
+    private static final long CHANGES_SETTLE_SECONDS = Settings.getLong(CHANGES_SETTLE_KEY, 60);
 
     /** To be able to use a named inner table (otherwise JOOQ creates a random alias which messes
      * with the planner) we need to use fixed names to be able to reference the required columns.
@@ -120,14 +121,6 @@ public class TimeSeriesDaoImpl extends JooqDao<TimeSeries> implements TimeSeries
     private static final Field<String> locGroupField = locGroupView.GROUP_ID;
     private static final Field<String> locCategoryField = locGroupView.CATEGORY_ID;
 
-    private static final Cache<List<String>, Boolean> isVersionedCache = CacheBuilder.newBuilder()
-            .maximumSize(Integer.getInteger(PROP_BASE + "." + VERSIONED_NAME
-                    + ".maxSize", 32000))
-            .expireAfterWrite(Integer.getInteger(PROP_BASE + "." + VERSIONED_NAME
-                            + ".expireAfterSeconds", 600), TimeUnit.SECONDS)
-            .recordStats()
-            .build();
-
 
     public TimeSeriesDaoImpl(DSLContext dsl) {
         this(dsl, null);
@@ -137,17 +130,7 @@ public class TimeSeriesDaoImpl extends JooqDao<TimeSeries> implements TimeSeries
         super(dsl);
 
         if (metrics != null) {
-            CacheStats stats = isVersionedCache.stats();
-            String hrName = MetricRegistry.name(this.getClass().getName(), VERSIONED_NAME, "hit-rate");
-            if (metrics.getGauges().get(hrName) == null) {
-                MetricRegistry.MetricSupplier<? extends Gauge> hr = () -> (Gauge<Double>) stats::hitRate;
-                metrics.gauge(hrName, hr);
-            }
-            String mrName = MetricRegistry.name(this.getClass().getName(),VERSIONED_NAME, "miss-rate");
-            if (metrics.getGauges().get(mrName) == null) {
-                MetricRegistry.MetricSupplier<? extends Gauge> mr = () -> (Gauge<Double>) stats::missRate;
-                metrics.gauge(mrName, mr);
-            }
+            TimeSeriesIdentifierCache.registerMetrics(metrics);
         }
     }
 
@@ -167,11 +150,26 @@ public class TimeSeriesDaoImpl extends JooqDao<TimeSeries> implements TimeSeries
                                        String units,
                                        ZonedDateTime beginTime, ZonedDateTime endTime,
                                     ZonedDateTime versionDate, boolean shouldTrim) {
+        return getTimeseries(page, pageSize, names, office, units, beginTime, endTime, versionDate,
+                shouldTrim, null);
+    }
+
+    @Override
+    public TimeSeries getTimeseries(String page, int pageSize, String names, String office,
+                                    String units, ZonedDateTime beginTime, ZonedDateTime endTime,
+                                    ZonedDateTime versionDate, boolean shouldTrim,
+                                    @Nullable TimeSeriesReduction reduction) {
         TimeSeries retVal = null;
         String cursor = null;
         Timestamp tsCursor = null;
         Integer total = null;
 
+        if (reduction != null) {
+            // the reduced series is returned whole, the reduction's size is the limit
+            page = null;
+            pageSize = -1;
+        }
+
         if (page != null && !page.isEmpty()) {
             final String[] parts = CwmsDTOPaginated.decodeCursor(page);
 
@@ -200,59 +198,36 @@ public class TimeSeriesDaoImpl extends JooqDao<TimeSeries> implements TimeSeries
         final String recordCursor = cursor;
         final int recordPageSize = pageSize;
 
-        // Call some stored_procs to validate the user input and get the ts_code and tsid for the provided name.
-        final Field<String> officeId = CWMS_UTIL_PACKAGE.call_GET_DB_OFFICE_ID(
-                office != null ? DSL.val(office) : CWMS_UTIL_PACKAGE.call_USER_OFFICE_ID());
-        final Field<String> tsId = CWMS_TS_PACKAGE.call_GET_TS_ID__2(DSL.val(names), officeId);
-        final Field<BigDecimal> tsCode = CWMS_TS_PACKAGE.call_GET_TS_CODE__2(DSL.val(names), officeId);
-
-        Table<Record3<BigDecimal, String, String>> validTs =
-                select(tsCode.as("tscode"),
-                        tsId.as("tsid"),
-                        officeId.as("office_id")
-                ).asTable("validts");
-        // split the tsId into different parts and get the location and parameter parts
-        Field<String> loc = CWMS_UTIL_PACKAGE.call_SPLIT_TEXT(
-                validTs.field("tsid", String.class),
-                DSL.val(BigInteger.valueOf(1L)), DSL.val("."),
-                DSL.val(BigInteger.valueOf(6L)));
-        Field<String> param = DSL.upper(CWMS_UTIL_PACKAGE.call_SPLIT_TEXT(
-                validTs.field("tsid", String.class),
-                DSL.val(BigInteger.valueOf(2L)), DSL.val("."),
-                DSL.val(BigInteger.valueOf(6L))));
+        // Resolve the identifier up front, its metadata is shared by every request for it and
+        // lets the queries below work with plain values instead of calls into CWMS_TS.
+        final TimeSeriesIdentifierCache.Entry identifier = TimeSeriesIdentifierCache.get(dsl, office, names);
+        final String tsId = identifier.getTsId();
+        final String officeId = identifier.getOfficeId();
+
+        // Values are read in their storage unit and converted here when the conversion is known,
+        // otherwise retrieve_ts_out_tab converts them.
+        UnitConversionTable unitTable = UnitConversionTable.get(dsl);
+        String requestedUnit = requestedUnit(unitTable, identifier, units);
+        String storageUnit = unitTable.getStorageUnit(identifier.getBaseParameterId());
+        UnitConversionTable.Conversion conversion = requestedUnit == null || storageUnit == null
+                ? null : unitTable.find(storageUnit, requestedUnit);
 
         // possibly call another procedure to get the units
-        Field<String> unit = units.compareToIgnoreCase("SI") == 0
-                ||
-                units.compareToIgnoreCase("EN") == 0
+        Field<String> unit = requestedUnit != null
                 ?
+                DSL.val(requestedUnit, String.class)
+                :
                 CWMS_UTIL_PACKAGE.call_GET_DEFAULT_UNITS(
-                        CWMS_TS_PACKAGE.call_GET_BASE_PARAMETER_ID(tsCode),
+                        DSL.val(identifier.getBaseParameterId(), String.class),
                         DSL.val(units, String.class)
-                )
-                :
-                DSL.val(units, String.class);
-
-        // another call to get the interval
-        Field<BigDecimal> ival = CWMS_TS_PACKAGE.call_GET_TS_INTERVAL__2(validTs.field("tsid", String.class));
-
-        // put all those columns together as "valid"
-        CommonTableExpression<Record7<BigDecimal, String, String, String, String, BigDecimal,
-                String>> valid =
-                name("valid").fields("tscode", "tsid", "office_id", "loc_part", "units",
-                                "interval", "parm_part")
-                        .as(
-                                select(
-                                        validTs.field("tscode", BigDecimal.class).as("tscode"),
-                                        validTs.field("tsid", String.class).as("tsid"),
-                                        validTs.field("office_id", String.class).as("office_id"),
-                                        loc.as("loc_part"),
-                                        unit.as("units"),
-                                        ival.as("interval"),
-                                        param.as("parm_part")
-
-                                ).from(validTs)
-                        );
+                );
+        Field<String> readUnit = conversion != null ? DSL.val(storageUnit, String.class) : unit;
+
+        Field<String> verticalDatum = "ELEV".equalsIgnoreCase(identifier.getParameterId())
+                ? CWMS_LOC_PACKAGE.call_GET_VERTICAL_DATUM_INFO_F__2(
+                        DSL.val(identifier.getLocationId(), String.class), unit,
+                        DSL.val(officeId, String.class))
+                : DSL.inline("");
 
         // Give the TVQ (time, value, quality) columns names
         Field<Timestamp> dateTimeCol = field("DATE_TIME", Timestamp.class).as("DATE_TIME");
@@ -286,16 +261,17 @@ public class TimeSeriesDaoImpl extends JooqDao<TimeSeries> implements TimeSeries
                         + "cwms_20.cwms_util.to_timestamp(?), cwms_20.cwms_util.to_timestamp(?), 'UTC',"
                         + "?,?,?,?,?,"
                         + getVersionPart(versionDate) + ",?,?) ) retrieveTs",
-                tsId, unit,
+                tsId, readUnit,
                 beginTimeMilli, endTimeMilli,  //tz hardcoded
                 trim, startInclusive, endInclusive, previous, next,
                 versionDateMilli, maxVersion, officeId);
 
-        Field<String> tzName = AV_CWMS_TS_ID2.TIME_ZONE_ID;
-
         Field<Integer> totalField;
         if (total != null) {
             totalField = DSL.val(total).as("TOTAL");
+        } else if (reduction != null) {
+            // counting would read the window twice, and counts values that aren't returned
+            totalField = DSL.inline(null, Integer.class).as("TOTAL");
         } else {
             // If we don't know the total, fetch it from the database (only for first fetch).
             // Total is only an estimate, as it can change if fetching current data,
@@ -307,65 +283,40 @@ public class TimeSeriesDaoImpl extends JooqDao<TimeSeries> implements TimeSeries
                     "table(cwms_20.cwms_ts.retrieve_ts_out_tab(?,?,"
                             + "cwms_20.cwms_util.to_timestamp(?),cwms_20.cwms_util.to_timestamp(?),"
                             + "'UTC',?,?,?,?,?," + getVersionPart(versionDate) + ",?,?) ) retrieveTsTotal",
-                    valid.field("tsid", String.class),
-                    valid.field("units", String.class),
+                    tsId,
+                    readUnit,
                     beginTimeMilli,
                     endTimeMilli,
                     trim, startInclusive, endInclusive, previous, next, versionDateMilli, maxVersion,
-                    valid.field("office_id", String.class)
+                    officeId
             ));
 
             totalField = DSL.selectCount().from(DSL.table(retrieveSelectCount)).asField("TOTAL");
         }
 
-        SelectJoinStep<?> metadataQuery =
-                dsl.with(valid)
-                        .select(
-                                valid.field("tsid", String.class).as("NAME"),
-                                valid.field("office_id", String.class).as("office_id"),
-                                valid.field("units", String.class).as("units"),
-                                valid.field("interval", BigDecimal.class).as("interval"),
-                                valid.field("loc_part", String.class).as("loc_part"),
-                                valid.field("parm_part", String.class).as("parm_part"),
-                                DSL.choose(valid.field("parm_part", String.class))
-                                        .when(
-                                                "ELEV",
-                                                CWMS_LOC_PACKAGE.call_GET_VERTICAL_DATUM_INFO_F__2(
-                                                        valid.field("loc_part", String.class),
-                                                        valid.field("units", String.class),
-                                                        valid.field("office_id", String.class)))
-                                        .otherwise("")
-                                        .as("VERTICAL_DATUM"),
-                                totalField,
-                                AV_CWMS_TS_ID2.INTERVAL_UTC_OFFSET,
-                                AV_CWMS_TS_ID2.TIME_ZONE_ID
-                        )
-                        .from(valid)
-                        .leftOuterJoin(AV_CWMS_TS_ID2)
-                        .on(
-                                AV_CWMS_TS_ID2.DB_OFFICE_ID.eq(valid.field("office_id",
-                                                String.class))
-                                        .and(AV_CWMS_TS_ID2.TS_CODE.eq(valid.field("tscode",
-                                                BigDecimal.class)))
-                                        .and(AV_CWMS_TS_ID2.ALIASED_ITEM.isNull())
-                        );
+        SelectSelectStep<Record3<String, String, Integer>> metadataQuery =
+                dsl.select(
+                        unit.as("units"),
+                        verticalDatum.as("VERTICAL_DATUM"),
+                        totalField
+                );
 
         logger.fine(() -> metadataQuery.getSQL(ParamType.INLINED));
 
-        VersionType finalDateVersionType = getVersionType(dsl, names, office, versionDate != null);
+        VersionType finalDateVersionType = getVersionType(identifier.isVersioned(), versionDate != null);
         TimeSeries timeseries = metadataQuery.fetchOne(tsMetadata -> {
-            String vert = (String) tsMetadata.getValue("VERTICAL_DATUM");
+            String vert = tsMetadata.getValue("VERTICAL_DATUM", String.class);
             VerticalDatumInfo verticalDatumInfo = parseVerticalDatumInfo(vert);
 
             return new TimeSeries(recordCursor, recordPageSize, tsMetadata.getValue("TOTAL",
-                    Integer.class), tsMetadata.getValue("NAME", String.class),
-                    tsMetadata.getValue("office_id", String.class),
+                    Integer.class), tsId,
+                    officeId,
                     beginTime, endTime, tsMetadata.getValue("units", String.class),
-                    Duration.ofMinutes(tsMetadata.get("interval") == null ? 0 :
-                            tsMetadata.getValue("interval", Long.class)),
+                    reduction != null ? reduction.getInterval()
+                            : Duration.ofMinutes(identifier.getIntervalMinutes()),
                     verticalDatumInfo,
-                    tsMetadata.getValue(AV_CWMS_TS_ID2.INTERVAL_UTC_OFFSET).longValue(),
-                    tsMetadata.getValue(tzName),
+                    reduction != null ? null : identifier.getIntervalUtcOffset(),
+                    identifier.getTimeZoneId(),
                     versionDate, finalDateVersionType
             );
         });
@@ -394,12 +345,32 @@ public class TimeSeriesDaoImpl extends JooqDao<TimeSeries> implements TimeSeries
 
             logger.fine(() -> query.getSQL(ParamType.INLINED));
 
-            query.forEach(tsRecord -> timeseries.addValue(
-                            tsRecord.getValue(dateTimeCol),
-                            tsRecord.getValue(valueCol),
-                            tsRecord.getValue(qualityNormCol).intValue()
-                    )
-            );
+            if (reduction != null) {
+                TimeSeriesReduction.Reducer reducer = reduction.reducer(beginTime, endTime, timeseries);
+                boolean convert = conversion != null && !conversion.isIdentity();
+                // a streaming pass, the raw values of the window are never all held at once
+                try (Cursor<Record3<Timestamp, Double, BigDecimal>> cursor =
+                             query.fetchSize(DEFAULT_FETCH_SIZE).fetchLazy()) {
+                    for (Record3<Timestamp, Double, BigDecimal> tsRecord : cursor) {
+                        Double value = tsRecord.getValue(valueCol);
+                        if (convert && value != null) {
+                            value = conversion.apply(value);
+                        }
+                        reducer.add(tsRecord.getValue(dateTimeCol), value,
+                                tsRecord.getValue(qualityNormCol).intValue());
+                    }
+                }
+                reducer.finish();
+            } else if (conversion == null || conversion.isIdentity()) {
+                query.forEach(tsRecord -> timeseries.addValue(
+                                tsRecord.getValue(dateTimeCol),
+                                tsRecord.getValue(valueCol),
+                                tsRecord.getValue(qualityNormCol).intValue()
+                        )
+                );
+            } else {
+                addConverted(timeseries, query.fetch(), conversion);
+            }
 
             retVal = timeseries;
         }
@@ -407,6 +378,173 @@ public class TimeSeriesDaoImpl extends JooqDao<TimeSeries> implements TimeSeries
         return retVal;
     }
 
+    @Override
+    public String getDataVersion(String names, String office, ZonedDateTime begin, ZonedDateTime end,
+                                 ZonedDateTime versionDate) {
+        TimeSeriesIdentifierCache.Entry identifier = TimeSeriesIdentifierCache.get(dsl, office, names);
+        Timestamp beginTs = Timestamp.from(begin.toInstant());
+        Timestamp endTs = Timestamp.from(end.toInstant());
+        AV_TSV view = AV_TSV.AV_TSV;
+        Condition condition = view.TS_CODE.eq(identifier.getTsCode())
+                .and(view.DATE_TIME.ge(beginTs))
+                .and(view.DATE_TIME.le(endTs))
+                .and(view.START_DATE.le(endTs))
+                .and(view.END_DATE.gt(beginTs));
+        if (versionDate != null) {
+            condition = condition.and(view.VERSION_DATE.eq(Timestamp.from(versionDate.toInstant())));
+        }
+        // a store stamps the values it writes with a new entry date, a delete changes the count
+        Record2<Timestamp, Integer> probe = dsl.select(max(view.DATA_ENTRY_DATE), DSL.count())
+                .from(view)
+                .where(condition)
+                .fetchOne();
+        Timestamp lastEntry = probe == null ? null : probe.value1();
+        int count = probe == null ? 0 : probe.value2();
+        // a relative or default window resolves to other instants with the same query string, and
+        // the identifier's interval and time zone shape the response as much as its values do
+        return identifier.getTsCode() + ":" + identifier.getTsId() + ":"
+                + identifier.getIntervalMinutes() + ":" + identifier.getIntervalUtcOffset() + ":"
+                + identifier.getTimeZoneId() + ":" + begin.toInstant() + ":" + end.toInstant() + ":"
+                + (lastEntry == null ? 0 : lastEntry.getTime()) + ":" + count;
+    }
+
+    /**
+     * @param units a unit, or the unit system EN or SI
+     * @return the unit, null when it is a unit system the table doesn't know the parameter's
+     *     default unit in
+     */
+    @Nullable
+    private static String requestedUnit(UnitConversionTable unitTable,
+                                        TimeSeriesIdentifierCache.Entry identifier, String units) {
+        boolean unitSystem = units.compareToIgnoreCase("SI") == 0
+                || units.compareToIgnoreCase("EN") == 0;
+        return unitSystem
+                ? unitTable.getDefaultUnit(identifier.getBaseParameterId(), units)
+                : units;
+    }
+
+    @Override
+    public TimeSeries getTimeseriesChanges(String names, String office, String units,
+                                           ZonedDateTime begin, ZonedDateTime end,
+                                           ZonedDateTime versionDate, Instant entryDateSince) {
+        TimeSeriesIdentifierCache.Entry identifier = TimeSeriesIdentifierCache.get(dsl, office, names);
+        String tsId = identifier.getTsId();
+        String officeId = identifier.getOfficeId();
+
+        UnitConversionTable unitTable = UnitConversionTable.get(dsl);
+        String unit = requestedUnit(unitTable, identifier, units);
+        if (unit == null) {
+            unit = dsl.select(CWMS_UTIL_PACKAGE.call_GET_DEFAULT_UNITS(
+                            DSL.val(identifier.getBaseParameterId(), String.class),
+                            DSL.val(units, String.class)))
+                    .fetchOne(0, String.class);
+        }
+        String storageUnit = unitTable.getStorageUnit(identifier.getBaseParameterId());
+        UnitConversionTable.Conversion conversion = storageUnit == null
+                ? null : unitTable.find(storageUnit, unit);
+        if (conversion == null) {
+            // the view only knows unit ids, an alias such as "feet" would match nothing
+            unit = dsl.select(CWMS_UTIL_PACKAGE.call_GET_UNIT_ID(
+                            DSL.val(unit, String.class), DSL.val(officeId, String.class)))
+                    .fetchOne(0, String.class);
+            conversion = storageUnit == null ? null : unitTable.find(storageUnit, unit);
+        }
+        String readUnit = conversion != null ? storageUnit : unit;
+
+        AV_TSV_DQU view = AV_TSV_DQU.AV_TSV_DQU;
+        Condition condition = view.CWMS_TS_ID.eq(tsId)
+                .and(view.OFFICE_ID.eq(officeId))
+                .and(view.UNIT_ID.eq(readUnit))
+                .and(view.ALIASED_ITEM.isNull())
+                .and(view.DATE_TIME.ge(Timestamp.from(begin.toInstant())))
+                .and(view.DATE_TIME.le(Timestamp.from(end.toInstant())))
+                .and(view.START_DATE.le(Timestamp.from(end.toInstant())))
+                .and(view.END_DATE.gt(Timestamp.from(begin.toInstant())));
+        if (versionDate != null) {
+            condition = condition.and(view.VERSION_DATE.eq(Timestamp.from(versionDate.toInstant())));
+        }
+
+        // only the latest version of a date is returned, whether or not it is the one that changed
+        Field<Timestamp> maxVersionField = max(view.VERSION_DATE).over(partitionBy(view.DATE_TIME))
+                .as("MAX_VERSION_DATE");
+        SelectConditionStep<? extends Record> innerSelect = dsl.select(view.DATE_TIME, view.VERSION_DATE,
+                        view.DATA_ENTRY_DATE, view.VALUE, view.QUALITY_CODE, maxVersionField)
+                .from(view)
+                .where(condition);
+
+        // Values being stored right now may commit after this query with an entry date before
+        // it, so only entries older than the settle time are considered and the rest are left to
+        // the next poll.  A value committed more than the settle time after its entry date is
+        // behind the watermark by then and is missed.  Entry dates are stamped by the database,
+        // so the watermark is taken from its clock, in the same query as the values.
+        Field<Timestamp> settled = field("sys_extract_utc(systimestamp) - numtodsinterval({0}, 'SECOND')",
+                Timestamp.class, DSL.val(CHANGES_SETTLE_SECONDS));
+        Table<Record1<Timestamp>> watermark = select(DSL.greatest(settled, DSL.val(Timestamp.from(entryDateSince)))
+                .as("UNTIL"))
+                .asTable("WATERMARK");
+        Field<Timestamp> untilField = watermark.field("UNTIL", Timestamp.class);
+
+        Table<? extends Record> changed = select(innerSelect.field(view.DATE_TIME),
+                        innerSelect.field(view.DATA_ENTRY_DATE), innerSelect.field(view.VALUE),
+                        innerSelect.field(view.QUALITY_CODE))
+                .from(innerSelect)
+                .where(innerSelect.field(view.VERSION_DATE).eq(innerSelect.field(maxVersionField)))
+                .and(innerSelect.field(view.DATA_ENTRY_DATE).gt(Timestamp.from(entryDateSince)))
+                .asTable("CHANGED");
+        Field<Timestamp> dateTimeField = changed.field(view.DATE_TIME);
+        Field<Double> valueField = changed.field(view.VALUE);
+        Field<BigDecimal> qualityNormField = CWMS_TS_PACKAGE.call_NORMALIZE_QUALITY(
+                DSL.nvl(changed.field(view.QUALITY_CODE), DSL.inline(5L))).as("QUALITY_NORM");
+        // the watermark is left joined to the values so it is returned when none changed
+        SelectSeekStep1<Record4<Timestamp, Timestamp, Double, BigDecimal>, Timestamp> query =
+                dsl.select(untilField, dateTimeField, valueField, qualityNormField)
+                        .from(watermark)
+                        .leftJoin(changed)
+                        .on(changed.field(view.DATA_ENTRY_DATE).le(untilField))
+                        .orderBy(dateTimeField);
+
+        logger.fine(() -> query.getSQL(ParamType.INLINED));
+
+        Result<Record4<Timestamp, Timestamp, Double, BigDecimal>> result = query.fetch();
+        Instant until = result.get(0).value1().toInstant();
+        List<Record3<Timestamp, Double, BigDecimal>> rows = new ArrayList<>(result.size());
+        for (Record4<Timestamp, Timestamp, Double, BigDecimal> row : result) {
+            if (row.value2() != null) {
+                rows.add(row.into(dateTimeField, valueField, qualityNormField));
+            }
+        }
+        TimeSeries retVal = new TimeSeries(null, -1, rows.size(), tsId, officeId, begin, end, unit,
+                Duration.ofMinutes(identifier.getIntervalMinutes()), null,
+                identifier.getIntervalUtcOffset(), identifier.getTimeZoneId(), versionDate,
+                getVersionType(identifier.isVersioned(), versionDate != null));
+        if (conversion == null || conversion.isIdentity()) {
+            rows.forEach(row -> retVal.addValue(row.value1(), row.value2(), row.value3().intValue()));
+        } else {
+            addConverted(retVal, rows, conversion);
+        }
+        retVal.setNextWatermark(until.atZone(ZoneOffset.UTC));
+        return retVal;
+    }
+
+    /**
+     * Converts the page's values as one block and adds them to the time series.
+     */
+    private static void addConverted(TimeSeries timeseries, List<Record3<Timestamp, Double, BigDecimal>> rows,
+                                     UnitConversionTable.Conversion conversion) {
+        int size = rows.size();
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            Double value = rows.get(i).value2();
+            values[i] = value == null ? Double.NaN : value;
+        }
+        conversion.apply(values, 0, size);
+        for (int i = 0; i < size; i++) {
+            Record3<Timestamp, Double, BigDecimal> row = rows.get(i);
+            timeseries.addValue(row.value1(), row.value2() == null ? null : values[i],
+                    row.value3().intValue());
+        }
+    }
+
     private static String getVersionPart(ZonedDateTime versionDate) {
         if (versionDate != null) {
             return "cwms_20.cwms_util.to_timestamp(?)";
@@ -420,17 +558,25 @@ public class TimeSeriesDaoImpl extends JooqDao<TimeSeries> implements TimeSeries
     }
 
     public static String getTimeZoneId(DSLContext dsl, String tsId, String officeId) {
-        String locationId = TimeSeriesDaoImpl.parseLocFromTimeSeriesId(tsId);
-        return CWMS_LOC_PACKAGE.call_GET_LOCAL_TIMEZONE__2(dsl.configuration(), locationId, officeId);
+        return TimeSeriesIdentifierCache.get(dsl, officeId, tsId).getTimeZoneId();
     }
 
     public static VersionType getVersionType(DSLContext dsl, String names, String office, boolean dateProvided) {
+        if (dateProvided) {
+            return VersionType.SINGLE_VERSION;
+        }
+        return getVersionType(TimeSeriesIdentifierCache.get(dsl, office, names).isVersioned(), false);
+    }
+
+    /**
+     * @param versioned    whether the time series is versioned, e.g. from CWMS_TS.IS_TSID_VERSIONED
+     * @param dateProvided whether a version date was requested
+     */
+    public static VersionType getVersionType(boolean versioned, boolean dateProvided) {
         VersionType dateVersionType;
 
         if (!dateProvided) {
-            boolean isVersioned = isVersioned(dsl, names, office);
-
-            if (isVersioned) {
+            if (versioned) {
                 dateVersionType = VersionType.MAX_AGGREGATE;
             } else {
                 dateVersionType = VersionType.UNVERSIONED;
@@ -443,17 +589,6 @@ public class TimeSeriesDaoImpl extends JooqDao<TimeSeries> implements TimeSeries
         return dateVersionType;
     }
 
-    private static boolean isVersioned(DSLContext dsl, String tsId, String office) {
-        final List<String> cacheKey = Arrays.asList(office, tsId);
-
-        Boolean cachedValue = isVersionedCache.getIfPresent(cacheKey);
-        if (cachedValue == null) {
-            cachedValue = parseBool(CWMS_TS_PACKAGE.call_IS_TSID_VERSIONED(dsl.configuration(), tsId, office));
-            isVersionedCache.put(cacheKey, cachedValue);
-        }
-        return cachedValue;
-    }
-
     // datumInfo comes back like:
     //        <vertical-datum-info office="LRL" unit="m">
     //          <location>Buckhorn</location>
@@ -888,9 +1023,10 @@ public class TimeSeriesDaoImpl extends JooqDao<TimeSeries> implements TimeSeries
                     .over(partitionBy(AV_TSV_DQU.AV_TSV_DQU.TS_CODE))
                     .as(MAX_DATE_TIME);
 
-            Field<String> defUnitsField = CWMS_UTIL_PACKAGE.call_GET_DEFAULT_UNITS(
-                    CWMS_TS_PACKAGE.call_GET_BASE_PARAMETER_ID(AV_TSV_DQU.AV_TSV_DQU.TS_CODE),
-                    DSL.val(unitSystem, String.class))
+            Field<String> defUnitsField = defaultUnitField(AV_TSV_DQU.AV_TSV_DQU.CWMS_TS_ID,
+                    CWMS_UTIL_PACKAGE.call_GET_DEFAULT_UNITS(
+                            CWMS_TS_PACKAGE.call_GET_BASE_PARAMETER_ID(AV_TSV_DQU.AV_TSV_DQU.TS_CODE),
+                            DSL.val(unitSystem, String.class)), unitSystem)
                     .as(DEFAULT_UNITS);
 
             SelectConditionStep<? extends Record> innerSelect = dsl.select(
@@ -958,6 +1094,29 @@ public class TimeSeriesDaoImpl extends JooqDao<TimeSeries> implements TimeSeries
     }
 
 
+    /**
+     * The default unit of each row's base parameter as a CASE over the cached unit table, so
+     * CWMS_UTIL.GET_DEFAULT_UNITS is only called for rows whose base parameter it doesn't know.
+     * @param tsId     the time series identifier column
+     * @param fallback the database lookup of the default unit
+     */
+    private Field<String> defaultUnitField(Field<String> tsId, Field<String> fallback, UnitSystem unitSystem) {
+        Map<String, String> defaultUnits = UnitConversionTable.get(dsl).getDefaultUnits(unitSystem.getValue());
+        if (defaultUnits.isEmpty()) {
+            return fallback;
+        }
+        Field<String> baseParameter = DSL.upper(DSL.field(
+                "regexp_substr({0}, '^[^.]+\\.([^.-]+)', 1, 1, null, 1)", String.class, tsId));
+        CaseValueStep<String> choose = DSL.choose(baseParameter);
+        CaseWhenStep<String, String> when = null;
+        for (Map.Entry<String, String> entry : defaultUnits.entrySet()) {
+            Field<String> parameter = DSL.inline(entry.getKey());
+            Field<String> unit = DSL.inline(entry.getValue());
+            when = when == null ? choose.when(parameter, unit) : when.when(parameter, unit);
+        }
+        return when.otherwise(fallback);
+    }
+
     @NotNull
     private RecentValue buildRecentValue(AV_TSV_DQU tsvView, Record jrecord, String tsColumnName) {
 
@@ -1008,9 +1167,10 @@ public class TimeSeriesDaoImpl extends JooqDao<TimeSeries> implements TimeSeries
             whereCondition = whereCondition.and(AV_TS_GRP_ASSGN.AV_TS_GRP_ASSGN.GROUP_ID.eq(groupId));
         }
 
-        Field<String> defUnitsField = CWMS_UTIL_PACKAGE.call_GET_DEFAULT_UNITS(
-                        CWMS_TS_PACKAGE.call_GET_BASE_PARAMETER_ID(AV_TSV_DQU.AV_TSV_DQU.TS_CODE),
-                        DSL.val(unitSystem, String.class))
+        Field<String> defUnitsField = defaultUnitField(tsvView.CWMS_TS_ID,
+                        CWMS_UTIL_PACKAGE.call_GET_DEFAULT_UNITS(
+                                CWMS_TS_PACKAGE.call_GET_BASE_PARAMETER_ID(AV_TSV_DQU.AV_TSV_DQU.TS_CODE),
+                                DSL.val(unitSystem, String.class)), unitSystem)
                 .as(DEFAULT_UNITS);
         Field<Timestamp> maxDateTimeField = max(tsvView.DATE_TIME).over(partitionBy(tsvView.TS_CODE))
                 .as(MAX_DATE_TIME);
@@ -1142,6 +1302,7 @@ public class TimeSeriesDaoImpl extends JooqDao<TimeSeries> implements TimeSeries
             try {
                 CWMS_TS_PACKAGE.call_SET_TSID_VERSIONED(getDslContext(connection, officeId).configuration(),
                         tsId, "T", officeId);
+                TimeSeriesIdentifierCache.invalidate(officeId, tsId);
             } catch (DataAccessException e) {
                 if (e.getCause() instanceof SQLException) {
                     SQLException cause = (SQLException)e.getCause();
@@ -1170,7 +1331,7 @@ public class TimeSeriesDaoImpl extends JooqDao<TimeSeries> implements TimeSeries
     public void update(TimeSeries input, boolean createAsLrts, StoreRule storeRule,
                        Timestamp versionDate, boolean overrideProtection) throws SQLException {
         String name = input.getName();
-        if (!timeseriesExists(name)) {
+        if (!TimeSeriesIdentifierCache.find(dsl, input.getOfficeId(), name).isPresent()) {
             throw new SQLException("Cannot update a non-existant Timeseries. Create " + name + " "
                     + "first.");
         }
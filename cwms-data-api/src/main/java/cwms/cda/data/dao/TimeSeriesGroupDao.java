@@ -26,6 +26,7 @@ package cwms.cda.data.dao;
 
 import static java.util.stream.Collectors.toList;
 
+import com.codahale.metrics.MetricRegistry;
 import cwms.cda.data.dto.AssignedTimeSeries;
 import cwms.cda.data.dto.TimeSeriesCategory;
 import cwms.cda.data.dto.TimeSeriesGroup;
@@ -34,6 +35,8 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
 import java.util.logging.Logger;
 import kotlin.Pair;
 import org.jetbrains.annotations.NotNull;
@@ -43,6 +46,7 @@ import org.jooq.impl.DSL;
 import usace.cwms.db.jooq.codegen.packages.CWMS_TS_PACKAGE;
 import usace.cwms.db.jooq.codegen.tables.AV_TS_CAT_GRP;
 import usace.cwms.db.jooq.codegen.tables.AV_TS_GRP_ASSGN;
+import usace.cwms.db.jooq.codegen.udt.records.STR_TAB_T;
 import usace.cwms.db.jooq.codegen.udt.records.TS_ALIAS_T;
 import usace.cwms.db.jooq.codegen.udt.records.TS_ALIAS_TAB_T;
 
@@ -51,6 +55,10 @@ public class TimeSeriesGroupDao extends JooqDao<TimeSeriesGroup> {
     private static final Logger logger = Logger.getLogger(TimeSeriesGroupDao.class.getName());
     public static final String CWMS = "CWMS";
 
+    private static final GroupDirectory.Source<TimeSeriesGroup, AssignedTimeSeries> DIRECTORY =
+            new GroupDirectory.Source<>(dsl -> new TimeSeriesGroupDao(dsl).loadDirectory(),
+                    TimeSeriesGroupDao::probeDirectory);
+
     public TimeSeriesGroupDao(DSLContext dsl) {
         super(dsl);
     }
@@ -60,6 +68,12 @@ public class TimeSeriesGroupDao extends JooqDao<TimeSeriesGroup> {
     }
 
     public List<TimeSeriesGroup> getTimeSeriesGroups(String tsOfficeId, String groupOfficeId, String categoryOfficeId) {
+        GroupDirectory<TimeSeriesGroup, AssignedTimeSeries> directory = DIRECTORY.get(dsl);
+        if (directory != null) {
+            return selectJoined(directory, g -> tsOfficeId == null || tsOfficeId.equals(g.groupOfficeId),
+                    tsOfficeId, groupOfficeId, categoryOfficeId);
+        }
+
         Condition whereCond = DSL.noCondition();
         if (tsOfficeId != null) {
             whereCond = AV_TS_CAT_GRP.AV_TS_CAT_GRP.GRP_DB_OFFICE_ID.eq(tsOfficeId);
@@ -70,6 +84,20 @@ public class TimeSeriesGroupDao extends JooqDao<TimeSeriesGroup> {
 
     public List<TimeSeriesGroup> getTimeSeriesGroups(String tsOfficeId, String groupOfficeId, String categoryOfficeId,
             boolean includeAssigned, String tsCategoryLike, String tsGroupLike) {
+        GroupDirectory<TimeSeriesGroup, AssignedTimeSeries> directory = DIRECTORY.get(dsl);
+        if (directory != null) {
+            Predicate<String> category = tsCategoryLike == null ? c -> true
+                    : GroupDirectory.likeRegex(tsCategoryLike);
+            Predicate<String> group = tsGroupLike == null ? Objects::nonNull
+                    : GroupDirectory.likeRegex(tsGroupLike);
+            Predicate<GroupDirectory.Group<TimeSeriesGroup, AssignedTimeSeries>> filter =
+                    g -> category.test(g.categoryId) && group.test(g.groupId);
+            if (includeAssigned) {
+                return selectJoined(directory, filter, tsOfficeId, groupOfficeId, categoryOfficeId);
+            } else {
+                return directory.groups(filter);
+            }
+        }
 
         Condition whereCond = DSL.noCondition();
 
@@ -96,10 +124,98 @@ public class TimeSeriesGroupDao extends JooqDao<TimeSeriesGroup> {
 
     public List<TimeSeriesGroup> getTimeSeriesGroups(String tsOfficeId, String groupOfficeId, String categoryOfficeId,
             String categoryId, String groupId) {
+        GroupDirectory<TimeSeriesGroup, AssignedTimeSeries> directory = DIRECTORY.get(dsl);
+        if (directory != null) {
+            return selectJoined(directory,
+                    g -> (categoryId == null || categoryId.isEmpty() || categoryId.equals(g.categoryId))
+                            && (groupId == null || groupId.isEmpty() || groupId.equals(g.groupId)),
+                    tsOfficeId, groupOfficeId, categoryOfficeId);
+        }
         return getTimeSeriesGroupsWhere(buildWhereCondition(categoryId, groupId), tsOfficeId, groupOfficeId,
                 categoryOfficeId);
     }
 
+    /**
+     * Get the time series groups a time series is assigned to.
+     * @param officeId The office of the time series.
+     * @param timeSeriesId The time series id, in any case.
+     * @return The groups the time series is assigned to, without their assigned time series.
+     */
+    public List<TimeSeriesGroup> getTimeSeriesGroupsOf(@NotNull String officeId, @NotNull String timeSeriesId) {
+        GroupDirectory<TimeSeriesGroup, AssignedTimeSeries> directory = DIRECTORY.get(dsl);
+        if (directory != null) {
+            return directory.groupsOf(officeId, timeSeriesId);
+        }
+
+        AV_TS_CAT_GRP catGrp = AV_TS_CAT_GRP.AV_TS_CAT_GRP;
+        AV_TS_GRP_ASSGN grpAssgn = AV_TS_GRP_ASSGN.AV_TS_GRP_ASSGN;
+        return dsl.selectDistinct(catGrp.CAT_DB_OFFICE_ID, catGrp.TS_CATEGORY_ID, catGrp.TS_CATEGORY_DESC,
+                        catGrp.GRP_DB_OFFICE_ID, catGrp.TS_GROUP_ID, catGrp.TS_GROUP_DESC,
+                        catGrp.SHARED_TS_ALIAS_ID, catGrp.SHARED_REF_TS_ID)
+                .from(catGrp).join(grpAssgn)
+                .on(catGrp.TS_CATEGORY_ID.eq(grpAssgn.CATEGORY_ID)
+                        .and(catGrp.TS_GROUP_ID.eq(grpAssgn.GROUP_ID)))
+                .where(DSL.upper(grpAssgn.DB_OFFICE_ID).eq(officeId.toUpperCase()))
+                .and(DSL.upper(grpAssgn.TS_ID).eq(timeSeriesId.toUpperCase()))
+                .orderBy(catGrp.TS_CATEGORY_ID, catGrp.TS_GROUP_ID)
+                .fetch(this::buildTimeSeriesGroup);
+    }
+
+    /**
+     * The group directory equivalent of {@link #getTimeSeriesGroupsWhere}, which filters the
+     * assignments by office in the join rather than the where clause.
+     */
+    private static List<TimeSeriesGroup> selectJoined(
+            GroupDirectory<TimeSeriesGroup, AssignedTimeSeries> directory,
+            Predicate<GroupDirectory.Group<TimeSeriesGroup, AssignedTimeSeries>> filter,
+            String tsOfficeId, String groupOfficeId, String categoryOfficeId) {
+        return directory.selectJoined(g -> filter.test(g)
+                        && (categoryOfficeId == null || categoryOfficeId.toUpperCase().equals(g.categoryOfficeId))
+                        && (groupOfficeId == null || groupOfficeId.toUpperCase().equals(g.groupOfficeId)),
+                o -> tsOfficeId == null || tsOfficeId.equals(o), TimeSeriesGroup::new);
+    }
+
+    private List<GroupDirectory.Group<TimeSeriesGroup, AssignedTimeSeries>> loadDirectory() {
+        AV_TS_CAT_GRP catGrp = AV_TS_CAT_GRP.AV_TS_CAT_GRP;
+        AV_TS_GRP_ASSGN grpAssgn = AV_TS_GRP_ASSGN.AV_TS_GRP_ASSGN;
+
+        Map<TimeSeriesGroup, GroupDirectory.Group<TimeSeriesGroup, AssignedTimeSeries>> groups =
+                new LinkedHashMap<>();
+        dsl.select(catGrp.CAT_DB_OFFICE_ID,
+                        catGrp.TS_CATEGORY_ID, catGrp.TS_CATEGORY_DESC, catGrp.GRP_DB_OFFICE_ID,
+                        catGrp.TS_GROUP_ID, catGrp.TS_GROUP_DESC, catGrp.SHARED_TS_ALIAS_ID,
+                        catGrp.SHARED_REF_TS_ID, grpAssgn.CATEGORY_ID, grpAssgn.DB_OFFICE_ID,
+                        grpAssgn.GROUP_ID, grpAssgn.TS_ID, grpAssgn.TS_CODE, grpAssgn.ATTRIBUTE,
+                        grpAssgn.ALIAS_ID, grpAssgn.REF_TS_ID, grpAssgn.CATEGORY_OFFICE_ID, grpAssgn.GROUP_OFFICE_ID)
+                .from(catGrp).leftJoin(grpAssgn)
+                .on(catGrp.TS_CATEGORY_ID.eq(grpAssgn.CATEGORY_ID)
+                        .and(catGrp.TS_GROUP_ID.eq(grpAssgn.GROUP_ID)))
+                .fetchSize(DEFAULT_FETCH_SIZE)
+                .forEach(queryRecord -> {
+                    TimeSeriesGroup group = buildTimeSeriesGroup(queryRecord);
+                    GroupDirectory.Group<TimeSeriesGroup, AssignedTimeSeries> entry = groups.computeIfAbsent(group,
+                        g -> new GroupDirectory.Group<>(g, queryRecord.get(catGrp.CAT_DB_OFFICE_ID),
+                                queryRecord.get(catGrp.TS_CATEGORY_ID), queryRecord.get(catGrp.GRP_DB_OFFICE_ID),
+                                queryRecord.get(catGrp.TS_GROUP_ID), queryRecord.get(catGrp.SHARED_REF_TS_ID)));
+                    AssignedTimeSeries ts = buildAssignedTimeSeries(queryRecord);
+                    if (ts != null) {
+                        entry.add(ts, ts.getOfficeId(), ts.getTimeseriesId(), ts.getAttribute());
+                    }
+                });
+        return new ArrayList<>(groups.values());
+    }
+
+    private static String probeDirectory(DSLContext dsl) {
+        AV_TS_CAT_GRP catGrp = AV_TS_CAT_GRP.AV_TS_CAT_GRP;
+        AV_TS_GRP_ASSGN grpAssgn = AV_TS_GRP_ASSGN.AV_TS_GRP_ASSGN;
+        return GroupDirectory.probe(dsl, catGrp, catGrp.CAT_DB_OFFICE_ID, catGrp.TS_CATEGORY_ID,
+                        catGrp.TS_CATEGORY_DESC, catGrp.GRP_DB_OFFICE_ID, catGrp.TS_GROUP_ID, catGrp.TS_GROUP_DESC,
+                        catGrp.SHARED_TS_ALIAS_ID, catGrp.SHARED_REF_TS_ID)
+                + "/" + GroupDirectory.probe(dsl, grpAssgn, grpAssgn.DB_OFFICE_ID, grpAssgn.CATEGORY_ID,
+                        grpAssgn.GROUP_ID, grpAssgn.TS_ID, grpAssgn.ALIAS_ID, grpAssgn.ATTRIBUTE,
+                        grpAssgn.REF_TS_ID);
+    }
+
     @NotNull
     private List<TimeSeriesGroup> getTimeSeriesGroupsWhere(Condition whereCond, String tsOfficeId, String groupOfficeId,
             String categoryOfficeId) {
@@ -248,6 +364,7 @@ public class TimeSeriesGroupDao extends JooqDao<TimeSeriesGroup> {
                 getDslContext(c,office).configuration(), categoryId, groupId, office
             )
         );
+        DIRECTORY.invalidate();
     }
 
     public void create(TimeSeriesGroup group, boolean failIfExists) {
@@ -260,6 +377,7 @@ public class TimeSeriesGroupDao extends JooqDao<TimeSeriesGroup> {
                 group.getSharedRefTsId(), group.getOfficeId());
             assignTs(configuration,group, group.getOfficeId());
         });
+        DIRECTORY.invalidate();
     }
 
     private void assignTs(Configuration configuration,TimeSeriesGroup group, String office) {
@@ -276,6 +394,7 @@ public class TimeSeriesGroupDao extends JooqDao<TimeSeriesGroup> {
 
     public void assignTs(TimeSeriesGroup group, String office) {
         connection(dsl, c -> assignTs(getDslContext(c, office).configuration(),group, office));
+        DIRECTORY.invalidate();
     }
 
     private static TS_ALIAS_T convertToTsAliasType(AssignedTimeSeries assignedTimeSeries) {
@@ -291,6 +410,69 @@ public class TimeSeriesGroupDao extends JooqDao<TimeSeriesGroup> {
                 group.getTimeSeriesCategory().getId(), oldGroupId, group.getId(),
                 group.getOfficeId())
         );
+        DIRECTORY.invalidate();
+    }
+
+    /**
+     * Brings the group's assignments for the office to those of the group, applying only what
+     * differs from the stored assignments, in batches, on one connection.
+     *
+     * @param group   the group with the requested assignments
+     * @param office  the office whose assignments are updated
+     * @param replace whether assigned time series missing from the group are unassigned
+     * @param metrics where the progress of the update is counted
+     * @return what was changed
+     */
+    public GroupAssignmentDiff updateAssignedTs(TimeSeriesGroup group, String office, boolean replace,
+                                                MetricRegistry metrics) {
+        List<AssignedTimeSeries> assignedTimeSeries = group.getAssignedTimeSeries();
+        List<GroupAssignmentDiff.Assignment> requested = assignedTimeSeries == null ? new ArrayList<>()
+                : assignedTimeSeries.stream()
+                    .map(a -> new GroupAssignmentDiff.Assignment(a.getTimeseriesId(), a.getAliasId(),
+                            a.getAttribute(), a.getRefTsId()))
+                    .collect(toList());
+        String categoryId = group.getTimeSeriesCategory().getId();
+        GroupAssignmentDiff diff = connectionResult(dsl, c -> {
+            DSLContext dslContext = getDslContext(c, office);
+            GroupAssignmentDiff changes = GroupAssignmentDiff.between(
+                    storedAssignments(dslContext, group, office), requested, replace);
+            Configuration config = dslContext.configuration();
+            changes.apply(GroupAssignmentDiff.batchSize(),
+                    ids -> CWMS_TS_PACKAGE.call_UNASSIGN_TS_GROUPS(config, categoryId, group.getId(),
+                            new STR_TAB_T(ids), "F", office),
+                    batch -> CWMS_TS_PACKAGE.call_ASSIGN_TS_GROUPS(config, categoryId, group.getId(),
+                            new TS_ALIAS_TAB_T(batch.stream()
+                                    .map(a -> new TS_ALIAS_T(a.id, a.attribute, a.aliasId, a.refId))
+                                    .collect(toList())), office),
+                    metrics, TimeSeriesGroupDao.class);
+            return changes;
+        });
+        if (!diff.isEmpty()) {
+            DIRECTORY.invalidate();
+        }
+        return diff;
+    }
+
+    private static List<GroupAssignmentDiff.Assignment> storedAssignments(DSLContext dslContext,
+                                                                          TimeSeriesGroup group, String office) {
+        AV_TS_GRP_ASSGN grpAssgn = AV_TS_GRP_ASSGN.AV_TS_GRP_ASSGN;
+        TimeSeriesCategory cat = group.getTimeSeriesCategory();
+        Condition owners = DSL.noCondition();
+        if (cat.getOfficeId() != null) {
+            owners = owners.and(grpAssgn.CATEGORY_OFFICE_ID.eq(cat.getOfficeId()));
+        }
+        if (group.getOfficeId() != null) {
+            owners = owners.and(grpAssgn.GROUP_OFFICE_ID.eq(group.getOfficeId()));
+        }
+        return dslContext.select(grpAssgn.TS_ID, grpAssgn.ALIAS_ID, grpAssgn.ATTRIBUTE, grpAssgn.REF_TS_ID)
+                .from(grpAssgn)
+                .where(grpAssgn.CATEGORY_ID.eq(cat.getId()))
+                .and(grpAssgn.GROUP_ID.eq(group.getId()))
+                .and(grpAssgn.DB_OFFICE_ID.eq(office))
+                .and(owners)
+                .fetchSize(DEFAULT_FETCH_SIZE)
+                .fetch(r -> new GroupAssignmentDiff.Assignment(r.get(grpAssgn.TS_ID), r.get(grpAssgn.ALIAS_ID),
+                        r.get(grpAssgn.ATTRIBUTE), r.get(grpAssgn.REF_TS_ID)));
     }
 
     public void unassignAllTs(TimeSeriesGroup group, String officeId) {
@@ -300,6 +482,7 @@ public class TimeSeriesGroupDao extends JooqDao<TimeSeriesGroup> {
                 group.getTimeSeriesCategory().getId(), group.getId(),
                 null, "T", officeId)
         );
+        DIRECTORY.invalidate();
     }
 
 
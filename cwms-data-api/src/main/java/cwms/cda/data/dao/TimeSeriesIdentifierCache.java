@@ -0,0 +1,236 @@
+package cwms.cda.data.dao;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import cwms.cda.api.errors.NotFoundException;
+import cwms.cda.helpers.Settings;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.Nullable;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+import usace.cwms.db.jooq.codegen.packages.CWMS_TS_PACKAGE;
+import usace.cwms.db.jooq.codegen.packages.CWMS_UTIL_PACKAGE;
+import usace.cwms.db.jooq.codegen.tables.AV_CWMS_TS_ID;
+
+/**
+ * Shared cache of what the time series paths need to know about a time series identifier before
+ * they read any data: ts_code, canonical id, interval, UTC offset, time zone, versioned flag and
+ * base parameter.  A miss is resolved with a single query, aliases and case differences are
+ * resolved by CWMS_TS.GET_TS_CODE.
+ *
+ * <p>Entries are keyed by office and upper case id.  Writes through this instance invalidate the
+ * affected entries, other instances pick up changes when their entry expires.  Identifiers that
+ * don't exist are not cached, so a newly created time series is seen immediately.
+ */
+public final class TimeSeriesIdentifierCache {
+
+    public static final String NAME = "tsIdentifier";
+    public static final String MAX_SIZE_KEY = TimeSeriesDaoImpl.PROP_BASE + "." + NAME + ".maxSize";
+    public static final String EXPIRE_KEY = TimeSeriesDaoImpl.PROP_BASE + "." + NAME + ".expireAfterSeconds";
+
+    private static final AV_CWMS_TS_ID view = AV_CWMS_TS_ID.AV_CWMS_TS_ID;
+
+    private static final Cache<List<String>, Entry> cache = CacheBuilder.newBuilder()
+            .maximumSize(Settings.getLong(MAX_SIZE_KEY, 32000))
+            .expireAfterWrite(Settings.getLong(EXPIRE_KEY, 600), TimeUnit.SECONDS)
+            .recordStats()
+            .build();
+
+    private TimeSeriesIdentifierCache() {
+    }
+
+    /**
+     * @param dsl    used to resolve a miss
+     * @param office the office, null for the session's office.  Lookups without an office are
+     *               resolved every time but still populate the cache for the resolved office.
+     * @param tsId   the time series identifier or alias, in any case
+     * @return the identifier's metadata, empty if it does not exist
+     */
+    public static Optional<Entry> find(DSLContext dsl, @Nullable String office, String tsId) {
+        if (office != null) {
+            Entry cached = cache.getIfPresent(key(office, tsId));
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+        }
+        Optional<Entry> retVal = load(dsl, office, tsId);
+        retVal.ifPresent(entry -> {
+            cache.put(key(entry.getOfficeId(), tsId), entry);
+            cache.put(key(entry.getOfficeId(), entry.getTsId()), entry);
+        });
+        return retVal;
+    }
+
+    /**
+     * @see #find(DSLContext, String, String)
+     * @throws NotFoundException if the time series identifier does not exist
+     */
+    public static Entry get(DSLContext dsl, @Nullable String office, String tsId) {
+        return find(dsl, office, tsId)
+                .orElseThrow(() -> new NotFoundException("Time series identifier not found: " + tsId));
+    }
+
+    /**
+     * Drops the cached entries of a time series, under any id they were looked up by.
+     * @param office the office, null to drop the time series in every office
+     * @param tsId   the time series identifier that was written, renamed or deleted
+     */
+    public static void invalidate(@Nullable String office, String tsId) {
+        String id = tsId.toUpperCase(Locale.ROOT);
+        String officeKey = office == null ? null : office.toUpperCase(Locale.ROOT);
+        cache.asMap().entrySet().removeIf(e -> (officeKey == null || officeKey.equals(e.getKey().get(0)))
+                && (id.equals(e.getKey().get(1)) || id.equalsIgnoreCase(e.getValue().getTsId())));
+    }
+
+    /**
+     * Drops every cached time series of a location, e.g. after it was renamed or its time zone
+     * changed.
+     * @param office     the office, null for every office
+     * @param locationId the location
+     */
+    public static void invalidateLocation(@Nullable String office, String locationId) {
+        String prefix = locationId.toUpperCase(Locale.ROOT) + ".";
+        String officeKey = office == null ? null : office.toUpperCase(Locale.ROOT);
+        cache.asMap().entrySet().removeIf(e -> (officeKey == null || officeKey.equals(e.getKey().get(0)))
+                && (e.getKey().get(1).startsWith(prefix)
+                        || e.getValue().getTsId().toUpperCase(Locale.ROOT).startsWith(prefix)));
+    }
+
+    /**
+     * Registers hit and miss rate gauges, once per registry.
+     */
+    public static void registerMetrics(MetricRegistry metrics) {
+        String hrName = MetricRegistry.name(TimeSeriesIdentifierCache.class.getName(), NAME, "hit-rate");
+        if (metrics.getGauges().get(hrName) == null) {
+            MetricRegistry.MetricSupplier<? extends Gauge> hr = () -> (Gauge<Double>) () -> cache.stats().hitRate();
+            metrics.gauge(hrName, hr);
+        }
+        String mrName = MetricRegistry.name(TimeSeriesIdentifierCache.class.getName(), NAME, "miss-rate");
+        if (metrics.getGauges().get(mrName) == null) {
+            MetricRegistry.MetricSupplier<? extends Gauge> mr = () -> (Gauge<Double>) () -> cache.stats().missRate();
+            metrics.gauge(mrName, mr);
+        }
+    }
+
+    private static List<String> key(String office, String tsId) {
+        return Arrays.asList(office.toUpperCase(Locale.ROOT), tsId.toUpperCase(Locale.ROOT));
+    }
+
+    private static Optional<Entry> load(DSLContext dsl, @Nullable String office, String tsId) {
+        Field<String> officeId = CWMS_UTIL_PACKAGE.call_GET_DB_OFFICE_ID(
+                office != null ? DSL.val(office) : CWMS_UTIL_PACKAGE.call_USER_OFFICE_ID());
+        try {
+            return dsl.select(view.TS_CODE, view.CWMS_TS_ID, view.DB_OFFICE_ID, view.INTERVAL,
+                            view.INTERVAL_UTC_OFFSET, view.TIME_ZONE_ID, view.VERSION_FLAG,
+                            view.BASE_PARAMETER_ID)
+                    .from(view)
+                    // evaluated once, rather than per row of the view
+                    .where(view.TS_CODE.eq(DSL.field(DSL.select(
+                            CWMS_TS_PACKAGE.call_GET_TS_CODE__2(DSL.val(tsId), officeId)))))
+                    .fetchOptional()
+                    .map(TimeSeriesIdentifierCache::toEntry);
+        } catch (DataAccessException ex) {
+            if (JooqDao.isNotFound(ex)) {
+                return Optional.empty();
+            }
+            throw ex;
+        }
+    }
+
+    private static Entry toEntry(Record row) {
+        Number tsCode = row.get(view.TS_CODE);
+        Number interval = row.get(view.INTERVAL);
+        Number utcOffset = row.get(view.INTERVAL_UTC_OFFSET);
+        return new Entry(tsCode.longValue(), row.get(view.CWMS_TS_ID), row.get(view.DB_OFFICE_ID),
+                interval == null ? 0 : interval.longValue(),
+                utcOffset == null ? null : utcOffset.longValue(),
+                row.get(view.TIME_ZONE_ID), JooqDao.parseBool(row.get(view.VERSION_FLAG)),
+                row.get(view.BASE_PARAMETER_ID));
+    }
+
+    /**
+     * The cached metadata of one time series identifier.
+     */
+    public static final class Entry {
+        private final long tsCode;
+        private final String tsId;
+        private final String officeId;
+        private final long intervalMinutes;
+        private final Long intervalUtcOffset;
+        private final String timeZoneId;
+        private final boolean versioned;
+        private final String baseParameterId;
+
+        Entry(long tsCode, String tsId, String officeId, long intervalMinutes, Long intervalUtcOffset,
+              String timeZoneId, boolean versioned, String baseParameterId) {
+            this.tsCode = tsCode;
+            this.tsId = tsId;
+            this.officeId = officeId;
+            this.intervalMinutes = intervalMinutes;
+            this.intervalUtcOffset = intervalUtcOffset;
+            this.timeZoneId = timeZoneId;
+            this.versioned = versioned;
+            this.baseParameterId = baseParameterId;
+        }
+
+        public long getTsCode() {
+            return tsCode;
+        }
+
+        /**
+         * @return the identifier as stored, which may differ in case or be the target of an alias
+         */
+        public String getTsId() {
+            return tsId;
+        }
+
+        public String getOfficeId() {
+            return officeId;
+        }
+
+        /**
+         * @return the interval in minutes, 0 for irregular time series
+         */
+        public long getIntervalMinutes() {
+            return intervalMinutes;
+        }
+
+        @Nullable
+        public Long getIntervalUtcOffset() {
+            return intervalUtcOffset;
+        }
+
+        /**
+         * @return the time zone of the time series' location
+         */
+        @Nullable
+        public String getTimeZoneId() {
+            return timeZoneId;
+        }
+
+        public boolean isVersioned() {
+            return versioned;
+        }
+
+        public String getBaseParameterId() {
+            return baseParameterId;
+        }
+
+        public String getLocationId() {
+            return TimeSeriesDaoImpl.parseLocFromTimeSeriesId(tsId);
+        }
+
+        public String getParameterId() {
+            return tsId.split("\\.")[1];
+        }
+    }
+}
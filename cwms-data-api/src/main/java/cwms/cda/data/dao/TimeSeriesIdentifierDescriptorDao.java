@@ -63,6 +63,8 @@ public class TimeSeriesIdentifierDescriptorDao extends JooqDao<TimeSeriesIdentif
                 formatBool(failIfExists), tsid.getOfficeId());
             logger.atFine().log("Created tsCode: %s for %s", tsCode, tsid.getTimeSeriesId());
         });
+        // without failIfExists an existing identifier may have been updated
+        TimeSeriesIdentifierCache.invalidate(tsid.getOfficeId(), tsid.getTimeSeriesId());
     }
 
     public TimeSeriesIdentifierDescriptors getTimeSeriesIdentifiers(String cursor, int pageSize, String office,
@@ -176,6 +178,7 @@ public class TimeSeriesIdentifierDescriptorDao extends JooqDao<TimeSeriesIdentif
             CwmsDbTs tsDao = CwmsDbServiceLookup.buildCwmsDb(CwmsDbTs.class, connection);
             tsDao.updateTsId(connection, office, timeseriesId, utcOffsetMinutes, intervalForward, intervalBackward, activeFlag);
         });
+        TimeSeriesIdentifierCache.invalidate(office, timeseriesId);
 
     }
 
@@ -189,7 +192,8 @@ public class TimeSeriesIdentifierDescriptorDao extends JooqDao<TimeSeriesIdentif
                         officeId);
             }
         });
-        
+        TimeSeriesIdentifierCache.invalidate(officeId, origId);
+        TimeSeriesIdentifierCache.invalidate(officeId, newId);
     }
 
     public void delete(String office, String timeseriesId, DeleteMethod method) {
@@ -215,6 +219,7 @@ public class TimeSeriesIdentifierDescriptorDao extends JooqDao<TimeSeriesIdentif
             CwmsDbTs tsDao = CwmsDbServiceLookup.buildCwmsDb(CwmsDbTs.class, connection);
             tsDao.deleteAll(connection, officeId, tsId);
         });
+        TimeSeriesIdentifierCache.invalidate(officeId, tsId);
     }
 
     public void deleteData(String officeId, String tsId) {
@@ -231,5 +236,6 @@ public class TimeSeriesIdentifierDescriptorDao extends JooqDao<TimeSeriesIdentif
             CwmsDbTs tsDao = CwmsDbServiceLookup.buildCwmsDb(CwmsDbTs.class, connection);
             tsDao.deleteKey(connection, officeId, tsId);
         });
+        TimeSeriesIdentifierCache.invalidate(officeId, tsId);
     }
 }
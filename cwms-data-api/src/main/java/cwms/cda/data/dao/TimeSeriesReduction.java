@@ -0,0 +1,178 @@
+package cwms.cda.data.dao;
+
+import cwms.cda.data.dto.TimeSeries;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * How a time series read is reduced before it is returned: aggregated into calendar intervals, or
+ * decimated to a number of points for charting.  The values are reduced as they are read from
+ * the cursor, so neither the read values nor the response grow with the length of the window.
+ *
+ * <p>Values that are missing, or screened and rejected, are left out.  An aggregate is
+ * questionable if any value it includes is, and okay only if every value it includes was
+ * screened okay.
+ */
+public final class TimeSeriesReduction {
+
+    /**
+     * More points than any chart can show, and well short of the counts that would make decimating
+     * pointless.
+     */
+    public static final int MAX_POINTS_LIMIT = 100_000;
+
+    static final int SCREENED = 0x01;
+    static final int OKAY = 0x02;
+    static final int MISSING = 0x04;
+    static final int QUESTIONABLE = 0x08;
+    static final int REJECTED = 0x10;
+
+    private static final Pattern INTERVAL_PATTERN = Pattern.compile(
+            "(\\d+)(minute|hour|day|week|month|year)s?", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * The aggregate computed for each interval.
+     */
+    public enum Function {
+        MIN, MAX, MEAN, SUM, COUNT, FIRST, LAST;
+
+        public static Function of(String name) {
+            String value = name.toUpperCase(Locale.ROOT);
+            if ("AVG".equals(value) || "AVERAGE".equals(value)) {
+                return MEAN;
+            }
+            for (Function function : values()) {
+                if (function.name().equals(value)) {
+                    return function;
+                }
+            }
+            throw new IllegalArgumentException("Unknown aggregate: " + name
+                    + ", expected one of min, max, mean, sum, count, first or last");
+        }
+    }
+
+    private final ChronoUnit unit;
+    private final int amount;
+    private final Function function;
+    private final int maxPoints;
+
+    private TimeSeriesReduction(ChronoUnit unit, int amount, Function function, int maxPoints) {
+        this.unit = unit;
+        this.amount = amount;
+        this.function = function;
+        this.maxPoints = maxPoints;
+    }
+
+    /**
+     * @param interval a CWMS interval, e.g. 15Minutes, 1Hour, 1Day, 1Week, 1Month or 1Year.
+     *                 Intervals are aligned to the start of the day, week, month or year in the
+     *                 time zone of the requested window.
+     * @param function the aggregate, e.g. mean
+     */
+    public static TimeSeriesReduction aggregate(String interval, String function) {
+        Matcher matcher = INTERVAL_PATTERN.matcher(interval.trim());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Unsupported aggregate interval: " + interval
+                    + ", expected e.g. 15Minutes, 1Hour, 1Day, 1Week, 1Month or 1Year");
+        }
+        int amount = Integer.parseInt(matcher.group(1));
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Aggregate interval must be positive: " + interval);
+        }
+        ChronoUnit unit;
+        switch (matcher.group(2).toLowerCase(Locale.ROOT)) {
+            case "minute":
+                unit = ChronoUnit.MINUTES;
+                break;
+            case "hour":
+                unit = ChronoUnit.HOURS;
+                break;
+            case "day":
+                unit = ChronoUnit.DAYS;
+                break;
+            case "week":
+                unit = ChronoUnit.WEEKS;
+                break;
+            case "month":
+                unit = ChronoUnit.MONTHS;
+                break;
+            default:
+                unit = ChronoUnit.YEARS;
+                break;
+        }
+        return new TimeSeriesReduction(unit, amount, Function.of(function), 0);
+    }
+
+    /**
+     * @param maxPoints the most points to return, at least 3 and at most {@link #MAX_POINTS_LIMIT}
+     */
+    public static TimeSeriesReduction decimate(int maxPoints) {
+        if (maxPoints < 3) {
+            throw new IllegalArgumentException("Max points must be at least 3: " + maxPoints);
+        }
+        if (maxPoints > MAX_POINTS_LIMIT) {
+            throw new IllegalArgumentException("Max points must be at most " + MAX_POINTS_LIMIT
+                    + ": " + maxPoints);
+        }
+        return new TimeSeriesReduction(null, 0, null, maxPoints);
+    }
+
+    /**
+     * @return the interval of the reduced time series, zero when it is irregular
+     */
+    public Duration getInterval() {
+        if (unit == null) {
+            return Duration.ZERO;
+        }
+        switch (unit) {
+            case MONTHS:
+                // as CWMS_TS does for its 1Month interval
+                return Duration.ofDays(30L * amount);
+            case YEARS:
+                return Duration.ofDays(365L * amount);
+            default:
+                return unit.getDuration().multipliedBy(amount);
+        }
+    }
+
+    /**
+     * @param begin  the start of the requested window, its zone aligns the intervals
+     * @param end    the end of the requested window
+     * @param target the time series the reduced values are added to
+     */
+    Reducer reducer(ZonedDateTime begin, ZonedDateTime end, TimeSeries target) {
+        if (unit == null) {
+            return new LttbDecimator(begin.toInstant().toEpochMilli(), end.toInstant().toEpochMilli(),
+                    maxPoints, target);
+        }
+        return new TimeSeriesAggregator(new CalendarIntervals(unit, amount, begin.getZone()),
+                function, target);
+    }
+
+    /**
+     * @return whether the value is plotted and aggregated, i.e. not missing or rejected
+     */
+    static boolean isUsable(Double value, int qualityCode) {
+        if (value == null || value.isNaN()) {
+            return false;
+        }
+        return (qualityCode & SCREENED) == 0 || (qualityCode & (MISSING | REJECTED)) == 0;
+    }
+
+    /**
+     * Receives the values of a time series in time order.
+     */
+    interface Reducer {
+        void add(Timestamp dateTime, Double value, int qualityCode);
+
+        /**
+         * Adds what is still held to the target, after the last value.
+         */
+        void finish();
+    }
+}
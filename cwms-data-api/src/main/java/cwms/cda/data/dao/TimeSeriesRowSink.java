@@ -0,0 +1,20 @@
+package cwms.cda.data.dao;
+
+import java.io.IOException;
+
+/**
+ * Receives a time series as it is read from an open database cursor instead of after it has been
+ * collected, so a response can be written while the cursor is still open.
+ *
+ * @param <T> the time series type, passed to {@link #start(Object)} without any rows
+ * @param <R> the row type
+ */
+public interface TimeSeriesRowSink<T, R> {
+
+    /**
+     * Called once, before any row, after the query has executed successfully.
+     */
+    void start(T header) throws IOException;
+
+    void row(R row) throws IOException;
+}
@@ -0,0 +1,64 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Hydrologic Engineering Center
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cwms.cda.data.dao;
+
+import cwms.cda.metrics.RequestTiming;
+import org.jooq.ExecuteContext;
+import org.jooq.impl.DefaultExecuteListener;
+
+/**
+ * Records statement execution and row fetching time into the current {@link RequestTiming}.
+ */
+class TimingExecuteListener extends DefaultExecuteListener {
+    private static final String EXECUTE_START = "cda.timing.execute";
+    private static final String FETCH_START = "cda.timing.fetch";
+
+    @Override
+    public void executeStart(ExecuteContext ctx) {
+        ctx.data(EXECUTE_START, System.nanoTime());
+    }
+
+    @Override
+    public void executeEnd(ExecuteContext ctx) {
+        record(ctx, EXECUTE_START, RequestTiming.Phase.SQL);
+    }
+
+    @Override
+    public void fetchStart(ExecuteContext ctx) {
+        ctx.data(FETCH_START, System.nanoTime());
+    }
+
+    @Override
+    public void fetchEnd(ExecuteContext ctx) {
+        record(ctx, FETCH_START, RequestTiming.Phase.FETCH);
+    }
+
+    private static void record(ExecuteContext ctx, String key, RequestTiming.Phase phase) {
+        Object start = ctx.data(key);
+        if (start instanceof Long) {
+            RequestTiming.record(phase, (Long) start);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package cwms.cda.data.dao;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import cwms.cda.helpers.Settings;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.Nullable;
+import org.jooq.DSLContext;
+
+/**
+ * Immutable copy of the database's linear unit conversions and of each base parameter's storage
+ * and default display units, used to convert time series values in the JVM instead of in
+ * CWMS_TS.RETRIEVE_TS_OUT_TAB and to resolve EN/SI without calling CWMS_UTIL.GET_DEFAULT_UNITS.
+ *
+ * <p>A conversion is {@code to = from * factor + offset}, as in CWMS_UNIT_CONVERSION.  Conversions
+ * the database defines with a function are not held, so they keep being done in the database.
+ * The table is loaded once and shared until it expires; units and base parameters only change
+ * with a schema update.
+ */
+final class UnitConversionTable {
+    private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+    public static final String ENABLED_KEY = "cwms.dataapi.units.jvm.enabled";
+    public static final String EXPIRE_KEY = "cwms.dataapi.units.jvm.expireAfterSeconds";
+    private static final boolean ENABLED = Settings.getBoolean(ENABLED_KEY, true);
+    private static final String CACHE_KEY = "units";
+    private static final Cache<String, UnitConversionTable> cache = CacheBuilder.newBuilder()
+            .maximumSize(1)
+            .expireAfterWrite(Settings.getLong(EXPIRE_KEY, 86400), TimeUnit.SECONDS)
+            .build();
+
+    private static final UnitConversionTable EMPTY = new UnitConversionTable(Collections.emptyList(),
+            Collections.emptyList());
+
+    private final Map<String, Map<String, Conversion>> conversions;
+    private final Map<String, BaseParameterUnits> parameterUnits;
+
+    UnitConversionTable(List<Conversion> conversions, List<BaseParameterUnits> parameterUnits) {
+        Map<String, Map<String, Conversion>> byUnit = new HashMap<>();
+        for (Conversion conversion : conversions) {
+            byUnit.computeIfAbsent(conversion.getFromUnit(), k -> new HashMap<>())
+                    .put(conversion.getToUnit(), conversion);
+        }
+        this.conversions = byUnit;
+        Map<String, BaseParameterUnits> byParameter = new HashMap<>();
+        for (BaseParameterUnits units : parameterUnits) {
+            byParameter.put(key(units.getBaseParameterId()), units);
+        }
+        this.parameterUnits = byParameter;
+    }
+
+    /**
+     * @return the shared table, or an empty one that converts nothing when JVM conversion is
+     *     disabled with {@value #ENABLED_KEY} or the table can't be loaded
+     */
+    static UnitConversionTable get(DSLContext dsl) {
+        if (!ENABLED) {
+            return EMPTY;
+        }
+        try {
+            return cache.get(CACHE_KEY, () -> new UnitConversionTable(new UnitsDao(dsl).getUnitConversions(),
+                    new ParameterDao(dsl).getBaseParameterUnits()));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            // the database still converts, only slower, and the next request tries again
+            logger.atWarning().withCause(e.getCause()).log("Unable to load unit conversions");
+            return EMPTY;
+        }
+    }
+
+    /**
+     * @param parameterId a base parameter or a full parameter, e.g. Flow-In
+     * @return the unit values of the parameter are stored in, null if unknown
+     */
+    @Nullable
+    String getStorageUnit(String parameterId) {
+        BaseParameterUnits units = parameterUnits.get(key(parameterId));
+        return units == null ? null : units.getStorageUnit();
+    }
+
+    /**
+     * @param parameterId a base parameter or a full parameter, e.g. Flow-In
+     * @param unitSystem  SI or EN
+     * @return the unit CWMS_UTIL.GET_DEFAULT_UNITS would return, null if unknown
+     */
+    @Nullable
+    String getDefaultUnit(String parameterId, String unitSystem) {
+        BaseParameterUnits units = parameterUnits.get(key(parameterId));
+        if (units == null) {
+            return null;
+        }
+        return "EN".equalsIgnoreCase(unitSystem) ? units.getEnUnit() : units.getSiUnit();
+    }
+
+    /**
+     * @return the default unit of each base parameter in the unit system, keyed and sorted by upper
+     *     case base parameter id
+     */
+    Map<String, String> getDefaultUnits(String unitSystem) {
+        Map<String, String> retVal = new TreeMap<>();
+        for (Map.Entry<String, BaseParameterUnits> entry : parameterUnits.entrySet()) {
+            String unit = "EN".equalsIgnoreCase(unitSystem) ? entry.getValue().getEnUnit()
+                    : entry.getValue().getSiUnit();
+            if (unit != null) {
+                retVal.put(entry.getKey(), unit);
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * @return the linear conversion between the units, the identity when they are the same unit
+     *     and null when there is no linear conversion
+     */
+    @Nullable
+    Conversion find(String fromUnit, String toUnit) {
+        if (fromUnit.equals(toUnit)) {
+            return Conversion.identity(fromUnit);
+        }
+        Map<String, Conversion> from = conversions.get(fromUnit);
+        return from == null ? null : from.get(toUnit);
+    }
+
+    private static String key(String parameterId) {
+        int dash = parameterId.indexOf('-');
+        String base = dash < 0 ? parameterId : parameterId.substring(0, dash);
+        return base.toUpperCase(Locale.ROOT);
+    }
+
+    static final class Conversion {
+        private final String fromUnit;
+        private final String toUnit;
+        private final double factor;
+        private final double offset;
+
+        Conversion(String fromUnit, String toUnit, double factor, double offset) {
+            this.fromUnit = fromUnit;
+            this.toUnit = toUnit;
+            this.factor = factor;
+            this.offset = offset;
+        }
+
+        static Conversion identity(String unit) {
+            return new Conversion(unit, unit, 1.0, 0.0);
+        }
+
+        String getFromUnit() {
+            return fromUnit;
+        }
+
+        String getToUnit() {
+            return toUnit;
+        }
+
+        boolean isIdentity() {
+            return factor == 1.0 && offset == 0.0;
+        }
+
+        double apply(double value) {
+            return value * factor + offset;
+        }
+
+        /**
+         * Converts values[from, to) in place, NaN stays NaN.
+         */
+        void apply(double[] values, int from, int to) {
+            if (isIdentity()) {
+                return;
+            }
+            double f = factor;
+            double o = offset;
+            for (int i = from; i < to; i++) {
+                values[i] = values[i] * f + o;
+            }
+        }
+    }
+
+    static final class BaseParameterUnits {
+        private final String baseParameterId;
+        private final String storageUnit;
+        private final String siUnit;
+        private final String enUnit;
+
+        BaseParameterUnits(String baseParameterId, String storageUnit, String siUnit, String enUnit) {
+            this.baseParameterId = baseParameterId;
+            this.storageUnit = storageUnit;
+            this.siUnit = siUnit;
+            this.enUnit = enUnit;
+        }
+
+        String getBaseParameterId() {
+            return baseParameterId;
+        }
+
+        String getStorageUnit() {
+            return storageUnit;
+        }
+
+        String getSiUnit() {
+            return siUnit;
+        }
+
+        String getEnUnit() {
+            return enUnit;
+        }
+    }
+}
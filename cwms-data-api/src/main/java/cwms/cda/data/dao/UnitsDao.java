@@ -11,6 +11,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.name;
 import static org.jooq.impl.DSL.table;
 
 public class UnitsDao extends JooqDao<String> {
@@ -38,6 +40,19 @@ public class UnitsDao extends JooqDao<String> {
                   .collect(Collectors.toList());
     }
 
+    /**
+     * @return every unit conversion the database defines with a factor and offset
+     */
+    List<UnitConversionTable.Conversion> getUnitConversions() {
+        return dsl.select(field("FROM_UNIT_ID", String.class), field("TO_UNIT_ID", String.class),
+                        field("FACTOR", Double.class), field(name("OFFSET"), Double.class))
+                  .from(table("CWMS_20.CWMS_UNIT_CONVERSION"))
+                  .where(field("FUNCTION").isNull())
+                  .and(field("FACTOR").isNotNull())
+                  .fetch(rec -> new UnitConversionTable.Conversion(rec.value1(), rec.value2(), rec.value3(),
+                          rec.value4() == null ? 0.0 : rec.value4()));
+    }
+
     private Unit buildUnit(Record rec, Map<Long, List<String>> unitIdToAliasMap)
     {
         AV_UNIT view = AV_UNIT.AV_UNIT;
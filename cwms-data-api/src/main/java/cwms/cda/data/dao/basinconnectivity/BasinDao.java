@@ -9,6 +9,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import org.jooq.DSLContext;
 import usace.cwms.db.jooq.dao.CwmsDbBasinJooq;
 
@@ -19,15 +20,23 @@ public class BasinDao extends JooqDao<Basin> {
 
     public List<Basin> getAllBasins(String unitSystem, String officeId) throws SQLException {
         List<Basin> retVal = new ArrayList<>();
+        List<String> primaryStreamIds = new ArrayList<>();
         CwmsDbBasinJooq basinJooq = new CwmsDbBasinJooq();
         String areaUnitIn = UnitSystem.EN.value().equals(unitSystem)
                 ? Unit.SQUARE_MILES.getValue() : Unit.SQUARE_KILOMETERS.getValue();
         try {
             connection(dsl, c -> {
                 try (ResultSet rs = basinJooq.catBasins(c, null, null, null, areaUnitIn, officeId)) {
-                    retVal.addAll(buildBasinsFromResultSet(rs, unitSystem));
+                    buildBasinsFromResultSet(rs, retVal, primaryStreamIds);
                 }
             });
+            // One office-wide stream load serves every basin's primary stream.
+            if (primaryStreamIds.stream().anyMatch(Objects::nonNull)) {
+                StreamNetwork network = new StreamDao(dsl).getStreamNetwork(unitSystem, officeId);
+                for (int i = 0; i < retVal.size(); i++) {
+                    retVal.set(i, withPrimaryStream(retVal.get(i), primaryStreamIds.get(i), network));
+                }
+            }
         } catch (Exception ex) {
             throw new SQLException(ex);
         }
@@ -56,29 +65,34 @@ public class BasinDao extends JooqDao<Basin> {
                 .withSortOrder(pSortOrder[0])
                 .build();
         if (pPrimaryStreamId[0] != null) {
-            StreamDao streamDao = new StreamDao(dsl);
-            Stream primaryStream = streamDao.getStream(pPrimaryStreamId[0], unitSystem, officeId);
-            retVal = new Basin.Builder(retVal).withPrimaryStream(primaryStream).build();
+            StreamNetwork network = new StreamDao(dsl).getStreamNetwork(unitSystem, officeId);
+            retVal = withPrimaryStream(retVal, pPrimaryStreamId[0], network);
         }
         return retVal;
     }
 
-    private List<Basin> buildBasinsFromResultSet(ResultSet rs, String unitSystem) throws SQLException {
-        List<Basin> retVal = new ArrayList<>();
-        while (rs.next()) {
-            Basin basin = buildBasinFromRow(rs, unitSystem);
-            retVal.add(basin);
+    private static Basin withPrimaryStream(Basin basin, String primaryStreamId,
+                                           StreamNetwork network) {
+        if (primaryStreamId == null) {
+            return basin;
         }
+        Stream primaryStream = network.getStream(primaryStreamId);
+        return new Basin.Builder(basin).withPrimaryStream(primaryStream).build();
+    }
 
-        return retVal;
+    private void buildBasinsFromResultSet(ResultSet rs, List<Basin> basins,
+                                          List<String> primaryStreamIds) throws SQLException {
+        while (rs.next()) {
+            basins.add(buildBasinFromRow(rs));
+            primaryStreamIds.add(rs.getString("PRIMARY_STREAM_ID"));
+        }
     }
 
-    private Basin buildBasinFromRow(ResultSet rs, String unitSystem) throws SQLException {
+    private Basin buildBasinFromRow(ResultSet rs) throws SQLException {
         String officeId = rs.getString("OFFICE_ID");
         String basinId = rs.getString("BASIN_ID");
         String parentBasinId = rs.getString("PARENT_BASIN_ID");
         Double sortOrder = rs.getDouble("SORT_ORDER");
-        String primaryStreamId = rs.getString("PRIMARY_STREAM_ID");
         Double basinArea = rs.getDouble("TOTAL_DRAINAGE_AREA");
         Double contributingArea = rs.getDouble("CONTRIBUTING_DRAINAGE_AREA");
         Basin basin = new Basin.Builder(basinId, officeId)
@@ -87,11 +101,6 @@ public class BasinDao extends JooqDao<Basin> {
                 .withParentBasinId(parentBasinId)
                 .withSortOrder(sortOrder)
                 .build();
-        if (primaryStreamId != null) {
-            StreamDao streamDao = new StreamDao(dsl);
-            Stream primaryStream = streamDao.getStream(primaryStreamId, unitSystem, officeId);
-            basin = new Basin.Builder(basin).withPrimaryStream(primaryStream).build();
-        }
         return basin;
     }
 
@@ -4,6 +4,7 @@ import cwms.cda.api.enums.Unit;
 import cwms.cda.api.enums.UnitSystem;
 import cwms.cda.data.dao.JooqDao;
 import cwms.cda.data.dto.basinconnectivity.StreamLocation;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.LinkedHashSet;
@@ -22,6 +23,19 @@ public class StreamLocationDao extends JooqDao<StreamLocation> {
      */
     public Set<StreamLocation> getStreamLocations(String streamId, String unitSystem,
                                                   String officeId) {
+        CwmsDbStreamJooq streamJooq = new CwmsDbStreamJooq();
+
+        return connectionResult(dsl, c -> {
+            try (ResultSet resultSet = catStreamLocations(streamJooq, c, streamId, unitSystem,
+                    officeId)) {
+                return buildStreamLocations(resultSet);
+            }
+        });
+    }
+
+    static ResultSet catStreamLocations(CwmsDbStreamJooq streamJooq, Connection c,
+                                        String streamId, String unitSystem,
+                                        String officeId) throws SQLException {
         String pStreamIdMaskIn = streamId == null ? "*" : streamId;
         String pLocationIdMaskIn = "*";
         String pStationUnitIn = UnitSystem.EN.value().equalsIgnoreCase(unitSystem)
@@ -30,17 +44,11 @@ public class StreamLocationDao extends JooqDao<StreamLocation> {
                 ? Unit.FEET.getValue() : Unit.METER.getValue();
         String pAreaUnitIn = UnitSystem.EN.value().equalsIgnoreCase(unitSystem)
                 ? Unit.SQUARE_MILES.getValue() : Unit.SQUARE_KILOMETERS.getValue();
-        CwmsDbStreamJooq streamJooq = new CwmsDbStreamJooq();
-
-        return connectionResult(dsl, c -> {
-            try (ResultSet resultSet = streamJooq.catStreamLocations(c, pStreamIdMaskIn,
-                    pLocationIdMaskIn, pStationUnitIn, pStageUnitIn, pAreaUnitIn, officeId)) {
-                return buildStreamLocations(resultSet);
-            }
-        });
+        return streamJooq.catStreamLocations(c, pStreamIdMaskIn, pLocationIdMaskIn,
+                pStationUnitIn, pStageUnitIn, pAreaUnitIn, officeId);
     }
 
-    private Set<StreamLocation> buildStreamLocations(ResultSet rs) throws SQLException {
+    static Set<StreamLocation> buildStreamLocations(ResultSet rs) throws SQLException {
         Set<StreamLocation> retVal = new LinkedHashSet<>();
         while (rs.next()) {
             String locationId = rs.getString("LOCATION_ID");
@@ -0,0 +1,104 @@
+package cwms.cda.data.dao.basinconnectivity;
+
+import cwms.cda.api.errors.NotFoundException;
+import cwms.cda.data.dto.basinconnectivity.Stream;
+import cwms.cda.data.dto.basinconnectivity.StreamLocation;
+import cwms.cda.data.dto.basinconnectivity.StreamReach;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * All streams, stream locations and reaches of an office, loaded with one catalog query each
+ * and joined in memory. Streams are assembled into their tributary trees on request and
+ * memoized, so a basin and every stream under it cost a constant number of queries instead of
+ * several per tributary.
+ */
+final class StreamNetwork {
+
+    private final Map<String, Stream> streams = new LinkedHashMap<>();
+    private final Map<String, List<Stream>> tributaries = new HashMap<>();
+    private final Map<String, List<StreamLocation>> locations = new HashMap<>();
+    private final Map<String, List<StreamReach>> reaches = new HashMap<>();
+    private final Map<String, Stream> assembled = new HashMap<>();
+
+    /**
+     * @param streams   the office's streams without tributaries, locations or reaches
+     * @param locations every stream location of the office
+     * @param reaches   every stream reach of the office
+     */
+    StreamNetwork(Collection<Stream> streams, Collection<StreamLocation> locations,
+                  Collection<StreamReach> reaches) {
+        for (Stream stream : streams) {
+            this.streams.put(key(stream.getStreamName()), stream);
+            if (stream.getReceivingStreamId() != null) {
+                this.tributaries.computeIfAbsent(key(stream.getReceivingStreamId()),
+                        k -> new ArrayList<>()).add(stream);
+            }
+        }
+        for (StreamLocation location : locations) {
+            this.locations.computeIfAbsent(key(location.getStreamName()),
+                    k -> new ArrayList<>()).add(location);
+        }
+        for (StreamReach reach : reaches) {
+            this.reaches.computeIfAbsent(key(reach.getStreamName()),
+                    k -> new ArrayList<>()).add(reach);
+        }
+    }
+
+    boolean contains(String streamId) {
+        return streamId != null && streams.containsKey(key(streamId));
+    }
+
+    /**
+     * @param streamId case-insensitive stream identifier
+     * @return the stream with its locations, reaches and full tributary tree
+     * @throws NotFoundException if the office has no such stream
+     */
+    Stream getStream(String streamId) {
+        if (!contains(streamId)) {
+            throw new NotFoundException("Unable to find stream: " + streamId);
+        }
+        return assemble(key(streamId), new HashSet<>());
+    }
+
+    private Stream assemble(String key, Set<String> path) {
+        Stream retVal = assembled.get(key);
+        if (retVal != null) {
+            return retVal;
+        }
+        // A stream that (incorrectly) flows into one of its own tributaries would otherwise
+        // recurse forever.  The recursive loader had the same exposure, just with more queries.
+        path.add(key);
+        Set<Stream> children = new LinkedHashSet<>();
+        for (Stream tributary : tributaries.getOrDefault(key, Collections.emptyList())) {
+            String childKey = key(tributary.getStreamName());
+            if (!path.contains(childKey)) {
+                children.add(assemble(childKey, path));
+            }
+        }
+        path.remove(key);
+
+        retVal = new Stream.Builder(streams.get(key))
+                .withStreamLocations(new LinkedHashSet<>(
+                        locations.getOrDefault(key, Collections.emptyList())))
+                .withStreamReaches(new HashSet<>(
+                        reaches.getOrDefault(key, Collections.emptyList())))
+                .withTributaries(children)
+                .build();
+        assembled.put(key, retVal);
+        return retVal;
+    }
+
+    private static String key(String streamId) {
+        return streamId.toUpperCase(Locale.ROOT);
+    }
+}
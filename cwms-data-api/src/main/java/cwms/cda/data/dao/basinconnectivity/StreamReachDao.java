@@ -3,6 +3,7 @@ package cwms.cda.data.dao.basinconnectivity;
 import cwms.cda.api.enums.Unit;
 import cwms.cda.data.dao.JooqDao;
 import cwms.cda.data.dto.basinconnectivity.StreamReach;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.HashSet;
@@ -17,18 +18,23 @@ public class StreamReachDao extends JooqDao<StreamReach> {
     }
 
     public Set<StreamReach> getReachesOnStream(String streamId, String officeId) {
-        String pStationUnitIn = Unit.KILOMETER.getValue();
         CwmsDbStreamJooq streamJooq = new CwmsDbStreamJooq();
 
         return connectionResult(dsl, c -> {
-            try (ResultSet resultSet = streamJooq.catStreamReaches(c, streamId, null, null,
-                    null, pStationUnitIn, officeId)) {
+            try (ResultSet resultSet = catStreamReaches(streamJooq, c, streamId, officeId)) {
                 return buildReachesFromResultSet(resultSet);
             }
         });
     }
 
-    private Set<StreamReach> buildReachesFromResultSet(ResultSet rs) throws SQLException {
+    static ResultSet catStreamReaches(CwmsDbStreamJooq streamJooq, Connection c, String streamId,
+                                      String officeId) throws SQLException {
+        String pStationUnitIn = Unit.KILOMETER.getValue();
+        return streamJooq.catStreamReaches(c, streamId, null, null, null, pStationUnitIn,
+                officeId);
+    }
+
+    static Set<StreamReach> buildReachesFromResultSet(ResultSet rs) throws SQLException {
         Set<StreamReach> retVal = new HashSet<>();
 
         while (rs.next()) {
@@ -5,10 +5,13 @@ import static cwms.cda.data.dao.texttimeseries.TimeSeriesTextDao.TEXT_ID_DOES_NO
 import static java.lang.String.format;
 
 import cwms.cda.api.Controllers;
-import cwms.cda.api.enums.VersionType;
 import cwms.cda.data.dao.BlobDao;
 import cwms.cda.data.dao.JooqDao;
+import cwms.cda.data.dao.OrderedRowSink;
+import cwms.cda.data.dao.RowCollector;
 import cwms.cda.data.dao.TimeSeriesDaoImpl;
+import cwms.cda.data.dao.TimeSeriesIdentifierCache;
+import cwms.cda.data.dao.TimeSeriesRowSink;
 import cwms.cda.data.dto.binarytimeseries.BinaryTimeSeries;
 import cwms.cda.data.dto.binarytimeseries.BinaryTimeSeriesRow;
 import cwms.cda.helpers.ReplaceUtils;
@@ -22,7 +25,6 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.List;
@@ -45,6 +47,8 @@ public final class TimeSeriesBinaryDao extends JooqDao<BinaryTimeSeries> {
     private static final String QUALITY = "QUALITY";
     private static final String DEST_FLAG = "DEST_FLAG";
     private static final Calendar UTC_CALENDAR = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    private static final String RETRIEVE_TS_BINARY = "{call CWMS_TEXT.RETRIEVE_TS_BINARY(?,?,?,?,?,?,?,?,?,?,?,?)}";
+    private static final int ROW_FETCH_SIZE = 500;
 
 
     public TimeSeriesBinaryDao(DSLContext dsl) {
@@ -152,19 +156,17 @@ public final class TimeSeriesBinaryDao extends JooqDao<BinaryTimeSeries> {
                                      @NotNull Instant startTime, @NotNull Instant endTime,
                                      Instant versionInstant, int kiloByteLimit,
                                      ReplaceUtils.OperatorBuilder urlBuilder) {
-        List<BinaryTimeSeriesRow> binRows = retrieveRows(officeId, tsId, mask, startTime, endTime,
-                versionInstant, kiloByteLimit, urlBuilder);
-
-        VersionType versionType = TimeSeriesDaoImpl.getVersionType(dsl, tsId, officeId,
-                versionInstant != null);
-        String timeZoneId = TimeSeriesDaoImpl.getTimeZoneId(dsl, tsId, officeId);
+        RowCollector<BinaryTimeSeries, BinaryTimeSeriesRow> collector = new RowCollector<>();
+        stream(officeId, tsId, mask, startTime, endTime, versionInstant, kiloByteLimit, urlBuilder,
+                collector);
+        BinaryTimeSeries header = collector.getHeader();
         return new BinaryTimeSeries.Builder()
-                .withOfficeId(officeId)
-                .withName(tsId)
-                .withBinaryValues(binRows)
-                .withDateVersionType(versionType)
-                .withVersionDate(versionInstant)
-                .withTimeZone(timeZoneId)
+                .withOfficeId(header.getOfficeId())
+                .withName(header.getName())
+                .withBinaryValues(collector.getRows())
+                .withDateVersionType(header.getDateVersionType())
+                .withVersionDate(header.getVersionDate())
+                .withTimeZone(header.getTimeZone())
                 .build();
     }
 
@@ -173,7 +175,37 @@ public final class TimeSeriesBinaryDao extends JooqDao<BinaryTimeSeries> {
                                                   @NotNull Instant endTime, Instant versionInstant,
                                                   int kiloByteLimit,
                                                   ReplaceUtils.OperatorBuilder urlBuilder) {
-        return connectionResult(dsl, conn -> {
+        RowCollector<BinaryTimeSeries, BinaryTimeSeriesRow> collector = new RowCollector<>();
+        stream(officeId, tsId, mask, startTime, endTime, versionInstant, kiloByteLimit, urlBuilder,
+                collector);
+        return collector.getRows();
+    }
+
+    /**
+     * Reads the binary time series from the cursor straight into the sink, so only the current
+     * row and those sharing its date are held in memory.  Rows are passed on sorted by date and
+     * data entry date; when two rows share both only the later one is passed on, as
+     * {@link BinaryTimeSeries} would keep it.
+     *
+     * <p>The sink's header carries the version type and the location's time zone, which come from
+     * the {@link TimeSeriesIdentifierCache}.
+     */
+    public void stream(String officeId, String tsId, String mask,
+                       @NotNull Instant startTime, @NotNull Instant endTime,
+                       Instant versionInstant, int kiloByteLimit,
+                       ReplaceUtils.OperatorBuilder urlBuilder,
+                       TimeSeriesRowSink<BinaryTimeSeries, BinaryTimeSeriesRow> sink) {
+        TimeSeriesIdentifierCache.Entry identifier = TimeSeriesIdentifierCache.find(dsl, officeId, tsId)
+                .orElseThrow(() -> new NoDataFoundException("No data found for binary timeseries: " + tsId));
+        BinaryTimeSeries header = new BinaryTimeSeries.Builder()
+                .withOfficeId(officeId)
+                .withName(tsId)
+                .withDateVersionType(TimeSeriesDaoImpl.getVersionType(identifier.isVersioned(),
+                        versionInstant != null))
+                .withVersionDate(versionInstant)
+                .withTimeZone(identifier.getTimeZoneId())
+                .build();
+        connection(dsl, conn -> {
             // Making the call from jOOQ package codegen does not work
             // b/c jOOQ MockResultSet eagerly loads the BLOB
             // we want to only load BLOB's under kiloByteLimit size.
@@ -183,17 +215,19 @@ public final class TimeSeriesBinaryDao extends JooqDao<BinaryTimeSeries> {
             String pTimeZone = "UTC";
 
             long byteLimit = kiloByteLimit * 1024L;
-            try (CallableStatement stmt = conn.prepareCall("{call CWMS_TEXT.RETRIEVE_TS_BINARY(?,?,?,?,?,?,?,?,?,?,?,?)}")) {
+            try (CallableStatement stmt = conn.prepareCall(RETRIEVE_TS_BINARY)) {
                 parameterizeRetrieveTsBinText(stmt, tsId, mask, pStartTime, pEndTime, pVersionDate, pTimeZone, officeId);
                 stmt.execute();
-                List<BinaryTimeSeriesRow> rows = new ArrayList<>();
+                OrderedRowSink<BinaryTimeSeries, BinaryTimeSeriesRow> ordered = new OrderedRowSink<>(sink,
+                        BinaryTimeSeriesRow::getDateTime, BinaryTimeSeriesRow::getDataEntryDate);
+                ordered.start(header);
                 try (ResultSet rs = (ResultSet) stmt.getObject(1)) {
+                    rs.setFetchSize(ROW_FETCH_SIZE);
                     while (rs.next()) {
-                        BinaryTimeSeriesRow row = buildRow(byteLimit, urlBuilder, rs);
-                        rows.add(row);
+                        ordered.row(buildRow(byteLimit, urlBuilder, rs));
                     }
+                    ordered.finish();
                 }
-                return rows;
             } catch (SQLException e) {
                 int errorCode = e.getErrorCode();
                 if (errorCode == TEXT_DOES_NOT_EXIST_ERROR_CODE || errorCode == TEXT_ID_DOES_NOT_EXIST_ERROR_CODE) {
@@ -223,17 +257,23 @@ public final class TimeSeriesBinaryDao extends JooqDao<BinaryTimeSeries> {
                 .withQualityCode(0L)
                 .withDestFlag(0);
         Blob b = rs.getBlob(VALUE);
-        if (b.length() > byteLimit) {
-            String binaryId = rs.getString(ID);
-            String url = urlBuilder.build().apply(dateTime.toString())
-                    //Hard-coding for now. Will be removed with schema update
-                    + format("&%s=%s", Controllers.BLOB_ID, URLEncoder.encode(binaryId, "UTF-8"));
-            builder.withValueUrl(url);
-        } else {
-            try (InputStream is = b.getBinaryStream()) {
-                byte[] bytes = BlobDao.readFully(is);
-                builder.withBinaryValue(bytes);
+        try {
+            // only the length is read from a locator above the limit, its content stays on the server
+            if (b.length() > byteLimit) {
+                String binaryId = rs.getString(ID);
+                String url = urlBuilder.build().apply(dateTime.toString())
+                        //Hard-coding for now. Will be removed with schema update
+                        + format("&%s=%s", Controllers.BLOB_ID, URLEncoder.encode(binaryId, "UTF-8"));
+                builder.withValueUrl(url);
+            } else {
+                try (InputStream is = b.getBinaryStream()) {
+                    byte[] bytes = BlobDao.readFully(is);
+                    builder.withBinaryValue(bytes);
+                }
             }
+        } finally {
+            // release the locator now rather than when the cursor closes
+            b.free();
         }
         return builder.build();
     }
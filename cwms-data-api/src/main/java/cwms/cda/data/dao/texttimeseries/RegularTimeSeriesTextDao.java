@@ -2,10 +2,13 @@ package cwms.cda.data.dao.texttimeseries;
 
 import com.google.common.flogger.FluentLogger;
 import cwms.cda.api.Controllers;
-import cwms.cda.api.enums.VersionType;
 import cwms.cda.data.dao.ClobDao;
 import cwms.cda.data.dao.JooqDao;
+import cwms.cda.data.dao.OrderedRowSink;
+import cwms.cda.data.dao.RowCollector;
 import cwms.cda.data.dao.TimeSeriesDaoImpl;
+import cwms.cda.data.dao.TimeSeriesIdentifierCache;
+import cwms.cda.data.dao.TimeSeriesRowSink;
 import cwms.cda.data.dto.texttimeseries.RegularTextTimeSeriesRow;
 import cwms.cda.data.dto.texttimeseries.TextTimeSeries;
 import cwms.cda.helpers.ReplaceUtils;
@@ -27,7 +30,6 @@ import java.sql.Timestamp;
 import java.sql.Types;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.List;
@@ -58,6 +60,9 @@ public final class RegularTimeSeriesTextDao extends JooqDao {
 
 
 
+    private static final String RETRIEVE_TS_TEXT = "{call CWMS_TEXT.RETRIEVE_TS_TEXT(?,?,?,?,?,?,?,?,?,?,?)}";
+    private static final int ROW_FETCH_SIZE = 500;
+
     private static final int TEXT_DOES_NOT_EXIST_ERROR_CODE = 20034;
     private static final int TEXT_ID_DOES_NOT_EXIST_ERROR_CODE = 20001;
 
@@ -69,18 +74,17 @@ public final class RegularTimeSeriesTextDao extends JooqDao {
             String officeId, String tsId, String textMask,
             Instant startTime, Instant endTime, Instant versionDate,
             int kiloByteLimit, ReplaceUtils.OperatorBuilder urlBuilder)  {
-
-        List<RegularTextTimeSeriesRow> rows = retrieveRows(officeId, tsId, textMask,
-                startTime, endTime, versionDate, kiloByteLimit, urlBuilder);
-        VersionType versionType = TimeSeriesDaoImpl.getVersionType(dsl, tsId, officeId, versionDate != null);
-        String timeZoneId = TimeSeriesDaoImpl.getTimeZoneId(dsl, tsId, officeId);
-        TextTimeSeries.Builder builder = new TextTimeSeries.Builder();
-        return builder.withName(tsId)
-                .withOfficeId(officeId)
-                .withRegularTextValues(rows)
-                .withDateVersionType(versionType)
-                .withVersionDate(versionDate)
-                .withTimeZone(timeZoneId)
+        RowCollector<TextTimeSeries, RegularTextTimeSeriesRow> collector = new RowCollector<>();
+        streamTimeSeriesText(officeId, tsId, textMask, startTime, endTime, versionDate, kiloByteLimit,
+                urlBuilder, collector);
+        TextTimeSeries header = collector.getHeader();
+        return new TextTimeSeries.Builder()
+                .withName(header.getName())
+                .withOfficeId(header.getOfficeId())
+                .withRegularTextValues(collector.getRows())
+                .withDateVersionType(header.getDateVersionType())
+                .withVersionDate(header.getVersionDate())
+                .withTimeZone(header.getTimeZone())
                 .build();
     }
 
@@ -88,23 +92,46 @@ public final class RegularTimeSeriesTextDao extends JooqDao {
             String officeId, String tsId, String textMask,
             Instant startTime, Instant endTime, Instant versionDate,
             int kiloByteLimit, ReplaceUtils.OperatorBuilder urlBuilder)  {
-        return connectionResult(dsl, conn -> {
+        RowCollector<TextTimeSeries, RegularTextTimeSeriesRow> collector = new RowCollector<>();
+        streamTimeSeriesText(officeId, tsId, textMask, startTime, endTime, versionDate, kiloByteLimit,
+                urlBuilder, collector);
+        return collector.getRows();
+    }
+
+    /**
+     * Reads the text time series from the cursor straight into the sink, so only the current row
+     * and those sharing its date are held in memory.  Rows are passed on sorted by date and data
+     * entry date; when two rows share both only the later one is passed on, as
+     * {@link TextTimeSeries} would keep it.
+     *
+     * <p>The sink's header carries the version type and the location's time zone, which come from
+     * the {@link TimeSeriesIdentifierCache}.
+     */
+    public void streamTimeSeriesText(
+            String officeId, String tsId, String textMask,
+            Instant startTime, Instant endTime, Instant versionDate,
+            int kiloByteLimit, ReplaceUtils.OperatorBuilder urlBuilder,
+            TimeSeriesRowSink<TextTimeSeries, RegularTextTimeSeriesRow> sink)  {
+        TextTimeSeries header = buildHeader(officeId, tsId, versionDate);
+        connection(dsl, conn -> {
             // Making the call from jOOQ package codegen does not work
             // b/c jOOQ MockResultSet eagerly loads the CLOB
             // we want to only load CLOB's under kiloByteLimit size.
-            try (CallableStatement stmt = conn.prepareCall("{call CWMS_TEXT.RETRIEVE_TS_TEXT(?,?,?,?,?,?,?,?,?,?,?)}")) {
+            try (CallableStatement stmt = conn.prepareCall(RETRIEVE_TS_TEXT)) {
                 parameterizeRetrieveTsText(stmt, tsId, textMask, startTime, endTime, versionDate, officeId);
                 stmt.execute();
-                List<RegularTextTimeSeriesRow> rows = new ArrayList<>();
+                OrderedRowSink<TextTimeSeries, RegularTextTimeSeriesRow> ordered = new OrderedRowSink<>(sink,
+                        RegularTextTimeSeriesRow::getDateTime, RegularTextTimeSeriesRow::getDataEntryDate);
+                ordered.start(header);
                 try (ResultSet rs = (ResultSet) stmt.getObject(1)) {
+                    rs.setFetchSize(ROW_FETCH_SIZE);
                     //UTF-16 conversion and assumes 2 bytes per character
                     long characterLimit = kiloByteLimit * 1024L / 2;
                     while (rs.next()) {
-                        RegularTextTimeSeriesRow row = buildRow(rs, characterLimit, urlBuilder);
-                        rows.add(row);
+                        ordered.row(buildRow(rs, characterLimit, urlBuilder));
                     }
+                    ordered.finish();
                 }
-                return rows;
             } catch (SQLException e) {
                 if (e.getErrorCode() == TEXT_DOES_NOT_EXIST_ERROR_CODE || e.getErrorCode() == TEXT_ID_DOES_NOT_EXIST_ERROR_CODE) {
                     NoDataFoundException ex = new NoDataFoundException("No data found for text timeseries: " + tsId);
@@ -117,6 +144,19 @@ public final class RegularTimeSeriesTextDao extends JooqDao {
         });
     }
 
+    private TextTimeSeries buildHeader(String officeId, String tsId, Instant versionDate) {
+        TimeSeriesIdentifierCache.Entry identifier = TimeSeriesIdentifierCache.find(dsl, officeId, tsId)
+                .orElseThrow(() -> new NoDataFoundException("No data found for text timeseries: " + tsId));
+        return new TextTimeSeries.Builder()
+                .withName(tsId)
+                .withOfficeId(officeId)
+                .withDateVersionType(TimeSeriesDaoImpl.getVersionType(identifier.isVersioned(),
+                        versionDate != null))
+                .withVersionDate(versionDate)
+                .withTimeZone(identifier.getTimeZoneId())
+                .build();
+    }
+
     private static void parameterizeRetrieveTsText(CallableStatement stmt, String tsId, String textMask,
             Instant pStartTime, Instant pEndTime, Instant pVersionDate,
             String officeId) throws SQLException {
@@ -145,14 +185,20 @@ public final class RegularTimeSeriesTextDao extends JooqDao {
                 .withFilename(dateTime.getEpochSecond() + ".txt")
                 .withMediaType("text/plain");
         Clob clob = rs.getClob(TEXT);
-        if (clob.length() > characterLimit) {
-            String textId = rs.getString(TEXT_ID);
-            String url = urlBuilder.build().apply(dateTime.toString())
-                    //Hard-coding for now. Will be removed with schema update
-                    + format("&%s=%s", Controllers.CLOB_ID, URLEncoder.encode(textId, "UTF-8"));
-            builder.withValueUrl(url);
-        } else {
-            builder.withTextValue(ClobDao.readFully(clob));
+        try {
+            // only the length is read from a locator above the limit, its content stays on the server
+            if (clob.length() > characterLimit) {
+                String textId = rs.getString(TEXT_ID);
+                String url = urlBuilder.build().apply(dateTime.toString())
+                        //Hard-coding for now. Will be removed with schema update
+                        + format("&%s=%s", Controllers.CLOB_ID, URLEncoder.encode(textId, "UTF-8"));
+                builder.withValueUrl(url);
+            } else {
+                builder.withTextValue(ClobDao.readFully(clob));
+            }
+        } finally {
+            // release the locator now rather than when the cursor closes
+            clob.free();
         }
         return builder.build();
     }
@@ -1,8 +1,7 @@
 package cwms.cda.data.dao.texttimeseries;
 
-import cwms.cda.api.enums.VersionType;
 import cwms.cda.data.dao.JooqDao;
-import cwms.cda.data.dao.TimeSeriesDaoImpl;
+import cwms.cda.data.dao.TimeSeriesRowSink;
 import cwms.cda.data.dto.texttimeseries.RegularTextTimeSeriesRow;
 import cwms.cda.data.dto.texttimeseries.TextTimeSeries;
 import cwms.cda.helpers.ReplaceUtils;
@@ -12,7 +11,6 @@ import org.jooq.DSLContext;
 
 import java.time.Instant;
 import java.util.Collection;
-import java.util.List;
 
 public final class TimeSeriesTextDao extends JooqDao<TextTimeSeries> {
 
@@ -26,22 +24,20 @@ public final class TimeSeriesTextDao extends JooqDao<TextTimeSeries> {
     public TextTimeSeries retrieveFromDao(@NotNull String officeId, @NotNull String tsId,
             String textMask, @NotNull Instant startTime, @NotNull Instant endTime,
             @Nullable Instant versionDate, int kiloByteLimit, ReplaceUtils.OperatorBuilder urlBuilder) {
-        List<RegularTextTimeSeriesRow> regRows;
-
-        RegularTimeSeriesTextDao regDao = new RegularTimeSeriesTextDao(dsl);
-        regRows = regDao.retrieveRows(officeId, tsId, textMask,
+        RegularTimeSeriesTextDao regDao = getRegularDao();
+        return regDao.retrieveTimeSeriesText(officeId, tsId, textMask,
                 startTime, endTime, versionDate, kiloByteLimit, urlBuilder);
+    }
 
-        VersionType versionType = TimeSeriesDaoImpl.getVersionType(dsl, tsId, officeId, versionDate != null);
-        String timeZoneId = TimeSeriesDaoImpl.getTimeZoneId(dsl, tsId, officeId);
-        return new TextTimeSeries.Builder()
-                .withOfficeId(officeId)
-                .withName(tsId)
-                .withRegularTextValues(regRows)
-                .withVersionDate(versionDate)
-                .withDateVersionType(versionType)
-                .withTimeZone(timeZoneId)
-                .build();
+    /**
+     * Like {@link #retrieveFromDao} but hands each row to the sink as it is read.
+     */
+    public void streamFromDao(@NotNull String officeId, @NotNull String tsId,
+            String textMask, @NotNull Instant startTime, @NotNull Instant endTime,
+            @Nullable Instant versionDate, int kiloByteLimit, ReplaceUtils.OperatorBuilder urlBuilder,
+            TimeSeriesRowSink<TextTimeSeries, RegularTextTimeSeriesRow> sink) {
+        getRegularDao().streamTimeSeriesText(officeId, tsId, textMask,
+                startTime, endTime, versionDate, kiloByteLimit, urlBuilder, sink);
     }
 
 
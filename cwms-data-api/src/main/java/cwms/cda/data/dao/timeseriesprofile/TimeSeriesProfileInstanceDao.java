@@ -8,6 +8,7 @@ import static org.jooq.impl.DSL.max;
 import static org.jooq.impl.DSL.min;
 import static org.jooq.impl.DSL.using;
 import static org.jooq.impl.DSL.val;
+import static org.jooq.impl.DSL.when;
 
 import cwms.cda.api.errors.NotFoundException;
 import cwms.cda.data.dao.JooqDao;
@@ -15,31 +16,40 @@ import cwms.cda.data.dto.CwmsDTOPaginated;
 import cwms.cda.data.dto.CwmsId;
 import cwms.cda.data.dto.timeseriesprofile.DataColumnInfo;
 import cwms.cda.data.dto.timeseriesprofile.ParameterColumnInfo;
+import cwms.cda.data.dto.timeseriesprofile.ParameterInfo;
 import cwms.cda.data.dto.timeseriesprofile.TimeSeriesData;
 import cwms.cda.data.dto.timeseriesprofile.TimeSeriesProfile;
+import cwms.cda.data.dto.timeseriesprofile.TimeSeriesProfileColumns;
 import cwms.cda.data.dto.timeseriesprofile.TimeSeriesProfileInstance;
+import cwms.cda.data.dto.timeseriesprofile.TimeSeriesProfileParser;
+import cwms.cda.helpers.Settings;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.sql.Connection;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.jooq.Condition;
+import org.jooq.Configuration;
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.Record;
 import org.jooq.Record1;
-import org.jooq.Record7;
+import org.jooq.Record2;
+import org.jooq.Record4;
+import org.jooq.Record5;
 import org.jooq.Result;
-import org.jooq.SelectConditionStep;
-import org.jooq.SelectHavingStep;
-import org.jooq.SelectSeekLimitStep;
-import org.jooq.SelectSeekStep1;
+import org.jooq.ResultQuery;
+import org.jooq.SelectLimitStep;
+import org.jooq.SelectSeekStep2;
+import org.jooq.exception.DataAccessException;
 import usace.cwms.db.jooq.codegen.packages.CWMS_LOC_PACKAGE;
 import usace.cwms.db.jooq.codegen.packages.CWMS_TS_PACKAGE;
 import usace.cwms.db.jooq.codegen.packages.CWMS_TS_PROFILE_PACKAGE;
@@ -59,15 +69,39 @@ public class TimeSeriesProfileInstanceDao extends JooqDao<TimeSeriesProfileInsta
     private static final Logger LOGGER = Logger.getLogger(TimeSeriesProfileInstanceDao.class.getName());
     private static final AV_TS_PROFILE_INST_TSV2 VIEW_TSV2 = AV_TS_PROFILE_INST_TSV2.AV_TS_PROFILE_INST_TSV2;
     private static final AV_TS_PROFILE_INST VIEW = AV_TS_PROFILE_INST.AV_TS_PROFILE_INST;
+    // rows per round trip when streaming profile values; a season of multi-parameter sonde
+    // profiles is easily hundreds of thousands of rows
+    private static final int DATA_FETCH_SIZE = 5000;
+    public static final String JVM_PARSER_ENABLED_KEY = "cwms.dataapi.profile.parser.jvm.enabled";
+    public static final String JVM_PARSER_CHUNK_SIZE_KEY = "cwms.dataapi.profile.parser.jvm.chunkSize";
 
     public TimeSeriesProfileInstanceDao(DSLContext dsl) {
         super(dsl);
     }
 
+    /**
+     * Stores profile data text formatted as described by the profile's stored parser.
+     *
+     * <p>The text is passed to CWMS_TS_PROFILE.STORE_TS_PROFILE_INSTANCE to be parsed by the
+     * database.  When {@value #JVM_PARSER_ENABLED_KEY} is true and the parser can be followed
+     * faithfully in the JVM, the text is instead parsed here, in parallel for large inputs, and
+     * stored as a single TS_PROF_DATA_T collection.  That is off by default until it has been
+     * checked against the database parser.
+     */
     public void storeTimeSeriesProfileInstance(TimeSeriesProfile timeSeriesProfile, String profileData,
             Instant versionDate, String versionId, String storeRule, boolean overrideProtection) {
+        TimeSeriesProfileColumns parsed = parseProfileData(timeSeriesProfile, profileData);
+        String officeId = timeSeriesProfile.getLocationId().getOfficeId();
+        if (parsed != null) {
+            connection(dsl, conn -> {
+                setOffice(conn, officeId);
+                storeProfileColumns(conn, timeSeriesProfile, parsed, versionId, versionDate, storeRule,
+                        overrideProtection ? "T" : "F");
+            });
+            return;
+        }
         connection(dsl, conn -> {
-            setOffice(conn, timeSeriesProfile.getLocationId().getOfficeId());
+            setOffice(conn, officeId);
             CWMS_TS_PROFILE_PACKAGE.call_STORE_TS_PROFILE_INSTANCE__2(using(conn).configuration(),
                     timeSeriesProfile.getLocationId().getName(),
                     timeSeriesProfile.getKeyParameter(),
@@ -76,10 +110,98 @@ public class TimeSeriesProfileInstanceDao extends JooqDao<TimeSeriesProfileInsta
                     storeRule,
                     overrideProtection ? "T" : "F",
                     versionDate != null ? Timestamp.from(versionDate) : null,
-                    timeSeriesProfile.getLocationId().getOfficeId());
+                    officeId);
         });
     }
 
+    /**
+     * @return the parsed profile data, or null if it should be parsed by the database instead
+     */
+    private TimeSeriesProfileColumns parseProfileData(TimeSeriesProfile timeSeriesProfile, String profileData) {
+        if (!Settings.getBoolean(JVM_PARSER_ENABLED_KEY, false)) {
+            return null;
+        }
+        CwmsId locationId = timeSeriesProfile.getLocationId();
+        TimeSeriesProfileParserDao parserDao = new TimeSeriesProfileParserDao(dsl);
+        TimeSeriesProfileParser parser;
+        List<ParameterInfo> parameterInfo;
+        try {
+            parser = parserDao.retrieveTimeSeriesProfileParser(locationId.getName(),
+                    timeSeriesProfile.getKeyParameter(), locationId.getOfficeId());
+            // the view distinguishes indexed from columnar parameters, the packed info string doesn't
+            parameterInfo = parserDao.retrieveParameterInfoList(locationId.getName(),
+                    timeSeriesProfile.getKeyParameter(), locationId.getOfficeId());
+        } catch (NotFoundException | DataAccessException ex) {
+            // let the database report the missing parser
+            LOGGER.log(Level.FINE, "No profile parser found, deferring to the database parser", ex);
+            return null;
+        }
+        TimeSeriesProfileTextParser textParser = TimeSeriesProfileTextParser.forParser(parser, parameterInfo,
+                Settings.getInt(JVM_PARSER_CHUNK_SIZE_KEY, 0));
+        TimeSeriesProfileColumns retVal = textParser == null ? null : textParser.parse(profileData);
+        if (retVal == null) {
+            LOGGER.log(Level.FINE, "Profile data for {0} can''t be parsed in the JVM, deferring to the database"
+                    + " parser", locationId.getName());
+        }
+        return retVal;
+    }
+
+    private static void storeProfileColumns(Connection conn, TimeSeriesProfile timeSeriesProfile,
+            TimeSeriesProfileColumns columns, String versionId, Instant versionDate, String storeRule,
+            String overrideProtection) {
+        Configuration configuration = using(conn).configuration();
+        String officeId = timeSeriesProfile.getLocationId().getOfficeId();
+        int parameterCount = columns.getParameterCount();
+        BigInteger[] parameterCodes = new BigInteger[parameterCount];
+        STR_TAB_T units = new STR_TAB_T();
+        for (int p = 0; p < parameterCount; p++) {
+            parameterCodes[p] = CWMS_UTIL_PACKAGE.call_GET_PARAMETER_CODE(configuration,
+                    columns.getParameter(p), officeId).toBigInteger();
+            units.add(columns.getUnit(p));
+        }
+
+        TS_PROF_DATA_TAB_T records = new TS_PROF_DATA_TAB_T();
+        for (int row = 0; row < columns.size(); row++) {
+            if (columns.lastPresentParameter(row) < 0) {
+                continue;
+            }
+            PVQ_TAB_T parameters = new PVQ_TAB_T();
+            for (int p = 0; p < parameterCount; p++) {
+                // a missing value is left out, as the database parser does, not stored as null
+                if (!columns.isPresent(p, row)) {
+                    continue;
+                }
+                PVQ_T pvq = new PVQ_T();
+                pvq.setPARAMETER_CODE(parameterCodes[p]);
+                pvq.setVALUE(columns.getValue(p, row));
+                pvq.setQUALITY_CODE(BigInteger.valueOf(columns.getQuality(p, row)));
+                parameters.add(pvq);
+            }
+            TS_PROF_DATA_REC_T dataRecord = new TS_PROF_DATA_REC_T();
+            dataRecord.setDATE_TIME(Timestamp.from(Instant.ofEpochMilli(columns.getTime(row))));
+            dataRecord.setPARAMETERS(parameters);
+            records.add(dataRecord);
+        }
+
+        TS_PROF_DATA_T tsProfileData = new TS_PROF_DATA_T();
+        tsProfileData.attach(configuration);
+        tsProfileData.setRECORDS(records);
+        tsProfileData.setLOCATION_CODE(CWMS_LOC_PACKAGE.call_GET_LOCATION_CODE(configuration, officeId,
+                timeSeriesProfile.getLocationId().getName()).toBigInteger());
+        tsProfileData.setTIME_ZONE("UTC");
+        tsProfileData.setKEY_PARAMETER(CWMS_UTIL_PACKAGE.call_GET_PARAMETER_CODE(configuration,
+                timeSeriesProfile.getKeyParameter(), officeId).toBigInteger());
+        tsProfileData.setUNITS(units);
+
+        CWMS_TS_PROFILE_PACKAGE.call_STORE_TS_PROFILE_INSTANCE(configuration,
+                tsProfileData,
+                versionId,
+                storeRule,
+                overrideProtection,
+                versionDate != null ? Timestamp.from(versionDate) : null,
+                officeId);
+    }
+
     public void storeTimeSeriesProfileInstance(TimeSeriesProfileInstance timeseriesProfileInstance, String versionId,
             Instant versionDate, String storeRule, String overrideProtection) {
         connection(dsl, conn -> {
@@ -284,39 +406,27 @@ public class TimeSeriesProfileInstanceDao extends JooqDao<TimeSeriesProfileInsta
         Field<Timestamp> startTimeCol = VIEW_TSV2.FIRST_DATE_TIME;
         Field<Timestamp> dateTimeCol = VIEW_TSV2.DATE_TIME;
 
-        // handle previous flag
-        if (previous) {
-            Timestamp previousDateTime = null;
-            SelectConditionStep<Record1<Timestamp>> prev = dsl.select(max(VIEW_TSV2.DATE_TIME))
+        // handle previous and next flags with one statement
+        if (previous || next) {
+            Timestamp start = Timestamp.from(startTime);
+            Timestamp end = Timestamp.from(endTime);
+            Record2<Timestamp, Timestamp> bounds = dsl.select(
+                            max(when(dateTimeCol.lessThan(start).and(endTimeCol.greaterThan(start)),
+                                    dateTimeCol)),
+                            min(when(dateTimeCol.greaterThan(end).and(startTimeCol.le(end)),
+                                    dateTimeCol)))
                     .from(VIEW_TSV2)
-                    .where(whereCondition.and(dateTimeCol.lessThan(Timestamp.from(startTime)))
-                            .and(endTimeCol.greaterThan(Timestamp.from(startTime))));
-            Record1<Timestamp> val = prev.fetchOne();
-
-            if (val != null) {
-                previousDateTime = val.value1();
-                if (previousDateTime != null) {
-                    startTime = previousDateTime.toInstant();
+                    .where(whereCondition.and(dateTimeCol.lessThan(start).or(dateTimeCol.greaterThan(end))))
+                    .fetchOne();
+            if (bounds != null) {
+                if (previous && bounds.value1() != null) {
+                    startTime = bounds.value1().toInstant();
                     startInclusive = true;
                 }
-            }
-        }
-
-        // handle next flag
-        if (next) {
-            Timestamp nextDateTime = null;
-            SelectConditionStep<Record1<Timestamp>> nex = dsl.select(min(VIEW_TSV2.DATE_TIME))
-                    .from(VIEW_TSV2)
-                    .where(whereCondition.and(dateTimeCol.greaterThan(Timestamp.from(endTime)))
-                            .and(startTimeCol.le(Timestamp.from(endTime))));
-            if (nex.fetchOne() != null) {
-                nextDateTime = nex.fetchOne().value1();
-            } else {
-                throw new NotFoundException("No time series profile data found for the given parameters");
-            }
-            if (nextDateTime != null) {
-                endTime = nextDateTime.toInstant();
-                endInclusive = true;
+                if (next && bounds.value2() != null) {
+                    endTime = bounds.value2().toInstant();
+                    endInclusive = true;
+                }
             }
         }
 
@@ -340,249 +450,81 @@ public class TimeSeriesProfileInstanceDao extends JooqDao<TimeSeriesProfileInsta
         }
         Condition finalWhereCondition = whereCondition;
 
-        // Get the total number of records if not already set
+        // total times, parameter count (for the fetch size) and version dates in one statement
+        Record4<Integer, Integer, Timestamp, Timestamp> stats = dsl.select(countDistinct(VIEW_TSV2.DATE_TIME),
+                        countDistinct(VIEW_TSV2.PARAMETER_ID),
+                        max(VIEW_TSV2.VERSION_DATE),
+                        min(VIEW_TSV2.VERSION_DATE))
+                .from(VIEW_TSV2)
+                .where(finalWhereCondition)
+                .fetchOne();
+        if (stats == null) {
+            throw new NotFoundException("No time series profile data found for the given parameters");
+        }
         if (total == null) {
-            SelectHavingStep<Record1<Integer>> count = dsl.select(countDistinct(VIEW_TSV2.DATE_TIME))
-                    .from(VIEW_TSV2)
-                    .where(finalWhereCondition);
-            if (count.fetchOne() != null) {
-                total = count.fetchOne().value1();
-            } else {
-                throw new NotFoundException("No time series profile data found for the given parameters");
-            }
+            total = stats.value1();
         }
+        int totalPars = stats.value2();
+        Timestamp maxVersionDate = maxVersion ? stats.value3() : null;
+        Timestamp minVersionDate = !maxVersion && versionDate == null ? stats.value4() : null;
 
-        // get total number of parameters to for setting fetch size
-        int totalPars;
-        SelectHavingStep<Record1<Integer>> count = dsl.select(countDistinct(VIEW_TSV2.PARAMETER_ID))
-                .from(VIEW_TSV2)
-                .where(finalWhereCondition);
-        if (count.fetchOne() != null) {
-            totalPars = count.fetchOne().value1();
-        } else {
+        // Throw 404 if no results
+        if (pageSize == 0 || totalPars == 0) {
             throw new NotFoundException("No time series profile data found for the given parameters");
         }
 
-        // Get the max version date if needed
-        Timestamp maxVersionDate = null;
+        Condition dataCondition = finalWhereCondition;
         if (maxVersion) {
-            SelectConditionStep<Record1<Timestamp>> maxVer = dsl.select(max(VIEW_TSV2.VERSION_DATE))
-                    .from(VIEW_TSV2)
-                    .where(finalWhereCondition);
-            if (maxVer.fetchOne() != null) {
-                maxVersionDate = maxVer.fetchOne().value1();
-            } else {
-                throw new NotFoundException("No time series profile data found for the given parameters");
-            }
+            dataCondition = dataCondition.and(VIEW_TSV2.VERSION_DATE.eq(maxVersionDate));
+        } else if (versionDate == null) {
+            dataCondition = dataCondition.and(VIEW_TSV2.VERSION_DATE.eq(minVersionDate));
         }
-        Timestamp minVersionDate = null;
-        if (!maxVersion && versionDate == null) {
-            SelectConditionStep<Record1<Timestamp>> minVer = dsl.select(min(VIEW_TSV2.VERSION_DATE))
-                    .from(VIEW_TSV2)
-                    .where(finalWhereCondition);
-            if (minVer.fetchOne() != null) {
-                minVersionDate = minVer.fetchOne().value1();
-            } else {
-                throw new NotFoundException("No time series profile data found for the given parameters");
-            }
-        }
-
-        // generate and run query to get the time series profile data
-        Result<Record7<Double, Long, Timestamp, Long, Long, String, String>> result = null;
-        SelectSeekStep1<Record7<Double, Long, Timestamp, Long, Long, String, String>, Timestamp> resultQuery = null;
-        SelectConditionStep<Record7<Double, Long, Timestamp, Long, Long, String, String>> resultCondQuery;
-        SelectSeekLimitStep<Record7<Double, Long, Timestamp, Long, Long, String, String>> resultQuery2 = null;
-        if (pageSize != 0) {
-            if (maxVersion) {
-                resultCondQuery = dsl.select(VIEW_TSV2.VALUE,
-                                VIEW_TSV2.QUALITY_CODE,
-                                VIEW_TSV2.DATE_TIME,
-                                VIEW_TSV2.LOCATION_CODE,
-                                VIEW_TSV2.KEY_PARAMETER_CODE,
-                                VIEW_TSV2.PARAMETER_ID,
-                                VIEW_TSV2.UNIT_ID)
-                        .from(VIEW_TSV2)
-                        .where(finalWhereCondition.and(VIEW_TSV2.VERSION_DATE.eq(maxVersionDate)));
-            } else if (versionDate == null) {
-                resultCondQuery = dsl.select(VIEW_TSV2.VALUE,
-                                VIEW_TSV2.QUALITY_CODE,
-                                VIEW_TSV2.DATE_TIME,
-                                VIEW_TSV2.LOCATION_CODE,
-                                VIEW_TSV2.KEY_PARAMETER_CODE,
-                                VIEW_TSV2.PARAMETER_ID,
-                                VIEW_TSV2.UNIT_ID)
-                        .from(VIEW_TSV2)
-                        .where(finalWhereCondition.and(VIEW_TSV2.VERSION_DATE.eq(minVersionDate)));
-            } else {
-                resultCondQuery = dsl.select(VIEW_TSV2.VALUE,
+        Timestamp from = tsCursor == null ? Timestamp.from(startTime) : tsCursor;
+        dataCondition = dataCondition
+                .and(dateTimeCol.greaterOrEqual(CWMS_UTIL_PACKAGE.call_TO_TIMESTAMP__2(val(from.getTime()))))
+                .and(dateTimeCol.lessOrEqual(CWMS_UTIL_PACKAGE.call_TO_TIMESTAMP__2(val(endTime.toEpochMilli()))));
+
+        // Ordered by time then parameter so the rows can be folded into columns in a single pass.
+        // If there is a cursor, use it with the JOOQ seek method
+        // Needs the parameter and cursor of the record before the first one on the next page
+        //     to correctly split the data into pages
+        SelectSeekStep2<Record5<Double, Long, Timestamp, String, String>, Timestamp, String> ordered =
+                dsl.select(VIEW_TSV2.VALUE,
                                 VIEW_TSV2.QUALITY_CODE,
                                 VIEW_TSV2.DATE_TIME,
-                                VIEW_TSV2.LOCATION_CODE,
-                                VIEW_TSV2.KEY_PARAMETER_CODE,
                                 VIEW_TSV2.PARAMETER_ID,
                                 VIEW_TSV2.UNIT_ID)
                         .from(VIEW_TSV2)
-                        .where(finalWhereCondition);
-            }
-
-            // If there is a cursor, use it with the JOOQ seek method
-            // Needs the parameter and cursor of the record before the first one on the next page
-            //     to correctly split the data into pages
-            // Searches for matching records based on the cursor to start the next page's results
-            if (tsCursor == null) {
-                resultQuery = resultCondQuery.and(dateTimeCol.greaterOrEqual(CWMS_UTIL_PACKAGE
-                                .call_TO_TIMESTAMP__2(val(startTime.toEpochMilli()))))
-                        .and(dateTimeCol.lessOrEqual(CWMS_UTIL_PACKAGE
-                                .call_TO_TIMESTAMP__2(val(endTime.toEpochMilli()))))
-                        .orderBy(VIEW_TSV2.DATE_TIME);
-
-            } else {
-                resultQuery2 = resultCondQuery
-                        .and(dateTimeCol.greaterOrEqual(CWMS_UTIL_PACKAGE
-                                .call_TO_TIMESTAMP__2(val(tsCursor.toInstant().toEpochMilli()))))
-                        .and(dateTimeCol.lessOrEqual(CWMS_UTIL_PACKAGE
-                                .call_TO_TIMESTAMP__2(val(endTime.toEpochMilli()))))
-                        .orderBy(VIEW_TSV2.DATE_TIME, VIEW_TSV2.PARAMETER_ID)
-                        .seek(tsCursor, parameterId);
-            }
-
-            // Get the results
-            // if the page number is set, limit the results to the page size
-            if (pageSize > 0) {
-                int fetchSize = pageSize * totalPars;
-                if (tsCursor == null) {
-                    result = resultQuery.limit(fetchSize).fetch();
-                } else {
-                    result = resultQuery2.limit(fetchSize).fetch();
-                }
-            } else {
-                if (tsCursor == null) {
-                    result = resultQuery.fetch();
-                } else {
-                    result = resultQuery2.fetch();
-                }
+                        .where(dataCondition)
+                        .orderBy(VIEW_TSV2.DATE_TIME, VIEW_TSV2.PARAMETER_ID);
+        SelectLimitStep<Record5<Double, Long, Timestamp, String, String>> paged = tsCursor == null
+                ? ordered : ordered.seek(tsCursor, parameterId);
+        // if the page size is set, limit the results to the page size
+        ResultQuery<Record5<Double, Long, Timestamp, String, String>> dataQuery = pageSize > 0
+                ? paged.limit(pageSize * totalPars) : paged;
+
+        TimeSeriesProfileColumns.Builder columnsBuilder = new TimeSeriesProfileColumns.Builder();
+        try (Cursor<Record5<Double, Long, Timestamp, String, String>> rows =
+                     dataQuery.fetchSize(DATA_FETCH_SIZE).fetchLazy()) {
+            for (Record5<Double, Long, Timestamp, String, String> row : rows) {
+                Long quality = row.value2();
+                columnsBuilder.add(row.value3().getTime(), row.value4(), row.value5(), row.value1(),
+                        quality == null ? 0 : quality.intValue());
             }
-            Result<?> lastRecord = result;
-            LOGGER.fine(lastRecord::toString);
         }
+        TimeSeriesProfileColumns columns = columnsBuilder.build();
 
         // Throw 404 if no results
-        if (result == null || result.isEmpty()) {
+        if (columns.isEmpty()) {
             throw new NotFoundException("No time series profile data found for the given parameters");
         }
 
-        // map the results to a TimeSeriesProfileInstance
-        Result<?> finalResult = result;
-
-        BigInteger locationCode = null;
-        BigInteger keyParameterCode = null;
-
-        TS_PROF_DATA_TAB_T records = new TS_PROF_DATA_TAB_T();
-        Map<Timestamp, Map<String, PVQ_T>> timeValuePairMap = new TreeMap<>();
-        Map<String, String> unitParamMap = new TreeMap<>();
-
-        // boolean to keep track of data that is consistent across all records
-        boolean parentData = false;
-        for (Record resultRecord : finalResult) {
-            if (!parentData) {
-                locationCode = BigInteger.valueOf(resultRecord.get(VIEW_TSV2.LOCATION_CODE));
-                keyParameterCode = BigInteger.valueOf(resultRecord.get(VIEW_TSV2.KEY_PARAMETER_CODE));
-                parentData = true;
-            }
-
-            // map the unit to the parameter
-            if (unitParamMap.get(resultRecord.get(VIEW_TSV2.PARAMETER_ID)) == null) {
-                unitParamMap.put(resultRecord.get(VIEW_TSV2.PARAMETER_ID),
-                        resultRecord.get(VIEW_TSV2.UNIT_ID));
-            }
-
-            // map the parameter, TVQ data
-            Timestamp dateTime = resultRecord.get(VIEW_TSV2.DATE_TIME);
-            Map<String, PVQ_T> dataMap;
-            if (timeValuePairMap.get(dateTime) == null) {
-                dataMap = new TreeMap<>();
-            } else {
-                dataMap = timeValuePairMap.get(dateTime);
-            }
-            dataMap.put(resultRecord.get(VIEW_TSV2.PARAMETER_ID), new PVQ_T(keyParameterCode,
-                    resultRecord.get(VIEW_TSV2.VALUE),
-                    BigInteger.valueOf(resultRecord.get(VIEW_TSV2.QUALITY_CODE))));
-            timeValuePairMap.put(dateTime, dataMap);
-        }
-
-        // map the value/quality data to the timestamp
-        int index = 0;
-        for (Map.Entry<Timestamp, Map<String, PVQ_T>> entry : timeValuePairMap.entrySet()) {
-            PVQ_TAB_T parameters = new PVQ_TAB_T();
-            for (Map.Entry<String, PVQ_T> value : entry.getValue().entrySet()) {
-                parameters.add(value.getValue());
-            }
-            records.add(index, new TS_PROF_DATA_REC_T(entry.getKey(), parameters));
-            index++;
-        }
-
         if (minVersionDate != null) {
             versionDate = minVersionDate.toInstant();
         } else if (maxVersionDate != null) {
             versionDate = maxVersionDate.toInstant();
         }
 
-        List<ParameterColumnInfo> paramList = new ArrayList<>();
-        int ordinal = 1;
-        for (Map.Entry<String, String> entry : unitParamMap.entrySet()) {
-            ParameterColumnInfo parameterColumnInfo = new ParameterColumnInfo.Builder()
-                    .withParameter(entry.getKey())
-                    .withOrdinal(ordinal)
-                    .withUnit(entry.getValue())
-                    .build();
-            ordinal++;
-            paramList.add(parameterColumnInfo);
-        }
-        Map<Long, List<TimeSeriesData>> timeSeriesProfileInstanceList = new TreeMap<>();
-
-        // map the TVQ data to the TimeSeriesProfileInstance
-        // needs previous parameter and cursor to be set to correctly split the data into pages
-        // adds page, nextpage data to the TimeSeriesProfileInstance
-        for (Map.Entry<Timestamp, Map<String, PVQ_T>> entry : timeValuePairMap.entrySet()) {
-            for (Map.Entry<String, PVQ_T> dataValue : entry.getValue().entrySet()) {
-                Timestamp dateTime = entry.getKey();
-                if (timeSeriesProfileInstanceList.containsKey(dateTime.getTime())) {
-                    timeSeriesProfileInstanceList.get(dateTime.getTime())
-                        .add(new TimeSeriesData(dataValue.getValue().getVALUE(),
-                            dataValue.getValue().getQUALITY_CODE().intValue()));
-                } else {
-                    List<TimeSeriesData> dataList = new ArrayList<>();
-                    dataList.add(new TimeSeriesData(dataValue.getValue().getVALUE(),
-                            dataValue.getValue().getQUALITY_CODE().intValue()));
-                    timeSeriesProfileInstanceList.put(dateTime.getTime(), dataList);
-                }
-            }
-        }
-
-        // add null values to the TimeSeriesProfileInstance value list if
-        // the data is missing for the associated parameter
-        for (Map.Entry<Long, List<TimeSeriesData>> entry : timeSeriesProfileInstanceList.entrySet()) {
-            if (entry.getValue().size() < paramList.size()) {
-                for (int i = 0; i < paramList.size(); i++) {
-                    Timestamp dateTime = Timestamp.from(Instant.ofEpochMilli(entry.getKey()));
-                    boolean inBounds = i < entry.getValue().size();
-                    if (!inBounds) {
-                        timeSeriesProfileInstanceList.get(dateTime.getTime()).add(i, null);
-                        continue;
-                    }
-                    if (timeValuePairMap.get(dateTime) == null
-                            || !timeValuePairMap.get(dateTime).containsKey(paramList.get(i).getParameter())) {
-                        timeSeriesProfileInstanceList.get(dateTime.getTime()).add(i, null);
-                    }
-                }
-            }
-        }
-
-        STR_TAB_T units = new STR_TAB_T(unit);
-
-        TS_PROF_DATA_T timeSeriesProfileData = new TS_PROF_DATA_T(locationCode, keyParameterCode,
-                timeZone, units, records);
-
         // Get reference timeseries ID
         AV_TS_PROFILE profileView = AV_TS_PROFILE.AV_TS_PROFILE;
         CwmsId tsCwmsId = null;
@@ -605,10 +547,9 @@ public class TimeSeriesProfileInstanceDao extends JooqDao<TimeSeriesProfileInsta
             }
         }
 
-        // map the TimeSeriesProfileInstance without the value/quality data
-        return map(location.getOfficeId(), location.getName(), keyParameter,
-                timeSeriesProfileData, version, versionDate, startTime, endTime, unitParamMap,
-                pageSize, total, paramList, timeSeriesProfileInstanceList, tsCwmsId);
+        // map the TimeSeriesProfileInstance without copying the value/quality data
+        return map(location.getOfficeId(), location.getName(), keyParameter, timeZone, version,
+                versionDate, startTime, endTime, pageSize, total, columns, tsCwmsId);
     }
 
     public void deleteTimeSeriesProfileInstance(CwmsId location, String keyParameter,
@@ -637,11 +578,8 @@ public class TimeSeriesProfileInstanceDao extends JooqDao<TimeSeriesProfileInsta
 
 
     private TimeSeriesProfileInstance map(String officeId, String location, String keyParameter,
-            TS_PROF_DATA_T timeSeriesProfileData, String version, Instant versionDate, Instant startTime,
-            Instant endTime, Map<String, String> unitParamMap, int pageSize, int total,
-            List<ParameterColumnInfo> parameterColumnInfoList,
-            Map<Long, List<TimeSeriesData>> timeSeriesProfileInstanceList, CwmsId tsId) {
-        List<Instant> timeList = new ArrayList<>();
+            String timeZone, String version, Instant versionDate, Instant startTime, Instant endTime,
+            int pageSize, int total, TimeSeriesProfileColumns columns, CwmsId tsId) {
         List<DataColumnInfo> dataColumnInfoList = new ArrayList<>();
         DataColumnInfo valueDataColumnInfo = new DataColumnInfo.Builder()
                 .withName("value")
@@ -655,13 +593,17 @@ public class TimeSeriesProfileInstanceDao extends JooqDao<TimeSeriesProfileInsta
                 .build();
         dataColumnInfoList.add(valueDataColumnInfo);
         dataColumnInfoList.add(qualityDataColumnInfo);
-        TS_PROF_DATA_TAB_T records = timeSeriesProfileData.getRECORDS();
-        for (TS_PROF_DATA_REC_T dataRecord : records) {
-            Timestamp dateTime = dataRecord.getDATE_TIME();
-            timeList.add(dateTime.toInstant());
-        }
 
-        List<String> parameterList = new ArrayList<>(unitParamMap.keySet());
+        List<String> parameterList = new ArrayList<>();
+        List<ParameterColumnInfo> parameterColumnInfoList = new ArrayList<>();
+        for (int p = 0; p < columns.getParameterCount(); p++) {
+            parameterList.add(columns.getParameter(p));
+            parameterColumnInfoList.add(new ParameterColumnInfo.Builder()
+                    .withParameter(columns.getParameter(p))
+                    .withOrdinal(p + 1)
+                    .withUnit(columns.getUnit(p))
+                    .build());
+        }
         CwmsId locationId = new CwmsId.Builder()
                 .withOfficeId(officeId)
                 .withName(location)
@@ -673,21 +615,22 @@ public class TimeSeriesProfileInstanceDao extends JooqDao<TimeSeriesProfileInsta
                 .withReferenceTsId(tsId)
                 .build();
 
-        String nextPage = null;
-        Long latestTimestamp = timeSeriesProfileInstanceList.keySet().stream().max(Long::compare).orElse(null);
+        // rows are in time order, so the first and last rows bound the page
+        int lastRow = columns.size() - 1;
+        long earliestTimestamp = columns.getTime(0);
+        long latestTimestamp = columns.getTime(lastRow);
 
-        if (timeSeriesProfileInstanceList.keySet().size() >= pageSize && total > pageSize && latestTimestamp != null) {
+        // needs the last parameter and cursor to be set to correctly split the data into pages
+        String nextPage = null;
+        if (columns.size() >= pageSize && total > pageSize) {
+            int lastParameter = Math.max(columns.lastPresentParameter(lastRow), 0);
             nextPage = encodeCursor(delimiter, String.format("%d", latestTimestamp),
-                    parameterColumnInfoList.get(findParameterIndex(parameterColumnInfoList, latestTimestamp,
-                            timeSeriesProfileInstanceList)).getParameter(), total);
+                    columns.getParameter(lastParameter), total);
         }
 
-        Long earliestTimestamp = timeSeriesProfileInstanceList.keySet().stream().min(Long::compare).orElse(null);
-        String timeZone = timeSeriesProfileData.getTIME_ZONE();
-
         TimeSeriesProfileInstance.Builder builder = new TimeSeriesProfileInstance.Builder();
         builder.withTimeSeriesProfile(timeSeriesProfile);
-        builder.withTimeSeriesList(timeSeriesProfileInstanceList);
+        builder.withTimeSeriesList(columns);
         builder.withVersion(version);
         builder.withFirstDate(startTime);
         builder.withLastDate(endTime);
@@ -699,22 +642,9 @@ public class TimeSeriesProfileInstanceDao extends JooqDao<TimeSeriesProfileInsta
         builder.withTotal(total);
         builder.withDataColumns(dataColumnInfoList);
         builder.withParameterColumns(parameterColumnInfoList);
-        builder.withPageFirstDate(timeList.stream().min(Instant::compareTo).orElse(null));
-        builder.withPageLastDate(timeList.stream().max(Instant::compareTo).orElse(null));
+        builder.withPageFirstDate(Instant.ofEpochMilli(earliestTimestamp));
+        builder.withPageLastDate(Instant.ofEpochMilli(latestTimestamp));
         builder.withVersionDate(versionDate);
         return builder.build();
     }
-
-    private static int findParameterIndex(List<ParameterColumnInfo> parameterColumnInfoList, long latestTime,
-            Map<Long, List<TimeSeriesData>> timeSeriesProfileInstanceList) {
-        int returnIndex = -1;
-        int index = 0;
-        for (int i = 0; i < parameterColumnInfoList.size(); i++) {
-            if (timeSeriesProfileInstanceList.get(latestTime).get(index) != null) {
-                returnIndex = index;
-            }
-            index++;
-        }
-        return returnIndex;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,528 @@
+package cwms.cda.data.dao.timeseriesprofile;
+
+import cwms.cda.data.dto.timeseriesprofile.ParameterInfo;
+import cwms.cda.data.dto.timeseriesprofile.ParameterInfoColumnar;
+import cwms.cda.data.dto.timeseriesprofile.ParameterInfoIndexed;
+import cwms.cda.data.dto.timeseriesprofile.TimeSeriesProfileColumns;
+import cwms.cda.data.dto.timeseriesprofile.TimeSeriesProfileParser;
+import cwms.cda.data.dto.timeseriesprofile.TimeSeriesProfileParserColumnar;
+import cwms.cda.data.dto.timeseriesprofile.TimeSeriesProfileParserIndexed;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parses raw time series profile text in the JVM following a stored
+ * {@link TimeSeriesProfileParser} definition, so that CWMS_TS_PROFILE doesn't have to parse
+ * multi-megabyte text inside a database session.
+ *
+ * <p>Large inputs are split into chunks aligned on the record delimiter and parsed in parallel on
+ * the common fork/join pool into primitive arrays, which are then folded into
+ * {@link TimeSeriesProfileColumns}.  Field and column numbers are 1-based as they are in the
+ * database.  Records whose time can't be parsed before the first data record are treated as
+ * headers and skipped.
+ *
+ * <p>This is deliberately conservative: anything that can't be reproduced faithfully (an
+ * unsupported time format element, a missing column definition, a record that can't be parsed
+ * once data has started) results in {@code null} so the caller can hand the text to the database
+ * parser instead.
+ */
+final class TimeSeriesProfileTextParser {
+
+    private static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+    /** Parsed values are unscreened, a missing value is left out of the record rather than stored as null. */
+    static final int PARSED_QUALITY = 0;
+
+    private final char recordDelimiter;
+    private final boolean indexed;
+    private final char fieldDelimiter;
+    private final int timeField;
+    private final int timeFieldCount;
+    private final int timeStartColumn;
+    private final int timeEndColumn;
+    private final String[] parameters;
+    private final String[] units;
+    /** 1-based field index, or start column, of each parameter. */
+    private final int[] starts;
+    /** 1-based end column of each parameter, unused for indexed parsers. */
+    private final int[] ends;
+    private final int maxField;
+    private final DateTimeFormatter timeFormat;
+    private final ZoneId timeZone;
+    private final int chunkSize;
+
+    private TimeSeriesProfileTextParser(TimeSeriesProfileParser parser, List<ParameterInfo> parameterInfo,
+                                        DateTimeFormatter timeFormat, int chunkSize) {
+        recordDelimiter = parser.getRecordDelimiter();
+        this.timeFormat = timeFormat;
+        this.chunkSize = chunkSize;
+        timeZone = parser.getTimeZone() == null ? ZoneOffset.UTC : ZoneId.of(parser.getTimeZone());
+        int count = parameterInfo.size();
+        parameters = new String[count];
+        units = new String[count];
+        starts = new int[count];
+        ends = new int[count];
+        int lastField = 0;
+        for (int i = 0; i < count; i++) {
+            ParameterInfo info = parameterInfo.get(i);
+            parameters[i] = info.getParameter();
+            units[i] = info.getUnit();
+            if (info instanceof ParameterInfoIndexed) {
+                starts[i] = ((ParameterInfoIndexed) info).getIndex();
+            } else {
+                starts[i] = ((ParameterInfoColumnar) info).getStartColumn();
+                ends[i] = ((ParameterInfoColumnar) info).getEndColumn();
+            }
+            lastField = Math.max(lastField, starts[i]);
+        }
+        if (parser instanceof TimeSeriesProfileParserIndexed) {
+            TimeSeriesProfileParserIndexed indexedParser = (TimeSeriesProfileParserIndexed) parser;
+            indexed = true;
+            fieldDelimiter = indexedParser.getFieldDelimiter();
+            timeField = indexedParser.getTimeField().intValue();
+            // a time format such as MM/DD/YYYY,HH24:MI:SS spans the fields its delimiters separate
+            timeFieldCount = 1 + count(parser.getTimeFormat(), fieldDelimiter);
+            lastField = Math.max(lastField, timeField + timeFieldCount - 1);
+            timeStartColumn = 0;
+            timeEndColumn = 0;
+        } else {
+            TimeSeriesProfileParserColumnar columnar = (TimeSeriesProfileParserColumnar) parser;
+            indexed = false;
+            fieldDelimiter = 0;
+            timeField = 0;
+            timeFieldCount = 0;
+            timeStartColumn = columnar.getTimeStartColumn();
+            timeEndColumn = columnar.getTimeEndColumn();
+        }
+        maxField = lastField;
+    }
+
+    /**
+     * @param parser        the stored parser definition
+     * @param parameterInfo the parser's parameters; the parser's own list is used if null
+     * @param chunkSize     characters of text handled by a single task, 0 for the default
+     * @return a parser, or null if the definition can't be parsed faithfully in the JVM
+     */
+    static TimeSeriesProfileTextParser forParser(TimeSeriesProfileParser parser,
+                                                 List<ParameterInfo> parameterInfo, int chunkSize) {
+        if (parameterInfo == null || parameterInfo.isEmpty()) {
+            parameterInfo = parser.getParameterInfoList();
+        }
+        if (parameterInfo == null || parameterInfo.isEmpty() || parser.getTimeFormat() == null) {
+            return null;
+        }
+        if (parser instanceof TimeSeriesProfileParserIndexed) {
+            TimeSeriesProfileParserIndexed indexed = (TimeSeriesProfileParserIndexed) parser;
+            if (indexed.getFieldDelimiter() == null || indexed.getTimeField() == null
+                    || indexed.getTimeField() < 1) {
+                return null;
+            }
+            for (ParameterInfo info : parameterInfo) {
+                if (!(info instanceof ParameterInfoIndexed) || ((ParameterInfoIndexed) info).getIndex() == null
+                        || ((ParameterInfoIndexed) info).getIndex() < 1) {
+                    return null;
+                }
+            }
+        } else if (parser instanceof TimeSeriesProfileParserColumnar) {
+            TimeSeriesProfileParserColumnar columnar = (TimeSeriesProfileParserColumnar) parser;
+            if (!validColumns(columnar.getTimeStartColumn(), columnar.getTimeEndColumn())) {
+                return null;
+            }
+            for (ParameterInfo info : parameterInfo) {
+                if (!(info instanceof ParameterInfoColumnar)
+                        || !validColumns(((ParameterInfoColumnar) info).getStartColumn(),
+                        ((ParameterInfoColumnar) info).getEndColumn())) {
+                    return null;
+                }
+            }
+        } else {
+            return null;
+        }
+        DateTimeFormatter timeFormat = toFormatter(parser.getTimeFormat());
+        if (timeFormat == null) {
+            return null;
+        }
+        try {
+            return new TimeSeriesProfileTextParser(parser, parameterInfo, timeFormat,
+                    chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE);
+        } catch (DateTimeException ex) {
+            // unknown time zone id
+            return null;
+        }
+    }
+
+    /**
+     * @return the parsed values, or null if the text doesn't consistently follow the parser
+     */
+    TimeSeriesProfileColumns parse(String text) {
+        List<Chunk> chunks = text.length() <= chunkSize
+                ? Arrays.asList(parseRange(text, 0, text.length()))
+                : ForkJoinPool.commonPool().invoke(new ParseTask(text, 0, text.length()));
+
+        int rows = 0;
+        boolean dataStarted = false;
+        for (Chunk chunk : chunks) {
+            if (chunk.failuresAfterData > 0 || (dataStarted && chunk.leadingFailures > 0)) {
+                return null;
+            }
+            dataStarted |= chunk.size > 0;
+            rows += chunk.size;
+        }
+        if (rows == 0) {
+            return null;
+        }
+
+        long[] times = new long[rows];
+        double[][] values = new double[parameters.length][rows];
+        int offset = 0;
+        for (Chunk chunk : chunks) {
+            System.arraycopy(chunk.times, 0, times, offset, chunk.size);
+            for (int p = 0; p < parameters.length; p++) {
+                System.arraycopy(chunk.values[p], 0, values[p], offset, chunk.size);
+            }
+            offset += chunk.size;
+        }
+
+        TimeSeriesProfileColumns.Builder builder = new TimeSeriesProfileColumns.Builder();
+        for (int row : timeOrder(times)) {
+            for (int p = 0; p < parameters.length; p++) {
+                double value = values[p][row];
+                builder.add(times[row], parameters[p], units[p], Double.isNaN(value) ? null : value,
+                        PARSED_QUALITY);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return row indices ordered by time, stable so a repeated time keeps file order
+     */
+    private static int[] timeOrder(long[] times) {
+        int[] retVal = new int[times.length];
+        boolean sorted = true;
+        for (int i = 0; i < times.length; i++) {
+            retVal[i] = i;
+            sorted &= i == 0 || times[i - 1] <= times[i];
+        }
+        if (!sorted) {
+            Integer[] order = new Integer[times.length];
+            for (int i = 0; i < times.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(times[a], times[b]));
+            for (int i = 0; i < times.length; i++) {
+                retVal[i] = order[i];
+            }
+        }
+        return retVal;
+    }
+
+    private final class ParseTask extends RecursiveTask<List<Chunk>> {
+        private final String text;
+        private final int start;
+        private final int end;
+
+        ParseTask(String text, int start, int end) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected List<Chunk> compute() {
+            if (end - start <= chunkSize) {
+                List<Chunk> retVal = new ArrayList<>();
+                retVal.add(parseRange(text, start, end));
+                return retVal;
+            }
+            // split just after a record delimiter so no record straddles two chunks
+            int split = text.indexOf(recordDelimiter, start + (end - start) / 2);
+            if (split < 0 || split + 1 >= end) {
+                List<Chunk> retVal = new ArrayList<>();
+                retVal.add(parseRange(text, start, end));
+                return retVal;
+            }
+            ParseTask right = new ParseTask(text, split + 1, end);
+            right.fork();
+            List<Chunk> retVal = new ParseTask(text, start, split + 1).compute();
+            retVal.addAll(right.join());
+            return retVal;
+        }
+    }
+
+    private Chunk parseRange(String text, int start, int end) {
+        Chunk chunk = new Chunk(parameters.length, Math.max(16, (end - start) / 64));
+        int[] bounds = new int[2 * (maxField + 1)];
+        int recordStart = start;
+        while (recordStart < end) {
+            int recordEnd = text.indexOf(recordDelimiter, recordStart);
+            if (recordEnd < 0 || recordEnd > end) {
+                recordEnd = end;
+            }
+            int next = recordEnd + 1;
+            if (recordDelimiter == '\n' && recordEnd > recordStart && text.charAt(recordEnd - 1) == '\r') {
+                recordEnd--;
+            }
+            if (!isBlank(text, recordStart, recordEnd)) {
+                parseRecord(text, recordStart, recordEnd, bounds, chunk);
+            }
+            recordStart = next;
+        }
+        return chunk;
+    }
+
+    private void parseRecord(String text, int start, int end, int[] bounds, Chunk chunk) {
+        String time;
+        int fields = indexed ? splitFields(text, start, end, bounds) : 0;
+        if (indexed) {
+            int last = timeField + timeFieldCount - 1;
+            time = last <= fields ? text.substring(bounds[2 * timeField], bounds[2 * last + 1]) : null;
+        } else {
+            time = column(text, start, end, timeStartColumn, timeEndColumn);
+        }
+        long millis;
+        try {
+            if (time == null) {
+                throw new DateTimeException("record has no time");
+            }
+            millis = LocalDateTime.parse(time.trim(), timeFormat).atZone(timeZone).toInstant().toEpochMilli();
+        } catch (DateTimeException ex) {
+            if (chunk.size == 0) {
+                chunk.leadingFailures++;
+            } else {
+                chunk.failuresAfterData++;
+            }
+            return;
+        }
+
+        int row = chunk.newRow(millis);
+        for (int p = 0; p < parameters.length; p++) {
+            String value;
+            if (indexed) {
+                value = starts[p] <= fields ? text.substring(bounds[2 * starts[p]], bounds[2 * starts[p] + 1]) : null;
+            } else {
+                value = column(text, start, end, starts[p], ends[p]);
+            }
+            chunk.values[p][row] = toDouble(value);
+        }
+    }
+
+    /**
+     * Fills {@code bounds} with the start and end offsets of fields 1..maxField.
+     *
+     * @return the number of fields found, at most maxField
+     */
+    private int splitFields(String text, int start, int end, int[] bounds) {
+        int field = 1;
+        int fieldStart = start;
+        for (int i = start; i < end && field <= maxField; i++) {
+            if (text.charAt(i) == fieldDelimiter) {
+                bounds[2 * field] = fieldStart;
+                bounds[2 * field + 1] = i;
+                field++;
+                fieldStart = i + 1;
+            }
+        }
+        if (field <= maxField) {
+            bounds[2 * field] = fieldStart;
+            bounds[2 * field + 1] = end;
+            return field;
+        }
+        return maxField;
+    }
+
+    private static String column(String text, int start, int end, int startColumn, int endColumn) {
+        int from = start + startColumn - 1;
+        if (from >= end) {
+            return null;
+        }
+        return text.substring(from, Math.min(end, start + endColumn));
+    }
+
+    private static double toDouble(String value) {
+        if (value == null) {
+            return Double.NaN;
+        }
+        value = value.trim();
+        if (value.isEmpty()) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException ex) {
+            return Double.NaN;
+        }
+    }
+
+    private static boolean isBlank(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean validColumns(Integer start, Integer end) {
+        return start != null && end != null && start >= 1 && end >= start;
+    }
+
+    private static int count(String text, char c) {
+        int retVal = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == c) {
+                retVal++;
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * Translates an Oracle datetime format model such as {@code MM/DD/YYYY,HH24:MI:SS} into a
+     * java.time formatter.  HH and HH12 are 12 hour elements, as they are to Oracle, so a model that
+     * uses one without AM or PM is left to the database rather than guessing which half of the day
+     * is meant.
+     *
+     * @return the formatter, or null if the model uses an element that isn't supported
+     */
+    static DateTimeFormatter toFormatter(String oracleFormat) {
+        String format = oracleFormat.toUpperCase(Locale.ROOT);
+        StringBuilder pattern = new StringBuilder();
+        boolean hasHour = false;
+        boolean hasTwelveHour = false;
+        boolean hasMeridian = false;
+        boolean hasMinute = false;
+        boolean hasSecond = false;
+        int i = 0;
+        while (i < format.length()) {
+            char c = format.charAt(i);
+            if (c == '"') {
+                int close = oracleFormat.indexOf('"', i + 1);
+                if (close < 0) {
+                    return null;
+                }
+                quote(pattern, oracleFormat.substring(i + 1, close));
+                i = close + 1;
+            } else if (format.startsWith("YYYY", i) || format.startsWith("RRRR", i)) {
+                pattern.append("uuuu");
+                i += 4;
+            } else if (format.startsWith("YY", i) || format.startsWith("RR", i)) {
+                pattern.append("uu");
+                i += 2;
+            } else if (format.startsWith("MONTH", i)) {
+                pattern.append("MMMM");
+                i += 5;
+            } else if (format.startsWith("MON", i)) {
+                pattern.append("MMM");
+                i += 3;
+            } else if (format.startsWith("MM", i)) {
+                pattern.append("MM");
+                i += 2;
+            } else if (format.startsWith("MI", i)) {
+                pattern.append("mm");
+                hasMinute = true;
+                i += 2;
+            } else if (format.startsWith("DDD", i)) {
+                pattern.append("DDD");
+                i += 3;
+            } else if (format.startsWith("DD", i)) {
+                pattern.append("dd");
+                i += 2;
+            } else if (format.startsWith("HH24", i)) {
+                pattern.append("HH");
+                hasHour = true;
+                i += 4;
+            } else if (format.startsWith("HH12", i)) {
+                pattern.append("hh");
+                hasHour = true;
+                hasTwelveHour = true;
+                i += 4;
+            } else if (format.startsWith("HH", i)) {
+                pattern.append("hh");
+                hasHour = true;
+                hasTwelveHour = true;
+                i += 2;
+            } else if (format.startsWith("SS", i)) {
+                pattern.append("ss");
+                hasSecond = true;
+                i += 2;
+            } else if (format.startsWith("FF", i) && i + 2 < format.length()
+                    && format.charAt(i + 2) >= '1' && format.charAt(i + 2) <= '9') {
+                int digits = format.charAt(i + 2) - '0';
+                for (int d = 0; d < digits; d++) {
+                    pattern.append('S');
+                }
+                i += 3;
+            } else if (format.startsWith("AM", i) || format.startsWith("PM", i)) {
+                pattern.append('a');
+                hasMeridian = true;
+                i += 2;
+            } else if (Character.isLetterOrDigit(c)) {
+                return null;
+            } else {
+                quote(pattern, String.valueOf(c));
+                i++;
+            }
+        }
+        if (hasTwelveHour != hasMeridian) {
+            return null;
+        }
+        DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder()
+                .parseCaseInsensitive()
+                .appendPattern(pattern.toString());
+        if (!hasHour) {
+            builder.parseDefaulting(ChronoField.HOUR_OF_DAY, 0);
+        }
+        if (!hasMinute) {
+            builder.parseDefaulting(ChronoField.MINUTE_OF_HOUR, 0);
+        }
+        if (!hasSecond) {
+            builder.parseDefaulting(ChronoField.SECOND_OF_MINUTE, 0);
+        }
+        // strict, as Oracle is, so 24:00 or February 30 is an error rather than rolled forward
+        return builder.toFormatter(Locale.US).withResolverStyle(ResolverStyle.STRICT);
+    }
+
+    private static void quote(StringBuilder pattern, String literal) {
+        pattern.append('\'').append(literal.replace("'", "''")).append('\'');
+    }
+
+    /**
+     * Rows parsed from one line-aligned range of the text, in file order.  A missing value is NaN.
+     */
+    private static final class Chunk {
+        private long[] times;
+        private double[][] values;
+        private int size;
+        private int leadingFailures;
+        private int failuresAfterData;
+
+        Chunk(int parameterCount, int capacity) {
+            times = new long[capacity];
+            values = new double[parameterCount][capacity];
+        }
+
+        int newRow(long time) {
+            if (size == times.length) {
+                int capacity = times.length * 2;
+                times = Arrays.copyOf(times, capacity);
+                for (int p = 0; p < values.length; p++) {
+                    values[p] = Arrays.copyOf(values[p], capacity);
+                }
+            }
+            times[size] = time;
+            return size++;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2024 Hydrologic Engineering Center
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cwms.cda.data.dao.watersupply;
+
+import cwms.cda.data.dto.CwmsDTOPaginated;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Where the next page of an accounting set starts: the transfer instant the previous page
+ * stopped at, and whether that instant's transfers are still to come.  Paging moves the start
+ * of the window when ascending and its end when descending.
+ */
+final class AccountingCursor {
+    final Instant instant;
+    final boolean inclusive;
+
+    AccountingCursor(Instant instant, boolean inclusive) {
+        this.instant = instant;
+        this.inclusive = inclusive;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor isn't one this class encoded
+     */
+    static AccountingCursor decode(String cursor, int pageSize) {
+        String[] parts = CwmsDTOPaginated.decodeCursor(cursor);
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Invalid accounting page: " + cursor);
+        }
+        try {
+            if (Integer.parseInt(parts[2]) != pageSize) {
+                throw new IllegalArgumentException("The page-size of an accounting page can't be changed, "
+                        + "the page was read with " + parts[2]);
+            }
+            return new AccountingCursor(Instant.ofEpochMilli(Long.parseLong(parts[0])),
+                    Boolean.parseBoolean(parts[1]));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid accounting page: " + cursor, ex);
+        }
+    }
+
+    String encode(int pageSize) {
+        return CwmsDTOPaginated.encodeCursor(CwmsDTOPaginated.delimiter, instant.toEpochMilli(), inclusive,
+                pageSize);
+    }
+
+    /**
+     * A page is cut before the instant of its last row since more of that instant's transfers
+     * may follow, so pages only ever hold whole instants.
+     *
+     * @param instants the transfer instants of the rows read, in retrieval order
+     * @param pageSize the number of rows asked for
+     * @return how many of the rows to keep, all of them when fewer than a page was read, 0 when
+     *     every row has the same instant
+     */
+    static int wholeInstants(List<Instant> instants, int pageSize) {
+        if (instants.size() < pageSize) {
+            return instants.size();
+        }
+        Instant last = instants.get(instants.size() - 1);
+        int keep = instants.size() - 1;
+        while (keep > 0 && instants.get(keep - 1).equals(last)) {
+            keep--;
+        }
+        return keep;
+    }
+}
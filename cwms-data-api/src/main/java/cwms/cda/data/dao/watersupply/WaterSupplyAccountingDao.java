@@ -28,67 +28,124 @@ package cwms.cda.data.dao.watersupply;
 
 import cwms.cda.data.dao.JooqDao;
 import cwms.cda.data.dto.CwmsId;
+import cwms.cda.data.dto.watersupply.PumpTransfer;
 import cwms.cda.data.dto.watersupply.WaterSupplyAccounting;
 import cwms.cda.data.dto.watersupply.WaterUser;
 import hec.lang.Const;
+import java.io.IOException;
 import java.math.BigInteger;
+import java.sql.Connection;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.jetbrains.annotations.Nullable;
+import org.jooq.Configuration;
 import org.jooq.DSLContext;
 import org.jooq.impl.DSL;
 import usace.cwms.db.jooq.codegen.packages.CWMS_WATER_SUPPLY_PACKAGE;
 import usace.cwms.db.jooq.codegen.udt.records.LOC_REF_TIME_WINDOW_TAB_T;
 import usace.cwms.db.jooq.codegen.udt.records.WATER_USER_CONTRACT_REF_T;
+import usace.cwms.db.jooq.codegen.udt.records.WAT_USR_CONTRACT_ACCT_OBJ_T;
 import usace.cwms.db.jooq.codegen.udt.records.WAT_USR_CONTRACT_ACCT_TAB_T;
 
 
 public class WaterSupplyAccountingDao extends JooqDao<WaterSupplyAccounting> {
 
+    /**
+     * The most pump transfers passed to the database in one store call.
+     */
+    public static final int STORE_BATCH_SIZE = 500;
+    /**
+     * The rows read from the database at a time when an accounting set is streamed.
+     */
+    public static final int STREAM_PAGE_SIZE = 5000;
+
     public WaterSupplyAccountingDao(DSLContext dsl) {
         super(dsl);
     }
 
+    /**
+     * Stores the accounting set in one transaction, {@link #STORE_BATCH_SIZE} transfers per
+     * store call so a large set doesn't become one huge collection bind.
+     */
     public void storeAccounting(WaterSupplyAccounting accounting) {
         String volumeUnitId = null;
         String storeRule = Const.Delete_Insert;
         boolean overrideProtection = false;
 
+        WATER_USER_CONTRACT_REF_T contractRefT = WaterSupplyUtils
+                .toContractRef(accounting.getWaterUser(), accounting.getContractName());
+        List<WAT_USR_CONTRACT_ACCT_TAB_T> accountingTabs = new ArrayList<>();
+        List<LOC_REF_TIME_WINDOW_TAB_T> pumpTimeWindowTabs = new ArrayList<>();
+        for (WaterSupplyAccounting batch : batches(accounting, STORE_BATCH_SIZE)) {
+            accountingTabs.add(WaterSupplyUtils.toWaterUserContractAcctTs(batch));
+            pumpTimeWindowTabs.add(WaterSupplyUtils.toTimeWindowTabT(batch));
+        }
+        String timeZoneId = "UTC";
+        String overrideProt = formatBool(overrideProtection);
+
         connection(dsl, c -> {
             setOffice(c, accounting.getWaterUser().getProjectId().getOfficeId());
-
-            WAT_USR_CONTRACT_ACCT_TAB_T accountingTab = WaterSupplyUtils.toWaterUserContractAcctTs(accounting);
-            WATER_USER_CONTRACT_REF_T contractRefT = WaterSupplyUtils
-                    .toContractRef(accounting.getWaterUser(), accounting.getContractName());
-            LOC_REF_TIME_WINDOW_TAB_T pumpTimeWindowTab = WaterSupplyUtils.toTimeWindowTabT(accounting);
-            String timeZoneId = "UTC";
-            String overrideProt = formatBool(overrideProtection);
-            CWMS_WATER_SUPPLY_PACKAGE.call_STORE_ACCOUNTING_SET(DSL.using(c).configuration(), accountingTab,
-                    contractRefT, pumpTimeWindowTab, timeZoneId, volumeUnitId, storeRule, overrideProt);
+            DSL.using(c).transaction((Configuration trx) -> {
+                for (int i = 0; i < accountingTabs.size(); i++) {
+                    CWMS_WATER_SUPPLY_PACKAGE.call_STORE_ACCOUNTING_SET(trx, accountingTabs.get(i),
+                            contractRefT, pumpTimeWindowTabs.get(i), timeZoneId, volumeUnitId, storeRule,
+                            overrideProt);
+                }
+            });
         });
     }
 
+    /**
+     * Splits an accounting set into sets of at most batchSize transfers.  The transfers of an
+     * instant stay together, since storing a batch replaces the transfers at its instants, so
+     * an instant with more transfers than that is a batch of its own.
+     */
+    static List<WaterSupplyAccounting> batches(WaterSupplyAccounting accounting, int batchSize) {
+        List<WaterSupplyAccounting> batches = new ArrayList<>();
+        Map<Instant, List<PumpTransfer>> batch = new TreeMap<>();
+        int transfers = 0;
+        for (Map.Entry<Instant, List<PumpTransfer>> entry : accounting.getPumpAccounting().entrySet()) {
+            if (!batch.isEmpty() && transfers + entry.getValue().size() > batchSize) {
+                batches.add(withPumpAccounting(accounting, batch));
+                batch = new TreeMap<>();
+                transfers = 0;
+            }
+            batch.put(entry.getKey(), entry.getValue());
+            transfers += entry.getValue().size();
+        }
+        if (batches.isEmpty()) {
+            return Collections.singletonList(accounting);
+        }
+        batches.add(withPumpAccounting(accounting, batch));
+        return batches;
+    }
+
+    private static WaterSupplyAccounting withPumpAccounting(WaterSupplyAccounting accounting,
+            Map<Instant, List<PumpTransfer>> pumpAccounting) {
+        return new WaterSupplyAccounting.Builder()
+                .withContractName(accounting.getContractName())
+                .withWaterUser(accounting.getWaterUser())
+                .withPumpLocations(accounting.getPumpLocations())
+                .withPumpAccounting(pumpAccounting)
+                .build();
+    }
+
     public List<WaterSupplyAccounting> retrieveAccounting(String contractName, WaterUser waterUser,
             CwmsId projectLocation, String units, Instant startTime, Instant endTime,
             boolean startInclusive, boolean endInclusive, boolean ascendingFlag, int rowLimit) {
 
-        String transferType = null;
         WATER_USER_CONTRACT_REF_T contractRefT = WaterSupplyUtils.toContractRef(waterUser, contractName);
-        Timestamp startTimestamp = Timestamp.from(startTime);
-        Timestamp endTimestamp = Timestamp.from(endTime);
-        String timeZoneId = "UTC";
-        String startInclusiveFlag = formatBool(startInclusive);
-        String endInclusiveFlag = formatBool(endInclusive);
-        String ascendingFlagStr = formatBool(ascendingFlag);
-        BigInteger rowLimitBigInt = BigInteger.valueOf(rowLimit);
 
         return connectionResult(dsl, c -> {
             setOffice(c, projectLocation.getOfficeId());
-            WAT_USR_CONTRACT_ACCT_TAB_T watUsrContractAcctObjTs
-                = CWMS_WATER_SUPPLY_PACKAGE.call_RETRIEVE_ACCOUNTING_SET(DSL.using(c).configuration(),
-                contractRefT, units, startTimestamp, endTimestamp, timeZoneId, startInclusiveFlag,
-                endInclusiveFlag, ascendingFlagStr, rowLimitBigInt, transferType);
+            WAT_USR_CONTRACT_ACCT_TAB_T watUsrContractAcctObjTs = retrieve(DSL.using(c).configuration(),
+                    contractRefT, units, startTime, endTime, startInclusive, endInclusive, ascendingFlag,
+                    rowLimit);
             if (!watUsrContractAcctObjTs.isEmpty()) {
                 return WaterSupplyUtils.toWaterSupplyAccountingList(c, watUsrContractAcctObjTs);
             } else {
@@ -96,4 +153,165 @@ public class WaterSupplyAccountingDao extends JooqDao<WaterSupplyAccounting> {
             }
         });
     }
+
+    /**
+     * Retrieves a page of an accounting set.  Pages hold whole transfer instants, so a page may
+     * have fewer than pageSize transfers, or more when one instant has more than that.
+     *
+     * @param page the cursor from the previous page, null for the first page
+     * @throws IllegalArgumentException if the page isn't a cursor read with this pageSize
+     */
+    public AccountingPage retrieveAccountingPage(String contractName, WaterUser waterUser,
+            CwmsId projectLocation, String units, Instant startTime, Instant endTime,
+            boolean startInclusive, boolean endInclusive, boolean ascendingFlag, @Nullable String page,
+            int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("page-size must be positive, was: " + pageSize);
+        }
+        AccountingCursor cursor = page == null ? null : AccountingCursor.decode(page, pageSize);
+        WATER_USER_CONTRACT_REF_T contractRefT = WaterSupplyUtils.toContractRef(waterUser, contractName);
+
+        return connectionResult(dsl, c -> {
+            setOffice(c, projectLocation.getOfficeId());
+            Rows rows = readPage(DSL.using(c).configuration(), contractRefT, units, startTime, endTime,
+                    startInclusive, endInclusive, ascendingFlag, cursor, pageSize);
+            List<WaterSupplyAccounting> accounting = rows.rows.isEmpty() ? new ArrayList<>()
+                    : WaterSupplyUtils.toWaterSupplyAccountingList(c, new WAT_USR_CONTRACT_ACCT_TAB_T(rows.rows));
+            return new AccountingPage(accounting, rows.next == null ? null : rows.next.encode(pageSize));
+        });
+    }
+
+    /**
+     * Reads an accounting set {@link #STREAM_PAGE_SIZE} rows at a time, passing each part to the
+     * sink before the next is read, so the whole set is never held at once.
+     */
+    public void streamAccounting(String contractName, WaterUser waterUser, CwmsId projectLocation,
+            String units, Instant startTime, Instant endTime, boolean startInclusive, boolean endInclusive,
+            boolean ascendingFlag, int rowLimit, AccountingSink sink) {
+        WATER_USER_CONTRACT_REF_T contractRefT = WaterSupplyUtils.toContractRef(waterUser, contractName);
+
+        connection(dsl, c -> {
+            setOffice(c, projectLocation.getOfficeId());
+            Configuration config = DSL.using(c).configuration();
+            if (rowLimit > 0) {
+                // the limit already bounds the set, and it can't be split into pages of whole instants
+                List<WAT_USR_CONTRACT_ACCT_OBJ_T> rows = new ArrayList<>();
+                for (WAT_USR_CONTRACT_ACCT_OBJ_T row : retrieve(config, contractRefT, units, startTime, endTime,
+                        startInclusive, endInclusive, ascendingFlag, rowLimit)) {
+                    rows.add(row);
+                }
+                emit(c, rows, sink);
+                return;
+            }
+            AccountingCursor cursor = null;
+            do {
+                Rows rows = readPage(config, contractRefT, units, startTime, endTime, startInclusive,
+                        endInclusive, ascendingFlag, cursor, STREAM_PAGE_SIZE);
+                emit(c, rows.rows, sink);
+                cursor = rows.next;
+            } while (cursor != null);
+        });
+    }
+
+    private static void emit(Connection c, List<WAT_USR_CONTRACT_ACCT_OBJ_T> rows, AccountingSink sink)
+            throws IOException {
+        if (!rows.isEmpty()) {
+            for (WaterSupplyAccounting part : WaterSupplyUtils.toWaterSupplyAccountingList(c,
+                    new WAT_USR_CONTRACT_ACCT_TAB_T(rows))) {
+                sink.accounting(part);
+            }
+        }
+    }
+
+    /**
+     * Reads the page after the cursor, which replaces the start of the window when ascending and
+     * its end when descending.
+     */
+    private static Rows readPage(Configuration config, WATER_USER_CONTRACT_REF_T contractRefT, String units,
+            Instant startTime, Instant endTime, boolean startInclusive, boolean endInclusive,
+            boolean ascendingFlag, @Nullable AccountingCursor cursor, int pageSize) {
+        Instant start = startTime;
+        Instant end = endTime;
+        boolean startIncl = startInclusive;
+        boolean endIncl = endInclusive;
+        if (cursor != null && ascendingFlag) {
+            start = cursor.instant;
+            startIncl = cursor.inclusive;
+        } else if (cursor != null) {
+            end = cursor.instant;
+            endIncl = cursor.inclusive;
+        }
+        List<WAT_USR_CONTRACT_ACCT_OBJ_T> read = new ArrayList<>();
+        List<Instant> instants = new ArrayList<>();
+        for (WAT_USR_CONTRACT_ACCT_OBJ_T row : retrieve(config, contractRefT, units, start, end, startIncl,
+                endIncl, ascendingFlag, pageSize)) {
+            read.add(row);
+            instants.add(row.getTRANSFER_START_DATETIME().toInstant());
+        }
+        int keep = AccountingCursor.wholeInstants(instants, pageSize);
+        if (keep == read.size()) {
+            return new Rows(read, null);
+        } else if (keep > 0) {
+            return new Rows(new ArrayList<>(read.subList(0, keep)), new AccountingCursor(instants.get(keep), true));
+        }
+        // one instant has a page or more of transfers, it is read whole
+        Instant only = instants.get(0);
+        List<WAT_USR_CONTRACT_ACCT_OBJ_T> all = new ArrayList<>();
+        for (WAT_USR_CONTRACT_ACCT_OBJ_T row : retrieve(config, contractRefT, units, only, only, true, true,
+                ascendingFlag, 0)) {
+            all.add(row);
+        }
+        return new Rows(all, new AccountingCursor(only, false));
+    }
+
+    private static WAT_USR_CONTRACT_ACCT_TAB_T retrieve(Configuration config,
+            WATER_USER_CONTRACT_REF_T contractRefT, String units, Instant startTime, Instant endTime,
+            boolean startInclusive, boolean endInclusive, boolean ascendingFlag, int rowLimit) {
+        String transferType = null;
+        Timestamp startTimestamp = Timestamp.from(startTime);
+        Timestamp endTimestamp = Timestamp.from(endTime);
+        String timeZoneId = "UTC";
+        String startInclusiveFlag = formatBool(startInclusive);
+        String endInclusiveFlag = formatBool(endInclusive);
+        String ascendingFlagStr = formatBool(ascendingFlag);
+        BigInteger rowLimitBigInt = BigInteger.valueOf(rowLimit);
+        return CWMS_WATER_SUPPLY_PACKAGE.call_RETRIEVE_ACCOUNTING_SET(config, contractRefT, units,
+                startTimestamp, endTimestamp, timeZoneId, startInclusiveFlag, endInclusiveFlag,
+                ascendingFlagStr, rowLimitBigInt, transferType);
+    }
+
+    private static final class Rows {
+        final List<WAT_USR_CONTRACT_ACCT_OBJ_T> rows;
+        @Nullable
+        final AccountingCursor next;
+
+        Rows(List<WAT_USR_CONTRACT_ACCT_OBJ_T> rows, @Nullable AccountingCursor next) {
+            this.rows = rows;
+            this.next = next;
+        }
+    }
+
+    /**
+     * A page of an accounting set and the cursor to the next one.
+     */
+    public static final class AccountingPage {
+        private final List<WaterSupplyAccounting> accounting;
+        private final String nextPage;
+
+        AccountingPage(List<WaterSupplyAccounting> accounting, String nextPage) {
+            this.accounting = accounting;
+            this.nextPage = nextPage;
+        }
+
+        public List<WaterSupplyAccounting> getAccounting() {
+            return accounting;
+        }
+
+        /**
+         * @return the page parameter of the next page, null if this is the last page
+         */
+        public String getNextPage() {
+            return nextPage;
+        }
+    }
 }
@@ -0,0 +1,129 @@
+package cwms.cda.data.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonRootName;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import cwms.cda.formatters.Formats;
+import cwms.cda.formatters.annotations.FormattableWith;
+import cwms.cda.formatters.json.JsonV1;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of storing, or with a dry run only validating, a list of locations, one item per
+ * location in the order they were sent.
+ */
+@JsonRootName("location-bulk-result")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonNaming(PropertyNamingStrategies.KebabCaseStrategy.class)
+@FormattableWith(contentType = Formats.JSONV1, formatter = JsonV1.class, aliases = {Formats.DEFAULT, Formats.JSON})
+public final class LocationBulkResult extends CwmsDTOBase {
+
+    public enum Status {
+        /** Valid, and not stored because the request was a dry run. */
+        VALID,
+        STORED,
+        /** Not stored because it isn't a valid location. */
+        INVALID,
+        /** Valid, but the database rejected it. */
+        FAILED
+    }
+
+    private final boolean dryRun;
+    private final List<Item> items;
+
+    public LocationBulkResult(boolean dryRun, List<Item> items) {
+        this.dryRun = dryRun;
+        this.items = Collections.unmodifiableList(new ArrayList<>(items));
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    /**
+     * @return the number of locations with the status
+     */
+    public int count(Status status) {
+        int count = 0;
+        for (Item item : items) {
+            if (item.status == status) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return whether every location was stored, or for a dry run is valid
+     */
+    public boolean isSuccessful() {
+        return count(dryRun ? Status.VALID : Status.STORED) == items.size();
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonNaming(PropertyNamingStrategies.KebabCaseStrategy.class)
+    public static final class Item {
+        private final int index;
+        private final String officeId;
+        private final String name;
+        private final Status status;
+        private final String message;
+        private final Map<String, ? extends List<String>> details;
+
+        public Item(int index, String officeId, String name, Status status, String message,
+                    Map<String, ? extends List<String>> details) {
+            this.index = index;
+            this.officeId = officeId;
+            this.name = name;
+            this.status = status;
+            this.message = message;
+            this.details = details == null || details.isEmpty() ? null : details;
+        }
+
+        public Item(int index, String officeId, String name, Status status) {
+            this(index, officeId, name, status, null, null);
+        }
+
+        /**
+         * @return the location's position in the request, from 0
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public String getOfficeId() {
+            return officeId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public Map<String, ? extends List<String>> getDetails() {
+            return details;
+        }
+
+        /**
+         * @return this item with a new status, as when a valid location is stored
+         */
+        public Item withStatus(Status status, String message) {
+            return new Item(index, officeId, name, status, message, details);
+        }
+    }
+}
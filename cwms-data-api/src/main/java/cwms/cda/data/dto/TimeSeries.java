@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonFormat.Shape;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import com.fasterxml.jackson.annotation.JsonRootName;
@@ -12,6 +13,7 @@ import com.fasterxml.jackson.databind.annotation.JsonNaming;
 import cwms.cda.api.enums.VersionType;
 import cwms.cda.formatters.Formats;
 import cwms.cda.formatters.annotations.FormattableWith;
+import cwms.cda.formatters.binary.BinaryV1TimeSeries;
 import cwms.cda.formatters.json.JsonV2;
 import cwms.cda.formatters.xml.XMLv2;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -29,6 +31,7 @@ import java.util.List;
 @JsonNaming(PropertyNamingStrategies.KebabCaseStrategy.class)
 @FormattableWith(contentType = Formats.JSONV2, formatter = JsonV2.class, aliases = {Formats.DEFAULT, Formats.JSON})
 @FormattableWith(contentType = Formats.XMLV2, formatter = XMLv2.class, aliases = {Formats.XML})
+@FormattableWith(contentType = Formats.TIMESERIES_BINARY, formatter = BinaryV1TimeSeries.class)
 public class TimeSeries extends CwmsDTOPaginated {
     public static final String ZONED_DATE_TIME_FORMAT = "yyyy-MM-dd'T'HH:mm:ssZ'['VV']'";
 
@@ -100,6 +103,15 @@ public class TimeSeries extends CwmsDTOPaginated {
     )
     private String timeZone;
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonFormat(shape = Shape.STRING)
+    @Schema(
+            accessMode = AccessMode.READ_ONLY,
+            description = "Only when values changed since an entry date were requested. The entry date to "
+                    + "request the next changes since; values entered up to it have been considered."
+    )
+    ZonedDateTime nextWatermark;
+
 
     @SuppressWarnings("unused") // required so JAXB can initialize and marshal
     private TimeSeries() {}
@@ -187,6 +199,14 @@ public class TimeSeries extends CwmsDTOPaginated {
 
     public VersionType getDateVersionType() { return dateVersionType; }
 
+    public ZonedDateTime getNextWatermark() {
+        return nextWatermark;
+    }
+
+    public void setNextWatermark(ZonedDateTime nextWatermark) {
+        this.nextWatermark = nextWatermark;
+    }
+
     @JsonProperty(value = "value-columns")
     @Schema(name = "value-columns", accessMode = AccessMode.READ_ONLY)
     public List<Column> getValueColumnsJSON() {
@@ -46,6 +46,10 @@ public class TimeSeriesDataSerializer extends StdSerializer<Map<Long, List<TimeS
     @Override
     public void serialize(Map<Long, List<TimeSeriesData>> timeSeriesData, JsonGenerator jsonGenerator,
             SerializerProvider serializerProvider) throws IOException {
+        if (timeSeriesData instanceof TimeSeriesProfileColumns) {
+            serializeColumns((TimeSeriesProfileColumns) timeSeriesData, jsonGenerator);
+            return;
+        }
         jsonGenerator.writeStartObject();
         for (Map.Entry<Long, List<TimeSeriesData>> entry : timeSeriesData.entrySet()) {
             jsonGenerator.writeFieldName(entry.getKey().toString());
@@ -62,4 +66,24 @@ public class TimeSeriesDataSerializer extends StdSerializer<Map<Long, List<TimeS
         }
         jsonGenerator.writeEndObject();
     }
+
+    private static void serializeColumns(TimeSeriesProfileColumns columns, JsonGenerator jsonGenerator)
+            throws IOException {
+        int parameterCount = columns.getParameterCount();
+        jsonGenerator.writeStartObject();
+        for (int row = 0; row < columns.size(); row++) {
+            jsonGenerator.writeFieldName(Long.toString(columns.getTime(row)));
+            jsonGenerator.writeStartArray();
+            for (int p = 0; p < parameterCount; p++) {
+                jsonGenerator.writeStartArray();
+                if (columns.isPresent(p, row)) {
+                    jsonGenerator.writeNumber(columns.getValue(p, row));
+                    jsonGenerator.writeNumber(columns.getQuality(p, row));
+                }
+                jsonGenerator.writeEndArray();
+            }
+            jsonGenerator.writeEndArray();
+        }
+        jsonGenerator.writeEndObject();
+    }
 }
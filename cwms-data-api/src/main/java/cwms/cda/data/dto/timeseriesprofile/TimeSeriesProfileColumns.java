@@ -0,0 +1,244 @@
+package cwms.cda.data.dto.timeseriesprofile;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Time series profile values held as one primitive column per parameter instead of a map of
+ * boxed {@link TimeSeriesData} lists.
+ *
+ * <p>It is still a read-only {@code Map<Long, List<TimeSeriesData>>} keyed by epoch millis, so
+ * it can be used anywhere the instance's time series list is, but {@link TimeSeriesDataSerializer}
+ * writes it straight from the columns.  Parameters are ordered by name and every list has one
+ * entry per parameter, {@code null} where the parameter has no value at that time.
+ */
+public final class TimeSeriesProfileColumns extends AbstractMap<Long, List<TimeSeriesData>> {
+
+    private final long[] times;
+    private final int size;
+    private final String[] parameters;
+    private final String[] units;
+    private final double[][] values;
+    private final int[][] qualities;
+    private final BitSet[] present;
+
+    private TimeSeriesProfileColumns(Builder builder) {
+        int parameterCount = builder.parameters.size();
+        Integer[] order = new Integer[parameterCount];
+        for (int i = 0; i < parameterCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> builder.parameters.get(a).compareTo(builder.parameters.get(b)));
+
+        size = builder.size;
+        times = builder.times;
+        parameters = new String[parameterCount];
+        units = new String[parameterCount];
+        values = new double[parameterCount][];
+        qualities = new int[parameterCount][];
+        present = new BitSet[parameterCount];
+        for (int i = 0; i < parameterCount; i++) {
+            int from = order[i];
+            parameters[i] = builder.parameters.get(from);
+            units[i] = builder.units.get(from);
+            values[i] = builder.values.get(from);
+            qualities[i] = builder.qualities.get(from);
+            present[i] = builder.present.get(from);
+        }
+    }
+
+    /**
+     * @return the number of distinct times
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public int getParameterCount() {
+        return parameters.length;
+    }
+
+    public String getParameter(int parameter) {
+        return parameters[parameter];
+    }
+
+    public String getUnit(int parameter) {
+        return units[parameter];
+    }
+
+    public long getTime(int row) {
+        return times[row];
+    }
+
+    public boolean isPresent(int parameter, int row) {
+        return present[parameter].get(row);
+    }
+
+    public double getValue(int parameter, int row) {
+        return values[parameter][row];
+    }
+
+    public int getQuality(int parameter, int row) {
+        return qualities[parameter][row];
+    }
+
+    /**
+     * @return the index of the last parameter with a value at the row, or -1 if there is none
+     */
+    public int lastPresentParameter(int row) {
+        for (int p = parameters.length - 1; p >= 0; p--) {
+            if (present[p].get(row)) {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Long && indexOf((Long) key) >= 0;
+    }
+
+    @Override
+    public List<TimeSeriesData> get(Object key) {
+        if (!(key instanceof Long)) {
+            return null;
+        }
+        int row = indexOf((Long) key);
+        return row < 0 ? null : row(row);
+    }
+
+    @Override
+    public Set<Entry<Long, List<TimeSeriesData>>> entrySet() {
+        return new AbstractSet<Entry<Long, List<TimeSeriesData>>>() {
+            @Override
+            public Iterator<Entry<Long, List<TimeSeriesData>>> iterator() {
+                return new Iterator<Entry<Long, List<TimeSeriesData>>>() {
+                    private int row = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return row < size;
+                    }
+
+                    @Override
+                    public Entry<Long, List<TimeSeriesData>> next() {
+                        if (row >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        int current = row++;
+                        return new SimpleImmutableEntry<>(times[current], row(current));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int indexOf(long time) {
+        return Arrays.binarySearch(times, 0, size, time);
+    }
+
+    private List<TimeSeriesData> row(int row) {
+        return Collections.unmodifiableList(new AbstractList<TimeSeriesData>() {
+            @Override
+            public TimeSeriesData get(int parameter) {
+                if (!present[parameter].get(row)) {
+                    return null;
+                }
+                return new TimeSeriesData(values[parameter][row], qualities[parameter][row]);
+            }
+
+            @Override
+            public int size() {
+                return parameters.length;
+            }
+        });
+    }
+
+    /**
+     * Folds rows ordered by time into columns in a single pass.
+     */
+    public static final class Builder {
+        private static final int INITIAL_CAPACITY = 256;
+
+        private long[] times = new long[INITIAL_CAPACITY];
+        private int size = 0;
+        private final List<String> parameters = new ArrayList<>();
+        private final List<String> units = new ArrayList<>();
+        private final List<double[]> values = new ArrayList<>();
+        private final List<int[]> qualities = new ArrayList<>();
+        private final List<BitSet> present = new ArrayList<>();
+        private final Map<String, Integer> parameterIndex = new HashMap<>();
+
+        /**
+         * @param time      epoch millis, must not decrease between calls
+         * @param parameter parameter id
+         * @param unit      unit of the parameter's values
+         * @param value     the value, or null if there is none
+         * @param quality   the quality code
+         */
+        public Builder add(long time, String parameter, String unit, Double value, int quality) {
+            if (size == 0 || times[size - 1] != time) {
+                if (size > 0 && time < times[size - 1]) {
+                    throw new IllegalStateException("Profile rows must be ordered by time");
+                }
+                if (size == times.length) {
+                    grow();
+                }
+                times[size++] = time;
+            }
+            int p = parameter(parameter, unit);
+            if (value != null) {
+                int row = size - 1;
+                values.get(p)[row] = value;
+                qualities.get(p)[row] = quality;
+                present.get(p).set(row);
+            }
+            return this;
+        }
+
+        public TimeSeriesProfileColumns build() {
+            return new TimeSeriesProfileColumns(this);
+        }
+
+        private int parameter(String parameter, String unit) {
+            Integer retVal = parameterIndex.get(parameter);
+            if (retVal == null) {
+                retVal = parameters.size();
+                parameterIndex.put(parameter, retVal);
+                parameters.add(parameter);
+                units.add(unit);
+                values.add(new double[times.length]);
+                qualities.add(new int[times.length]);
+                present.add(new BitSet());
+            }
+            return retVal;
+        }
+
+        private void grow() {
+            int capacity = times.length * 2;
+            times = Arrays.copyOf(times, capacity);
+            for (int p = 0; p < parameters.size(); p++) {
+                values.set(p, Arrays.copyOf(values.get(p), capacity));
+                qualities.set(p, Arrays.copyOf(qualities.get(p), capacity));
+            }
+        }
+    }
+}
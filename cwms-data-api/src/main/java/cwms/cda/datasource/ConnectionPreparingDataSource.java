@@ -1,5 +1,6 @@
 package cwms.cda.datasource;
 
+import cwms.cda.metrics.RequestTiming;
 import java.sql.Connection;
 import java.sql.SQLException;
 import javax.sql.DataSource;
@@ -19,8 +20,11 @@ public class ConnectionPreparingDataSource extends DelegatingDataSource {
 
     @Override
     public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
         Connection connection = getDelegate().getConnection();
+        RequestTiming.record(RequestTiming.Phase.CONNECTION, start);
 
+        long prepareStart = System.nanoTime();
         try{
             return getPreparer().prepare(connection);
         } catch (Exception e) {
@@ -33,6 +37,8 @@ public class ConnectionPreparingDataSource extends DelegatingDataSource {
                 e.addSuppressed(ex);
             }
             throw e;
+        } finally {
+            RequestTiming.record(RequestTiming.Phase.PREPARE, prepareStart);
         }
     }
 
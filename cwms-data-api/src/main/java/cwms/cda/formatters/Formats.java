@@ -26,16 +26,17 @@ package cwms.cda.formatters;
 
 import cwms.cda.data.dto.CwmsDTOBase;
 import cwms.cda.formatters.annotations.FormattableWith;
+import cwms.cda.metrics.RequestTiming;
 
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -60,6 +61,7 @@ public class Formats {
     public static final String GEOJSON = "application/geo+json";
     public static final String PGJSON = "application/vnd.pg+json";
     public static final String NAMED_PGJSON = "application/vnd.named+pg+json";
+    public static final String TIMESERIES_BINARY = "application/vnd.cwms.timeseries+binary";
     public static final String DEFAULT = "*/*";
 
     public static final String JSON_LEGACY = "json";
@@ -77,7 +79,7 @@ public class Formats {
     static {
         contentTypeList.addAll(
                 Stream.of(DEFAULT, JSON, JSONV1, XML, XMLV1, XMLV2, WML2, JSONV2,
-                        TAB, CSV, GEOJSON, PGJSON, NAMED_PGJSON)
+                        TAB, CSV, GEOJSON, PGJSON, NAMED_PGJSON, TIMESERIES_BINARY)
                         .map(ContentType::new)
                         .collect(Collectors.toList()));
     }
@@ -96,7 +98,8 @@ public class Formats {
     }
 
 
-    private final Map<ContentType, Map<Class<? extends CwmsDTOBase>, OutputFormatter>> formatters = new LinkedHashMap<>();
+    // concurrent since formatters are added by the request threads that first use them
+    private final Map<ContentType, Map<Class<? extends CwmsDTOBase>, OutputFormatter>> formatters = new ConcurrentHashMap<>();
 
     private static final Formats formats = new Formats();
 
@@ -128,6 +131,19 @@ public class Formats {
 
     }
 
+    private byte[] getFormattedBytes(ContentType type, CwmsDTOBase toFormat) throws FormattingException {
+        Objects.requireNonNull(toFormat, "Object to be formatted should not be null");
+        OutputFormatter outputFormatter = getOutputFormatter(type, toFormat.getClass());
+
+        if (outputFormatter != null) {
+            return outputFormatter.formatBytes(toFormat);
+        } else {
+            String message = String.format("No Format for this content-type and data-type : (%s, %s)",
+                    type.toString(), toFormat.getClass().getName());
+            throw new UnsupportedFormatException(message);
+        }
+    }
+
     private String getFormatted(ContentType type, List<? extends CwmsDTOBase> dtos, Class<?
             extends CwmsDTOBase> rootType) throws FormattingException {
         for (ContentType key : formatters.keySet()) {
@@ -173,7 +189,8 @@ public class Formats {
         }
     }
 
-    private <T extends CwmsDTOBase> List<T> parseContentListFromType(ContentType type, String content, Class<T> rootType)
+    private <T extends CwmsDTOBase> List<T> parseContentListFromType(ContentType type, String content, Class<T> rootType,
+                                                                      boolean validate)
         throws FormattingException {
         OutputFormatter outputFormatter = getOutputFormatter(type, rootType);
         if (outputFormatter != null) {
@@ -181,8 +198,10 @@ public class Formats {
             if (retval == null) {
                 throw new UnsupportedFormatException("Cannot deserialize empty content array");
             }
-            for (T obj : retval) {
-                obj.validate();
+            if (validate) {
+                for (T obj : retval) {
+                    obj.validate();
+                }
             }
             return retval;
         } else {
@@ -207,7 +226,7 @@ public class Formats {
                         outputFormatter = fw.formatter()
                                             .getDeclaredConstructor()
                                             .newInstance();
-                        formatters.computeIfAbsent(type, k -> new HashMap<>())
+                        formatters.computeIfAbsent(type, k -> new ConcurrentHashMap<>())
                                   .put(klass,outputFormatter);
                     } catch (Exception ex) {
                         logger.log(Level.SEVERE, "Unable to create formatter.", ex);
@@ -219,13 +238,52 @@ public class Formats {
         return outputFormatter;
     }
 
+    /**
+     * Creates the formatter of each content type the class is formattable with, so the first
+     * request for the class doesn't pay for finding and constructing them.
+     *
+     * @param klass a data transfer class
+     * @return the number of formatters created
+     */
+    public static int warm(Class<? extends CwmsDTOBase> klass) {
+        int count = 0;
+        for (FormattableWith fw : klass.getAnnotationsByType(FormattableWith.class)) {
+            if (formats.getOutputFormatter(new ContentType(fw.contentType()), klass) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     public static String format(ContentType type, CwmsDTOBase toFormat) throws FormattingException {
-        return formats.getFormatted(type, toFormat);
+        long start = System.nanoTime();
+        try {
+            return formats.getFormatted(type, toFormat);
+        } finally {
+            RequestTiming.record(RequestTiming.Phase.FORMAT, start);
+        }
+    }
+
+    /**
+     * Formats to bytes, for content types that aren't text such as {@link #TIMESERIES_BINARY}.
+     */
+    public static byte[] formatBytes(ContentType type, CwmsDTOBase toFormat) throws FormattingException {
+        long start = System.nanoTime();
+        try {
+            return formats.getFormattedBytes(type, toFormat);
+        } finally {
+            RequestTiming.record(RequestTiming.Phase.FORMAT, start);
+        }
     }
 
     public static String format(ContentType type, List<? extends CwmsDTOBase> toFormat, Class<?
             extends CwmsDTOBase> rootType) throws FormattingException {
-        return formats.getFormatted(type, toFormat, rootType);
+        long start = System.nanoTime();
+        try {
+            return formats.getFormatted(type, toFormat, rootType);
+        } finally {
+            RequestTiming.record(RequestTiming.Phase.FORMAT, start);
+        }
     }
 
     public static <T extends CwmsDTOBase> T parseContent(ContentType type, String content, Class<T> rootType)
@@ -240,7 +298,17 @@ public class Formats {
 
     public static <T extends CwmsDTOBase> List<T> parseContentList(ContentType type, String content, Class<T> rootType)
         throws FormattingException {
-        return formats.parseContentListFromType(type, content, rootType);
+        return formats.parseContentListFromType(type, content, rootType, true);
+    }
+
+    /**
+     * Like {@link #parseContentList(ContentType, String, Class)} but leaves the items unvalidated,
+     * for callers that report on each item rather than rejecting the whole list.
+     */
+    public static <T extends CwmsDTOBase> List<T> parseContentListUnvalidated(ContentType type, String content,
+                                                                               Class<T> rootType)
+        throws FormattingException {
+        return formats.parseContentListFromType(type, content, rootType, false);
     }
 
     /**
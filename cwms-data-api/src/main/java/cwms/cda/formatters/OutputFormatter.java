@@ -1,6 +1,7 @@
 package cwms.cda.formatters;
 
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import cwms.cda.data.dto.CwmsDTOBase;
@@ -11,6 +12,15 @@ public interface OutputFormatter {
     String getContentType();
     String format(CwmsDTOBase dto);
     String format(List<? extends CwmsDTOBase> dtoList);
+
+    /**
+     * The response body of a single DTO, binary formats override this instead of
+     * {@link #format(CwmsDTOBase)}.
+     */
+    default byte[] formatBytes(CwmsDTOBase dto) {
+        return format(dto).getBytes(StandardCharsets.UTF_8);
+    }
+
     default <T extends CwmsDTOBase> T parseContent(String content, Class<T> type) {
         throw new UnsupportedOperationException(String.format(UNSUPPORTED_MESSAGE, getContentType()));
     }
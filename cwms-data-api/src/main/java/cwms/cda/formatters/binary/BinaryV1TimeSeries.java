@@ -0,0 +1,311 @@
+package cwms.cda.formatters.binary;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import cwms.cda.data.dto.CwmsDTOBase;
+import cwms.cda.data.dto.TimeSeries;
+import cwms.cda.formatters.Formats;
+import cwms.cda.formatters.FormattingException;
+import cwms.cda.formatters.OutputFormatter;
+import cwms.cda.formatters.UnsupportedFormatException;
+import cwms.cda.formatters.json.JsonV2;
+import cwms.cda.helpers.Settings;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Columnar binary format of a time series, for machine to machine transfers of many values.
+ * A regular series takes about 9 bytes per value rather than about 40 as JSON.
+ *
+ * <p>All numbers are big-endian, varints are LEB128 and signed varints are zigzag encoded.
+ * <pre>
+ * magic          "CWTS"
+ * format version 1 byte, 1
+ * header         varint length, then the {@link Formats#JSONV2} time series without its values
+ * count          varint
+ * times          epoch milliseconds, the first as a signed varint, the second as the signed
+ *                varint difference to the first and the rest as the signed varint difference
+ *                of their difference to the previous difference, 0 for a regular series
+ * nulls          count bits, 1 for a null value, lowest bit first
+ * values         count doubles, NaN for null
+ * qualities      varint run count, then of each run the quality code as an unsigned varint of
+ *                its 32 bits and the run length as a varint
+ * </pre>
+ *
+ * <p>Lengths in the content are not trusted for allocation: the header may be at most
+ * {@value #MAX_HEADER_LENGTH} bytes and the count at most the {@value #MAX_VALUES_KEY} setting,
+ * 10 million by default.  Both are read incrementally, so a short body fails before much is
+ * allocated.
+ */
+public class BinaryV1TimeSeries implements OutputFormatter {
+
+    private static final byte[] MAGIC = {'C', 'W', 'T', 'S'};
+    private static final int FORMAT_VERSION = 1;
+    private static final String VALUES = "values";
+    static final int MAX_HEADER_LENGTH = 1 << 20;
+    public static final String MAX_VALUES_KEY = "cwms.dataapi.ts.binary.maxValues";
+    private static final int MAX_VALUES = Settings.getInt(MAX_VALUES_KEY, 10_000_000);
+    // what is allocated before the content has shown it is as long as it claims
+    private static final int INITIAL_CAPACITY = 8192;
+
+    private final ObjectMapper om;
+
+    public BinaryV1TimeSeries() {
+        this.om = JsonV2.buildObjectMapper();
+    }
+
+    @Override
+    public String getContentType() {
+        return Formats.TIMESERIES_BINARY;
+    }
+
+    @Override
+    public String format(CwmsDTOBase dto) {
+        throw new UnsupportedFormatException(getContentType() + " is binary and can't be formatted as text");
+    }
+
+    @Override
+    public String format(List<? extends CwmsDTOBase> dtoList) {
+        throw new UnsupportedFormatException(getContentType() + " only supports a single time series");
+    }
+
+    @Override
+    public byte[] formatBytes(CwmsDTOBase dto) {
+        if (!(dto instanceof TimeSeries)) {
+            throw new UnsupportedFormatException(getContentType() + " only supports time series");
+        }
+        TimeSeries ts = (TimeSeries) dto;
+        List<TimeSeries.Record> values = ts.getValues();
+        int count = values == null ? 0 : values.size();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + count * 10);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.write(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+
+            ObjectNode header = om.valueToTree(ts);
+            header.remove(VALUES);
+            byte[] headerBytes = om.writeValueAsBytes(header);
+            writeVarLong(out, headerBytes.length);
+            out.write(headerBytes);
+
+            writeVarLong(out, count);
+            writeTimes(out, values, count);
+            writeValues(out, values, count);
+            writeQualities(out, values, count);
+        } catch (IOException e) {
+            throw new FormattingException("Could not format :" + dto, e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public <T extends CwmsDTOBase> T parseContent(String content, Class<T> type) {
+        throw new UnsupportedFormatException(getContentType() + " is binary and can't be parsed from text");
+    }
+
+    @Override
+    public <T extends CwmsDTOBase> T parseContent(InputStream content, Class<T> type) {
+        if (!TimeSeries.class.equals(type)) {
+            throw new UnsupportedFormatException(getContentType() + " only supports time series");
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(content));
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (magic[i] != MAGIC[i]) {
+                    throw new FormattingException("Content is not a " + getContentType() + " time series");
+                }
+            }
+            int version = in.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                throw new FormattingException("Unsupported " + getContentType() + " format version: " + version);
+            }
+
+            byte[] headerBytes = readBytes(in, readLength(in, MAX_HEADER_LENGTH, "Header length"));
+            ObjectNode header = (ObjectNode) om.readTree(headerBytes);
+            header.putArray(VALUES);
+            TimeSeries ts = om.treeToValue(header, TimeSeries.class);
+
+            // every value takes at least a byte of its time, so once the times are read the rest
+            // is allocated for values the content has shown it holds
+            int count = readLength(in, MAX_VALUES, "Value count");
+            long[] times = readTimes(in, count);
+            boolean[] nulls = readNulls(in, count);
+            List<TimeSeries.Record> values = ts.getValues();
+            int[] qualities = new int[count];
+            double[] doubles = new double[count];
+            for (int i = 0; i < count; i++) {
+                doubles[i] = in.readDouble();
+            }
+            readQualities(in, qualities);
+            for (int i = 0; i < count; i++) {
+                values.add(new TimeSeries.Record(new Timestamp(times[i]), nulls[i] ? null : doubles[i],
+                        qualities[i]));
+            }
+            return type.cast(ts);
+        } catch (IOException | ClassCastException e) {
+            throw new FormattingException(String.format(DESERIALIZE_CONTENT_MESSAGE, content, type), e);
+        }
+    }
+
+    private static void writeTimes(DataOutputStream out, List<TimeSeries.Record> values, int count)
+            throws IOException {
+        long previous = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < count; i++) {
+            long time = values.get(i).getDateTime().getTime();
+            if (i == 0) {
+                writeSignedVarLong(out, time);
+            } else {
+                long delta = time - previous;
+                writeSignedVarLong(out, i == 1 ? delta : delta - previousDelta);
+                previousDelta = delta;
+            }
+            previous = time;
+        }
+    }
+
+    private static long[] readTimes(DataInputStream in, int count) throws IOException {
+        long[] times = new long[Math.min(count, INITIAL_CAPACITY)];
+        long delta = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == times.length) {
+                times = Arrays.copyOf(times, (int) Math.min(count, 2L * times.length));
+            }
+            if (i == 0) {
+                times[i] = readSignedVarLong(in);
+            } else {
+                delta = i == 1 ? readSignedVarLong(in) : delta + readSignedVarLong(in);
+                times[i] = times[i - 1] + delta;
+            }
+        }
+        return times;
+    }
+
+    private static void writeValues(DataOutputStream out, List<TimeSeries.Record> values, int count)
+            throws IOException {
+        byte[] nulls = new byte[(count + 7) / 8];
+        for (int i = 0; i < count; i++) {
+            if (values.get(i).getValue() == null) {
+                nulls[i >>> 3] |= (byte) (1 << (i & 7));
+            }
+        }
+        out.write(nulls);
+        for (int i = 0; i < count; i++) {
+            Double value = values.get(i).getValue();
+            out.writeDouble(value == null ? Double.NaN : value);
+        }
+    }
+
+    private static boolean[] readNulls(DataInputStream in, int count) throws IOException {
+        byte[] bits = new byte[(count + 7) / 8];
+        in.readFully(bits);
+        boolean[] nulls = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            nulls[i] = (bits[i >>> 3] & (1 << (i & 7))) != 0;
+        }
+        return nulls;
+    }
+
+    private static void writeQualities(DataOutputStream out, List<TimeSeries.Record> values, int count)
+            throws IOException {
+        int runs = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || values.get(i).getQualityCode() != values.get(i - 1).getQualityCode()) {
+                runs++;
+            }
+        }
+        writeVarLong(out, runs);
+        int start = 0;
+        for (int i = 1; i <= count; i++) {
+            if (i == count || values.get(i).getQualityCode() != values.get(start).getQualityCode()) {
+                writeVarLong(out, values.get(start).getQualityCode() & 0xFFFFFFFFL);
+                writeVarLong(out, i - start);
+                start = i;
+            }
+        }
+    }
+
+    private static void readQualities(DataInputStream in, int[] qualities) throws IOException {
+        int runs = readLength(in, qualities.length, "Quality run count");
+        int index = 0;
+        for (int run = 0; run < runs; run++) {
+            int quality = (int) readVarLong(in);
+            long length = readVarLong(in);
+            if (length < 0 || length > qualities.length - index) {
+                throw new FormattingException("Quality runs are longer than the values");
+            }
+            for (int i = 0; i < length; i++) {
+                qualities[index++] = quality;
+            }
+        }
+        if (index != qualities.length) {
+            throw new FormattingException("Quality runs are shorter than the values");
+        }
+    }
+
+    private static int readLength(DataInputStream in, int max, String what) throws IOException {
+        long length = readVarLong(in);
+        if (length < 0 || length > max) {
+            throw new FormattingException(what + " must be between 0 and " + max + ": " + length);
+        }
+        return (int) length;
+    }
+
+    private static byte[] readBytes(DataInputStream in, int length) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.min(length, INITIAL_CAPACITY));
+        byte[] buffer = new byte[Math.min(length, INITIAL_CAPACITY)];
+        int remaining = length;
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, Math.min(remaining, buffer.length));
+            if (read < 0) {
+                throw new EOFException();
+            }
+            bytes.write(buffer, 0, read);
+            remaining -= read;
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeSignedVarLong(OutputStream out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static long readSignedVarLong(DataInputStream in) throws IOException {
+        long value = readVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new FormattingException("Malformed varint");
+    }
+}
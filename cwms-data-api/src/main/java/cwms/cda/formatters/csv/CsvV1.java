@@ -4,6 +4,7 @@ import java.io.InputStream;
 import java.util.List;
 
 import cwms.cda.data.dto.CwmsDTOBase;
+import cwms.cda.data.dto.Location;
 import cwms.cda.data.dto.LocationGroup;
 import cwms.cda.data.dto.Office;
 import cwms.cda.formatters.Formats;
@@ -23,6 +24,8 @@ public class CsvV1 implements OutputFormatter {
             retVal = new CsvV1Office().format(dto);
         } else if (dto instanceof LocationGroup ) {
             retVal = new CsvV1LocationGroup().format(dto);
+        } else if (dto instanceof Location) {
+            retVal = new CsvV1Location().format(dto);
         }
         return retVal;
     }
@@ -36,6 +39,8 @@ public class CsvV1 implements OutputFormatter {
                 retVal = new CsvV1Office().format(dtoList);
             } else if(dto instanceof LocationGroup) {
                 retVal = new CsvV1LocationGroup().format(dtoList);
+            } else if (dto instanceof Location) {
+                retVal = new CsvV1Location().format(dtoList);
             }
 
         }
@@ -49,10 +54,20 @@ public class CsvV1 implements OutputFormatter {
             retVal = new CsvV1Office().parseContent(content, type);
         } else if (type.isAssignableFrom(LocationGroup.class)) {
             retVal = new CsvV1LocationGroup().parseContent(content, type);
+        } else if (type.isAssignableFrom(Location.class)) {
+            retVal = new CsvV1Location().parseContent(content, type);
         }
         return retVal;
     }
 
+    @Override
+    public <T extends CwmsDTOBase> List<T> parseContentList(String content, Class<T> type) {
+        if (type.isAssignableFrom(Location.class)) {
+            return new CsvV1Location().parseContentList(content, type);
+        }
+        return OutputFormatter.super.parseContentList(content, type);
+    }
+
     @Override
     public <T extends CwmsDTOBase> T parseContent(InputStream content, Class<T> type) {
         T retVal = null;
@@ -0,0 +1,86 @@
+package cwms.cda.formatters.csv;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import cwms.cda.data.dto.CwmsDTOBase;
+import cwms.cda.data.dto.Location;
+import cwms.cda.formatters.Formats;
+import cwms.cda.formatters.FormattingException;
+import cwms.cda.formatters.OutputFormatter;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+
+@Schema(
+    name = "Location_CSV",
+    description = "Single Location or List of Locations in comma separated format, one location per row"
+        + " under a header row of the JSON field names. Empty cells are left unset.",
+    example =
+    "name,office-id,location-kind,timezone-name,latitude,longitude,horizontal-datum,public-name,nation\r\n"
+        + "BLUE-RIVER,SWT,SITE,US/Central,34.2,-96.6,NAD83,Blue River,US\r\n"
+        + "BOGGY-CREEK,SWT,STREAM_LOCATION,US/Central,34.1,-95.9,NAD83,Boggy Creek,US"
+)
+public class CsvV1Location implements OutputFormatter {
+
+    private static final CsvMapper MAPPER = buildMapper();
+
+    private static CsvMapper buildMapper() {
+        CsvMapper mapper = new CsvMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.enable(CsvParser.Feature.EMPTY_STRING_AS_NULL);
+        mapper.enable(CsvParser.Feature.TRIM_SPACES);
+        mapper.enable(CsvParser.Feature.SKIP_EMPTY_LINES);
+        return mapper;
+    }
+
+    @Schema(hidden = true)
+    @Override
+    public String getContentType() {
+        return Formats.CSV;
+    }
+
+    @Override
+    public String format(CwmsDTOBase dto) {
+        return format(Collections.singletonList(dto));
+    }
+
+    @Override
+    public String format(List<? extends CwmsDTOBase> dtoList) {
+        CsvSchema schema = MAPPER.schemaFor(Location.class)
+                .withLineSeparator("\r\n")
+                .withHeader();
+        ObjectWriter writer = MAPPER.writer(schema);
+        try {
+            return writer.writeValueAsString(dtoList);
+        } catch (JsonProcessingException e) {
+            throw new FormattingException("Could not format locations as CSV", e);
+        }
+    }
+
+    @Override
+    public <T extends CwmsDTOBase> T parseContent(String content, Class<T> type) {
+        List<T> locations = parseContentList(content, type);
+        if (locations.size() != 1) {
+            throw new FormattingException("Expected one location, the content has " + locations.size());
+        }
+        return locations.get(0);
+    }
+
+    @Override
+    public <T extends CwmsDTOBase> List<T> parseContentList(String content, Class<T> type) {
+        ObjectReader reader = MAPPER.readerFor(type).with(CsvSchema.emptySchema().withHeader());
+        try (MappingIterator<T> rows = reader.readValues(content)) {
+            return rows.readAll();
+        } catch (IOException e) {
+            throw new FormattingException(String.format(DESERIALIZE_CONTENT_MESSAGE, content, type), e);
+        }
+    }
+}
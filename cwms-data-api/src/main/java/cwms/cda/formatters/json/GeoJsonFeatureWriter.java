@@ -0,0 +1,56 @@
+package cwms.cda.formatters.json;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import cwms.cda.data.dao.FeatureSink;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.geojson.Feature;
+
+/**
+ * Writes a GeoJSON FeatureCollection feature by feature as the features are read, rather than
+ * serializing a collected FeatureCollection.  Only {@link #finish()} completes the document, so
+ * a failure part way through leaves it visibly truncated rather than well formed but short.
+ */
+public final class GeoJsonFeatureWriter implements FeatureSink {
+
+    // features are small, leave flushing to the generator's buffer rather than after every feature
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    private final JsonGenerator generator;
+    private int count;
+
+    /**
+     * Starts the collection.
+     * @param outputStream the stream to write to, it is not closed by this writer
+     */
+    public GeoJsonFeatureWriter(OutputStream outputStream) throws IOException {
+        generator = OBJECT_MAPPER.getFactory().createGenerator(outputStream, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.writeStartObject();
+        generator.writeStringField("type", "FeatureCollection");
+        generator.writeArrayFieldStart("features");
+    }
+
+    @Override
+    public void feature(Feature feature) throws IOException {
+        OBJECT_MAPPER.writeValue(generator, feature);
+        count++;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Completes the document once every feature has been written.
+     */
+    public void finish() throws IOException {
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.close();
+    }
+}
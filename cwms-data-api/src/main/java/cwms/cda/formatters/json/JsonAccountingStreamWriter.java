@@ -0,0 +1,117 @@
+package cwms.cda.formatters.json;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import cwms.cda.data.dao.watersupply.AccountingSink;
+import cwms.cda.data.dto.watersupply.WaterSupplyAccounting;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes an accounting set as {@link JsonV1} formats a list of them, but part by part as the
+ * parts are read.
+ *
+ * <p>Consecutive parts of the same contract are merged into one element, the pump accounting of
+ * each part appended to the element's pump-accounting object, which is written as the element's
+ * last property.  The pump accounting of an element is always in ascending time order, as in the
+ * DTO's map, so when the parts arrive in descending order an element's transfers are held until
+ * the element is complete.  Only {@link #finish()} completes the document, so a failure part
+ * way through leaves it visibly truncated rather than well formed but short.
+ */
+public final class JsonAccountingStreamWriter implements AccountingSink {
+
+    private static final ObjectMapper OBJECT_MAPPER = JsonV1.buildObjectMapper()
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    private static final String PUMP_ACCOUNTING = "pump-accounting";
+
+    private final OutputStream outputStream;
+    private final boolean ascending;
+    private final List<List<Map.Entry<String, JsonNode>>> heldParts = new ArrayList<>();
+    private JsonGenerator generator;
+    private ObjectNode openHeader;
+
+    /**
+     * @param outputStream the stream to write to, it is not closed by this writer
+     * @param ascending    whether the parts are in ascending time order
+     */
+    public JsonAccountingStreamWriter(OutputStream outputStream, boolean ascending) {
+        this.outputStream = outputStream;
+        this.ascending = ascending;
+    }
+
+    @Override
+    public void accounting(WaterSupplyAccounting part) throws IOException {
+        start();
+        ObjectNode node = OBJECT_MAPPER.valueToTree(part);
+        JsonNode pumpAccounting = node.remove(PUMP_ACCOUNTING);
+        if (openHeader != null && !openHeader.equals(node)) {
+            closeElement();
+        }
+        if (openHeader == null) {
+            generator.writeStartObject();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                generator.writeFieldName(field.getKey());
+                OBJECT_MAPPER.writeTree(generator, field.getValue());
+            }
+            generator.writeObjectFieldStart(PUMP_ACCOUNTING);
+            openHeader = node;
+        }
+        if (pumpAccounting != null) {
+            List<Map.Entry<String, JsonNode>> transfers = new ArrayList<>();
+            pumpAccounting.fields().forEachRemaining(transfers::add);
+            if (ascending) {
+                writeTransfers(transfers);
+            } else {
+                // the part's map is in ascending order, the parts before it are later
+                heldParts.add(transfers);
+            }
+        }
+    }
+
+    /**
+     * Completes the document once every part has been written.
+     */
+    public void finish() throws IOException {
+        start();
+        if (openHeader != null) {
+            closeElement();
+        }
+        generator.writeEndArray();
+        generator.close();
+    }
+
+    private void start() throws IOException {
+        if (generator == null) {
+            generator = OBJECT_MAPPER.getFactory().createGenerator(outputStream, JsonEncoding.UTF8);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+        }
+    }
+
+    private void writeTransfers(List<Map.Entry<String, JsonNode>> transfers) throws IOException {
+        for (Map.Entry<String, JsonNode> transfer : transfers) {
+            generator.writeFieldName(transfer.getKey());
+            OBJECT_MAPPER.writeTree(generator, transfer.getValue());
+        }
+    }
+
+    private void closeElement() throws IOException {
+        for (int i = heldParts.size() - 1; i >= 0; i--) {
+            writeTransfers(heldParts.get(i));
+        }
+        heldParts.clear();
+        generator.writeEndObject();
+        generator.writeEndObject();
+        openHeader = null;
+    }
+}
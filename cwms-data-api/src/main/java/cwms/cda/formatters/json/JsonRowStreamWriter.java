@@ -0,0 +1,83 @@
+package cwms.cda.formatters.json;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import cwms.cda.data.dao.TimeSeriesRowSink;
+import cwms.cda.data.dto.CwmsDTOBase;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Writes a time series as {@link JsonV2} would, but row by row as the rows are read.
+ *
+ * <p>The header is formatted without rows, so the row collection is omitted from it, and the
+ * rows are appended as the last property.  That is where Jackson places them anyway since the
+ * row collections are getter-only properties.  Only {@link #finish()} completes the document; on
+ * a failure part way through the caller aborts the response, the status having already been
+ * sent.
+ *
+ * @param <T> the time series type
+ * @param <R> the row type
+ */
+public final class JsonRowStreamWriter<T extends CwmsDTOBase, R> implements TimeSeriesRowSink<T, R> {
+
+    // rows are small, leave flushing to the generator's buffer rather than after every row
+    private static final ObjectMapper OBJECT_MAPPER = JsonV2.buildObjectMapper()
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    private final OutputStream outputStream;
+    private final String rowsProperty;
+    private JsonGenerator generator;
+
+    /**
+     * @param outputStream the stream to write to, it is not closed by this writer
+     * @param rowsProperty the name of the row collection property, e.g. regular-text-values
+     */
+    public JsonRowStreamWriter(OutputStream outputStream, String rowsProperty) {
+        this.outputStream = outputStream;
+        this.rowsProperty = rowsProperty;
+    }
+
+    @Override
+    public void start(T header) throws IOException {
+        if (generator != null) {
+            throw new IllegalStateException("Time series has already been started");
+        }
+        ObjectNode node = OBJECT_MAPPER.valueToTree(header);
+        generator = OBJECT_MAPPER.getFactory().createGenerator(outputStream, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.writeStartObject();
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (!rowsProperty.equals(field.getKey())) {
+                generator.writeFieldName(field.getKey());
+                OBJECT_MAPPER.writeTree(generator, field.getValue());
+            }
+        }
+        generator.writeArrayFieldStart(rowsProperty);
+    }
+
+    @Override
+    public void row(R row) throws IOException {
+        OBJECT_MAPPER.writeValue(generator, row);
+    }
+
+    /**
+     * Completes the document once every row has been written.
+     */
+    public void finish() throws IOException {
+        if (generator == null) {
+            throw new IllegalStateException("Time series was never started");
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.close();
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Hydrologic Engineering Center
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cwms.cda.limits;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.flogger.FluentLogger;
+import cwms.cda.helpers.Settings;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control for a group of routes.
+ * <p>
+ * At most {@link Limit#getLimit()} requests are allowed to execute at once.  Additional requests
+ * wait, in arrival order, for up to the configured wait time as long as fewer than
+ * {@code maxQueue} requests are already waiting.  Anything beyond that is shed so a burst of
+ * expensive requests cannot exhaust the database pool for every other endpoint.
+ * </p>
+ * Settings for a limiter named "timeseries" (system property or environment variable):
+ * <ul>
+ *     <li>cwms.dataapi.limit.timeseries.type - none, fixed, aimd or vegas</li>
+ *     <li>cwms.dataapi.limit.timeseries.max - the static limit or adaptive upper bound</li>
+ *     <li>cwms.dataapi.limit.timeseries.min - adaptive lower bound</li>
+ *     <li>cwms.dataapi.limit.timeseries.queue - requests allowed to wait for a permit</li>
+ *     <li>cwms.dataapi.limit.timeseries.wait.ms - how long a request may wait for a permit</li>
+ *     <li>cwms.dataapi.limit.timeseries.retry-after.seconds - Retry-After sent when shedding</li>
+ * </ul>
+ */
+public final class ConcurrencyLimiter {
+    private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+    private static final String SETTING_PREFIX = "cwms.dataapi.limit.";
+
+    public enum Type {
+        NONE, FIXED, AIMD, VEGAS;
+
+        /**
+         * @param value    a type name, in any case
+         * @param fallback the type used, with a warning, when value isn't a type
+         * @return the type named by value
+         */
+        public static Type parse(String value, Type fallback) {
+            if (value == null || value.trim().isEmpty()) {
+                return fallback;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ex) {
+                logger.atWarning().log("Unknown limiter type '%s', using %s", value, fallback);
+                return fallback;
+            }
+        }
+    }
+
+    private final String name;
+    private final Limit limit;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+    private final int retryAfterSeconds;
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition released = lock.newCondition();
+    private int inFlight;
+    private int waiting;
+
+    private Meter rejected;
+    private Timer waitTimer;
+
+    public ConcurrencyLimiter(String name, Limit limit, int maxQueue, long maxWait, TimeUnit unit,
+                              int retryAfterSeconds) {
+        this.name = name;
+        this.limit = limit;
+        this.maxQueue = Math.max(0, maxQueue);
+        this.maxWaitNanos = unit.toNanos(maxWait);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Build a limiter from the cwms.dataapi.limit.&lt;name&gt;.* settings.
+     * @param name name of the limiter, used for settings and metrics
+     * @param defaultType type used when none is configured
+     * @param defaultMax limit used when none is configured
+     * @param metrics registry to publish permit and rejection metrics to
+     * @return the limiter or null if the limiter is configured with type none.
+     */
+    public static ConcurrencyLimiter fromSettings(String name, Type defaultType, int defaultMax,
+                                                  MetricRegistry metrics) {
+        String prefix = SETTING_PREFIX + name + ".";
+        Type type = Type.parse(Settings.getString(prefix + "type", defaultType.name()), defaultType);
+        int max = Math.max(1, Settings.getInt(prefix + "max", defaultMax));
+        int min = Math.max(1, Math.min(max, Settings.getInt(prefix + "min", Math.max(1, max / 4))));
+        Limit limit;
+        switch (type) {
+            case NONE:
+                return null;
+            case AIMD:
+                limit = new AimdLimit(max / 2, min, max, 0.9,
+                        Settings.getLong(prefix + "latency.ms", 10_000), TimeUnit.MILLISECONDS);
+                break;
+            case VEGAS:
+                limit = new VegasLimit(max / 2, min, max);
+                break;
+            case FIXED:
+            default:
+                limit = new FixedLimit(max);
+                break;
+        }
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(name, limit,
+                Settings.getInt(prefix + "queue", max),
+                Settings.getLong(prefix + "wait.ms", 2_000), TimeUnit.MILLISECONDS,
+                Settings.getInt(prefix + "retry-after.seconds", 5));
+        limiter.registerMetrics(metrics);
+        return limiter;
+    }
+
+    public ConcurrencyLimiter registerMetrics(MetricRegistry metrics) {
+        if (metrics != null) {
+            String base = name(ConcurrencyLimiter.class, name);
+            metrics.gauge(name(base, "in_use"), () -> (Gauge<Integer>) this::getInFlight);
+            metrics.gauge(name(base, "limit"), () -> (Gauge<Integer>) limit::getLimit);
+            metrics.gauge(name(base, "waiting"), () -> (Gauge<Integer>) this::getWaiting);
+            rejected = metrics.meter(name(base, "rejected"));
+            waitTimer = metrics.timer(name(base, "wait"));
+        }
+        return this;
+    }
+
+    /**
+     * Acquire a permit, waiting briefly if the limit has been reached.
+     * @return the permit, or null if the request should be shed.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Permit tryAcquire() throws InterruptedException {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            if (inFlight >= limit.getLimit()) {
+                if (waiting >= maxQueue || maxWaitNanos <= 0) {
+                    return reject();
+                }
+                waiting++;
+                try {
+                    long remaining = maxWaitNanos;
+                    while (inFlight >= limit.getLimit()) {
+                        if (remaining <= 0) {
+                            return reject();
+                        }
+                        remaining = released.awaitNanos(remaining);
+                    }
+                } finally {
+                    waiting--;
+                }
+            }
+            inFlight++;
+            Permit permit = new Permit(inFlight);
+            if (waitTimer != null) {
+                waitTimer.update(permit.start - start, TimeUnit.NANOSECONDS);
+            }
+            return permit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Permit reject() {
+        if (rejected != null) {
+            rejected.mark();
+        }
+        return null;
+    }
+
+    private void release(Permit permit, boolean didDrop) {
+        limit.onSample(System.nanoTime() - permit.start, permit.inFlightAtStart, didDrop);
+        lock.lock();
+        try {
+            inFlight--;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Limit getLimit() {
+        return limit;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaiting() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrencyLimiter{" + name + ", " + limit + ", queue=" + maxQueue + "}";
+    }
+
+    /**
+     * A granted slot.  Must be released exactly once.
+     */
+    public final class Permit {
+        private final long start = System.nanoTime();
+        private final int inFlightAtStart;
+        private boolean released;
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * Return the permit.
+         * @param didDrop true if the request failed in a way that indicates overload.
+         */
+        public synchronized void release(boolean didDrop) {
+            if (!released) {
+                released = true;
+                ConcurrencyLimiter.this.release(this, didDrop);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Hydrologic Engineering Center
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cwms.cda.limits;
+
+/**
+ * Latency based limit modeled on TCP Vegas.  The lowest latency observed is taken as the
+ * no-load latency and the number of queued requests is estimated as
+ * {@code limit * (1 - rttNoLoad / rtt)}.  The limit grows while the estimated queue is short
+ * and shrinks when it gets long or requests fail.  The no-load latency is re-learned
+ * periodically so that a change in the underlying database does not pin the limit.
+ */
+public final class VegasLimit implements Limit {
+    private static final int PROBE_INTERVAL = 1000;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private double limit;
+    private long rttNoLoad;
+    private int samples;
+
+    public VegasLimit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid limit range [" + minLimit + "," + maxLimit + "]");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    @Override
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    @Override
+    public synchronized void onSample(long rttNanos, int inFlight, boolean didDrop) {
+        if (rttNanos <= 0) {
+            return;
+        }
+        if (++samples % PROBE_INTERVAL == 0) {
+            rttNoLoad = 0;
+        }
+        if (rttNoLoad == 0 || rttNanos < rttNoLoad) {
+            rttNoLoad = rttNanos;
+            return;
+        }
+
+        double step = Math.max(1.0, Math.log10(limit));
+        double alpha = 3 * step;
+        double beta = 6 * step;
+        double newLimit = limit;
+        if (didDrop) {
+            newLimit = limit - step;
+        } else if (inFlight * 2 < limit) {
+            // the limiter isn't being used, latency says nothing about the limit
+            return;
+        } else {
+            double queueSize = Math.ceil(limit * (1.0 - (double) rttNoLoad / rttNanos));
+            if (queueSize < alpha) {
+                newLimit = limit + step;
+            } else if (queueSize > beta) {
+                newLimit = limit - step;
+            }
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "VegasLimit{" + (int) limit + " [" + minLimit + "," + maxLimit + "]}";
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Hydrologic Engineering Center
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cwms.cda.metrics;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.codahale.metrics.MetricRegistry;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request scoped breakdown of where the time for a request went.
+ * <p>
+ * ApiServlet starts a timing for each request on the thread that services it. The connection
+ * pool wrapper, the jOOQ execute listener, Formats and the response stream record into the
+ * current timing through the static {@link #record(Phase, long)} method, which does nothing
+ * when no timing is active.  When the request completes the phases are published as per-route
+ * timers and, if enabled, summarized in a Server-Timing response header.
+ * </p>
+ */
+public final class RequestTiming {
+    public static final String METRIC_BASE = "cwms.dataapi.request.phase";
+    public static final String SERVER_TIMING_KEY = "cwms.dataapi.timing.server-timing.enabled";
+    public static final String SERVER_TIMING = "Server-Timing";
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    public enum Phase {
+        CONNECTION("conn", "connection acquisition"),
+        PREPARE("prep", "connection preparers"),
+        SQL("sql", "statement execution"),
+        FETCH("fetch", "row fetching"),
+        FORMAT("fmt", "formatting"),
+        WRITE("write", "response writing");
+
+        private final String metricName;
+        private final String description;
+
+        Phase(String metricName, String description) {
+            this.metricName = metricName;
+            this.description = description;
+        }
+
+        public String getMetricName() {
+            return metricName;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private final long start = System.nanoTime();
+    private final long[] nanos = new long[Phase.values().length];
+    private final int[] counts = new int[Phase.values().length];
+    private String route;
+    private String request;
+
+    private RequestTiming() {
+    }
+
+    /**
+     * Start timing a request on the current thread.
+     * @return the new timing
+     */
+    public static RequestTiming start() {
+        RequestTiming timing = new RequestTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    /**
+     * @return the timing for the request being serviced by this thread, or null.
+     */
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Stop tracking the request on the current thread.
+     */
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Add the time since startNanos to a phase of the current request, if any.
+     * @param phase phase to record into
+     * @param startNanos value of System.nanoTime() when the work started
+     */
+    public static void record(Phase phase, long startNanos) {
+        RequestTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.add(phase, System.nanoTime() - startNanos);
+        }
+    }
+
+    public void add(Phase phase, long elapsedNanos) {
+        nanos[phase.ordinal()] += elapsedNanos;
+        counts[phase.ordinal()]++;
+    }
+
+    public long getNanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    public int getCount(Phase phase) {
+        return counts[phase.ordinal()];
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - start;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public void setRoute(String route) {
+        this.route = route;
+    }
+
+    /**
+     * @return method and path of the request, e.g. "GET /timeseries".
+     */
+    public String getRequest() {
+        return request;
+    }
+
+    public void setRequest(String request) {
+        this.request = request;
+    }
+
+    /**
+     * Build a Server-Timing header value for the phases that have been recorded so far.
+     * @return header value, e.g. "conn;dur=1.2, sql;dur=30.5;desc=\"statement execution\""
+     */
+    public String toServerTimingHeader() {
+        StringBuilder sb = new StringBuilder();
+        for (Phase phase : Phase.values()) {
+            if (counts[phase.ordinal()] == 0) {
+                continue;
+            }
+            appendEntry(sb, phase.getMetricName(), nanos[phase.ordinal()], phase.getDescription());
+        }
+        appendEntry(sb, "total", getElapsedNanos(), null);
+        return sb.toString();
+    }
+
+    private static void appendEntry(StringBuilder sb, String name, long elapsedNanos, String desc) {
+        if (sb.length() > 0) {
+            sb.append(", ");
+        }
+        sb.append(name).append(";dur=")
+          .append(String.format(Locale.ROOT, "%.1f", elapsedNanos / 1_000_000.0));
+        if (desc != null) {
+            sb.append(";desc=\"").append(desc).append('"');
+        }
+    }
+
+    /**
+     * Publish the recorded phases to per-route timers.  Phases that did not occur for the
+     * request are skipped so they don't skew the distributions toward zero.
+     * @param metrics registry to publish to
+     */
+    public void publish(MetricRegistry metrics) {
+        String routeName = route != null ? route : "unmatched";
+        for (Phase phase : Phase.values()) {
+            if (counts[phase.ordinal()] > 0) {
+                metrics.timer(name(METRIC_BASE, routeName, phase.getMetricName()))
+                       .update(nanos[phase.ordinal()], TimeUnit.NANOSECONDS);
+            }
+        }
+        metrics.timer(name(METRIC_BASE, routeName, "total"))
+               .update(getElapsedNanos(), TimeUnit.NANOSECONDS);
+    }
+}
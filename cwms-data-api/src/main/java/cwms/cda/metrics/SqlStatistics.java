@@ -0,0 +1,371 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Hydrologic Engineering Center
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cwms.cda.metrics;
+
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Snapshot;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import cwms.cda.helpers.Settings;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Rolling, bounded statistics about the SQL executed by CDA.
+ * <p>
+ * Statements are grouped by fingerprint: the SQL with literals, bind markers and IN lists
+ * normalized so that executions differing only in values share an entry.  At most
+ * {@value #MAX_FINGERPRINTS_KEY} fingerprints are tracked (least recently used are evicted) and
+ * latency percentiles come from a decaying reservoir, so memory use is bounded.  Executions
+ * slower than {@value #SLOW_THRESHOLD_KEY} milliseconds are additionally captured with the
+ * request that issued them.  By default only fingerprints are kept, never literal or bind values,
+ * as those can hold user data or credentials.  Setting {@value #CAPTURE_VALUES_KEY} to true
+ * additionally keeps the inlined SQL and bind values of slow executions, for a DBA tracing a
+ * plan that depends on them; they are only exposed through the administrative endpoint.
+ * </p>
+ */
+public final class SqlStatistics {
+    public static final String SLOW_THRESHOLD_KEY = "cwms.dataapi.sql.slow.threshold.ms";
+    public static final String MAX_FINGERPRINTS_KEY = "cwms.dataapi.sql.stats.max";
+    public static final String MAX_SLOW_SAMPLES_KEY = "cwms.dataapi.sql.slow.samples";
+    public static final String CAPTURE_VALUES_KEY = "cwms.dataapi.sql.slow.captureValues";
+
+    private static final int MAX_ENDPOINTS = 10;
+    private static final int MAX_BIND_LENGTH = 200;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.$:])-?\\d+(?:\\.\\d+)?(?:[eE][-+]?\\d+)?\\b");
+    private static final Pattern NAMED_BIND = Pattern.compile(":\\w+");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final SqlStatistics INSTANCE = new SqlStatistics(
+            Settings.getLong(SLOW_THRESHOLD_KEY, 1000), TimeUnit.MILLISECONDS,
+            Settings.getInt(MAX_FINGERPRINTS_KEY, 500),
+            Settings.getInt(MAX_SLOW_SAMPLES_KEY, 100),
+            Settings.getBoolean(CAPTURE_VALUES_KEY, false));
+
+    private final long slowThresholdNanos;
+    private final int maxSlowSamples;
+    private final boolean captureValues;
+    private final Cache<String, Entry> entries;
+    private final Deque<SlowSample> slowSamples = new ArrayDeque<>();
+
+    public SqlStatistics(long slowThreshold, TimeUnit unit, int maxFingerprints, int maxSlowSamples) {
+        this(slowThreshold, unit, maxFingerprints, maxSlowSamples, false);
+    }
+
+    public SqlStatistics(long slowThreshold, TimeUnit unit, int maxFingerprints, int maxSlowSamples,
+                         boolean captureValues) {
+        this.slowThresholdNanos = unit.toNanos(slowThreshold);
+        this.maxSlowSamples = maxSlowSamples;
+        this.captureValues = captureValues;
+        this.entries = CacheBuilder.newBuilder().maximumSize(maxFingerprints).build();
+    }
+
+    public static SqlStatistics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Normalize SQL so that statements that differ only in literal or bind values compare equal.
+     * @param sql the SQL as executed
+     * @return the fingerprint
+     */
+    public static String fingerprint(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String retval = STRING_LITERAL.matcher(sql).replaceAll("?");
+        retval = NAMED_BIND.matcher(retval).replaceAll("?");
+        retval = NUMBER_LITERAL.matcher(retval).replaceAll("?");
+        retval = WHITESPACE.matcher(retval).replaceAll(" ").trim();
+        retval = IN_LIST.matcher(retval).replaceAll("(?+)");
+        return retval.toLowerCase();
+    }
+
+    public boolean isSlow(long elapsedNanos) {
+        return elapsedNanos >= slowThresholdNanos;
+    }
+
+    /**
+     * @return whether slow executions keep their inlined SQL and bind values
+     */
+    public boolean isCapturingValues() {
+        return captureValues;
+    }
+
+    /**
+     * Record a statement execution.
+     * @param sql the SQL as executed
+     * @param elapsedNanos execution time including fetching
+     * @param rows rows fetched
+     * @param roundTrips estimated database round trips
+     * @param endpoint the request that issued the statement, may be null
+     * @return the fingerprint the execution was recorded under
+     */
+    public String record(String sql, long elapsedNanos, long rows, long roundTrips, String endpoint) {
+        String fingerprint = fingerprint(sql);
+        Entry entry;
+        try {
+            entry = entries.get(fingerprint, () -> new Entry(fingerprint));
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex);
+        }
+        entry.add(elapsedNanos, rows, roundTrips, endpoint);
+        return fingerprint;
+    }
+
+    /**
+     * Keep the details of a slow execution. Only the most recent samples are retained.
+     * @param fingerprint the statement's fingerprint, as returned by {@link #record}
+     * @param inlinedSql the SQL with its values inlined, only kept if capturing values
+     * @param bindValues the bound values, only counted unless capturing values
+     */
+    public void recordSlow(String fingerprint, String inlinedSql, List<?> bindValues,
+                           long elapsedNanos, String endpoint) {
+        List<String> binds = null;
+        if (captureValues && bindValues != null) {
+            binds = new ArrayList<>();
+            for (Object value : bindValues) {
+                String text = String.valueOf(value);
+                if (text.length() > MAX_BIND_LENGTH) {
+                    text = text.substring(0, MAX_BIND_LENGTH) + "...";
+                }
+                binds.add(text);
+            }
+        }
+        SlowSample sample = new SlowSample(Instant.now().toString(), toMillis(elapsedNanos),
+                fingerprint, bindValues != null ? bindValues.size() : 0,
+                captureValues ? inlinedSql : null, binds, endpoint);
+        synchronized (slowSamples) {
+            slowSamples.addFirst(sample);
+            while (slowSamples.size() > maxSlowSamples) {
+                slowSamples.removeLast();
+            }
+        }
+    }
+
+    /**
+     * @return statistics for each tracked fingerprint, slowest p99 first.
+     */
+    public List<FingerprintStats> getFingerprints() {
+        List<FingerprintStats> retval = new ArrayList<>();
+        for (Entry entry : entries.asMap().values()) {
+            retval.add(entry.toStats());
+        }
+        retval.sort(Comparator.comparingDouble(FingerprintStats::getP99Ms).reversed());
+        return retval;
+    }
+
+    /**
+     * @return the captured slow executions, newest first.
+     */
+    public List<SlowSample> getSlowSamples() {
+        synchronized (slowSamples) {
+            return new ArrayList<>(slowSamples);
+        }
+    }
+
+    public void reset() {
+        entries.invalidateAll();
+        synchronized (slowSamples) {
+            slowSamples.clear();
+        }
+    }
+
+    private static double toMillis(double nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static final class Entry {
+        private final String fingerprint;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder roundTrips = new LongAdder();
+        private final Histogram latency = new Histogram(new ExponentiallyDecayingReservoir());
+        private final Set<String> endpoints = new LinkedHashSet<>();
+
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        void add(long elapsedNanos, long rowCount, long trips, String endpoint) {
+            count.increment();
+            rows.add(rowCount);
+            roundTrips.add(trips);
+            latency.update(elapsedNanos);
+            if (endpoint != null) {
+                synchronized (endpoints) {
+                    if (endpoints.size() < MAX_ENDPOINTS || endpoints.contains(endpoint)) {
+                        endpoints.add(endpoint);
+                    }
+                }
+            }
+        }
+
+        FingerprintStats toStats() {
+            Snapshot snapshot = latency.getSnapshot();
+            List<String> endpointList;
+            synchronized (endpoints) {
+                endpointList = new ArrayList<>(endpoints);
+            }
+            return new FingerprintStats(fingerprint, count.sum(), toMillis(snapshot.getMedian()),
+                    toMillis(snapshot.get99thPercentile()), toMillis(snapshot.getMax()),
+                    rows.sum(), roundTrips.sum(), Collections.unmodifiableList(endpointList));
+        }
+    }
+
+    /**
+     * Point in time statistics for one fingerprint.
+     */
+    public static final class FingerprintStats {
+        private final String fingerprint;
+        private final long count;
+        private final double p50Ms;
+        private final double p99Ms;
+        private final double maxMs;
+        private final long rowsFetched;
+        private final long roundTrips;
+        private final List<String> endpoints;
+
+        FingerprintStats(String fingerprint, long count, double p50Ms, double p99Ms, double maxMs,
+                         long rowsFetched, long roundTrips, List<String> endpoints) {
+            this.fingerprint = fingerprint;
+            this.count = count;
+            this.p50Ms = p50Ms;
+            this.p99Ms = p99Ms;
+            this.maxMs = maxMs;
+            this.rowsFetched = rowsFetched;
+            this.roundTrips = roundTrips;
+            this.endpoints = endpoints;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getP50Ms() {
+            return p50Ms;
+        }
+
+        public double getP99Ms() {
+            return p99Ms;
+        }
+
+        public double getMaxMs() {
+            return maxMs;
+        }
+
+        public long getRowsFetched() {
+            return rowsFetched;
+        }
+
+        public long getRoundTrips() {
+            return roundTrips;
+        }
+
+        public List<String> getEndpoints() {
+            return endpoints;
+        }
+    }
+
+    /**
+     * A captured execution that exceeded the slow threshold.
+     */
+    public static final class SlowSample {
+        private final String time;
+        private final double elapsedMs;
+        private final String fingerprint;
+        private final int bindCount;
+        private final String sql;
+        private final List<String> bindValues;
+        private final String endpoint;
+
+        SlowSample(String time, double elapsedMs, String fingerprint, int bindCount, String sql,
+                   List<String> bindValues, String endpoint) {
+            this.time = time;
+            this.elapsedMs = elapsedMs;
+            this.fingerprint = fingerprint;
+            this.bindCount = bindCount;
+            this.sql = sql;
+            this.bindValues = bindValues;
+            this.endpoint = endpoint;
+        }
+
+        public String getTime() {
+            return time;
+        }
+
+        public double getElapsedMs() {
+            return elapsedMs;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public int getBindCount() {
+            return bindCount;
+        }
+
+        /**
+         * @return the inlined SQL, null unless {@value SqlStatistics#CAPTURE_VALUES_KEY} is set
+         */
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * @return the bound values, null unless {@value SqlStatistics#CAPTURE_VALUES_KEY} is set
+         */
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public List<String> getBindValues() {
+            return bindValues;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+    }
+}
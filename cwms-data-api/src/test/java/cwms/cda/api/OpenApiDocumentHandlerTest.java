@@ -0,0 +1,89 @@
+package cwms.cda.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.javalin.core.util.Header;
+import io.javalin.http.Context;
+import io.javalin.http.HandlerType;
+import io.javalin.http.util.ContextUtil;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.info.Info;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class OpenApiDocumentHandlerTest {
+
+    private final AtomicInteger generated = new AtomicInteger();
+    private final OpenApiDocumentHandler handler = new OpenApiDocumentHandler(() -> {
+        generated.incrementAndGet();
+        return new OpenAPI().info(new Info().title("CWMS Data API").version("test"));
+    });
+
+    private static Context context(HttpServletRequest request, HttpServletResponse response) {
+        HashMap<String, Object> attributes = new HashMap<>();
+        attributes.put(ContextUtil.maxRequestSizeKey, Integer.MAX_VALUE);
+        return ContextUtil.init(request, response, "*", new HashMap<>(), HandlerType.GET, attributes);
+    }
+
+    private static String read(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int read = stream.read(buffer); read > 0; read = stream.read(buffer)) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void test_document_is_generated_once_and_gzipped_when_accepted() throws IOException {
+        HttpServletRequest plainRequest = mock(HttpServletRequest.class);
+        Context plain = context(plainRequest, mock(HttpServletResponse.class));
+        handler.handle(plain);
+        String json = read(plain.resultStream());
+
+        HttpServletRequest gzipRequest = mock(HttpServletRequest.class);
+        HttpServletResponse gzipResponse = mock(HttpServletResponse.class);
+        when(gzipRequest.getHeader(Header.ACCEPT_ENCODING)).thenReturn("br, gzip");
+        Context gzipped = context(gzipRequest, gzipResponse);
+        handler.handle(gzipped);
+
+        assertTrue(json.contains("CWMS Data API"), json);
+        assertEquals(json, read(new GZIPInputStream(gzipped.resultStream())));
+        verify(gzipResponse).setHeader(Header.CONTENT_ENCODING, "gzip");
+        assertEquals(1, generated.get());
+    }
+
+    @Test
+    void test_matching_etag_is_not_modified() {
+        HttpServletResponse first = mock(HttpServletResponse.class);
+        handler.handle(context(mock(HttpServletRequest.class), first));
+        ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+        verify(first).setHeader(eq(Header.ETAG), etag.capture());
+
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(request.getHeader(Header.IF_NONE_MATCH)).thenReturn(etag.getValue());
+        Context ctx = context(request, response);
+        handler.handle(ctx);
+
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(response, never()).setHeader(eq(Header.CONTENT_ENCODING), eq("gzip"));
+        assertNull(ctx.resultStream());
+    }
+}
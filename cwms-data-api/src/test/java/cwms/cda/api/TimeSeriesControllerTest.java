@@ -3,10 +3,14 @@ package cwms.cda.api;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNotNull;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -130,6 +134,48 @@ class TimeSeriesControllerTest extends ControllerTest {
         assertSimilar(expected, actual);
     }
 
+    @Test
+    void testNotModifiedSkipsRead() {
+        String officeId = "LRL";
+        String tsId = "RYAN3.Stage.Inst.5Minutes.0.ZSTORE_TS_TEST";
+        TimeSeriesDao dao = mock(TimeSeriesDao.class);
+        when(dao.getDataVersion(eq(tsId), eq(officeId), isNotNull(), isNotNull(), isNull()))
+                .thenReturn("42:" + tsId + ":1700000000000:288");
+
+        final HttpServletRequest request = mock(HttpServletRequest.class);
+        final HttpServletResponse response = mock(HttpServletResponse.class);
+        when(request.getHeader(Header.ACCEPT)).thenReturn(Formats.JSONV2);
+        Map<String, String> urlParams = new LinkedHashMap<>();
+        urlParams.put("office", officeId);
+        urlParams.put("name", tsId);
+        when(request.getQueryString()).thenReturn(buildParamStr(urlParams));
+        when(request.getRequestURL()).thenReturn(new StringBuffer("http://127.0.0.1:7001/timeseries"));
+        when(request.getRequestURI()).thenReturn("/timeseries");
+        Context ctx = new Context(request, response, new LinkedHashMap<>());
+
+        String etag = ConditionalRequests.weakEtag(ctx, "42:" + tsId + ":1700000000000:288");
+        when(request.getHeader(Header.IF_NONE_MATCH)).thenReturn("\"other\", " + etag);
+
+        TimeSeriesController controller = new TimeSeriesController(new MetricRegistry()) {
+            @Override
+            protected DSLContext getDslContext(Context ctx) {
+                return null;
+            }
+
+            @NotNull
+            @Override
+            protected TimeSeriesDao getTimeSeriesDao(DSLContext dsl) {
+                return dao;
+            }
+        };
+        controller.getAll(ctx);
+
+        verify(response).setStatus(304);
+        verify(response).setHeader(Header.ETAG, etag);
+        verify(dao, never()).getTimeseries(any(), anyInt(), any(), any(), any(), any(), any(), any(),
+                anyBoolean());
+    }
+
     private void assertSimilar(TimeSeries expected, TimeSeries actual) {
         // Make sure ts we got back resembles the fakeTS our mock dao was supposed to return.
         assertEquals(expected.getOfficeId(), actual.getOfficeId(), "offices did not match");
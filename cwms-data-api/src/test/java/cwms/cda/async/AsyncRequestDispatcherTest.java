@@ -0,0 +1,224 @@
+package cwms.cda.async;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.codahale.metrics.MetricRegistry;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.mockito.ArgumentCaptor;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class AsyncRequestDispatcherTest {
+
+    private final AsyncRequestDispatcher dispatcher = new AsyncRequestDispatcher(new MetricRegistry(),
+            AsyncRequestDispatcher.defaultRoutes(), false);
+
+    @ParameterizedTest
+    @CsvSource(value = {
+        "GET,/catalog/TIMESERIES,catalog",
+        "GET,/catalog/LOCATIONS/,catalog",
+        "GET,/timeseries,timeseries",
+        "GET,/timeseries/,timeseries",
+        "GET,/timeseries/text,timeseries",
+        "GET,/levels/Loc.Elev.Inst.0.Top/timeseries,timeseries",
+        "GET,/ratings,ratings",
+        "GET,/ratings/SWT,ratings",
+        "GET,/forecast-instance/spec/file-data,files",
+        "GET,/timeseries/binary/Loc.Flow.Inst.1Hour.0.raw/value,files",
+    })
+    void test_heavy_routes_match(String method, String path, String executor) {
+        AsyncRoute route = dispatcher.routeFor(method, path);
+        assertNotNull(route, path + " should run asynchronously");
+        assertEquals(executor, route.getExecutor());
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+        "POST,/timeseries",
+        "GET,/offices/SWT",
+        "GET,/timeseries/recent/",
+        "GET,/timeseries/group/Default",
+        "GET,/ratings/template/Elev;Area",
+        "GET,/ratings/spec/SWT",
+        "GET,/ratings/metadata/SWT",
+        "GET,/locations/Loc",
+    })
+    void test_light_routes_do_not_match(String method, String path) {
+        assertNull(dispatcher.routeFor(method, path), path + " should run synchronously");
+    }
+
+    @Test
+    void test_request_path_strips_context() {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getRequestURI()).thenReturn("/cwms-data/catalog/TIMESERIES");
+        when(request.getContextPath()).thenReturn("/cwms-data");
+        assertEquals("/catalog/TIMESERIES", AsyncRequestDispatcher.requestPath(request));
+    }
+
+    @Test
+    void test_disabled_dispatcher_does_not_take_request() throws Exception {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getRequestURI()).thenReturn("/cwms-data/catalog/TIMESERIES");
+        when(request.getContextPath()).thenReturn("/cwms-data");
+        when(request.getMethod()).thenReturn("GET");
+        when(request.isAsyncSupported()).thenReturn(true);
+        assertFalse(dispatcher.dispatch(request, mock(HttpServletResponse.class), (req, resp) -> { }));
+    }
+
+    @Test
+    void test_timeout_answers_and_stops_the_worker() throws Exception {
+        AsyncRequestDispatcher enabled = new AsyncRequestDispatcher(new MetricRegistry(),
+                AsyncRequestDispatcher.defaultRoutes(), true);
+        try {
+            HttpServletRequest request = mock(HttpServletRequest.class);
+            when(request.getRequestURI()).thenReturn("/cwms-data/catalog/TIMESERIES");
+            when(request.getContextPath()).thenReturn("/cwms-data");
+            when(request.getMethod()).thenReturn("GET");
+            when(request.isAsyncSupported()).thenReturn(true);
+            AsyncContext asyncContext = mock(AsyncContext.class);
+            when(request.startAsync(eq(request), any())).thenReturn(asyncContext);
+            HttpServletResponse response = mock(HttpServletResponse.class);
+            StringWriter body = new StringWriter();
+            when(response.getWriter()).thenReturn(new PrintWriter(body));
+            when(response.getOutputStream()).thenReturn(mock(ServletOutputStream.class));
+
+            CountDownLatch started = new CountDownLatch(1);
+            CompletableFuture<Boolean> interrupted = new CompletableFuture<>();
+            CompletableFuture<Boolean> wrote = new CompletableFuture<>();
+            assertTrue(enabled.dispatch(request, response, (req, resp) -> {
+                started.countDown();
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                    interrupted.complete(false);
+                } catch (InterruptedException ex) {
+                    interrupted.complete(true);
+                }
+                try {
+                    resp.setStatus(HttpServletResponse.SC_OK);
+                    resp.getOutputStream().write('x');
+                    wrote.complete(true);
+                } catch (IOException ex) {
+                    wrote.complete(false);
+                }
+            }));
+            ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+            verify(asyncContext).addListener(listener.capture());
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            listener.getValue().onTimeout(new AsyncEvent(asyncContext));
+
+            assertTrue(interrupted.get(5, TimeUnit.SECONDS));
+            assertFalse(wrote.get(5, TimeUnit.SECONDS));
+            verify(response).setStatus(HttpServletResponse.SC_GATEWAY_TIMEOUT);
+            verify(response, never()).setStatus(HttpServletResponse.SC_OK);
+            verify(response, never()).getOutputStream();
+            verify(response, never()).sendError(anyInt());
+            verify(asyncContext, times(1)).complete();
+            assertTrue(body.toString().contains("too long"));
+        } finally {
+            enabled.shutdown();
+        }
+    }
+
+    @Test
+    void test_failure_after_commit_is_dispatched_back_to_abort() throws Exception {
+        AsyncRequestDispatcher enabled = new AsyncRequestDispatcher(new MetricRegistry(),
+                AsyncRequestDispatcher.defaultRoutes(), true);
+        try {
+            HttpServletRequest request = mock(HttpServletRequest.class);
+            when(request.getRequestURI()).thenReturn("/cwms-data/timeseries/text");
+            when(request.getContextPath()).thenReturn("/cwms-data");
+            when(request.getMethod()).thenReturn("GET");
+            when(request.isAsyncSupported()).thenReturn(true);
+            AsyncContext asyncContext = mock(AsyncContext.class);
+            when(request.startAsync(eq(request), any())).thenReturn(asyncContext);
+            HttpServletResponse response = mock(HttpServletResponse.class);
+            when(response.isCommitted()).thenReturn(true);
+
+            IOException failure = new IOException("cursor closed");
+            CompletableFuture<Boolean> asyncStarted = new CompletableFuture<>();
+            assertTrue(enabled.dispatch(request, response, (req, resp) -> {
+                asyncStarted.complete(req.isAsyncStarted());
+                throw failure;
+            }));
+
+            // the handler must leave completing the request to the dispatcher
+            assertFalse(asyncStarted.get(5, TimeUnit.SECONDS));
+            verify(asyncContext, timeout(5000)).dispatch();
+            verify(request).setAttribute(anyString(), eq(failure));
+            verify(asyncContext, never()).complete();
+            verify(response, never()).setStatus(anyInt());
+        } finally {
+            enabled.shutdown();
+        }
+    }
+
+    @Test
+    void test_full_executor_rejects_with_retry_after() throws Exception {
+        System.setProperty("cwms.dataapi.async.files.threads", "1");
+        System.setProperty("cwms.dataapi.async.files.queue", "1");
+        AsyncRequestDispatcher enabled;
+        try {
+            enabled = new AsyncRequestDispatcher(new MetricRegistry(),
+                    AsyncRequestDispatcher.defaultRoutes(), true);
+        } finally {
+            System.clearProperty("cwms.dataapi.async.files.threads");
+            System.clearProperty("cwms.dataapi.async.files.queue");
+        }
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            HttpServletRequest request = mock(HttpServletRequest.class);
+            when(request.getRequestURI()).thenReturn("/cwms-data/forecast-instance/spec/file-data");
+            when(request.getContextPath()).thenReturn("/cwms-data");
+            when(request.getMethod()).thenReturn("GET");
+            when(request.isAsyncSupported()).thenReturn(true);
+            when(request.startAsync(eq(request), any())).thenAnswer(i -> mock(AsyncContext.class));
+            AsyncRequestDispatcher.RequestHandler blocked = (req, resp) -> {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            };
+            // one running, one queued
+            assertTrue(enabled.dispatch(request, mock(HttpServletResponse.class), blocked));
+            assertTrue(enabled.dispatch(request, mock(HttpServletResponse.class), blocked));
+
+            HttpServletResponse rejected = mock(HttpServletResponse.class);
+            when(rejected.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+            assertTrue(enabled.dispatch(request, rejected, blocked));
+
+            verify(rejected).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            verify(rejected).setHeader("Retry-After", "5");
+        } finally {
+            release.countDown();
+            enabled.shutdown();
+        }
+    }
+}
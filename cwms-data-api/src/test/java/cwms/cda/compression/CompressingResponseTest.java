@@ -0,0 +1,213 @@
+package cwms.cda.compression;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.codahale.metrics.MetricRegistry;
+import cwms.cda.async.AsyncRequestDispatcher;
+import io.javalin.core.util.Header;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+
+class CompressingResponseTest {
+
+    private static final List<ContentCoding> OFFERED = Arrays.asList(ContentCoding.GZIP,
+            ContentCoding.DEFLATE);
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    private HttpServletResponse response(String contentType) throws IOException {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getContentType()).thenReturn(contentType);
+        when(response.getStatus()).thenReturn(HttpServletResponse.SC_OK);
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        });
+        return response;
+    }
+
+    private static byte[] json(int size) {
+        StringBuilder builder = new StringBuilder("[");
+        while (builder.length() < size) {
+            builder.append("{\"name\":\"location-").append(builder.length()).append("\"},");
+        }
+        builder.setCharAt(builder.length() - 1, ']');
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] read(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int read = stream.read(buffer); read > 0; read = stream.read(buffer)) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void test_negotiate_honors_quality_and_server_preference() {
+        assertEquals(ContentCoding.GZIP, ResponseCompression.negotiate("deflate, gzip", OFFERED));
+        assertEquals(ContentCoding.DEFLATE, ResponseCompression.negotiate("gzip;q=0.5, deflate", OFFERED));
+        assertEquals(ContentCoding.GZIP, ResponseCompression.negotiate("x-gzip", OFFERED));
+        assertEquals(ContentCoding.DEFLATE, ResponseCompression.negotiate("gzip;q=0, *", OFFERED));
+        assertNull(ResponseCompression.negotiate("br, identity", OFFERED));
+        assertNull(ResponseCompression.negotiate("*;q=0", OFFERED));
+        assertNull(ResponseCompression.negotiate(null, OFFERED));
+    }
+
+    @Test
+    void test_min_size_by_content_type() {
+        assertEquals(ResponseCompression.DEFAULT_MIN_SIZE,
+                ResponseCompression.minSize("application/json;version=2"));
+        assertEquals(ResponseCompression.DEFAULT_MIN_SIZE, ResponseCompression.minSize("application/xml"));
+        assertEquals(ResponseCompression.DEFAULT_MIN_SIZE, ResponseCompression.minSize("text/csv"));
+        assertEquals(-1, ResponseCompression.minSize("image/png"));
+        assertEquals(-1, ResponseCompression.minSize(null));
+    }
+
+    @Test
+    void test_large_body_is_streamed_compressed() throws IOException {
+        HttpServletResponse delegate = response("application/json;version=2");
+        CompressingResponse response = new CompressingResponse(delegate, ContentCoding.GZIP, 6);
+        byte[] json = json(20_000);
+        response.setContentLength(json.length);
+        ServletOutputStream out = response.getOutputStream();
+        out.write(json, 0, 100);
+        out.write(json, 100, json.length - 100);
+        response.finish();
+
+        assertEquals(ContentCoding.GZIP, response.compressedWith());
+        verify(delegate).setHeader(Header.CONTENT_ENCODING, "gzip");
+        verify(delegate).setHeader(Header.VARY, Header.ACCEPT_ENCODING);
+        verify(delegate, never()).setContentLengthLong(anyLong());
+        assertArrayEquals(json, read(new GZIPInputStream(new ByteArrayInputStream(body.toByteArray()))));
+    }
+
+    @Test
+    void test_flush_after_decision_sends_what_was_written() throws Exception {
+        HttpServletResponse delegate = response("application/json");
+        CompressingResponse response = new CompressingResponse(delegate, ContentCoding.DEFLATE, 1);
+        byte[] json = json(4_000);
+        response.getOutputStream().write(json);
+        response.getOutputStream().flush();
+
+        // sync flushed, so everything so far can be inflated before the body ends
+        Inflater inflater = new Inflater();
+        inflater.setInput(body.toByteArray());
+        byte[] partial = new byte[json.length * 2];
+        assertEquals(json.length, inflater.inflate(partial));
+        inflater.end();
+        response.finish();
+    }
+
+    @Test
+    void test_async_dispatched_stream_ends_before_the_request_completes() throws Exception {
+        AsyncRequestDispatcher dispatcher = new AsyncRequestDispatcher(new MetricRegistry(),
+                AsyncRequestDispatcher.defaultRoutes(), true);
+        try {
+            HttpServletRequest request = mock(HttpServletRequest.class);
+            when(request.getRequestURI()).thenReturn("/cwms-data/timeseries/text");
+            when(request.getContextPath()).thenReturn("/cwms-data");
+            when(request.getMethod()).thenReturn("GET");
+            when(request.isAsyncSupported()).thenReturn(true);
+            when(request.getHeader("Accept-Encoding")).thenReturn("gzip");
+            AsyncContext asyncContext = mock(AsyncContext.class);
+            when(request.startAsync(eq(request), any())).thenReturn(asyncContext);
+            CompletableFuture<byte[]> completedBody = new CompletableFuture<>();
+            doAnswer(invocation -> completedBody.complete(body.toByteArray())).when(asyncContext).complete();
+            HttpServletResponse delegate = response("application/json;version=2");
+            byte[] json = json(20_000);
+
+            assertTrue(dispatcher.dispatch(request, delegate, (req, resp) -> {
+                ServletOutputStream out = resp.getOutputStream();
+                out.write(json, 0, 10_000);
+                resp.flushBuffer();
+                out.write(json, 10_000, json.length - 10_000);
+            }));
+
+            // the body, gzip trailer and all, was written before the request was completed
+            byte[] sent = completedBody.get(5, TimeUnit.SECONDS);
+            assertArrayEquals(json, read(new GZIPInputStream(new ByteArrayInputStream(sent))));
+            verify(delegate).setHeader(Header.CONTENT_ENCODING, "gzip");
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    void test_small_body_is_written_as_is() throws IOException {
+        HttpServletResponse delegate = response("application/json");
+        CompressingResponse response = new CompressingResponse(delegate, ContentCoding.GZIP, 6);
+        byte[] json = json(100);
+        response.setHeader(Header.CONTENT_LENGTH, Integer.toString(json.length));
+        response.getOutputStream().write(json);
+        response.finish();
+
+        assertNull(response.compressedWith());
+        verify(delegate, never()).setHeader(eq(Header.CONTENT_ENCODING), eq("gzip"));
+        verify(delegate).setContentLengthLong(json.length);
+        assertArrayEquals(json, body.toByteArray());
+    }
+
+    @Test
+    void test_already_encoded_body_is_written_as_is() throws IOException {
+        HttpServletResponse delegate = response("application/json");
+        when(delegate.getHeader(Header.CONTENT_ENCODING)).thenReturn("gzip");
+        when(delegate.getHeader(Header.VARY)).thenReturn(Header.ACCEPT_ENCODING);
+        CompressingResponse response = new CompressingResponse(delegate, ContentCoding.DEFLATE, 6);
+        byte[] json = json(5_000);
+        response.getOutputStream().write(json);
+        response.finish();
+
+        assertNull(response.compressedWith());
+        verify(delegate, never()).setHeader(eq(Header.VARY), eq(Header.ACCEPT_ENCODING));
+        assertArrayEquals(json, body.toByteArray());
+    }
+
+    @Test
+    void test_variants_are_compressed_once() {
+        byte[] json = json(3_000);
+        CompressedVariants variants = new CompressedVariants(json);
+        byte[] gzipped = variants.get(ContentCoding.GZIP);
+        assertSame(json, variants.get(null));
+        assertSame(gzipped, variants.get(ContentCoding.GZIP));
+    }
+}
@@ -0,0 +1,80 @@
+package cwms.cda.data.dao;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.codahale.metrics.MetricRegistry;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class GroupAssignmentDiffTest {
+
+    private static GroupAssignmentDiff.Assignment assignment(String id, String alias, Number attribute) {
+        return new GroupAssignmentDiff.Assignment(id, alias, attribute, null);
+    }
+
+    private static List<String> ids(List<GroupAssignmentDiff.Assignment> assignments) {
+        return assignments.stream().map(a -> a.id).collect(toList());
+    }
+
+    @Test
+    void test_diff_classifies_members() {
+        List<GroupAssignmentDiff.Assignment> stored = Arrays.asList(
+                assignment("Kept", "k", 1),
+                assignment("Moved", null, 2),
+                assignment("Gone", null, 3));
+        List<GroupAssignmentDiff.Assignment> requested = Arrays.asList(
+                assignment("KEPT", "k", new BigDecimal("1.0")),
+                assignment("Moved", null, 5),
+                assignment("New", null, null));
+
+        GroupAssignmentDiff replaced = GroupAssignmentDiff.between(stored, requested, true);
+        assertEquals(Collections.singletonList("New"), ids(replaced.getAdded()));
+        assertEquals(Collections.singletonList("Moved"), ids(replaced.getChanged()));
+        assertEquals(Collections.singletonList("Gone"), replaced.getRemoved());
+        assertEquals(1, replaced.getUnchanged());
+
+        GroupAssignmentDiff merged = GroupAssignmentDiff.between(stored, requested, false);
+        assertTrue(merged.getRemoved().isEmpty());
+        assertEquals(1, merged.getAdded().size());
+    }
+
+    @Test
+    void test_unchanged_group_is_empty() {
+        List<GroupAssignmentDiff.Assignment> stored = Arrays.asList(assignment("A", "a", 1),
+                assignment("B", null, null));
+        GroupAssignmentDiff diff = GroupAssignmentDiff.between(stored,
+                Arrays.asList(assignment("b", null, null), assignment("a", "a", 1.0)), true);
+        assertTrue(diff.isEmpty());
+        assertEquals(2, diff.getUnchanged());
+    }
+
+    @Test
+    void test_apply_batches_removals_before_upserts() {
+        List<GroupAssignmentDiff.Assignment> stored = IntStream.range(0, 5)
+                .mapToObj(i -> assignment("old-" + i, null, i)).collect(toList());
+        List<GroupAssignmentDiff.Assignment> requested = new ArrayList<>();
+        requested.add(assignment("old-0", "renamed", 0));
+        IntStream.range(0, 6).forEach(i -> requested.add(assignment("new-" + i, null, i)));
+        GroupAssignmentDiff diff = GroupAssignmentDiff.between(stored, requested, true);
+
+        List<String> calls = new ArrayList<>();
+        MetricRegistry metrics = new MetricRegistry();
+        diff.apply(3,
+                ids -> calls.add("unassign " + ids.size()),
+                batch -> calls.add("assign " + batch.size()),
+                metrics, LocationGroupDao.class);
+
+        assertEquals(Arrays.asList("unassign 3", "unassign 1", "assign 3", "assign 3", "assign 1"), calls);
+        String prefix = MetricRegistry.name(LocationGroupDao.class, "groups", "assignments");
+        assertEquals(6, metrics.meter(prefix + ".added").getCount());
+        assertEquals(1, metrics.meter(prefix + ".changed").getCount());
+        assertEquals(4, metrics.meter(prefix + ".removed").getCount());
+    }
+}
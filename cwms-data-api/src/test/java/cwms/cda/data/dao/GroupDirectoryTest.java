@@ -0,0 +1,169 @@
+package cwms.cda.data.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.Test;
+
+class GroupDirectoryTest {
+
+    private static GroupDirectory<String, String> buildDirectory() {
+        GroupDirectory.Group<String, String> basin = new GroupDirectory.Group<String, String>("Basin/Green",
+                "CWMS", "Basin", "SWT", "Green", "KEYS")
+                .add("SWT:KEYS", "SWT", "KEYS", 2)
+                .add("LRL:Cannelton", "LRL", "Cannelton", null)
+                .add("SWT:Tulsa", "SWT", "Tulsa", 1);
+        GroupDirectory.Group<String, String> agency = new GroupDirectory.Group<>("Agency/USGS",
+                "CWMS", "Agency Aliases", "CWMS", "USGS", null);
+        GroupDirectory.Group<String, String> lrlOnly = new GroupDirectory.Group<String, String>("Basin/Ohio",
+                "LRL", "Basin", "LRL", "Ohio", null)
+                .add("LRL:Cannelton", "LRL", "Cannelton", 1);
+        return new GroupDirectory<>(Arrays.asList(lrlOnly, basin, agency), "1:2/3:4");
+    }
+
+    private static String combine(String group, List<String> assigned) {
+        return group + assigned;
+    }
+
+    @Test
+    void test_groups_in_category_group_order_with_members_in_attribute_order() {
+        GroupDirectory<String, String> directory = buildDirectory();
+
+        List<String> groups = directory.select(g -> true, o -> true, GroupDirectoryTest::combine);
+
+        assertEquals(Arrays.asList("Agency/USGS[]", "Basin/Green[SWT:Tulsa, SWT:KEYS, LRL:Cannelton]",
+                "Basin/Ohio[LRL:Cannelton]"), groups);
+    }
+
+    @Test
+    void test_assignment_filter_in_where_clause_drops_groups() {
+        GroupDirectory<String, String> directory = buildDirectory();
+        Predicate<String> swtOrUnassigned = o -> o == null || o.equals("SWT");
+        Predicate<String> onlySwt = "SWT"::equals;
+
+        assertEquals(Arrays.asList("Agency/USGS[]", "Basin/Green[SWT:Tulsa, SWT:KEYS]"),
+                directory.select(g -> true, swtOrUnassigned, GroupDirectoryTest::combine));
+        assertEquals(Collections.singletonList("Basin/Green[SWT:Tulsa, SWT:KEYS]"),
+                directory.select(g -> true, onlySwt, GroupDirectoryTest::combine));
+    }
+
+    @Test
+    void test_assignment_filter_in_join_keeps_groups() {
+        GroupDirectory<String, String> directory = buildDirectory();
+
+        assertEquals(Arrays.asList("Agency/USGS[]", "Basin/Green[SWT:Tulsa, SWT:KEYS]", "Basin/Ohio[]"),
+                directory.selectJoined(g -> true, "SWT"::equals, GroupDirectoryTest::combine));
+    }
+
+    @Test
+    void test_select_by_id_and_reverse_index() {
+        GroupDirectory<String, String> directory = buildDirectory();
+
+        assertEquals(Collections.singletonList("Basin/Ohio[LRL:Cannelton]"),
+                directory.select("Basin", "Ohio", g -> true, o -> true, GroupDirectoryTest::combine));
+        assertTrue(directory.select("Basin", "Missing", g -> true, o -> true,
+                GroupDirectoryTest::combine).isEmpty());
+        assertEquals(Arrays.asList("Basin/Green", "Basin/Ohio"), directory.groupsOf("lrl", "CANNELTON"));
+        assertTrue(directory.groupsOf("SWT", "Cannelton").isEmpty());
+    }
+
+    @Test
+    void test_like_regex_matches_as_oracle() {
+        assertTrue(GroupDirectory.likeRegex("^basin").test("Basin"));
+        assertTrue(GroupDirectory.likeRegex("sin").test("Basin"));
+        assertTrue(GroupDirectory.likeRegex("^[[:alpha:]]+ [[:alpha:]]+$").test("Agency Aliases"));
+        assertFalse(GroupDirectory.likeRegex("^[[:digit:]]").test("Agency Aliases"));
+        assertFalse(GroupDirectory.likeRegex(".*").test(null));
+    }
+
+    @Test
+    void test_write_sends_readers_to_database_while_another_request_loads() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        GroupDirectory.Source<String, String> source = new GroupDirectory.Source<>(dsl -> {
+            if (loads.incrementAndGet() > 1) {
+                loadStarted.countDown();
+                await(releaseLoad);
+            }
+            return Collections.emptyList();
+        }, dsl -> "v" + loads.get());
+
+        GroupDirectory<String, String> first = source.get(null);
+        source.invalidate();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<GroupDirectory<String, String>> loading = executor.submit(() -> source.get(null));
+            assertTrue(loadStarted.await(10, TimeUnit.SECONDS));
+
+            assertNull(source.get(null));
+
+            releaseLoad.countDown();
+            GroupDirectory<String, String> second = loading.get(10, TimeUnit.SECONDS);
+            assertNotSame(first, second);
+            assertSame(second, source.get(null));
+            assertEquals(2, loads.get());
+        } finally {
+            releaseLoad.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void test_previous_snapshot_served_while_another_request_checks() throws Exception {
+        CountDownLatch probeStarted = new CountDownLatch(1);
+        CountDownLatch releaseProbe = new CountDownLatch(1);
+        AtomicInteger probes = new AtomicInteger();
+        GroupDirectory.Source<String, String> source;
+        System.setProperty(GroupDirectory.CHECK_KEY, "0");
+        try {
+            source = new GroupDirectory.Source<>(dsl -> Collections.emptyList(), dsl -> {
+                if (probes.incrementAndGet() > 1) {
+                    probeStarted.countDown();
+                    await(releaseProbe);
+                }
+                return "v1";
+            });
+        } finally {
+            System.clearProperty(GroupDirectory.CHECK_KEY);
+        }
+
+        GroupDirectory<String, String> first = source.get(null);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            GroupDirectory.Source<String, String> checked = source;
+            Future<GroupDirectory<String, String>> checking = executor.submit(() -> checked.get(null));
+            assertTrue(probeStarted.await(10, TimeUnit.SECONDS));
+
+            assertSame(first, source.get(null));
+
+            releaseProbe.countDown();
+            assertSame(first, checking.get(10, TimeUnit.SECONDS));
+        } finally {
+            releaseProbe.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package cwms.cda.data.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cwms.cda.data.dto.Location;
+import cwms.cda.data.dto.LocationBulkResult;
+import cwms.cda.formatters.Formats;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class LocationBulkValidationTest {
+
+    private static Location location(String name, Double latitude) {
+        return new Location.Builder(name, "SITE", ZoneId.of("US/Central"), latitude, -96.6, "NAD83", "SWT")
+                .build();
+    }
+
+    @Test
+    void test_each_location_gets_a_result_in_order() {
+        List<LocationBulkResult.Item> items = LocationsDaoImpl.validateLocations(Arrays.asList(
+                location("BLUE-RIVER", 34.2),
+                location("NO-LATITUDE", null),
+                null,
+                location("blue-river", 34.3),
+                location("BOGGY-CREEK", 34.1)));
+
+        assertEquals(5, items.size());
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals(i, items.get(i).getIndex());
+        }
+        assertEquals(LocationBulkResult.Status.VALID, items.get(0).getStatus());
+        assertEquals(LocationBulkResult.Status.INVALID, items.get(1).getStatus());
+        assertNotNull(items.get(1).getMessage());
+        assertEquals(LocationBulkResult.Status.INVALID, items.get(2).getStatus());
+        assertEquals(LocationBulkResult.Status.INVALID, items.get(3).getStatus());
+        assertEquals("Duplicate of the location at index 0", items.get(3).getMessage());
+        assertEquals(LocationBulkResult.Status.VALID, items.get(4).getStatus());
+
+        LocationBulkResult result = new LocationBulkResult(true, items);
+        assertEquals(2, result.count(LocationBulkResult.Status.VALID));
+        assertFalse(result.isSuccessful());
+    }
+
+    @Test
+    void test_csv_rows_are_parsed_without_validation() {
+        String csv = "name,office-id,location-kind,timezone-name,latitude,longitude,horizontal-datum,nation\r\n"
+                + "BLUE-RIVER,SWT,SITE,US/Central,34.2,-96.6,NAD83,US\r\n"
+                + "NO-LATITUDE,SWT,SITE,US/Central,,-95.9,NAD83,\r\n";
+        List<Location> locations = Formats.parseContentListUnvalidated(
+                Formats.parseHeader(Formats.CSV, Location.class), csv, Location.class);
+
+        assertEquals(2, locations.size());
+        assertEquals("BLUE-RIVER", locations.get(0).getName());
+        assertEquals(34.2, locations.get(0).getLatitude());
+        assertEquals(null, locations.get(1).getLatitude());
+
+        List<LocationBulkResult.Item> items = LocationsDaoImpl.validateLocations(locations);
+        assertTrue(new LocationBulkResult(true, items.subList(0, 1)).isSuccessful());
+        assertEquals(LocationBulkResult.Status.INVALID, items.get(1).getStatus());
+    }
+}
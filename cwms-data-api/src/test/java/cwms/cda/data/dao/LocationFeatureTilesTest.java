@@ -0,0 +1,95 @@
+package cwms.cda.data.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cwms.cda.formatters.json.GeoJsonFeatureWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.geojson.Feature;
+import org.geojson.FeatureCollection;
+import org.geojson.Point;
+import org.junit.jupiter.api.Test;
+
+class LocationFeatureTilesTest {
+
+    private static Feature feature(String id, Double longitude, Double latitude) {
+        Feature feature = new Feature();
+        feature.setId(id);
+        if (longitude != null) {
+            feature.setGeometry(new Point(longitude, latitude));
+        }
+        feature.setProperty("name", id);
+        return feature;
+    }
+
+    private static LocationFeatureTiles buildLayer() {
+        LocationFeatureTiles layer = new LocationFeatureTiles(1);
+        layer.add(feature("Tulsa", -95.99, 36.15));
+        layer.add(feature("Keystone", -96.25, 36.15));
+        layer.add(feature("Denver", -104.99, 39.74));
+        layer.add(feature("Adak", -176.63, 51.88));
+        layer.add(feature("Attu", 173.18, 52.90));
+        layer.add(feature("Unplaced", null, null));
+        return layer;
+    }
+
+    private static List<String> ids(LocationFeatureTiles layer, BoundingBox bbox) throws IOException {
+        List<Feature> features = new ArrayList<>();
+        layer.write(bbox, features::add);
+        return features.stream().map(Feature::getId).sorted().collect(Collectors.toList());
+    }
+
+    @Test
+    void test_bbox_visits_overlapping_tiles() throws IOException {
+        LocationFeatureTiles layer = buildLayer();
+
+        assertEquals(Arrays.asList("Keystone", "Tulsa"), ids(layer, BoundingBox.parse("-96.5,36,-95.5,36.5")));
+        assertEquals(Arrays.asList("Tulsa"), ids(layer, BoundingBox.parse("-96.1,36,-95.5,36.5")));
+        assertEquals(Arrays.asList("Adak", "Attu", "Denver", "Keystone", "Tulsa", "Unplaced"),
+                ids(layer, null));
+    }
+
+    @Test
+    void test_bbox_across_antimeridian() throws IOException {
+        LocationFeatureTiles layer = buildLayer();
+        BoundingBox aleutians = BoundingBox.parse("170,50,-170,55");
+
+        assertEquals(Arrays.asList("Adak", "Attu"), ids(layer, aleutians));
+    }
+
+    @Test
+    void test_bbox_parse_rejects_invalid_boxes() {
+        assertNull(BoundingBox.parse(null));
+        assertNull(BoundingBox.parse(" "));
+        assertThrows(IllegalArgumentException.class, () -> BoundingBox.parse("-96,36,-95"));
+        assertThrows(IllegalArgumentException.class, () -> BoundingBox.parse("-96,36,-95,north"));
+        assertThrows(IllegalArgumentException.class, () -> BoundingBox.parse("-96,37,-95,36"));
+        assertThrows(IllegalArgumentException.class, () -> BoundingBox.parse("-196,36,-95,37"));
+    }
+
+    @Test
+    void test_streamed_collection_parses_as_feature_collection() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GeoJsonFeatureWriter writer = new GeoJsonFeatureWriter(out);
+        buildLayer().write(null, writer);
+        writer.finish();
+
+        FeatureCollection collection = new ObjectMapper().readValue(out.toByteArray(), FeatureCollection.class);
+
+        assertEquals(6, writer.getCount());
+        assertEquals(6, collection.getFeatures().size());
+        Feature tulsa = collection.getFeatures().stream()
+                .filter(f -> "Tulsa".equals(f.getId()))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+        assertEquals(36.15, ((Point) tulsa.getGeometry()).getCoordinates().getLatitude(), 1e-9);
+        assertEquals("Tulsa", tulsa.getProperty("name"));
+    }
+}
@@ -0,0 +1,110 @@
+package cwms.cda.data.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class LocationSpatialIndexTest {
+
+    private static LocationSpatialIndex buildIndex() {
+        return new LocationSpatialIndex(Arrays.asList(
+                new LocationSpatialIndex.Entry(1, "Tulsa", 36.15, -95.99),
+                new LocationSpatialIndex.Entry(2, "Keystone", 36.15, -96.25),
+                new LocationSpatialIndex.Entry(3, "Denver", 39.74, -104.99),
+                new LocationSpatialIndex.Entry(4, "Adak", 51.88, -176.63),
+                new LocationSpatialIndex.Entry(5, "Attu", 52.90, 173.18)));
+    }
+
+    private static List<String> ids(LocationSpatialIndex index, String bbox, String near, Double radiusKm,
+                                    Integer nearest) {
+        return index.find(SpatialFilter.parse(bbox, near, radiusKm, nearest)).stream()
+                .map(e -> e.locationId)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void test_bbox_and_radius() {
+        LocationSpatialIndex index = buildIndex();
+
+        assertEquals(Arrays.asList("Keystone", "Tulsa"),
+                ids(index, "-96.5,36,-95.5,36.5", null, null, null).stream().sorted()
+                        .collect(Collectors.toList()));
+        assertEquals(Arrays.asList("Adak", "Attu"),
+                ids(index, "170,50,-170,55", null, null, null).stream().sorted()
+                        .collect(Collectors.toList()));
+        // Keystone is about 23 km from Tulsa
+        assertEquals(Arrays.asList("Tulsa", "Keystone"), ids(index, null, "36.15,-95.99", 30.0, null));
+        assertEquals(Arrays.asList("Tulsa"), ids(index, null, "36.15,-95.99", 20.0, null));
+        // Adak and Attu are about 700 km apart across the antimeridian
+        assertEquals(Arrays.asList("Adak", "Attu"), ids(index, null, "51.88,-176.63", 800.0, null));
+    }
+
+    @Test
+    void test_nearest_orders_by_distance() {
+        LocationSpatialIndex index = buildIndex();
+
+        assertEquals(Arrays.asList("Keystone", "Tulsa", "Denver"), ids(index, null, "36,-97", null, 3));
+        assertEquals(Arrays.asList("Attu", "Adak"), ids(index, null, "53,175", null, 2));
+        assertEquals(Arrays.asList("Keystone"), ids(index, null, "36,-97", 80.0, 3));
+        assertEquals(5, ids(index, null, "0,0", null, 10).size());
+    }
+
+    @Test
+    void test_nearest_matches_brute_force() {
+        Random random = new Random(44);
+        List<LocationSpatialIndex.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            entries.add(new LocationSpatialIndex.Entry(i, "L" + i, 25 + random.nextDouble() * 24,
+                    -125 + random.nextDouble() * 58));
+        }
+        LocationSpatialIndex index = new LocationSpatialIndex(entries);
+
+        for (int query = 0; query < 20; query++) {
+            double latitude = -60 + random.nextDouble() * 120;
+            double longitude = -180 + random.nextDouble() * 360;
+            List<String> expected = entries.stream()
+                    .sorted(Comparator.comparingDouble((LocationSpatialIndex.Entry e) ->
+                            LocationSpatialIndex.distanceKm(latitude, longitude, e.latitude, e.longitude)))
+                    .limit(7)
+                    .map(e -> e.locationId)
+                    .collect(Collectors.toList());
+            assertEquals(expected, ids(index, null, latitude + "," + longitude, null, 7));
+        }
+    }
+
+    @Test
+    void test_incremental_updates() {
+        LocationSpatialIndex index = buildIndex();
+
+        index.put(6, "Sand Springs", 36.14, -96.11);
+        index.put(1, "TULSA", 40.0, -100.0);
+        index.remove("keystone");
+
+        assertEquals(Arrays.asList("Sand Springs"), ids(index, null, "36.15,-95.99", 30.0, null));
+        assertEquals(5, index.size());
+        index.put(3, "Denver", null, null);
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void test_parse_validates_parameters() {
+        assertNull(SpatialFilter.parse(null, " ", null, null));
+        assertTrue(SpatialFilter.parse(null, "36,-96", 10.0, null).hasCenter());
+        assertThrows(IllegalArgumentException.class, () -> SpatialFilter.parse(null, null, 10.0, null));
+        assertThrows(IllegalArgumentException.class, () -> SpatialFilter.parse(null, null, null, 3));
+        assertThrows(IllegalArgumentException.class, () -> SpatialFilter.parse(null, "36,-96", null, null));
+        assertThrows(IllegalArgumentException.class, () -> SpatialFilter.parse(null, "36", 10.0, null));
+        assertThrows(IllegalArgumentException.class, () -> SpatialFilter.parse(null, "96,-36", 10.0, null));
+        assertThrows(IllegalArgumentException.class, () -> SpatialFilter.parse(null, "36,-96", -1.0, null));
+        assertThrows(IllegalArgumentException.class, () -> SpatialFilter.parse(null, "36,-96", null, 0));
+    }
+}
@@ -0,0 +1,66 @@
+package cwms.cda.data.dao;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import cwms.cda.data.dto.texttimeseries.RegularTextTimeSeriesRow;
+import cwms.cda.data.dto.texttimeseries.TextTimeSeries;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.jooq.exception.DataAccessException;
+import org.junit.jupiter.api.Test;
+
+class OrderedRowSinkTest {
+
+    private static final Instant T1 = Instant.parse("2024-01-01T00:00:00Z");
+    private static final Instant T2 = Instant.parse("2024-01-01T01:00:00Z");
+    private static final Instant E1 = Instant.parse("2024-02-01T00:00:00Z");
+    private static final Instant E2 = Instant.parse("2024-02-02T00:00:00Z");
+
+    private final RowCollector<TextTimeSeries, RegularTextTimeSeriesRow> received = new RowCollector<>();
+    private final OrderedRowSink<TextTimeSeries, RegularTextTimeSeriesRow> sink = new OrderedRowSink<>(received,
+            RegularTextTimeSeriesRow::getDateTime, RegularTextTimeSeriesRow::getDataEntryDate);
+
+    @Test
+    void test_matches_the_dto() throws IOException {
+        List<RegularTextTimeSeriesRow> rows = Arrays.asList(
+                row(T1, E2, "a"),
+                row(T1, E1, "b"),
+                row(T1, E2, "c"),
+                row(T2, E1, "d"));
+        for (RegularTextTimeSeriesRow row : rows) {
+            sink.row(row);
+        }
+        sink.finish();
+
+        TextTimeSeries dto = new TextTimeSeries.Builder()
+                .withName("Loc.Text.Inst.1Hour.0.raw")
+                .withOfficeId("SWT")
+                .withRegularTextValues(rows)
+                .build();
+        assertEquals(Arrays.asList("b", "c", "d"), values(received.getRows()));
+        assertEquals(values(new ArrayList<>(dto.getRegularTextValues())), values(received.getRows()));
+    }
+
+    @Test
+    void test_rows_out_of_date_order_fail() throws IOException {
+        sink.row(row(T2, E1, "a"));
+        assertThrows(DataAccessException.class, () -> sink.row(row(T1, E1, "b")));
+    }
+
+    private static RegularTextTimeSeriesRow row(Instant dateTime, Instant dataEntryDate, String text) {
+        return new RegularTextTimeSeriesRow.Builder()
+                .withDateTime(dateTime)
+                .withDataEntryDate(dataEntryDate)
+                .withTextValue(text)
+                .build();
+    }
+
+    private static List<String> values(List<RegularTextTimeSeriesRow> rows) {
+        return rows.stream().map(RegularTextTimeSeriesRow::getTextValue).collect(toList());
+    }
+}
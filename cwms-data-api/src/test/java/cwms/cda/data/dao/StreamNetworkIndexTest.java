@@ -0,0 +1,123 @@
+package cwms.cda.data.dao;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cwms.cda.api.errors.NotFoundException;
+import cwms.cda.data.dto.CwmsId;
+import cwms.cda.data.dto.stream.Bank;
+import cwms.cda.data.dto.stream.Stream;
+import cwms.cda.data.dto.stream.StreamLocation;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class StreamNetworkIndexTest {
+
+    private static final String OFFICE = "SPK";
+    private static final String UNITS = "km";
+
+    private StreamNetworkIndex index;
+
+    /*
+     * MAIN is stationed from its mouth (0) upstream to 100.
+     * TRIB joins MAIN at station 50 and is stationed from its head (0) down to its mouth (20).
+     * DIV leaves MAIN at station 30 and is stationed from its mouth.
+     *
+     *   T1 (TRIB 5)      M3 (MAIN 80)
+     *        \               |
+     *   T2 (TRIB 15)         |
+     *          \_______ (MAIN 50)
+     *                        |
+     *                    M2 (MAIN 40)
+     *                        |_________ DIV (MAIN 30) -- D1 (DIV 10)
+     *                    M1 (MAIN 10)
+     */
+    @BeforeEach
+    void setup() {
+        List<Stream> streams = Arrays.asList(
+                stream("MAIN", true, null, null, null, null),
+                stream("Trib", false, "MAIN", 50.0, null, null),
+                stream("DIV", true, null, null, "Main", 30.0));
+        List<StreamLocation> locations = Arrays.asList(
+                location("M3", "MAIN", 80.0),
+                location("M1", "MAIN", 10.0),
+                location("M2", "MAIN", 40.0),
+                location("T2", "TRIB", 15.0),
+                location("T1", "TRIB", 5.0),
+                location("D1", "DIV", 10.0));
+        index = StreamNetworkIndex.build(streams, locations);
+    }
+
+    @Test
+    void test_downstream_all() {
+        assertEquals(Arrays.asList("T2", "M2", "M1", "D1"),
+                names(index.downstreamOf("t1", true, false)));
+        assertEquals(Arrays.asList("M2", "M1", "D1"),
+                names(index.downstreamOf("M3", true, false)));
+    }
+
+    @Test
+    void test_downstream_same_stream() {
+        assertEquals(Arrays.asList("T2"), names(index.downstreamOf("T1", true, true)));
+        assertEquals(Arrays.asList("M2", "M1"), names(index.downstreamOf("M3", true, true)));
+    }
+
+    @Test
+    void test_downstream_next_only() {
+        assertEquals(Arrays.asList("M2"), names(index.downstreamOf("M3", false, false)));
+        // the diversion splits off between M2 and M1, so it is a separate branch
+        assertEquals(Arrays.asList("M1", "D1"), names(index.downstreamOf("M2", false, false)));
+        assertEquals(Arrays.asList("M2"), names(index.downstreamOf("T2", false, false)));
+    }
+
+    @Test
+    void test_upstream_all() {
+        assertEquals(Arrays.asList("M2", "M3", "T2", "T1"),
+                names(index.upstreamOf("M1", true, false)));
+        assertEquals(Arrays.asList("M2", "M3", "T2", "T1"),
+                names(index.upstreamOf("D1", true, false)));
+        assertTrue(index.upstreamOf("T1", true, false).isEmpty());
+    }
+
+    @Test
+    void test_upstream_same_stream_and_next() {
+        assertEquals(Arrays.asList("M2", "M3"), names(index.upstreamOf("M1", true, true)));
+        assertEquals(Arrays.asList("M2"), names(index.upstreamOf("M1", false, false)));
+        assertEquals(Arrays.asList("M3", "T2"), names(index.upstreamOf("M2", false, false)));
+    }
+
+    @Test
+    void test_unknown_location() {
+        assertThrows(NotFoundException.class, () -> index.downstreamOf("NOPE", true, false));
+    }
+
+    private static List<String> names(List<StreamLocation> locations) {
+        return locations.stream().map(l -> l.getId().getName()).collect(toList());
+    }
+
+    private static Stream stream(String name, boolean startsDownstream, String flowsInto,
+                                 Double flowsIntoStation, String divertsFrom,
+                                 Double divertsFromStation) {
+        return new Stream.Builder()
+                .withId(new CwmsId.Builder().withName(name).withOfficeId(OFFICE).build())
+                .withStartsDownstream(startsDownstream)
+                .withFlowsIntoStreamNode(StreamDao.buildStreamNode(OFFICE, flowsInto,
+                        flowsIntoStation, Bank.LEFT, UNITS))
+                .withDivertsFromStreamNode(StreamDao.buildStreamNode(OFFICE, divertsFrom,
+                        divertsFromStation, Bank.RIGHT, UNITS))
+                .withLength(100.0)
+                .withLengthUnits(UNITS)
+                .build();
+    }
+
+    private static StreamLocation location(String name, String stream, double station) {
+        return new StreamLocation.Builder()
+                .withStreamLocationNode(StreamLocationDao.buildStreamLocationNode(OFFICE, stream,
+                        name, station, Bank.LEFT, UNITS))
+                .build();
+    }
+}
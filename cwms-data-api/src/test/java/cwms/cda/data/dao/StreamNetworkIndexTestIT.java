@@ -0,0 +1,155 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Hydrologic Engineering Center
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cwms.cda.data.dao;
+
+import static cwms.cda.data.dao.DaoTest.getDslContext;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import cwms.cda.api.DataApiTestIT;
+import cwms.cda.data.dto.CwmsId;
+import cwms.cda.data.dto.stream.Bank;
+import cwms.cda.data.dto.stream.Stream;
+import cwms.cda.data.dto.stream.StreamLocation;
+import fixtures.CwmsDataApiSetupCallback;
+import fixtures.TestAccounts;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import mil.army.usace.hec.test.database.CwmsDatabaseContainer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Stores the network of {@link StreamNetworkIndexTest} and checks that the index answers every
+ * upstream and downstream query as CWMS_STREAM.GET_US_LOCATIONS/GET_DS_LOCATIONS do.
+ */
+@Tag("integration")
+final class StreamNetworkIndexTestIT extends DataApiTestIT {
+
+    private static final String OFFICE_ID = TestAccounts.KeyUser.SWT_NORMAL.getOperatingOffice();
+    private static final String UNITS = "km";
+    private static final List<String> STREAM_IDS = Arrays.asList("IDX_MAIN", "IDX_TRIB", "IDX_DIV");
+    private static final List<StreamLocation> LOCATIONS = Arrays.asList(
+            location("IDX_M1", "IDX_MAIN", 10.0),
+            location("IDX_M2", "IDX_MAIN", 40.0),
+            location("IDX_M3", "IDX_MAIN", 80.0),
+            location("IDX_T1", "IDX_TRIB", 5.0),
+            location("IDX_T2", "IDX_TRIB", 15.0),
+            location("IDX_D1", "IDX_DIV", 10.0));
+
+    @BeforeAll
+    public static void setup() throws Exception {
+        for (String streamId : STREAM_IDS) {
+            createLocation(streamId, true, OFFICE_ID, "STREAM");
+        }
+        for (StreamLocation location : LOCATIONS) {
+            createLocation(location.getId().getName(), true, OFFICE_ID, "STREAM_LOCATION");
+        }
+        CwmsDatabaseContainer<?> db = CwmsDataApiSetupCallback.getDatabaseLink();
+        db.connection(c -> {
+            StreamDao streamDao = new StreamDao(getDslContext(c, OFFICE_ID));
+            streamDao.storeStream(stream("IDX_MAIN", true, null, null, null, null), false);
+            streamDao.storeStream(stream("IDX_TRIB", false, "IDX_MAIN", 50.0, null, null), false);
+            streamDao.storeStream(stream("IDX_DIV", true, null, null, "IDX_MAIN", 30.0), false);
+            StreamLocationDao streamLocationDao = new StreamLocationDao(getDslContext(c, OFFICE_ID));
+            for (StreamLocation location : LOCATIONS) {
+                streamLocationDao.storeStreamLocation(location, false);
+            }
+        }, CwmsDataApiSetupCallback.getWebUser());
+    }
+
+    @AfterAll
+    public static void tearDown() throws SQLException {
+        CwmsDatabaseContainer<?> db = CwmsDataApiSetupCallback.getDatabaseLink();
+        db.connection(c -> {
+            StreamDao streamDao = new StreamDao(getDslContext(c, OFFICE_ID));
+            for (int i = STREAM_IDS.size() - 1; i >= 0; i--) {
+                try {
+                    streamDao.deleteStream(OFFICE_ID, STREAM_IDS.get(i), DeleteRule.DELETE_ALL);
+                } catch (Exception e) {
+                    //ignore
+                }
+            }
+        }, CwmsDataApiSetupCallback.getWebUser());
+    }
+
+    @Test
+    void test_index_matches_get_ds_and_us_locations() throws Exception {
+        CwmsDatabaseContainer<?> db = CwmsDataApiSetupCallback.getDatabaseLink();
+        db.connection(c -> {
+            StreamLocationDao dao = new StreamLocationDao(getDslContext(c, OFFICE_ID));
+            StreamLocationDao.invalidateNetworkIndex(OFFICE_ID);
+            StreamNetworkIndex index = dao.getNetworkIndex(OFFICE_ID, UNITS, "m", "km2");
+            for (StreamLocation location : LOCATIONS) {
+                String locationId = location.getId().getName();
+                for (boolean all : new boolean[]{true, false}) {
+                    for (boolean sameStream : new boolean[]{true, false}) {
+                        String query = locationId + " all=" + all + " sameStream=" + sameStream;
+                        assertEquals(ids(dao.retrieveDownstreamFromDatabase(OFFICE_ID, locationId, all,
+                                        sameStream, UNITS, "m", "km2")),
+                                ids(index.downstreamOf(locationId, all, sameStream)),
+                                "downstream of " + query);
+                        assertEquals(ids(dao.retrieveUpstreamFromDatabase(OFFICE_ID, locationId, all,
+                                        sameStream, UNITS, "m", "km2")),
+                                ids(index.upstreamOf(locationId, all, sameStream)),
+                                "upstream of " + query);
+                    }
+                }
+            }
+        }, CwmsDataApiSetupCallback.getWebUser());
+    }
+
+    /**
+     * The procedures don't document an order, so the locations are compared as sorted ids.
+     */
+    private static List<String> ids(List<StreamLocation> locations) {
+        return locations.stream()
+                .map(l -> l.getId().getName().toUpperCase(Locale.ROOT))
+                .sorted()
+                .collect(toList());
+    }
+
+    private static Stream stream(String name, boolean startsDownstream, String flowsInto,
+                                 Double flowsIntoStation, String divertsFrom,
+                                 Double divertsFromStation) {
+        return new Stream.Builder()
+                .withId(new CwmsId.Builder().withName(name).withOfficeId(OFFICE_ID).build())
+                .withStartsDownstream(startsDownstream)
+                .withFlowsIntoStreamNode(StreamDao.buildStreamNode(OFFICE_ID, flowsInto,
+                        flowsIntoStation, Bank.LEFT, UNITS))
+                .withDivertsFromStreamNode(StreamDao.buildStreamNode(OFFICE_ID, divertsFrom,
+                        divertsFromStation, Bank.RIGHT, UNITS))
+                .withLength(100.0)
+                .withLengthUnits(UNITS)
+                .build();
+    }
+
+    private static StreamLocation location(String name, String stream, double station) {
+        return StreamLocationDaoTestIT.buildTestStreamLocation(stream, name, OFFICE_ID, station, Bank.LEFT);
+    }
+}
@@ -0,0 +1,46 @@
+package cwms.cda.data.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+final class StreamflowMeasurementViewTest {
+
+    @Test
+    void test_glob_masks_become_like_patterns() {
+        assertEquals("%", StreamflowMeasurementView.globToLike("*"));
+        assertEquals("KEYS%", StreamflowMeasurementView.globToLike("keys*"));
+        assertEquals("SWT_", StreamflowMeasurementView.globToLike("swt?"));
+    }
+
+    @Test
+    void test_page_key_round_trips() {
+        Instant instant = Instant.parse("2024-01-01T06:30:00Z");
+        StreamflowMeasurementView.Key key = new StreamflowMeasurementView.Key("SWT", "KEYS.Stage", instant, "12");
+
+        StreamflowMeasurementView.Key decoded = StreamflowMeasurementView.Key.decode(key.encode(500), 500);
+
+        assertEquals("SWT", decoded.officeId);
+        assertEquals("KEYS.Stage", decoded.locationId);
+        assertEquals(instant, decoded.instant);
+        assertEquals("12", decoded.number);
+    }
+
+    @Test
+    void test_page_key_rejects_other_page_sizes_and_garbage() {
+        String page = new StreamflowMeasurementView.Key("SWT", "KEYS", Instant.EPOCH, "1").encode(500);
+
+        assertThrows(IllegalArgumentException.class, () -> StreamflowMeasurementView.Key.decode(page, 100));
+        assertThrows(IllegalArgumentException.class, () -> StreamflowMeasurementView.Key.decode("bm90IGEgcGFnZQ==", 500));
+    }
+
+    @Test
+    void test_number_agency_and_quality_filters_stay_with_the_database() {
+        assertFalse(StreamflowMeasurementView.canFilter("1", null, null, null));
+        assertFalse(StreamflowMeasurementView.canFilter(null, null, "USGS", null));
+        assertFalse(StreamflowMeasurementView.canFilter(null, null, null, "Good"));
+    }
+}
@@ -0,0 +1,92 @@
+package cwms.cda.data.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.jupiter.api.Test;
+import usace.cwms.db.jooq.codegen.tables.AV_CWMS_TS_ID;
+
+class TimeSeriesIdentifierCacheTest {
+
+    private static final AV_CWMS_TS_ID view = AV_CWMS_TS_ID.AV_CWMS_TS_ID;
+    private static final Field<?>[] COLUMNS = {view.TS_CODE, view.CWMS_TS_ID, view.DB_OFFICE_ID,
+        view.INTERVAL, view.INTERVAL_UTC_OFFSET, view.TIME_ZONE_ID, view.VERSION_FLAG,
+        view.BASE_PARAMETER_ID};
+
+    private final AtomicInteger queries = new AtomicInteger();
+    private String resolvedTsId;
+
+    /**
+     * A connection that answers every identifier lookup with {@link #resolvedTsId} in SWT,
+     * counting the lookups that reached the database.
+     */
+    private DSLContext dsl() {
+        return DSL.using(new MockConnection(ctx -> {
+            queries.incrementAndGet();
+            DSLContext create = DSL.using(SQLDialect.ORACLE18C);
+            Result<Record> result = create.newResult(COLUMNS);
+            Record row = create.newRecord(COLUMNS);
+            row.fromArray(42L, resolvedTsId, "SWT", 60L, 0L, "UTC", "F", "Flow");
+            result.add(row);
+            return new MockResult[]{new MockResult(1, result)};
+        }), SQLDialect.ORACLE18C);
+    }
+
+    @Test
+    void test_invalidate_drops_alias_entries_through_the_ts_id() {
+        DSLContext dsl = dsl();
+        resolvedTsId = "TIC_ALIAS.Flow.Inst.1Hour.0.Ccp-Rev";
+
+        TimeSeriesIdentifierCache.get(dsl, "SWT", "TIC_ALIAS_NAME.Flow.Inst.1Hour.0.Ccp-Rev");
+        TimeSeriesIdentifierCache.get(dsl, "swt", "tic_alias_name.flow.inst.1hour.0.ccp-rev");
+        TimeSeriesIdentifierCache.get(dsl, "SWT", resolvedTsId);
+        assertEquals(1, queries.get());
+
+        TimeSeriesIdentifierCache.invalidate("SWT", resolvedTsId.toLowerCase());
+
+        TimeSeriesIdentifierCache.get(dsl, "SWT", "TIC_ALIAS_NAME.Flow.Inst.1Hour.0.Ccp-Rev");
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    void test_invalidate_location_matches_the_location_prefix() {
+        DSLContext dsl = dsl();
+        resolvedTsId = "TIC_LOC.Flow.Inst.1Hour.0.Ccp-Rev";
+        TimeSeriesIdentifierCache.get(dsl, "SWT", resolvedTsId);
+        resolvedTsId = "TIC_LOC2.Flow.Inst.1Hour.0.Ccp-Rev";
+        TimeSeriesIdentifierCache.get(dsl, "SWT", resolvedTsId);
+        assertEquals(2, queries.get());
+
+        TimeSeriesIdentifierCache.invalidateLocation("SPK", "TIC_LOC");
+        TimeSeriesIdentifierCache.get(dsl, "SWT", "TIC_LOC.Flow.Inst.1Hour.0.Ccp-Rev");
+        assertEquals(2, queries.get());
+
+        TimeSeriesIdentifierCache.invalidateLocation("swt", "tic_loc");
+        TimeSeriesIdentifierCache.get(dsl, "SWT", "TIC_LOC2.Flow.Inst.1Hour.0.Ccp-Rev");
+        assertEquals(2, queries.get());
+        resolvedTsId = "TIC_LOC.Flow.Inst.1Hour.0.Ccp-Rev";
+        TimeSeriesIdentifierCache.get(dsl, "SWT", resolvedTsId);
+        assertEquals(3, queries.get());
+    }
+
+    @Test
+    void test_find_without_office_is_not_served_from_the_cache() {
+        DSLContext dsl = dsl();
+        resolvedTsId = "TIC_NO_OFFICE.Flow.Inst.1Hour.0.Ccp-Rev";
+
+        TimeSeriesIdentifierCache.get(dsl, null, resolvedTsId);
+        TimeSeriesIdentifierCache.get(dsl, null, resolvedTsId);
+        assertEquals(2, queries.get());
+
+        assertEquals("SWT", TimeSeriesIdentifierCache.get(dsl, "SWT", resolvedTsId).getOfficeId());
+        assertEquals(2, queries.get());
+    }
+}
@@ -0,0 +1,160 @@
+package cwms.cda.data.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cwms.cda.data.dto.TimeSeries;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TimeSeriesReductionTest {
+    private static final int OKAY = 3;
+    private static final int QUESTIONABLE = 9;
+    private static final int REJECTED = 17;
+    private static final int MISSING = 5;
+
+    private static TimeSeries buildTimeSeries(ZonedDateTime begin, ZonedDateTime end) {
+        return new TimeSeries(null, -1, null, "Loc.Flow.Inst.1Hour.0.test", "SWT", begin, end, "cfs",
+                Duration.ZERO);
+    }
+
+    private static Timestamp at(String instant) {
+        return Timestamp.from(Instant.parse(instant));
+    }
+
+    @Test
+    void test_daily_mean_skips_rejected_and_marks_questionable() {
+        ZonedDateTime begin = ZonedDateTime.parse("2024-01-01T00:00:00Z");
+        ZonedDateTime end = ZonedDateTime.parse("2024-01-03T00:00:00Z");
+        TimeSeries ts = buildTimeSeries(begin, end);
+        TimeSeriesReduction.Reducer reducer = TimeSeriesReduction.aggregate("1Day", "mean")
+                .reducer(begin, end, ts);
+
+        reducer.add(at("2024-01-01T00:00:00Z"), 1.0, OKAY);
+        reducer.add(at("2024-01-01T12:00:00Z"), 3.0, OKAY);
+        reducer.add(at("2024-01-01T18:00:00Z"), 1000.0, REJECTED);
+        reducer.add(at("2024-01-02T06:00:00Z"), 4.0, QUESTIONABLE);
+        reducer.add(at("2024-01-02T07:00:00Z"), null, MISSING);
+        reducer.add(at("2024-01-02T08:00:00Z"), 6.0, OKAY);
+        reducer.finish();
+
+        List<TimeSeries.Record> values = ts.getValues();
+        assertEquals(2, values.size());
+        assertEquals(at("2024-01-01T00:00:00Z"), values.get(0).getDateTime());
+        assertEquals(2.0, values.get(0).getValue(), 1e-9);
+        assertEquals(OKAY, values.get(0).getQualityCode());
+        assertEquals(at("2024-01-02T00:00:00Z"), values.get(1).getDateTime());
+        assertEquals(5.0, values.get(1).getValue(), 1e-9);
+        assertEquals(QUESTIONABLE, values.get(1).getQualityCode());
+    }
+
+    @Test
+    void test_monthly_intervals_align_to_time_zone() {
+        ZonedDateTime begin = ZonedDateTime.parse("2024-01-01T00:00:00-06:00[America/Chicago]");
+        ZonedDateTime end = ZonedDateTime.parse("2024-03-01T00:00:00-06:00[America/Chicago]");
+        TimeSeries ts = buildTimeSeries(begin, end);
+        TimeSeriesReduction.Reducer reducer = TimeSeriesReduction.aggregate("1Month", "max")
+                .reducer(begin, end, ts);
+
+        // still January in Chicago
+        reducer.add(at("2024-02-01T05:00:00Z"), 7.0, OKAY);
+        reducer.add(at("2024-02-01T06:00:00Z"), 2.0, OKAY);
+        reducer.add(at("2024-02-10T06:00:00Z"), 9.0, QUESTIONABLE);
+        reducer.finish();
+
+        List<TimeSeries.Record> values = ts.getValues();
+        assertEquals(2, values.size());
+        assertEquals(at("2024-01-01T06:00:00Z"), values.get(0).getDateTime());
+        assertEquals(7.0, values.get(0).getValue(), 1e-9);
+        assertEquals(at("2024-02-01T06:00:00Z"), values.get(1).getDateTime());
+        assertEquals(9.0, values.get(1).getValue(), 1e-9);
+        assertEquals(QUESTIONABLE, values.get(1).getQualityCode());
+    }
+
+    @Test
+    void test_interval_of_only_missing_values() {
+        ZonedDateTime begin = ZonedDateTime.parse("2024-01-01T00:00:00Z");
+        ZonedDateTime end = ZonedDateTime.parse("2024-01-01T03:00:00Z");
+        TimeSeries counts = buildTimeSeries(begin, end);
+        TimeSeries sums = buildTimeSeries(begin, end);
+        TimeSeriesReduction.Reducer count = TimeSeriesReduction.aggregate("1Hour", "count")
+                .reducer(begin, end, counts);
+        TimeSeriesReduction.Reducer sum = TimeSeriesReduction.aggregate("1Hour", "sum")
+                .reducer(begin, end, sums);
+
+        for (TimeSeriesReduction.Reducer reducer : new TimeSeriesReduction.Reducer[]{count, sum}) {
+            reducer.add(at("2024-01-01T00:15:00Z"), null, MISSING);
+            reducer.add(at("2024-01-01T01:15:00Z"), 2.0, OKAY);
+            reducer.add(at("2024-01-01T01:30:00Z"), 2.5, 0);
+            reducer.finish();
+        }
+
+        assertEquals(0.0, counts.getValues().get(0).getValue(), 1e-9);
+        assertEquals(2.0, counts.getValues().get(1).getValue(), 1e-9);
+        assertEquals(0, counts.getValues().get(1).getQualityCode());
+        assertNull(sums.getValues().get(0).getValue());
+        assertEquals(MISSING, sums.getValues().get(0).getQualityCode());
+        assertEquals(4.5, sums.getValues().get(1).getValue(), 1e-9);
+    }
+
+    @Test
+    void test_decimation_keeps_ends_and_peaks() {
+        ZonedDateTime begin = ZonedDateTime.parse("2024-01-01T00:00:00Z");
+        ZonedDateTime end = ZonedDateTime.parse("2024-01-02T00:00:00Z");
+        TimeSeries ts = buildTimeSeries(begin, end);
+        TimeSeriesReduction.Reducer reducer = TimeSeriesReduction.decimate(10).reducer(begin, end, ts);
+
+        long start = begin.toInstant().toEpochMilli();
+        for (int i = 0; i <= 1440; i++) {
+            double value = i == 700 ? 100.0 : Math.sin(i / 100.0);
+            reducer.add(new Timestamp(start + i * 60000L), value, OKAY);
+        }
+        reducer.finish();
+
+        List<TimeSeries.Record> values = ts.getValues();
+        assertTrue(values.size() <= 10);
+        assertEquals(new Timestamp(start), values.get(0).getDateTime());
+        assertEquals(new Timestamp(start + 1440 * 60000L), values.get(values.size() - 1).getDateTime());
+        assertTrue(values.stream().anyMatch(r -> r.getValue() == 100.0));
+        for (int i = 1; i < values.size(); i++) {
+            assertTrue(values.get(i - 1).getDateTime().before(values.get(i).getDateTime()));
+        }
+    }
+
+    @Test
+    void test_rejects_unknown_parameters() {
+        assertThrows(IllegalArgumentException.class, () -> TimeSeriesReduction.aggregate("~1Day", "mean"));
+        assertThrows(IllegalArgumentException.class, () -> TimeSeriesReduction.aggregate("1Day", "median"));
+        assertThrows(IllegalArgumentException.class, () -> TimeSeriesReduction.decimate(2));
+        assertThrows(IllegalArgumentException.class,
+                () -> TimeSeriesReduction.decimate(TimeSeriesReduction.MAX_POINTS_LIMIT + 1));
+        assertEquals(Duration.ofMinutes(15), TimeSeriesReduction.aggregate("15Minutes", "avg").getInterval());
+    }
+
+    @Test
+    void test_decimation_buckets_of_a_long_window_do_not_overflow() {
+        ZonedDateTime begin = ZonedDateTime.parse("1900-01-01T00:00:00Z");
+        ZonedDateTime end = ZonedDateTime.parse("2100-01-01T00:00:00Z");
+        TimeSeries ts = buildTimeSeries(begin, end);
+        long start = begin.toInstant().toEpochMilli();
+        long step = (end.toInstant().toEpochMilli() - start) / 1000;
+        LttbDecimator decimator = new LttbDecimator(start, end.toInstant().toEpochMilli(),
+                Integer.MAX_VALUE, ts);
+        for (int i = 0; i <= 1000; i++) {
+            decimator.add(new Timestamp(start + i * step), (double) i, OKAY);
+        }
+        decimator.finish();
+
+        List<TimeSeries.Record> values = ts.getValues();
+        assertEquals(1001, values.size());
+        for (int i = 1; i < values.size(); i++) {
+            assertTrue(values.get(i - 1).getDateTime().before(values.get(i).getDateTime()));
+        }
+    }
+}
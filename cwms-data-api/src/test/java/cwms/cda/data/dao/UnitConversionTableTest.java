@@ -0,0 +1,53 @@
+package cwms.cda.data.dao;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class UnitConversionTableTest {
+
+    private static UnitConversionTable buildTable() {
+        return new UnitConversionTable(
+                Arrays.asList(
+                        new UnitConversionTable.Conversion("cms", "cfs", 35.314666721, 0.0),
+                        new UnitConversionTable.Conversion("C", "F", 1.8, 32.0),
+                        new UnitConversionTable.Conversion("F", "C", 0.5555555555555556, -17.77777777777778)),
+                Arrays.asList(
+                        new UnitConversionTable.BaseParameterUnits("Flow", "cms", "cms", "cfs"),
+                        new UnitConversionTable.BaseParameterUnits("Temp", "C", "C", "F")));
+    }
+
+    @Test
+    void test_resolves_units_by_base_parameter() {
+        UnitConversionTable table = buildTable();
+
+        assertEquals("cms", table.getStorageUnit("Flow-In"));
+        assertEquals("cfs", table.getDefaultUnit("FLOW", "EN"));
+        assertEquals("C", table.getDefaultUnit("Temp-Water", "SI"));
+        assertNull(table.getDefaultUnit("Elev", "EN"));
+
+        Map<String, String> en = table.getDefaultUnits("EN");
+        assertEquals(Arrays.asList("FLOW", "TEMP"), Arrays.asList(en.keySet().toArray()));
+        assertEquals("F", en.get("TEMP"));
+    }
+
+    @Test
+    void test_converts_blocks() {
+        UnitConversionTable table = buildTable();
+        UnitConversionTable.Conversion toF = table.find("C", "F");
+
+        double[] values = {0.0, 100.0, Double.NaN, -40.0};
+        toF.apply(values, 1, values.length);
+        assertArrayEquals(new double[]{0.0, 212.0, Double.NaN, -40.0}, values, 1e-9);
+        assertEquals(1.0, table.find("F", "C").apply(33.8), 1e-9);
+
+        assertTrue(table.find("cfs", "cfs").isIdentity());
+        assertNull(table.find("cfs", "cms"));
+        assertNull(table.find("kaf", "cfs"));
+    }
+}
@@ -0,0 +1,77 @@
+package cwms.cda.data.dao.basinconnectivity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cwms.cda.api.errors.NotFoundException;
+import cwms.cda.data.dto.basinconnectivity.Stream;
+import cwms.cda.data.dto.basinconnectivity.StreamLocation;
+import cwms.cda.data.dto.basinconnectivity.StreamReach;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class StreamNetworkTest {
+
+    private static final String OFFICE = "SWT";
+
+    @Test
+    void test_assembles_tributary_tree() {
+        List<Stream> streams = Arrays.asList(
+                stream("Main", null),
+                stream("Trib1", "Main"),
+                stream("Trib2", "MAIN"),
+                stream("Trib1-1", "Trib1"),
+                stream("Elsewhere", null));
+        List<StreamLocation> locations = Arrays.asList(
+                new StreamLocation.Builder("LOC1", "Main", 10.0, "L", OFFICE).build(),
+                new StreamLocation.Builder("LOC2", "Trib1-1", 1.0, "R", OFFICE).build());
+        List<StreamReach> reaches = Collections.singletonList(
+                new StreamReach.Builder("Reach1", "Trib1", "LOC3", "LOC4", OFFICE).build());
+
+        StreamNetwork network = new StreamNetwork(streams, locations, reaches);
+        Stream main = network.getStream("main");
+
+        assertEquals("Main", main.getStreamName());
+        assertEquals(2, main.getTributaries().size());
+        assertEquals(1, main.getStreamLocations().size());
+        Stream trib1 = main.getTributaries().get(0);
+        assertEquals("Trib1", trib1.getStreamName());
+        assertEquals(1, trib1.getStreamReaches().size());
+        assertEquals(1, trib1.getTributaries().size());
+        Stream trib11 = trib1.getTributaries().get(0);
+        assertEquals("LOC2", trib11.getStreamLocations().get(0).getLocationName());
+        assertTrue(trib11.getTributaries().isEmpty());
+        // memoized, so repeated lookups for several basins don't rebuild the tree
+        assertSame(trib1, network.getStream("Trib1"));
+    }
+
+    @Test
+    void test_cycle_does_not_recurse_forever() {
+        List<Stream> streams = Arrays.asList(stream("A", "B"), stream("B", "A"));
+        StreamNetwork network = new StreamNetwork(streams, Collections.emptyList(),
+                Collections.emptyList());
+
+        Stream a = network.getStream("A");
+        assertEquals(1, a.getTributaries().size());
+        assertTrue(a.getTributaries().get(0).getTributaries().isEmpty());
+    }
+
+    @Test
+    void test_missing_stream() {
+        StreamNetwork network = new StreamNetwork(Collections.emptyList(),
+                Collections.emptyList(), Collections.emptyList());
+        assertThrows(NotFoundException.class, () -> network.getStream("Nope"));
+    }
+
+    private static Stream stream(String name, String flowsInto) {
+        return new Stream.Builder(name, true, 100.0, OFFICE)
+                .withReceivingStreamId(flowsInto)
+                .withConfluenceStation(null)
+                .withConfluenceBank(null)
+                .build();
+    }
+}
@@ -0,0 +1,193 @@
+package cwms.cda.data.dao.timeseriesprofile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cwms.cda.data.dto.CwmsId;
+import cwms.cda.data.dto.timeseriesprofile.ParameterInfo;
+import cwms.cda.data.dto.timeseriesprofile.ParameterInfoColumnar;
+import cwms.cda.data.dto.timeseriesprofile.ParameterInfoIndexed;
+import cwms.cda.data.dto.timeseriesprofile.TimeSeriesProfileColumns;
+import cwms.cda.data.dto.timeseriesprofile.TimeSeriesProfileParser;
+import cwms.cda.data.dto.timeseriesprofile.TimeSeriesProfileParserColumnar;
+import cwms.cda.data.dto.timeseriesprofile.TimeSeriesProfileParserIndexed;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+class TimeSeriesProfileTextParserTest {
+
+    private static final String TIME_FORMAT = "MM/DD/YYYY,HH24:MI:SS";
+    private static final CwmsId LOCATION = new CwmsId.Builder().withOfficeId("SWT").withName("location").build();
+
+    @Test
+    void test_indexed_skips_header_records() throws IOException {
+        TimeSeriesProfileParser parser = indexed(TIME_FORMAT);
+        TimeSeriesProfileColumns columns = TimeSeriesProfileTextParser.forParser(parser, null, 0)
+                .parse(resource("/cwms/cda/data/dto/timeseriesprofile/timeSeriesProfileData.txt"));
+
+        assertNotNull(columns);
+        assertEquals(26, columns.size());
+        assertEquals(Instant.parse("2019-09-09T12:48:57Z").toEpochMilli(), columns.getTime(0));
+        assertEquals("Depth", columns.getParameter(0));
+        assertEquals(719.6, columns.getValue(0, 0));
+        assertEquals("Temp-Water", columns.getParameter(1));
+        assertEquals("F", columns.getUnit(1));
+        assertEquals(98.3, columns.getValue(1, 0));
+        assertEquals(Instant.parse("2019-09-09T13:17:20Z").toEpochMilli(), columns.getTime(25));
+    }
+
+    @Test
+    void test_columnar() throws IOException {
+        List<ParameterInfo> parameters = Arrays.asList(
+                new ParameterInfoColumnar.Builder().withStartColumn(21).withEndColumn(23)
+                        .withParameter("Depth").withUnit("m").build(),
+                new ParameterInfoColumnar.Builder().withStartColumn(25).withEndColumn(27)
+                        .withParameter("Temp-Water").withUnit("F").build());
+        TimeSeriesProfileParser parser = new TimeSeriesProfileParserColumnar.Builder()
+                .withTimeStartColumn(1)
+                .withTimeEndColumn(19)
+                .withLocationId(LOCATION)
+                .withKeyParameter("Depth")
+                .withRecordDelimiter('\n')
+                .withTimeFormat(TIME_FORMAT)
+                .withTimeZone("UTC")
+                .withParameterInfoList(parameters)
+                .build();
+        TimeSeriesProfileColumns columns = TimeSeriesProfileTextParser.forParser(parser, null, 0)
+                .parse(resource("/cwms/cda/data/dto/timeseriesprofile/timeSeriesProfileDataColumnar.txt"));
+
+        assertNotNull(columns);
+        assertEquals(3, columns.size());
+        assertEquals(Instant.parse("2019-09-09T12:49:07Z").toEpochMilli(), columns.getTime(0));
+        assertEquals(111.0, columns.getValue(0, 2));
+        assertEquals(222.0, columns.getValue(1, 2));
+    }
+
+    @Test
+    void test_parallel_chunks_match_sequential() {
+        StringBuilder text = new StringBuilder("Date,Time,Site,Unit,User,Temp,Depth,Pressure\r\n");
+        Instant start = Instant.parse("2024-01-01T00:00:00Z");
+        for (int i = 0; i < 5000; i++) {
+            // out of order and sparse rows exercise the merge
+            Instant time = start.plusSeconds(((i * 7919L) % 5000) * 60);
+            String stamp = String.format("%1$tm/%1$td/%1$tY,%1$tH:%1$tM:%1$tS", time.atZone(ZoneOffset.UTC));
+            text.append(stamp).append(",DET,,user,1,").append(i % 3 == 0 ? "" : String.valueOf(i))
+                    .append(',').append(i * 0.5).append("\r\n");
+        }
+        TimeSeriesProfileParser parser = indexed(TIME_FORMAT);
+        TimeSeriesProfileColumns sequential = TimeSeriesProfileTextParser
+                .forParser(parser, null, Integer.MAX_VALUE).parse(text.toString());
+        TimeSeriesProfileColumns parallel = TimeSeriesProfileTextParser
+                .forParser(parser, null, 1024).parse(text.toString());
+
+        assertNotNull(sequential);
+        assertEquals(5000, sequential.size());
+        assertEquals(sequential.size(), parallel.size());
+        for (int row = 0; row < parallel.size(); row++) {
+            assertEquals(sequential.getTime(row), parallel.getTime(row));
+            assertTrue(row == 0 || parallel.getTime(row - 1) < parallel.getTime(row));
+            for (int p = 0; p < parallel.getParameterCount(); p++) {
+                assertEquals(sequential.isPresent(p, row), parallel.isPresent(p, row));
+                assertEquals(sequential.getValue(p, row), parallel.getValue(p, row));
+            }
+        }
+        assertFalse(parallel.isPresent(0, 0));
+    }
+
+    @Test
+    void test_defers_to_database() {
+        assertNull(TimeSeriesProfileTextParser.forParser(indexed("DY MM/DD/YYYY"), null, 0));
+        TimeSeriesProfileTextParser parser = TimeSeriesProfileTextParser.forParser(indexed(TIME_FORMAT), null, 0);
+        assertNull(parser.parse("header\n09/09/2019,12:48:57,DET,,u,1,2,3\nnot a record\n"));
+        assertNull(parser.parse("header only\n"));
+    }
+
+    @Test
+    void test_parity_quality_is_unscreened() {
+        TimeSeriesProfileColumns columns = TimeSeriesProfileTextParser.forParser(indexed(TIME_FORMAT), null, 0)
+                .parse("09/09/2019,12:48:57,DET,,u,1,2.5,3.5\n");
+        assertNotNull(columns);
+        assertEquals(TimeSeriesProfileTextParser.PARSED_QUALITY, columns.getQuality(0, 0));
+        assertEquals(TimeSeriesProfileTextParser.PARSED_QUALITY, columns.getQuality(1, 0));
+        assertEquals(0, columns.getQuality(1, 0));
+    }
+
+    @Test
+    void test_parity_missing_parameters_are_not_values() {
+        TimeSeriesProfileColumns columns = TimeSeriesProfileTextParser.forParser(indexed(TIME_FORMAT), null, 0)
+                .parse("09/09/2019,12:48:57,DET,,u,1,2.5,\n"
+                        + "09/09/2019,12:49:57,DET,,u,1,,\n"
+                        + "09/09/2019,12:50:57,DET,,u,1,,4.5\n");
+        assertNotNull(columns);
+        assertEquals(3, columns.size());
+        assertTrue(columns.isPresent(0, 0));
+        assertFalse(columns.isPresent(1, 0));
+        // nothing at all to store for the second record
+        assertEquals(-1, columns.lastPresentParameter(1));
+        assertFalse(columns.isPresent(0, 2));
+        assertEquals(4.5, columns.getValue(1, 2));
+    }
+
+    @Test
+    void test_parity_24_hour_times() {
+        TimeSeriesProfileColumns columns = TimeSeriesProfileTextParser.forParser(indexed(TIME_FORMAT), null, 0)
+                .parse("09/09/2019,00:15:00,DET,,u,1,1,1\n09/09/2019,13:30:00,DET,,u,1,2,2\n");
+        assertNotNull(columns);
+        assertEquals(Instant.parse("2019-09-09T00:15:00Z").toEpochMilli(), columns.getTime(0));
+        assertEquals(Instant.parse("2019-09-09T13:30:00Z").toEpochMilli(), columns.getTime(1));
+
+        // HH24 doesn't accept 24:00, the database rejects it too
+        assertNull(TimeSeriesProfileTextParser.forParser(indexed(TIME_FORMAT), null, 0)
+                .parse("09/09/2019,12:00:00,DET,,u,1,1,1\n09/09/2019,24:00:00,DET,,u,1,2,2\n"));
+        // HH is a 12 hour element, so without AM or PM the database decides what 13:30 means
+        assertNull(TimeSeriesProfileTextParser.toFormatter("MM/DD/YYYY,HH:MI:SS"));
+        assertNull(TimeSeriesProfileTextParser.forParser(indexed("MM/DD/YYYY,HH12:MI:SS"), null, 0));
+        assertNotNull(TimeSeriesProfileTextParser.toFormatter("MM/DD/YYYY HH:MI:SS AM"));
+    }
+
+    @Test
+    void test_translates_oracle_time_formats() {
+        assertEquals(Instant.parse("2019-09-09T13:05:00Z").toEpochMilli(),
+                LocalDateTime.parse("09-sep-2019 01:05 pm",
+                        TimeSeriesProfileTextParser.toFormatter("DD-MON-YYYY HH:MI AM"))
+                        .toInstant(ZoneOffset.UTC).toEpochMilli());
+        assertEquals(Instant.parse("2019-09-09T00:00:00Z").toEpochMilli(),
+                LocalDateTime.parse("2019/09/09",
+                        TimeSeriesProfileTextParser.toFormatter("YYYY/MM/DD"))
+                        .toInstant(ZoneOffset.UTC).toEpochMilli());
+    }
+
+    private static TimeSeriesProfileParser indexed(String timeFormat) {
+        List<ParameterInfo> parameters = Arrays.asList(
+                new ParameterInfoIndexed.Builder().withIndex(7).withParameter("Depth").withUnit("m").build(),
+                new ParameterInfoIndexed.Builder().withIndex(8).withParameter("Temp-Water").withUnit("F").build());
+        return new TimeSeriesProfileParserIndexed.Builder()
+                .withFieldDelimiter(',')
+                .withTimeField(1L)
+                .withLocationId(LOCATION)
+                .withKeyParameter("Depth")
+                .withRecordDelimiter('\n')
+                .withTimeFormat(timeFormat)
+                .withTimeZone("UTC")
+                .withParameterInfoList(parameters)
+                .build();
+    }
+
+    private String resource(String path) throws IOException {
+        try (InputStream stream = getClass().getResourceAsStream(path)) {
+            assertNotNull(stream);
+            return IOUtils.toString(stream, StandardCharsets.UTF_8);
+        }
+    }
+}
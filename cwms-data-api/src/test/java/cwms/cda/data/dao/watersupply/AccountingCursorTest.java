@@ -0,0 +1,79 @@
+package cwms.cda.data.dao.watersupply;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import cwms.cda.data.dto.watersupply.PumpTransfer;
+import cwms.cda.data.dto.watersupply.PumpType;
+import cwms.cda.data.dto.watersupply.WaterSupplyAccounting;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+final class AccountingCursorTest {
+
+    private static final Instant T1 = Instant.parse("2024-01-01T00:00:00Z");
+    private static final Instant T2 = Instant.parse("2024-01-02T00:00:00Z");
+    private static final Instant T3 = Instant.parse("2024-01-03T00:00:00Z");
+
+    @Test
+    void test_pages_hold_whole_instants() {
+        assertEquals(2, AccountingCursor.wholeInstants(Arrays.asList(T1, T2), 3));
+        assertEquals(2, AccountingCursor.wholeInstants(Arrays.asList(T1, T2, T3), 3));
+        assertEquals(1, AccountingCursor.wholeInstants(Arrays.asList(T1, T2, T2), 3));
+        assertEquals(0, AccountingCursor.wholeInstants(Arrays.asList(T2, T2, T2), 3));
+        assertEquals(0, AccountingCursor.wholeInstants(Collections.emptyList(), 3));
+    }
+
+    @Test
+    void test_cursor_round_trips() {
+        AccountingCursor decoded = AccountingCursor.decode(new AccountingCursor(T2, false).encode(100), 100);
+
+        assertEquals(T2, decoded.instant);
+        assertFalse(decoded.inclusive);
+    }
+
+    @Test
+    void test_cursor_rejects_other_page_sizes_and_garbage() {
+        String page = new AccountingCursor(T1, true).encode(100);
+
+        assertThrows(IllegalArgumentException.class, () -> AccountingCursor.decode(page, 50));
+        assertThrows(IllegalArgumentException.class, () -> AccountingCursor.decode("bm90IGEgcGFnZQ==", 100));
+    }
+
+    @Test
+    void test_store_batches_keep_instants_together() {
+        Map<Instant, List<PumpTransfer>> pumpAccounting = new TreeMap<>();
+        pumpAccounting.put(T1, transfers(2));
+        pumpAccounting.put(T2, transfers(5));
+        pumpAccounting.put(T3, transfers(1));
+        WaterSupplyAccounting accounting = new WaterSupplyAccounting.Builder()
+                .withContractName("Contract")
+                .withPumpAccounting(pumpAccounting)
+                .build();
+
+        List<WaterSupplyAccounting> batches = WaterSupplyAccountingDao.batches(accounting, 3);
+
+        assertEquals(3, batches.size());
+        assertEquals(Collections.singleton(T1), batches.get(0).getPumpAccounting().keySet());
+        assertEquals(Collections.singleton(T2), batches.get(1).getPumpAccounting().keySet());
+        assertEquals(Collections.singleton(T3), batches.get(2).getPumpAccounting().keySet());
+        assertEquals("Contract", batches.get(2).getContractName());
+        assertSame(accounting, WaterSupplyAccountingDao.batches(accounting, 8).get(0));
+    }
+
+    private static List<PumpTransfer> transfers(int count) {
+        List<PumpTransfer> transfers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            transfers.add(new PumpTransfer(PumpType.IN, "Pipeline", 1.0 + i, null));
+        }
+        return transfers;
+    }
+}
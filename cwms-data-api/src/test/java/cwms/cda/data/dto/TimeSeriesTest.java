@@ -76,6 +76,23 @@ public class TimeSeriesTest
 	}
 
 
+	@Test
+	void testNextWatermarkJson() throws JsonProcessingException
+	{
+		TimeSeries ts = buildTimeSeries();
+		ObjectMapper om = buildObjectMapper();
+
+		assertFalse(om.writeValueAsString(ts).contains("next-watermark"));
+
+		ZonedDateTime watermark = ZonedDateTime.parse("2021-06-22T21:00:00Z");
+		ts.setNextWatermark(watermark);
+		String tsBody = om.writeValueAsString(ts);
+		assertTrue(tsBody.contains("next-watermark"));
+
+		TimeSeries ts2 = om.readValue(tsBody, TimeSeries.class);
+		assertEquals(watermark.toInstant(), ts2.getNextWatermark().toInstant());
+	}
+
 	@NotNull
 	private TimeSeries buildTimeSeries()
 	{
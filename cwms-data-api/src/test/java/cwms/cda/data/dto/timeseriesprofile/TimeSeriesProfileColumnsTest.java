@@ -0,0 +1,81 @@
+package cwms.cda.data.dto.timeseriesprofile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import cwms.cda.formatters.ContentType;
+import cwms.cda.formatters.Formats;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+class TimeSeriesProfileColumnsTest {
+
+    private static TimeSeriesProfileColumns buildColumns() {
+        // rows arrive ordered by time; parameters are discovered in any order
+        return new TimeSeriesProfileColumns.Builder()
+                .add(1000L, "Temp-Water", "F", 55.5, 0)
+                .add(1000L, "Depth", "ft", 1.0, 3)
+                .add(2000L, "Depth", "ft", 2.0, 0)
+                .add(3000L, "Temp-Water", "F", 54.0, 5)
+                .add(3000L, "Depth", "ft", null, 0)
+                .build();
+    }
+
+    @Test
+    void test_columns_are_ordered_by_parameter_and_time() {
+        TimeSeriesProfileColumns columns = buildColumns();
+
+        assertEquals(3, columns.size());
+        assertEquals(2, columns.getParameterCount());
+        assertEquals("Depth", columns.getParameter(0));
+        assertEquals("ft", columns.getUnit(0));
+        assertEquals("Temp-Water", columns.getParameter(1));
+        assertEquals(Arrays.asList(1000L, 2000L, 3000L), new ArrayList<>(columns.keySet()));
+
+        List<TimeSeriesData> first = columns.get(1000L);
+        assertEquals(1.0, first.get(0).getValue());
+        assertEquals(3, first.get(0).getQuality());
+        assertEquals(55.5, first.get(1).getValue());
+        assertNull(columns.get(2000L).get(1));
+        assertNull(columns.get(3000L).get(0));
+        assertNull(columns.get(4000L));
+        assertEquals(1, columns.lastPresentParameter(2));
+        assertEquals(0, columns.lastPresentParameter(1));
+    }
+
+    @Test
+    void test_rows_out_of_time_order_are_rejected() {
+        TimeSeriesProfileColumns.Builder builder = new TimeSeriesProfileColumns.Builder()
+                .add(2000L, "Depth", "ft", 1.0, 0);
+        assertThrows(IllegalStateException.class, () -> builder.add(1000L, "Depth", "ft", 1.0, 0));
+    }
+
+    @Test
+    void test_serializes_like_boxed_map() {
+        TimeSeriesProfileColumns columns = buildColumns();
+        Map<Long, List<TimeSeriesData>> boxed = new TreeMap<>();
+        for (Map.Entry<Long, List<TimeSeriesData>> entry : columns.entrySet()) {
+            boxed.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+
+        ContentType contentType = Formats.parseHeader(Formats.JSONV1, TimeSeriesProfileInstance.class);
+        String fromColumns = Formats.format(contentType, buildInstance(columns));
+        String fromMap = Formats.format(contentType, buildInstance(boxed));
+        assertEquals(fromMap, fromColumns);
+    }
+
+    private static TimeSeriesProfileInstance buildInstance(Map<Long, List<TimeSeriesData>> data) {
+        return new TimeSeriesProfileInstance.Builder()
+                .withTimeSeriesProfile(TimeSeriesProfileTest.buildTestTimeSeriesProfile())
+                .withTimeSeriesList(data)
+                .withVersion("DSS-Obs")
+                .withPageSize(10)
+                .withTotal(3)
+                .build();
+    }
+}
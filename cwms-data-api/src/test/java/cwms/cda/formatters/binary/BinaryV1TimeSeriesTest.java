@@ -0,0 +1,143 @@
+package cwms.cda.formatters.binary;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cwms.cda.data.dto.TimeSeries;
+import cwms.cda.formatters.ContentType;
+import cwms.cda.formatters.Formats;
+import cwms.cda.formatters.FormattingException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import org.junit.jupiter.api.Test;
+
+class BinaryV1TimeSeriesTest {
+
+    private static TimeSeries buildTimeSeries(int count) {
+        ZonedDateTime begin = ZonedDateTime.parse("2024-01-01T00:00:00Z");
+        TimeSeries ts = new TimeSeries(null, -1, count, "Loc.Flow.Inst.15Minutes.0.test", "SWT", begin,
+                begin.plusDays(1), "cfs", Duration.ofMinutes(15));
+        long start = begin.toInstant().toEpochMilli();
+        for (int i = 0; i < count; i++) {
+            long time = start + i * 900_000L + (i == count / 2 ? 1234L : 0L);
+            Double value = i % 17 == 0 ? null : i * 1.25;
+            int quality = value == null ? 5 : (i < count / 3 ? 3 : 0);
+            ts.addValue(new Timestamp(time), value, quality);
+        }
+        ts.addValue(new Timestamp(start + count * 900_000L), -1.0, -2147483645);
+        return ts;
+    }
+
+    @Test
+    void test_round_trip() {
+        TimeSeries expected = buildTimeSeries(1000);
+        ContentType contentType = Formats.parseHeader(Formats.TIMESERIES_BINARY, TimeSeries.class);
+
+        byte[] body = Formats.formatBytes(contentType, expected);
+        TimeSeries actual = Formats.parseContent(contentType, new ByteArrayInputStream(body),
+                TimeSeries.class);
+
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getOfficeId(), actual.getOfficeId());
+        assertEquals(expected.getUnits(), actual.getUnits());
+        assertEquals(expected.getInterval(), actual.getInterval());
+        assertTrue(expected.getBegin().isEqual(actual.getBegin()));
+        assertEquals(expected.getValues(), actual.getValues());
+    }
+
+    @Test
+    void test_smaller_than_json() {
+        TimeSeries ts = buildTimeSeries(10000);
+
+        byte[] binary = Formats.formatBytes(new ContentType(Formats.TIMESERIES_BINARY), ts);
+        String json = Formats.format(new ContentType(Formats.JSONV2), ts);
+
+        assertTrue(binary.length < json.getBytes(StandardCharsets.UTF_8).length / 3,
+                binary.length + " bytes");
+    }
+
+    @Test
+    void test_empty_time_series() {
+        ZonedDateTime begin = ZonedDateTime.parse("2024-01-01T00:00:00Z");
+        TimeSeries expected = new TimeSeries(null, -1, 0, "Loc.Flow.Inst.15Minutes.0.test", "SWT", begin,
+                begin.plusDays(1), "cfs", Duration.ofMinutes(15));
+        BinaryV1TimeSeries formatter = new BinaryV1TimeSeries();
+
+        TimeSeries actual = formatter.parseContent(new ByteArrayInputStream(formatter.formatBytes(expected)),
+                TimeSeries.class);
+
+        assertTrue(actual.getValues().isEmpty());
+    }
+
+    @Test
+    void test_rejects_other_content() {
+        BinaryV1TimeSeries formatter = new BinaryV1TimeSeries();
+        byte[] json = "{\"name\":\"x\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(FormattingException.class,
+                () -> formatter.parseContent(new ByteArrayInputStream(json), TimeSeries.class));
+        byte[] truncated = formatter.formatBytes(buildTimeSeries(10));
+        byte[] half = new byte[truncated.length / 2];
+        System.arraycopy(truncated, 0, half, 0, half.length);
+        assertThrows(FormattingException.class,
+                () -> formatter.parseContent(new ByteArrayInputStream(half), TimeSeries.class));
+    }
+
+    @Test
+    void test_rejects_lengths_the_body_does_not_hold() throws Exception {
+        BinaryV1TimeSeries formatter = new BinaryV1TimeSeries();
+        byte[] header = "{\"name\":\"Loc.Flow.Inst.15Minutes.0.test\",\"office-id\":\"SWT\"}"
+                .getBytes(StandardCharsets.UTF_8);
+
+        // a header far longer than allowed
+        ByteArrayOutputStream oversized = start();
+        writeVarLong(oversized, Integer.MAX_VALUE - 8);
+        oversized.write(header);
+        assertThrows(FormattingException.class, () -> formatter.parseContent(
+                new ByteArrayInputStream(oversized.toByteArray()), TimeSeries.class));
+
+        // an allowed header length the body stops short of
+        ByteArrayOutputStream shortHeader = start();
+        writeVarLong(shortHeader, BinaryV1TimeSeries.MAX_HEADER_LENGTH);
+        shortHeader.write(header);
+        assertThrows(FormattingException.class, () -> formatter.parseContent(
+                new ByteArrayInputStream(shortHeader.toByteArray()), TimeSeries.class));
+
+        // a count above the limit, and one within it with no values behind it
+        ZonedDateTime begin = ZonedDateTime.parse("2024-01-01T00:00:00Z");
+        byte[] empty = formatter.formatBytes(new TimeSeries(null, -1, 0, "Loc.Flow.Inst.15Minutes.0.test",
+                "SWT", begin, begin.plusDays(1), "cfs", Duration.ofMinutes(15)));
+        for (long count : new long[]{Integer.MAX_VALUE - 8, 9_000_000}) {
+            // an empty series ends with a count and a quality run count of 0
+            ByteArrayOutputStream truncated = new ByteArrayOutputStream();
+            truncated.write(empty, 0, empty.length - 2);
+            writeVarLong(truncated, count);
+            truncated.write(new byte[]{2, 4, 0});
+            assertThrows(FormattingException.class, () -> formatter.parseContent(
+                    new ByteArrayInputStream(truncated.toByteArray()), TimeSeries.class));
+        }
+    }
+
+    private static ByteArrayOutputStream start() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('C');
+        out.write('W');
+        out.write('T');
+        out.write('S');
+        out.write(1);
+        return out;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
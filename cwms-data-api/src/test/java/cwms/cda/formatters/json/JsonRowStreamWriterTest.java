@@ -0,0 +1,60 @@
+package cwms.cda.formatters.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import cwms.cda.data.dto.texttimeseries.RegularTextTimeSeriesRow;
+import cwms.cda.data.dto.texttimeseries.TextTimeSeries;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class JsonRowStreamWriterTest {
+
+    @Test
+    void test_streamed_matches_formatted() throws IOException {
+        List<RegularTextTimeSeriesRow> rows = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            rows.add(new RegularTextTimeSeriesRow.Builder()
+                    .withDateTime(Instant.parse("2023-01-03T12:05:00Z").plusSeconds(3600L * i))
+                    .withDataEntryDate(Instant.parse("2023-03-03T12:05:00Z"))
+                    .withTextValue("text " + i)
+                    .withQualityCode(0L)
+                    .build());
+        }
+        TextTimeSeries header = headerBuilder().build();
+        TextTimeSeries.Builder builder = headerBuilder();
+        rows.forEach(builder::withRow);
+        String expected = JsonV2.buildObjectMapper().writeValueAsString(builder.build());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonRowStreamWriter<TextTimeSeries, RegularTextTimeSeriesRow> writer =
+                new JsonRowStreamWriter<>(out, "regular-text-values");
+        writer.start(header);
+        for (RegularTextTimeSeriesRow row : rows) {
+            writer.row(row);
+        }
+        writer.finish();
+
+        assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void test_finish_requires_start() {
+        JsonRowStreamWriter<TextTimeSeries, RegularTextTimeSeriesRow> writer =
+                new JsonRowStreamWriter<>(new ByteArrayOutputStream(), "regular-text-values");
+        assertThrows(IllegalStateException.class, writer::finish);
+    }
+
+    private static TextTimeSeries.Builder headerBuilder() {
+        return new TextTimeSeries.Builder()
+                .withOfficeId("SPK")
+                .withName("First519402.Flow.Inst.1Hour.0.1688755420497")
+                .withTimeZone("America/New_York")
+                .withIntervalOffset(0L);
+    }
+}
@@ -0,0 +1,91 @@
+package cwms.cda.limits;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.codahale.metrics.MetricRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class ConcurrencyLimiterTest {
+
+    @Test
+    void test_type_parse_falls_back_on_unknown() {
+        assertEquals(ConcurrencyLimiter.Type.VEGAS, ConcurrencyLimiter.Type.parse(" vegas ", ConcurrencyLimiter.Type.FIXED));
+        assertEquals(ConcurrencyLimiter.Type.FIXED, ConcurrencyLimiter.Type.parse("gradient2", ConcurrencyLimiter.Type.FIXED));
+        assertEquals(ConcurrencyLimiter.Type.AIMD, ConcurrencyLimiter.Type.parse(null, ConcurrencyLimiter.Type.AIMD));
+    }
+
+    @Test
+    void test_sheds_when_limit_and_queue_full() throws Exception {
+        MetricRegistry metrics = new MetricRegistry();
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", new FixedLimit(2), 0,
+                0, TimeUnit.MILLISECONDS, 3).registerMetrics(metrics);
+
+        ConcurrencyLimiter.Permit first = limiter.tryAcquire();
+        ConcurrencyLimiter.Permit second = limiter.tryAcquire();
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(limiter.tryAcquire());
+        assertEquals(1, metrics.meter(MetricRegistry.name(ConcurrencyLimiter.class, "test", "rejected")).getCount());
+
+        first.release(false);
+        first.release(false); // second release is ignored
+        assertEquals(1, limiter.getInFlight());
+        assertNotNull(limiter.tryAcquire());
+    }
+
+    @Test
+    void test_waiting_request_gets_released_permit() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", new FixedLimit(1), 1,
+                5, TimeUnit.SECONDS, 3);
+        ConcurrencyLimiter.Permit first = limiter.tryAcquire();
+        CompletableFuture<ConcurrencyLimiter.Permit> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.tryAcquire();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (limiter.getWaiting() == 0 && !waiter.isDone()) {
+            Thread.sleep(5);
+        }
+        first.release(false);
+        assertNotNull(waiter.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void test_aimd_grows_and_backs_off() {
+        AimdLimit limit = new AimdLimit(10, 2, 20, 0.5, 1, TimeUnit.SECONDS);
+        limit.onSample(TimeUnit.MILLISECONDS.toNanos(100), 10, false);
+        assertEquals(11, limit.getLimit());
+        limit.onSample(TimeUnit.MILLISECONDS.toNanos(100), 1, false);
+        assertEquals(11, limit.getLimit(), "unused limit should not grow");
+        limit.onSample(TimeUnit.SECONDS.toNanos(2), 11, false);
+        assertEquals(5, limit.getLimit());
+        limit.onSample(TimeUnit.MILLISECONDS.toNanos(1), 5, true);
+        assertEquals(2, limit.getLimit());
+        limit.onSample(TimeUnit.MILLISECONDS.toNanos(1), 5, true);
+        assertEquals(2, limit.getLimit(), "limit must not drop below the minimum");
+    }
+
+    @Test
+    void test_vegas_reacts_to_queueing() {
+        VegasLimit limit = new VegasLimit(20, 1, 100);
+        long base = TimeUnit.MILLISECONDS.toNanos(10);
+        limit.onSample(base, 20, false);
+        for (int i = 0; i < 10; i++) {
+            limit.onSample(base, 20, false);
+        }
+        int grown = limit.getLimit();
+        assertTrue(grown > 20, "limit should grow while latency stays at the no-load value");
+
+        for (int i = 0; i < 10; i++) {
+            limit.onSample(base * 10, grown, false);
+        }
+        assertTrue(limit.getLimit() < grown, "limit should shrink when latency indicates queueing");
+    }
+}
@@ -0,0 +1,60 @@
+package cwms.cda.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.codahale.metrics.MetricRegistry;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class RequestTimingTest {
+
+    @AfterEach
+    void cleanup() {
+        RequestTiming.end();
+    }
+
+    @Test
+    void test_record_without_timing_is_ignored() {
+        assertNull(RequestTiming.current());
+        RequestTiming.record(RequestTiming.Phase.SQL, System.nanoTime());
+        assertNull(RequestTiming.current());
+    }
+
+    @Test
+    void test_phases_accumulate() {
+        RequestTiming timing = RequestTiming.start();
+        assertSame(timing, RequestTiming.current());
+        timing.add(RequestTiming.Phase.SQL, TimeUnit.MILLISECONDS.toNanos(5));
+        timing.add(RequestTiming.Phase.SQL, TimeUnit.MILLISECONDS.toNanos(7));
+        timing.add(RequestTiming.Phase.FORMAT, TimeUnit.MILLISECONDS.toNanos(2));
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(12), timing.getNanos(RequestTiming.Phase.SQL));
+        assertEquals(2, timing.getCount(RequestTiming.Phase.SQL));
+
+        String header = timing.toServerTimingHeader();
+        assertTrue(header.startsWith("sql;dur=12.0;desc=\"statement execution\", fmt;dur=2.0"), header);
+        assertTrue(header.contains("total;dur="), header);
+        assertFalse(header.contains("conn"), header);
+    }
+
+    @Test
+    void test_publish_per_route() {
+        MetricRegistry metrics = new MetricRegistry();
+        RequestTiming timing = RequestTiming.start();
+        timing.setRoute("/timeseries.GET");
+        timing.add(RequestTiming.Phase.CONNECTION, 1000);
+        timing.publish(metrics);
+
+        assertEquals(1, metrics.timer(MetricRegistry.name(RequestTiming.METRIC_BASE,
+                "/timeseries.GET", "conn")).getCount());
+        assertEquals(1, metrics.timer(MetricRegistry.name(RequestTiming.METRIC_BASE,
+                "/timeseries.GET", "total")).getCount());
+        assertFalse(metrics.getTimers().containsKey(MetricRegistry.name(RequestTiming.METRIC_BASE,
+                "/timeseries.GET", "sql")));
+    }
+}
@@ -0,0 +1,85 @@
+package cwms.cda.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class SqlStatisticsTest {
+
+    @Test
+    void test_fingerprint_normalizes_literals() {
+        String a = SqlStatistics.fingerprint("select *  from cwms_20.av_loc where office_id = 'SWT' and location_code = 42");
+        String b = SqlStatistics.fingerprint("SELECT * FROM cwms_20.av_loc\n WHERE office_id = 'SPK' AND location_code = 7");
+        assertEquals("select * from cwms_20.av_loc where office_id = ? and location_code = ?", a);
+        assertEquals(a, b);
+    }
+
+    @Test
+    void test_fingerprint_collapses_in_lists() {
+        String a = SqlStatistics.fingerprint("select 1 from dual where x in (?, ?, ?)");
+        String b = SqlStatistics.fingerprint("select 1 from dual where x in (?,?)");
+        assertEquals(a, b);
+        assertTrue(a.contains("in (?+)"), a);
+    }
+
+    @Test
+    void test_record_groups_by_fingerprint() {
+        SqlStatistics stats = new SqlStatistics(1, TimeUnit.SECONDS, 10, 2);
+        stats.record("select * from t where a = 1", TimeUnit.MILLISECONDS.toNanos(10), 5, 1, "GET /a");
+        stats.record("select * from t where a = 2", TimeUnit.MILLISECONDS.toNanos(20), 7, 2, "GET /b");
+
+        List<SqlStatistics.FingerprintStats> fingerprints = stats.getFingerprints();
+        assertEquals(1, fingerprints.size());
+        SqlStatistics.FingerprintStats entry = fingerprints.get(0);
+        assertEquals(2, entry.getCount());
+        assertEquals(12, entry.getRowsFetched());
+        assertEquals(3, entry.getRoundTrips());
+        assertEquals(Arrays.asList("GET /a", "GET /b"), entry.getEndpoints());
+        assertEquals(20.0, entry.getMaxMs(), 0.001);
+    }
+
+    @Test
+    void test_slow_samples_are_bounded() {
+        SqlStatistics stats = new SqlStatistics(1, TimeUnit.SECONDS, 10, 2);
+        assertFalse(stats.isSlow(TimeUnit.MILLISECONDS.toNanos(999)));
+        assertTrue(stats.isSlow(TimeUnit.SECONDS.toNanos(1)));
+        for (int i = 0; i < 5; i++) {
+            String fingerprint = stats.record("select " + i + " from dual where pwd = 'secret'",
+                    TimeUnit.SECONDS.toNanos(2), 1, 1, null);
+            stats.recordSlow(fingerprint, "select " + i + " from dual where pwd = 'secret'",
+                    Collections.nCopies(i, "secret"), TimeUnit.SECONDS.toNanos(2), null);
+        }
+        List<SqlStatistics.SlowSample> samples = stats.getSlowSamples();
+        assertEquals(2, samples.size());
+        assertEquals("select ? from dual where pwd = ?", samples.get(0).getFingerprint());
+        assertEquals(4, samples.get(0).getBindCount());
+        assertNull(samples.get(0).getSql());
+        assertNull(samples.get(0).getBindValues());
+
+        stats.reset();
+        assertTrue(stats.getSlowSamples().isEmpty());
+    }
+
+    @Test
+    void test_slow_samples_keep_values_when_capturing() {
+        SqlStatistics stats = new SqlStatistics(1, TimeUnit.SECONDS, 10, 2, true);
+        String fingerprint = stats.record("select 1 from dual where x = ?", TimeUnit.SECONDS.toNanos(2),
+                1, 1, null);
+        stats.recordSlow(fingerprint, "select 1 from dual where x = 'y'", Arrays.asList("y"),
+                TimeUnit.SECONDS.toNanos(2), "GET /a");
+
+        SqlStatistics.SlowSample sample = stats.getSlowSamples().get(0);
+        assertTrue(stats.isCapturingValues());
+        assertEquals("select ? from dual where x = ?", sample.getFingerprint());
+        assertEquals("select 1 from dual where x = 'y'", sample.getSql());
+        assertEquals(Arrays.asList("y"), sample.getBindValues());
+        assertEquals(1, sample.getBindCount());
+    }
+}